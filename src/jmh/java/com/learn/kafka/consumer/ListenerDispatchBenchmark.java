@@ -0,0 +1,87 @@
+package com.learn.kafka.consumer;
+
+import com.learn.kafka.payload.RecordPayload;
+import com.learn.kafka.tracing.TraceHeaders;
+import com.learn.kafka.tracing.TracingListenerInterceptor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.listener.adapter.HandlerAdapter;
+import org.springframework.kafka.listener.adapter.RecordMessagingMessageListenerAdapter;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.messaging.handler.annotation.support.DefaultMessageHandlerMethodFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coût de la distribution d'un record à une méthode {@code @KafkaListener} par spring-kafka : conversion
+ * en Message, résolution du payload et des en-têtes, appel réflexif, avec et sans l'intercepteur de trace.
+ * Le listener ne fait rien : seule la mécanique du conteneur est mesurée.
+ * <p>
+ * {@code mvn -Pjmh test-compile exec:exec -Djmh.args="ListenerDispatch -prof gc"}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ListenerDispatchBenchmark {
+
+    // Même signature que MessageConsumer.listen, sans le log
+    public static class Listener {
+        long received;
+
+        public void listen(RecordPayload message, @Header(KafkaHeaders.RECEIVED_TIMESTAMP) long publishedAt) {
+            received += message.length() + publishedAt;
+        }
+    }
+
+    private final Listener listener = new Listener();
+    private final TracingListenerInterceptor<String, RecordPayload> interceptor =
+            new TracingListenerInterceptor<>(new SimpleMeterRegistry());
+    private RecordMessagingMessageListenerAdapter<String, RecordPayload> adapter;
+    private ConsumerRecord<String, RecordPayload> record;
+
+    @Setup
+    public void setUp() throws NoSuchMethodException {
+        Method method = Listener.class.getMethod("listen", RecordPayload.class, long.class);
+        DefaultMessageHandlerMethodFactory handlerMethodFactory = new DefaultMessageHandlerMethodFactory();
+        handlerMethodFactory.afterPropertiesSet();
+        adapter = new RecordMessagingMessageListenerAdapter<>(listener, method);
+        adapter.setHandlerMethod(new HandlerAdapter(handlerMethodFactory.createInvocableHandlerMethod(listener, method)));
+
+        record = new ConsumerRecord<>("mon-tunnel-topic", 0, 0L, "USD",
+                RecordPayload.of("{\"event\":\"order-created\",\"amount\":125.40}"));
+        long now = TraceHeaders.nowMicros();
+        TraceHeaders.set(record.headers(), TraceHeaders.TRACE_ID, 1L);
+        TraceHeaders.set(record.headers(), TraceHeaders.ORIGIN_AT, now);
+        TraceHeaders.set(record.headers(), TraceHeaders.SENT_AT, now);
+    }
+
+    @Benchmark
+    public long dispatch() {
+        adapter.onMessage(record, null, null);
+        return listener.received;
+    }
+
+    @Benchmark
+    public long tracedDispatch() {
+        interceptor.intercept(record, null);
+        adapter.onMessage(record, null, null);
+        interceptor.success(record, null);
+        interceptor.afterRecord(record, null);
+        return listener.received;
+    }
+}
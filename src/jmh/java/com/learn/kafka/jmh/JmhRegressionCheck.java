@@ -0,0 +1,125 @@
+package com.learn.kafka.jmh;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compare un résultat JMH (-rf json) à la baseline versionnée et sort en erreur si un benchmark régresse
+ * au-delà du seuil : score principal (ops/s plus bas, ou temps moyen plus haut) ou allocation par opération
+ * ({@code gc.alloc.rate.norm}, présente avec {@code -prof gc}).
+ * <p>
+ * Un benchmark absent de l'un des deux fichiers est signalé sans faire échouer la comparaison.
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec                     # écrit target/jmh-result.json
+ * mvn -Pjmh exec:exec@jmh-compare -Djmh.threshold=10   # échoue au-delà de 10 % de régression
+ * cp target/jmh-result.json src/jmh/baseline.json      # nouvelle baseline, sur la machine de référence
+ * </pre>
+ */
+public final class JmhRegressionCheck {
+
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+    // Nom préfixé utilisé par les versions de JMH antérieures à 1.37
+    private static final String LEGACY_ALLOCATION = "·gc.alloc.rate.norm";
+    // En dessous, une variation d'allocation relève du bruit d'échantillonnage du profiler
+    private static final double ALLOCATION_SLACK_BYTES = 16;
+
+    private JmhRegressionCheck() {
+    }
+
+    record Result(String mode, double score, String unit, double allocation) {
+
+        boolean higherIsBetter() {
+            return "thrpt".equals(mode);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("Usage: JmhRegressionCheck <baseline.json> <result.json> <threshold-percent>");
+            System.exit(2);
+        }
+        List<String> regressions = compare(read(Path.of(args[0])), read(Path.of(args[1])), Double.parseDouble(args[2]));
+        if (!regressions.isEmpty()) {
+            System.err.printf("%d benchmark regression(s) above %s%%:%n", regressions.size(), args[2]);
+            regressions.forEach(regression -> System.err.println("  " + regression));
+            System.exit(1);
+        }
+        System.out.println("No benchmark regression above " + args[2] + "%");
+    }
+
+    static List<String> compare(Map<String, Result> baseline, Map<String, Result> current, double thresholdPercent) {
+        double threshold = thresholdPercent / 100;
+        List<String> regressions = new ArrayList<>();
+        for (Map.Entry<String, Result> entry : new TreeMap<>(current).entrySet()) {
+            Result before = baseline.get(entry.getKey());
+            Result after = entry.getValue();
+            if (before == null || !before.mode().equals(after.mode())) {
+                System.out.println("NEW   " + entry.getKey() + " " + format(after.score(), after.unit()));
+                continue;
+            }
+            // Variation orientée : positive quand le benchmark se dégrade
+            double change = after.higherIsBetter()
+                    ? (before.score() - after.score()) / before.score()
+                    : (after.score() - before.score()) / before.score();
+            boolean slower = change > threshold;
+            boolean allocates = !Double.isNaN(before.allocation()) && !Double.isNaN(after.allocation())
+                    && after.allocation() > before.allocation() * (1 + threshold) + ALLOCATION_SLACK_BYTES;
+
+            System.out.printf(Locale.ROOT, "%s %s %s -> %s (%+.1f%%), alloc %.0f -> %.0f B/op%n",
+                    slower || allocates ? "FAIL " : "OK   ", entry.getKey(),
+                    format(before.score(), before.unit()), format(after.score(), after.unit()), -change * 100,
+                    before.allocation(), after.allocation());
+            if (slower) {
+                regressions.add(String.format(Locale.ROOT, "%s: score %s -> %s", entry.getKey(),
+                        format(before.score(), before.unit()), format(after.score(), after.unit())));
+            }
+            if (allocates) {
+                regressions.add(String.format(Locale.ROOT, "%s: allocation %.0f -> %.0f B/op", entry.getKey(),
+                        before.allocation(), after.allocation()));
+            }
+        }
+        baseline.keySet().stream().filter(key -> !current.containsKey(key)).sorted()
+                .forEach(key -> System.out.println("MISS  " + key));
+        return regressions;
+    }
+
+    static Map<String, Result> read(Path file) throws IOException {
+        Map<String, Result> results = new LinkedHashMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(file.toFile())) {
+            JsonNode primary = run.path("primaryMetric");
+            JsonNode secondary = run.path("secondaryMetrics");
+            JsonNode allocation = secondary.has(ALLOCATION) ? secondary.path(ALLOCATION) : secondary.path(LEGACY_ALLOCATION);
+            results.put(key(run), new Result(run.path("mode").asText(), primary.path("score").asDouble(),
+                    primary.path("scoreUnit").asText(),
+                    allocation.isMissingNode() ? Double.NaN : allocation.path("score").asDouble()));
+        }
+        return results;
+    }
+
+    // Nom complet du benchmark et paramètres @Param, triés pour une clé stable
+    private static String key(JsonNode run) {
+        StringBuilder key = new StringBuilder(run.path("benchmark").asText());
+        Map<String, String> params = new TreeMap<>();
+        for (Iterator<Map.Entry<String, JsonNode>> it = run.path("params").fields(); it.hasNext(); ) {
+            Map.Entry<String, JsonNode> param = it.next();
+            params.put(param.getKey(), param.getValue().asText());
+        }
+        params.forEach((name, value) -> key.append(key.indexOf(":") < 0 ? ":" : ",").append(name).append('=').append(value));
+        return key.toString();
+    }
+
+    private static String format(double score, String unit) {
+        return String.format(Locale.ROOT, "%.3f %s", score, unit);
+    }
+}
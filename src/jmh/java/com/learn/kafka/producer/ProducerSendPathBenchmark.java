@@ -0,0 +1,60 @@
+package com.learn.kafka.producer;
+
+import com.learn.kafka.tracing.TracingProducerInterceptor;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Travail fait sur le thread appelant de {@link MessageProducer#sendMessage} avant l'accumulateur :
+ * en-têtes de trace posés par l'intercepteur, puis sérialisation de la clé et de la valeur.
+ * <p>
+ * {@code mvn -Pjmh test-compile exec:exec -Djmh.args="ProducerSendPath -prof gc"}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProducerSendPathBenchmark {
+
+    private static final String TOPIC = "mon-tunnel-topic";
+
+    private final TracingProducerInterceptor interceptor = new TracingProducerInterceptor();
+    private final StringSerializer serializer = new StringSerializer();
+    private String message;
+
+    @Setup
+    public void setUp() {
+        // Message /produce typique : une ligne JSON de quelques centaines d'octets
+        message = "{\"event\":\"order-created\",\"orderId\":\"" + "0".repeat(24) + "\",\"amount\":125.40,"
+                + "\"currency\":\"EUR\",\"customer\":{\"id\":42,\"country\":\"FR\"},\"items\":[" + "{\"sku\":\"A-1\",\"qty\":2},".repeat(6)
+                + "{\"sku\":\"B-2\",\"qty\":1}]}";
+    }
+
+    @TearDown
+    public void tearDown() {
+        serializer.close();
+    }
+
+    @Benchmark
+    public void keyedSend(Blackhole blackhole) {
+        ProducerRecord<Object, Object> record = interceptor.onSend(new ProducerRecord<>(TOPIC, "USD", message));
+        blackhole.consume(serializer.serialize(TOPIC, record.headers(), (String) record.key()));
+        blackhole.consume(serializer.serialize(TOPIC, record.headers(), (String) record.value()));
+    }
+}
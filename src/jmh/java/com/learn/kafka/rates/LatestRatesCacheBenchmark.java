@@ -0,0 +1,81 @@
+package com.learn.kafka.rates;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Débit des lectures de {@link LatestRatesCache} pendant qu'un thread applique des mises à jour :
+ * trois lecteurs (taux direct, taux croisé) pour un rédacteur.
+ * <p>
+ * {@code mvn -Pjmh test-compile exec:exec -Djmh.args="LatestRatesCacheBenchmark -prof gc"}
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LatestRatesCacheBenchmark {
+
+    private static final int CURRENCIES = 160;
+
+    private final LatestRatesCache cache = new LatestRatesCache();
+    private final String[] currencies = new String[CURRENCIES];
+
+    // Curseur propre à chaque thread : un compteur partagé mesurerait sa propre contention
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < CURRENCIES; i++) {
+            currencies[i] = RateTable.currency(i * 97);
+            cache.put("USD", currencies[i], 0.5 + i * 1.37, 0);
+        }
+    }
+
+    @Benchmark
+    @Group("direct")
+    @GroupThreads(3)
+    public double directLookup(Cursor cursor) {
+        return cache.rate("USD", currencies[cursor.next++ & 127]);
+    }
+
+    @Benchmark
+    @Group("direct")
+    @GroupThreads(1)
+    public void directUpdate(Cursor cursor) {
+        int i = cursor.next++ & 127;
+        cache.put("USD", currencies[i], 0.5 + i * 1.37, i);
+    }
+
+    @Benchmark
+    @Group("cross")
+    @GroupThreads(3)
+    public double crossLookup(Cursor cursor) {
+        int i = cursor.next++ & 127;
+        return cache.rate(currencies[i], currencies[i + 1]);
+    }
+
+    @Benchmark
+    @Group("cross")
+    @GroupThreads(1)
+    public void crossUpdate(Cursor cursor) {
+        int i = cursor.next++ & 127;
+        cache.put("USD", currencies[i], 0.5 + i * 1.37, i);
+    }
+}
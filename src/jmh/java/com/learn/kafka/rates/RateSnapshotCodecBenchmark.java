@@ -0,0 +1,124 @@
+package com.learn.kafka.rates;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coût de (dé)sérialisation d'un snapshot de taux, JSON contre {@link RateSnapshotCodec}. Le décodage
+ * lit tous les taux : parse streaming en tableaux côté JSON, {@link RateSnapshotView} sur le buffer côté
+ * binaire. Les tailles sur le fil, brutes et après lz4 (compression du profil high-throughput), sont
+ * affichées au démarrage.
+ * <p>
+ * Mesure le codec isolé : tant que le topic reste en JSON, ces gains ne se retrouvent pas dans le pipeline.
+ * <p>
+ * {@code mvn -Pjmh test-compile exec:exec -Djmh.args="RateSnapshotCodec -prof gc"}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RateSnapshotCodecBenchmark {
+
+    private static final String TOPIC = "exchange-rates";
+
+    // Un delta typique, puis une keyframe complète
+    @Param({"8", "160"})
+    public int rates;
+
+    private final JsonFactory jsonFactory = new ObjectMapper().getFactory();
+    private final RateSnapshotDeserializer deserializer = new RateSnapshotDeserializer();
+    private final RecordHeaders headers = new RecordHeaders();
+    private final ByteArrayOutputStream jsonBuffer = new ByteArrayOutputStream(16 * 1024);
+
+    private RateSnapshot snapshot;
+    private byte[] json;
+    private ByteBuffer binary;
+
+    @Setup
+    public void setUp() throws IOException {
+        String[] quotes = new String[rates];
+        double[] values = new double[rates];
+        for (int i = 0; i < rates; i++) {
+            quotes[i] = RateTable.currency(i * 97);
+            // Précision des fournisseurs : 4 à 6 chiffres significatifs
+            values[i] = Double.parseDouble(String.format(Locale.ROOT, "%.5g", 0.5 + i * 1.37123));
+        }
+        snapshot = new RateSnapshot("USD", RateSnapshotCodec.micros(Instant.parse("2024-01-01T12:00:00.123456Z")),
+                "keyframe", "exchangerate-api", quotes, values);
+        json = jsonEncode();
+        binary = ByteBuffer.wrap(new RateSnapshotSerializer().serialize(TOPIC, headers, snapshot));
+
+        LZ4Compressor lz4 = LZ4Factory.fastestInstance().fastCompressor();
+        System.out.printf(Locale.ROOT, "%n%d rates: json %d B (lz4 %d B), binary %d B (lz4 %d B)%n", rates,
+                json.length, lz4.compress(json).length, binary.remaining(), lz4.compress(binary.array()).length);
+    }
+
+    @Benchmark
+    public byte[] jsonEncode() throws IOException {
+        jsonBuffer.reset();
+        try (JsonGenerator generator = jsonFactory.createGenerator(jsonBuffer, JsonEncoding.UTF8)) {
+            generator.writeStartObject();
+            generator.writeStringField("base", snapshot.base());
+            generator.writeObjectFieldStart("rates");
+            for (int i = 0; i < snapshot.size(); i++) {
+                generator.writeNumberField(snapshot.quotes()[i], snapshot.rates()[i]);
+            }
+            generator.writeEndObject();
+            generator.writeStringField("source", snapshot.source());
+            generator.writeStringField("timestamp", RateSnapshotCodec.instant(snapshot.timestampMicros()).toString());
+            generator.writeStringField("type", snapshot.type());
+            generator.writeEndObject();
+        }
+        return jsonBuffer.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] binaryEncode() {
+        return RateSnapshotCodec.encode(snapshot);
+    }
+
+    @Benchmark
+    public double jsonDecode() throws IOException {
+        RateSnapshot decoded = RateSnapshotCodec.fromJson(jsonFactory, json);
+        double sum = decoded.timestampMicros();
+        for (int i = 0; i < decoded.size(); i++) {
+            sum += decoded.rates()[i] + decoded.quotes()[i].length();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double binaryDecode() {
+        RateSnapshotView view = deserializer.deserialize(TOPIC, headers, binary);
+        double sum = view.timestampMicros();
+        for (int i = 0; i < view.size(); i++) {
+            sum += view.rate(i) + view.quoteCode(i);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,73 @@
+package com.learn.kafka.rates;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Allocation par snapshot enrichi (gc.alloc.rate.norm avec {@code -prof gc}) : ancien chemin
+ * String -> JsonNode -> String -> octets contre {@link RateSnapshotEnricher}.
+ * <p>
+ * {@code mvn -Pjmh test-compile exec:exec -Djmh.args="RateSnapshotEnrichment -prof gc"}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RateSnapshotEnrichmentBenchmark {
+
+    private static final String TIMESTAMP = "2024-01-01T00:00:00Z";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final RateSnapshotEnricher enricher = new RateSnapshotEnricher(objectMapper.getFactory());
+
+    // Corps tel que reçu du client HTTP
+    private byte[] body;
+
+    @Setup
+    public void setUp() {
+        // Même forme qu'une réponse de l'API : métadonnées puis ~160 taux
+        StringBuilder json = new StringBuilder("{\"provider\":\"https://www.exchangerate-api.com\",")
+                .append("\"base\":\"USD\",\"date\":\"2024-01-01\",\"time_last_updated\":1704067200,")
+                .append("\"time_next_update_unix\":1704153600,\"rates\":{");
+        for (int i = 0; i < 160; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append('"').append(RateTable.currency(i * 97)).append("\":")
+                    .append(String.format(Locale.ROOT, "%.6f", 0.5 + i * 1.37));
+        }
+        body = json.append("}}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] tree() throws IOException {
+        // Chemin historique : conversion String du RestTemplate, arbre, re-sérialisation, StringSerializer
+        JsonNode jsonNode = objectMapper.readTree(new String(body, StandardCharsets.UTF_8));
+        ((ObjectNode) jsonNode).put("timestamp", TIMESTAMP);
+        return objectMapper.writeValueAsString(jsonNode).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] streaming() throws IOException {
+        return enricher.enrich(new ByteArrayInputStream(body), TIMESTAMP, base -> RateSnapshotEnricher.KEEP_ALL).json();
+    }
+}
@@ -0,0 +1,97 @@
+package com.learn.kafka.service;
+
+import com.learn.kafka.payload.RecordPayload;
+import com.learn.kafka.payload.RecordPayloadDeserializer;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Construction des requêtes d'indexation par {@link ElasticsearchService} : corps NDJSON d'un _bulk
+ * (identifiant déterministe + document par ligne) et identifiant d'un PUT unitaire. Les documents sont des
+ * {@link RecordPayload} découpées dans un même buffer, comme à la sortie d'un fetch.
+ * <p>
+ * {@code mvn -Pjmh test-compile exec:exec -Djmh.args="ElasticsearchPayload -prof gc"}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ElasticsearchPayloadBenchmark {
+
+    private static final String[] QUOTES = {"EUR", "GBP", "JPY", "CHF", "CAD", "AUD", "SEK", "NOK"};
+
+    // Paramètre isolé dans son propre état pour ne pas dupliquer snapshotDocumentId
+    @State(Scope.Thread)
+    public static class Batch {
+
+        @Param({"1", "500"})
+        public int documents;
+
+        List<RecordPayload> pairs;
+
+        @Setup
+        public void setUp() {
+            // Paires telles que publiées sur exchange-rate-pairs
+            List<byte[]> records = new ArrayList<>(documents);
+            int size = 0;
+            for (int i = 0; i < documents; i++) {
+                records.add(("{\"base\":\"USD\",\"quote\":\"" + QUOTES[i % QUOTES.length] + "\",\"rate\":" + (0.5 + i * 0.001)
+                        + ",\"source\":\"exchangerate-api\",\"timestamp\":\"2024-01-01T12:00:" + (i % 60 < 10 ? "0" : "")
+                        + (i % 60) + "Z\"}").getBytes(StandardCharsets.UTF_8));
+                size += records.get(i).length;
+            }
+            ByteBuffer fetch = ByteBuffer.allocate(size);
+            records.forEach(fetch::put);
+            RecordPayloadDeserializer deserializer = new RecordPayloadDeserializer();
+            pairs = new ArrayList<>(documents);
+            int offset = 0;
+            for (byte[] record : records) {
+                pairs.add(deserializer.deserialize("exchange-rate-pairs", new RecordHeaders(),
+                        fetch.slice(offset, record.length)));
+                offset += record.length;
+            }
+        }
+    }
+
+    private final ElasticsearchBulkIndexer bulkIndexer = new ElasticsearchBulkIndexer();
+    private RecordPayload snapshot;
+
+    @Setup
+    public void setUp() {
+        // Snapshot complet pour le PUT unitaire
+        StringBuilder json = new StringBuilder("{\"base\":\"USD\",\"source\":\"exchangerate-api\",\"rates\":{");
+        for (int i = 0; i < 160; i++) {
+            json.append(i > 0 ? "," : "").append("\"C").append(i).append("\":").append(0.5 + i * 1.37);
+        }
+        snapshot = RecordPayload.wrap(json.append("},\"timestamp\":\"2024-01-01T12:00:00Z\",\"type\":\"keyframe\"}")
+                .toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public byte[] bulkBody(Batch batch) {
+        return bulkIndexer.buildBulkBody(batch.pairs);
+    }
+
+    @Benchmark
+    public String snapshotDocumentId() {
+        return DocumentIds.of(snapshot);
+    }
+}
@@ -0,0 +1,10 @@
+package com.learn.kafka;
+
+import org.apache.kafka.clients.producer.RecordMetadata;
+
+public record DeliveryReceipt(String topic, int partition, long offset) {
+
+    public static DeliveryReceipt from(RecordMetadata metadata) {
+        return new DeliveryReceipt(metadata.topic(), metadata.partition(), metadata.offset());
+    }
+}
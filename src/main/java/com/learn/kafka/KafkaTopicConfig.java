@@ -0,0 +1,47 @@
+package com.learn.kafka;
+
+import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+
+@Configuration
+public class KafkaTopicConfig {
+
+    @Value("${kafka.topic.partitions:3}")
+    int partitions;
+
+    @Value("${kafka.topic.replicas:1}")
+    int replicas;
+
+    @Bean
+    public NewTopic monTunnelTopic() {
+        return TopicBuilder.name("mon-tunnel-topic").partitions(partitions).replicas(replicas).build();
+    }
+
+    @Bean
+    public NewTopic exchangeRatesTopic() {
+        return TopicBuilder.name("exchange-rates").partitions(partitions).replicas(replicas).build();
+    }
+
+    @Bean
+    public NewTopic exchangeRatePairsTopic() {
+        return TopicBuilder.name("exchange-rate-pairs").partitions(partitions).replicas(replicas).build();
+    }
+
+    @Bean
+    public NewTopic exchangeRateOhlcTopic() {
+        return TopicBuilder.name("exchange-rate-ohlc").partitions(partitions).replicas(replicas).build();
+    }
+
+    @Bean
+    public NewTopic exchangeRatePairsDeadLetterTopic() {
+        return TopicBuilder.name("exchange-rate-pairs-es-dlt").partitions(partitions).replicas(replicas).build();
+    }
+
+    @Bean
+    public NewTopic exchangeRateOhlcDeadLetterTopic() {
+        return TopicBuilder.name("exchange-rate-ohlc-es-dlt").partitions(partitions).replicas(replicas).build();
+    }
+}
@@ -1,22 +1,127 @@
 package com.learn.kafka;
 
+import com.learn.kafka.producer.BatchProducer;
+import com.learn.kafka.producer.BatchSummary;
 import com.learn.kafka.producer.MessageProducer;
+import jakarta.annotation.PostConstruct;
+import org.apache.kafka.clients.producer.BufferExhaustedException;
+import org.apache.kafka.common.errors.TimeoutException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
 @RestController
 public class ProducerController {
 
+    private static final String TOPIC = "mon-tunnel-topic";
+
     @Autowired
     private MessageProducer messageProducer;
 
+    @Autowired
+    private BatchProducer batchProducer;
+
+    @Value("${producer.async.max-in-flight:1000}")
+    private int maxInFlight;
+
+    // Attente maximale de l'acquittement en mode synchrone, thread servlet bloqué
+    @Value("${producer.sync.timeout-ms:30000}")
+    private long syncTimeoutMs;
+
+    private Semaphore inFlight;
+
+    @PostConstruct
+    void initInFlightLimit() {
+        inFlight = new Semaphore(maxInFlight);
+    }
+
+    /**
+     * Répond une fois l'envoi acquitté par le broker, avec les mêmes statuts d'échec que le mode asynchrone.
+     */
     @PostMapping("/produce")
-    public ResponseEntity<String> sendMessage(@RequestParam("content") String content) {
-        messageProducer.sendMessage("mon-tunnel-topic", content);
-        return ResponseEntity.ok(content);
+    public ResponseEntity<Object> sendMessage(@RequestParam("content") String content) {
+        try {
+            messageProducer.sendMessage(TOPIC, content).get(syncTimeoutMs, TimeUnit.MILLISECONDS);
+            return ResponseEntity.ok(content);
+        } catch (ExecutionException e) {
+            return failure(e.getCause());
+        } catch (java.util.concurrent.TimeoutException e) {
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT)
+                    .body("Message not acknowledged within " + syncTimeoutMs + " ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Interrupted while sending message");
+        } catch (RuntimeException e) {
+            return failure(e);
+        }
+    }
+
+    /**
+     * Répond une fois l'envoi acquitté par le broker, sans bloquer de thread servlet pendant l'attente.
+     */
+    @PostMapping(value = "/produce", params = "async=true")
+    public CompletableFuture<ResponseEntity<Object>> sendMessageAsync(@RequestParam("content") String content) {
+        if (!inFlight.tryAcquire()) {
+            return CompletableFuture.completedFuture(tooManyRequests("Too many in-flight messages"));
+        }
+
+        try {
+            return messageProducer.sendMessage(TOPIC, content)
+                    .handle((result, ex) -> {
+                        inFlight.release();
+                        if (ex == null) {
+                            return ResponseEntity.ok(DeliveryReceipt.from(result.getRecordMetadata()));
+                        }
+                        return failure(ex);
+                    });
+        } catch (RuntimeException e) {
+            inFlight.release();
+            return CompletableFuture.completedFuture(failure(e));
+        }
+    }
+
+    /**
+     * Corps NDJSON ou tableau JSON lu en flux. Répond 400 si le corps est illisible ;
+     * les messages lus avant l'erreur restent envoyés et sont comptés dans le bilan.
+     */
+    @PostMapping(value = "/produce/batch",
+            consumes = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<BatchSummary> sendBatch(InputStream body) {
+        BatchSummary summary = batchProducer.produce(TOPIC, body);
+        return summary.complete() ? ResponseEntity.ok(summary) : ResponseEntity.badRequest().body(summary);
+    }
+
+    private ResponseEntity<Object> failure(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            // Buffer producteur resté plein pendant max.block.ms : seul cas où l'appelant doit ralentir
+            if (cause instanceof BufferExhaustedException) {
+                return tooManyRequests("Producer buffer is full");
+            }
+            // Métadonnées introuvables ou lot expiré (delivery.timeout.ms) : le broker ne répond pas
+            if (cause instanceof TimeoutException) {
+                return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT)
+                        .body("Message not delivered: " + cause.getMessage());
+            }
+        }
+        return ResponseEntity.status(HttpStatus.BAD_GATEWAY).body("Message not delivered: " + ex.getMessage());
+    }
+
+    private ResponseEntity<Object> tooManyRequests(String reason) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(reason);
     }
 
-}
\ No newline at end of file
+}
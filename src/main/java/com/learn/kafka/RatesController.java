@@ -0,0 +1,27 @@
+package com.learn.kafka;
+
+import com.learn.kafka.rates.LatestRatesCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Locale;
+
+/**
+ * Derniers taux servis depuis la mémoire, sans passer par Elasticsearch.
+ */
+@RestController
+public class RatesController {
+
+    @Autowired
+    private LatestRatesCache latestRatesCache;
+
+    @GetMapping("/rates/{base}/{quote}")
+    public ResponseEntity<LatestRatesCache.RateQuote> rate(@PathVariable String base, @PathVariable String quote) {
+        return latestRatesCache.quote(base.toUpperCase(Locale.ROOT), quote.toUpperCase(Locale.ROOT))
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+}
@@ -1,26 +1,64 @@
 package com.learn.kafka.consumer;
 
+import com.learn.kafka.tracing.TracingListenerInterceptor;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.MicrometerConsumerListener;
+import org.springframework.kafka.listener.ContainerProperties;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Properties;
 
 @Configuration
+@Slf4j
 public class KafkaConsumerConfig {
 
+    // JEP 491 : avant Java 24, un synchronized bloquant immobilise le thread porteur
+    private static final int VIRTUAL_LISTENER_MIN_JAVA = 24;
+
     @Value("${spring.kafka.bootstrap-servers}")
     String bootstrapServers;
 
     @Value("${spring.kafka.consumer.group-id}")
     String consumerGroupId;
 
+    @Value("${kafka.consumer.max-poll-records:500}")
+    int maxPollRecords;
+
+    @Value("${kafka.consumer.fetch-min-bytes:1}")
+    int fetchMinBytes;
+
+    @Value("${kafka.consumer.fetch-max-wait-ms:500}")
+    int fetchMaxWaitMs;
+
+    // Un thread par partition : au-delà du nombre de partitions, les threads restent inactifs
+    @Value("${kafka.consumer.concurrency:${kafka.topic.partitions:3}}")
+    int concurrency;
+
+    // Fenêtre de relecture d'une position sortie de la rétention, la même que celle de LatestRatesListener
+    @Value("${rates.cache.rebuild-window-ms:1200000}")
+    long replayWindowMs;
+
+    // Même interrupteur que Tomcat et @Scheduled, appliqué ici car les factories sont déclarées à la main
+    @Value("${spring.threads.virtual.enabled:false}")
+    boolean virtualThreads;
+
+    // Factories déclarées à la main : l'auto-configuration n'y branche pas les métriques du client Kafka
+    @Autowired(required = false)
+    MeterRegistry meterRegistry;
+
     @Bean
     public ConsumerFactory<String, String> consumerFactory() {
         Map<String, Object> configProps = new HashMap<>();
@@ -29,13 +67,109 @@ public class KafkaConsumerConfig {
         configProps.put(ConsumerConfig.GROUP_ID_CONFIG, consumerGroupId);
         configProps.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
         configProps.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        return new DefaultKafkaConsumerFactory<>(configProps);
+        configProps.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
+        configProps.put(ConsumerConfig.FETCH_MIN_BYTES_CONFIG, fetchMinBytes);
+        configProps.put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, fetchMaxWaitMs);
+        DefaultKafkaConsumerFactory<String, String> factory = new DefaultKafkaConsumerFactory<>(configProps);
+        if (meterRegistry != null) {
+            // kafka.consumer.fetch.manager.records.lag par topic et partition, durée des fetchs, etc.
+            factory.addListener(new MicrometerConsumerListener<>(meterRegistry));
+        }
+        return factory;
     }
 
     @Bean
     public ConcurrentKafkaListenerContainerFactory<String, String> kafkaListenerContainerFactory() {
         ConcurrentKafkaListenerContainerFactory<String, String> factory = new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory());
+        factory.setConcurrency(concurrency);
+        configureListenerThreads(factory);
+        configureTracing(factory);
         return factory;
     }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, String> batchKafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, String> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory());
+        factory.setConcurrency(concurrency);
+        factory.setBatchListener(true);
+        configureListenerThreads(factory);
+        configureTracing(factory);
+        return factory;
+    }
+
+    /**
+     * Sinks batch idempotents : l'offset n'est committé qu'après acknowledge(), appelé une fois la réponse
+     * _bulk reçue. Un nack relivre le batch à partir de l'index donné.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, String> manualAckBatchKafkaListenerContainerFactory() {
+        // Instance distincte : appeler batchKafkaListenerContainerFactory() renverrait le bean partagé
+        ConcurrentKafkaListenerContainerFactory<String, String> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory());
+        factory.setConcurrency(concurrency);
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        configureListenerThreads(factory);
+        configureTracing(factory);
+        return factory;
+    }
+
+    /**
+     * Listeners qui relisent le topic à chaque démarrage : ack manuel jamais appelé, donc aucun offset committé.
+     * Ils positionnent eux-mêmes chaque partition assignée ; sans politique de reset, une position sortie de la
+     * rétention est confiée au {@link ReplayErrorHandler}.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, String> replayKafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, String> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory());
+        factory.setConcurrency(concurrency);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        Properties overrides = new Properties();
+        overrides.setProperty(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "none");
+        factory.getContainerProperties().setKafkaConsumerProperties(overrides);
+        factory.setCommonErrorHandler(new ReplayErrorHandler(replayWindowMs));
+        configureListenerThreads(factory);
+        configureTracing(factory);
+        return factory;
+    }
+
+    // Latence par étape (saut, traitement, bout en bout) lue dans les en-têtes de trace, sans parser le message
+    private void configureTracing(ConcurrentKafkaListenerContainerFactory<String, String> factory) {
+        if (meterRegistry == null) {
+            return;
+        }
+        TracingListenerInterceptor<String, String> interceptor = new TracingListenerInterceptor<>(meterRegistry);
+        if (Boolean.TRUE.equals(factory.isBatchListener())) {
+            factory.setBatchInterceptor(interceptor);
+        } else {
+            factory.setRecordInterceptor(interceptor);
+        }
+    }
+
+    /**
+     * kafka-clients bloque dans des sections synchronized (AppInfoParser à la fermeture du consumer) :
+     * avant Java 24, les consumers y épinglent tous les threads porteurs et l'arrêt des conteneurs
+     * peut se bloquer. Les listeners restent alors sur threads plateforme.
+     */
+    private void configureListenerThreads(ConcurrentKafkaListenerContainerFactory<String, String> factory) {
+        if (!virtualThreads) {
+            return;
+        }
+        if (Runtime.version().feature() < VIRTUAL_LISTENER_MIN_JAVA) {
+            log.warn("Virtual threads enabled but Kafka listener containers keep platform threads on Java {} (requires Java {}+)",
+                    Runtime.version().feature(), VIRTUAL_LISTENER_MIN_JAVA);
+            return;
+        }
+        factory.getContainerProperties().setListenerTaskExecutor(virtualThreadListenerExecutor());
+    }
+
+    static AsyncTaskExecutor virtualThreadListenerExecutor() {
+        // Un thread par consommateur, créé au démarrage du conteneur : pas besoin de pool
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("kafka-listener-");
+        executor.setVirtualThreads(true);
+        return executor;
+    }
 }
\ No newline at end of file
@@ -1,15 +1,65 @@
 package com.learn.kafka.consumer;
 
+import com.learn.kafka.payload.RecordPayload;
+import com.learn.kafka.payload.RecordPayloadDeserializer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 @Component
 @Slf4j
 public class MessageConsumer {
 
-    @KafkaListener(topics = "mon-tunnel-topic", groupId = "${spring.kafka.consumer.group-id}")
-    public void listen(String message) {
+    @Autowired
+    private MeterRegistry meterRegistry = Metrics.globalRegistry;
+
+    // Durée de traitement, nombre de messages et lag par partition : spring.kafka.listener et kafka.consumer.*
+    private volatile Timer endToEnd;
+
+    @KafkaListener(id = "message-consumer", topics = "mon-tunnel-topic", groupId = "${spring.kafka.consumer.group-id}",
+            autoStartup = "#{!${kafka.consumer.batch-mode:false}}",
+            properties = RecordPayloadDeserializer.VALUE_DESERIALIZER_PROPERTY)
+    public void listen(RecordPayload message, @Header(KafkaHeaders.RECEIVED_TIMESTAMP) long publishedAt) {
+        endToEnd().record(Math.max(0, System.currentTimeMillis() - publishedAt), TimeUnit.MILLISECONDS);
+        // Le message n'est décodé que si le log est émis
         log.info("Message receive : {}", message);
     }
-}
\ No newline at end of file
+
+    @KafkaListener(id = "message-consumer-batch", topics = "mon-tunnel-topic", groupId = "${spring.kafka.consumer.group-id}",
+            containerFactory = "batchKafkaListenerContainerFactory",
+            autoStartup = "${kafka.consumer.batch-mode:false}",
+            properties = RecordPayloadDeserializer.VALUE_DESERIALIZER_PROPERTY)
+    public void listenBatch(List<ConsumerRecord<String, RecordPayload>> records) {
+        log.info("Batch receive : {} messages", records.size());
+        Timer timer = endToEnd();
+        long now = System.currentTimeMillis();
+        for (ConsumerRecord<String, RecordPayload> record : records) {
+            timer.record(Math.max(0, now - record.timestamp()), TimeUnit.MILLISECONDS);
+            log.debug("Message receive : {} (partition {}, offset {})", record.value(), record.partition(), record.offset());
+        }
+    }
+
+    // Délai entre l'horodatage posé par le producteur et la réception par le listener
+    private Timer endToEnd() {
+        Timer timer = endToEnd;
+        if (timer == null) {
+            timer = Timer.builder("kafka.consumer.end.to.end")
+                    .description("Delay between the Kafka record timestamp and its consumption")
+                    .tag("topic", "mon-tunnel-topic")
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+            endToEnd = timer;
+        }
+        return timer;
+    }
+}
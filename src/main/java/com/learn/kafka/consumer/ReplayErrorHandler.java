@@ -0,0 +1,54 @@
+package com.learn.kafka.consumer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.OffsetOutOfRangeException;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.listener.MessageListenerContainer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Erreurs des conteneurs de relecture, lancés avec auto.offset.reset=none : une position sortie de la
+ * rétention (checkpoint plus ancien que le topic) est ramenée sur la fenêtre de relecture, comme une partition
+ * sans position, au lieu de sauter en fin de topic et de perdre la dernière keyframe.
+ */
+@Slf4j
+public class ReplayErrorHandler extends DefaultErrorHandler {
+
+    private final long replayWindowMs;
+
+    public ReplayErrorHandler(long replayWindowMs) {
+        this.replayWindowMs = replayWindowMs;
+    }
+
+    @Override
+    public void handleOtherException(Exception thrownException, Consumer<?, ?> consumer,
+                                     MessageListenerContainer container, boolean batchListener) {
+        if (!(thrownException instanceof OffsetOutOfRangeException outOfRange)) {
+            super.handleOtherException(thrownException, consumer, container, batchListener);
+            return;
+        }
+        long timestamp = System.currentTimeMillis() - replayWindowMs;
+        Map<TopicPartition, Long> query = new HashMap<>();
+        outOfRange.partitions().forEach(partition -> query.put(partition, timestamp));
+        List<TopicPartition> idle = new ArrayList<>();
+        consumer.offsetsForTimes(query).forEach((partition, offset) -> {
+            if (offset != null) {
+                consumer.seek(partition, offset.offset());
+            } else {
+                idle.add(partition);
+            }
+        });
+        // Aucun record dans la fenêtre : même repli que ConsumerSeekCallback.seekToTimestamp
+        if (!idle.isEmpty()) {
+            consumer.seekToEnd(idle);
+        }
+        log.warn("Offsets {} out of range, replaying last {} ms", outOfRange.offsetOutOfRangePartitions(),
+                replayWindowMs);
+    }
+}
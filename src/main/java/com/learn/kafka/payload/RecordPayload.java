@@ -0,0 +1,113 @@
+package com.learn.kafka.payload;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Valeur d'un record laissée en octets UTF-8 : un sink qui renvoie le document tel quel (corps _bulk, PUT)
+ * l'écrit sans jamais le décoder. Les champs se lisent avec {@link #parser(JsonFactory)} directement sur les
+ * octets ; {@link #toString()} ne décode qu'au premier appel, par exemple quand un log est réellement émis.
+ * <p>
+ * La vue retient le buffer du fetch, que le consumer Kafka ne recycle pas : elle reste valide après le poll.
+ */
+public final class RecordPayload {
+
+    // Tranche du buffer reçu, position 0 : toutes les lectures sont absolues
+    private final ByteBuffer buffer;
+    private String text;
+
+    private RecordPayload(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Vue sur les octets restants du buffer, sans copie.
+     */
+    public static RecordPayload wrap(ByteBuffer buffer) {
+        return new RecordPayload(buffer.slice());
+    }
+
+    public static RecordPayload wrap(byte[] bytes) {
+        return new RecordPayload(ByteBuffer.wrap(bytes));
+    }
+
+    public static RecordPayload of(String text) {
+        RecordPayload payload = wrap(text.getBytes(StandardCharsets.UTF_8));
+        payload.text = text;
+        return payload;
+    }
+
+    /**
+     * @return la taille en octets
+     */
+    public int length() {
+        return buffer.remaining();
+    }
+
+    public boolean isEmpty() {
+        return !buffer.hasRemaining();
+    }
+
+    /**
+     * @return la position du premier octet égal à {@code value}, -1 si absent
+     */
+    public int indexOf(byte value) {
+        for (int i = 0; i < buffer.limit(); i++) {
+            if (buffer.get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Copie les octets à la position courante de {@code out}, qui avance d'autant.
+     */
+    public void writeTo(ByteBuffer out) {
+        int length = buffer.remaining();
+        out.put(out.position(), buffer, 0, length);
+        out.position(out.position() + length);
+    }
+
+    public byte[] toByteArray() {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(0, bytes);
+        return bytes;
+    }
+
+    /**
+     * Parser JSON sur les octets du record, sans passer par une chaîne.
+     */
+    public JsonParser parser(JsonFactory jsonFactory) throws IOException {
+        if (buffer.hasArray()) {
+            return jsonFactory.createParser(buffer.array(), buffer.arrayOffset(), buffer.remaining());
+        }
+        return jsonFactory.createParser(toByteArray());
+    }
+
+    @Override
+    public String toString() {
+        String decoded = text;
+        if (decoded == null) {
+            decoded = buffer.hasArray()
+                    ? new String(buffer.array(), buffer.arrayOffset(), buffer.remaining(), StandardCharsets.UTF_8)
+                    : new String(toByteArray(), StandardCharsets.UTF_8);
+            text = decoded;
+        }
+        return decoded;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof RecordPayload payload && buffer.equals(payload.buffer);
+    }
+
+    @Override
+    public int hashCode() {
+        return buffer.hashCode();
+    }
+}
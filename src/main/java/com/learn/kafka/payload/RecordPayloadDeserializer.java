@@ -0,0 +1,30 @@
+package com.learn.kafka.payload;
+
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Enveloppe la valeur du record dans une {@link RecordPayload} : la variante ByteBuffer évite la copie
+ * en byte[] faite par défaut, aucun décodage UTF-8 n'a lieu.
+ */
+public class RecordPayloadDeserializer implements Deserializer<RecordPayload> {
+
+    /**
+     * Entrée des properties d'un {@code @KafkaListener}, les factories partagées restant en String.
+     */
+    public static final String VALUE_DESERIALIZER_PROPERTY =
+            ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG + "=com.learn.kafka.payload.RecordPayloadDeserializer";
+
+    @Override
+    public RecordPayload deserialize(String topic, byte[] data) {
+        return data == null ? null : RecordPayload.wrap(data);
+    }
+
+    @Override
+    public RecordPayload deserialize(String topic, Headers headers, ByteBuffer data) {
+        return data == null ? null : RecordPayload.wrap(data);
+    }
+}
@@ -0,0 +1,14 @@
+package com.learn.kafka.payload;
+
+import org.apache.kafka.common.serialization.Serializer;
+
+/**
+ * Republie une {@link RecordPayload} octet pour octet (topics de retry et DLT).
+ */
+public class RecordPayloadSerializer implements Serializer<RecordPayload> {
+
+    @Override
+    public byte[] serialize(String topic, RecordPayload data) {
+        return data == null ? null : data.toByteArray();
+    }
+}
@@ -0,0 +1,125 @@
+package com.learn.kafka.producer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Lit un flux NDJSON ou un tableau JSON élément par élément et l'envoie vers Kafka
+ * sans charger le corps complet en mémoire.
+ * <p>
+ * Chaque élément est soit un message brut (chaîne ou document JSON), soit une enveloppe
+ * {@code {"key": ..., "value": ...}} dont la clé est optionnelle.
+ */
+@Component
+@Slf4j
+public class BatchProducer {
+
+    private static final int MAX_REPORTED_ERRORS = 10;
+
+    @Autowired
+    private MessageProducer messageProducer;
+
+    @Value("${producer.batch.max-pending:1000}")
+    private int maxPending;
+
+    private final ObjectReader recordReader = new ObjectMapper().readerFor(JsonNode.class);
+
+    public BatchSummary produce(String topic, InputStream body) {
+        Tally tally = new Tally();
+        List<CompletableFuture<SendResult<String, String>>> pending = new ArrayList<>();
+        long position = 0;
+
+        try (MappingIterator<JsonNode> records = recordReader.readValues(body)) {
+            while (records.hasNextValue()) {
+                JsonNode record = records.nextValue();
+                position++;
+                send(topic, record, position, pending, tally);
+                // Borne la mémoire et le buffer producteur : attendre les acquittements par fenêtre
+                if (pending.size() >= maxPending) {
+                    awaitAll(pending, tally);
+                }
+            }
+        } catch (IOException e) {
+            String reason = e instanceof JsonProcessingException jpe ? jpe.getOriginalMessage() : e.getMessage();
+            tally.fail("Unreadable body after record " + position + ": " + reason);
+            tally.complete = false;
+        }
+
+        awaitAll(pending, tally);
+        log.info("Batch to topic {}: {} accepted, {} failed", topic, tally.accepted, tally.failed);
+        return new BatchSummary(tally.accepted, tally.failed, tally.complete, List.copyOf(tally.errors));
+    }
+
+    private void send(String topic, JsonNode record, long position,
+                      List<CompletableFuture<SendResult<String, String>>> pending, Tally tally) {
+        JsonNode value = record;
+        String key = null;
+        if (isEnvelope(record)) {
+            value = record.get("value");
+            JsonNode keyNode = record.get("key");
+            key = keyNode == null || keyNode.isNull() ? null : keyNode.asText();
+        }
+
+        if (value.isNull()) {
+            tally.fail("Record " + position + ": null value");
+            return;
+        }
+
+        try {
+            String message = value.isTextual() ? value.textValue() : value.toString();
+            pending.add(messageProducer.sendMessage(topic, key, message));
+        } catch (RuntimeException e) {
+            tally.fail("Record " + position + ": " + e.getMessage());
+        }
+    }
+
+    // Une enveloppe n'a que les champs "value" et éventuellement "key", sinon le document est le message
+    private static boolean isEnvelope(JsonNode record) {
+        if (!record.isObject() || !record.has("value")) {
+            return false;
+        }
+        return record.size() == 1 || (record.size() == 2 && record.has("key"));
+    }
+
+    private void awaitAll(List<CompletableFuture<SendResult<String, String>>> pending, Tally tally) {
+        for (CompletableFuture<SendResult<String, String>> future : pending) {
+            try {
+                future.join();
+                tally.accepted++;
+            } catch (RuntimeException e) {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                tally.fail(cause.getMessage());
+            }
+        }
+        pending.clear();
+    }
+
+    private static final class Tally {
+        private long accepted;
+        private long failed;
+        private boolean complete = true;
+        private final List<String> errors = new ArrayList<>();
+
+        private void fail(String error) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(error);
+            }
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.learn.kafka.producer;
+
+import java.util.List;
+
+/**
+ * Bilan d'un envoi par lot : {@code complete} est faux si la lecture du corps s'est arrêtée avant la fin.
+ */
+public record BatchSummary(long accepted, long failed, boolean complete, List<String> errors) {
+}
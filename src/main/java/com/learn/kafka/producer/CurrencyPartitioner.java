@@ -0,0 +1,80 @@
+package com.learn.kafka.producer;
+
+import org.apache.kafka.clients.producer.Partitioner;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.utils.Utils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * Partitionne les événements par devise (clé du record). Les devises listées dans
+ * {@value #ASSIGNMENTS_CONFIG} (ex. {@code USD:0,EUR:1}) ont une partition dédiée ;
+ * les autres clés sont hachées (murmur2) sur les partitions restantes, pour qu'une devise
+ * très active ne partage pas sa partition avec les autres.
+ */
+public class CurrencyPartitioner implements Partitioner {
+
+    public static final String ASSIGNMENTS_CONFIG = "currency.partitioner.assignments";
+
+    private Map<String, Integer> assignments = Map.of();
+    private final AtomicInteger roundRobin = new AtomicInteger();
+
+    // Partitions non dédiées, recalculées uniquement si le nombre de partitions change
+    private volatile SharedPartitions sharedPartitions = new SharedPartitions(-1, new int[0]);
+
+    @Override
+    public void configure(Map<String, ?> configs) {
+        Object value = configs.get(ASSIGNMENTS_CONFIG);
+        if (value == null || value.toString().isBlank()) {
+            return;
+        }
+        Map<String, Integer> parsed = new HashMap<>();
+        for (String entry : value.toString().split(",")) {
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid currency partition assignment: " + entry);
+            }
+            parsed.put(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+        }
+        assignments = Map.copyOf(parsed);
+    }
+
+    @Override
+    public int partition(String topic, Object key, byte[] keyBytes, Object value, byte[] valueBytes, Cluster cluster) {
+        int numPartitions = cluster.partitionsForTopic(topic).size();
+        if (keyBytes == null) {
+            return Utils.toPositive(roundRobin.getAndIncrement()) % numPartitions;
+        }
+
+        Integer assigned = assignments.get(key.toString());
+        if (assigned != null && assigned < numPartitions) {
+            return assigned;
+        }
+
+        int[] shared = sharedPartitions(numPartitions);
+        int hash = Utils.toPositive(Utils.murmur2(keyBytes));
+        return shared.length == 0 ? hash % numPartitions : shared[hash % shared.length];
+    }
+
+    private int[] sharedPartitions(int numPartitions) {
+        SharedPartitions current = sharedPartitions;
+        if (current.numPartitions() == numPartitions) {
+            return current.partitions();
+        }
+        int[] partitions = IntStream.range(0, numPartitions)
+                .filter(partition -> !assignments.containsValue(partition))
+                .toArray();
+        sharedPartitions = new SharedPartitions(numPartitions, partitions);
+        return partitions;
+    }
+
+    private record SharedPartitions(int numPartitions, int[] partitions) {
+    }
+
+    @Override
+    public void close() {
+    }
+}
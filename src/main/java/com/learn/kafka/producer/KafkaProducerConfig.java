@@ -1,12 +1,20 @@
 package com.learn.kafka.producer;
 
+import com.learn.kafka.payload.RecordPayload;
+import com.learn.kafka.payload.RecordPayloadSerializer;
+import com.learn.kafka.tracing.TracingProducerInterceptor;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.MicrometerProducerListener;
 import org.springframework.kafka.core.ProducerFactory;
 import java.util.HashMap;
 import java.util.Map;
@@ -17,18 +25,135 @@ public class KafkaProducerConfig {
     @Value("${spring.kafka.bootstrap-servers}")
     String bootstrapServers;
 
+    // Profil low-latency : envoi immédiat, ack du leader seul
+    @Value("${kafka.producer.low-latency.linger-ms:0}")
+    int lowLatencyLingerMs;
+
+    @Value("${kafka.producer.low-latency.acks:1}")
+    String lowLatencyAcks;
+
+    // Temps maximum pendant lequel send() peut bloquer l'appelant quand le buffer est plein
+    @Value("${kafka.producer.low-latency.max-block-ms:500}")
+    long lowLatencyMaxBlockMs;
+
+    // Profil high-throughput : gros batches compressés, producteur idempotent
+    @Value("${kafka.producer.high-throughput.batch-size:131072}")
+    int highThroughputBatchSize;
+
+    @Value("${kafka.producer.high-throughput.linger-ms:20}")
+    int highThroughputLingerMs;
+
+    @Value("${kafka.producer.high-throughput.compression-type:lz4}")
+    String highThroughputCompressionType;
+
+    @Value("${kafka.producer.high-throughput.buffer-memory:67108864}")
+    long highThroughputBufferMemory;
+
+    // Partitions dédiées par devise pour CurrencyPartitioner, ex. USD:0,EUR:1 (vide = hachage seul)
+    @Value("${kafka.producer.currency-partitions:}")
+    String currencyPartitions;
+
+    // Métriques du client (kafka.producer.request.latency, record.error.rate...) pour chaque factory
+    @Autowired(required = false)
+    MeterRegistry meterRegistry;
+
     @Bean
+    @Primary
     public ProducerFactory<String, String> producerFactory() {
-        Map<String, Object> configProps = new HashMap<>();
+        return instrumented(new DefaultKafkaProducerFactory<>(lowLatencyConfig(StringSerializer.class)));
+    }
 
-        configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-        configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        return new DefaultKafkaProducerFactory<>(configProps);
+    @Bean
+    public ProducerFactory<String, String> highThroughputProducerFactory() {
+        return instrumented(new DefaultKafkaProducerFactory<>(highThroughputConfig(StringSerializer.class)));
+    }
+
+    // Mêmes profils avec des valeurs déjà encodées (JSON écrit en streaming, sans String intermédiaire)
+    @Bean
+    public ProducerFactory<String, byte[]> bytesProducerFactory() {
+        return instrumented(new DefaultKafkaProducerFactory<>(lowLatencyConfig(ByteArraySerializer.class)));
+    }
+
+    @Bean
+    public ProducerFactory<String, byte[]> highThroughputBytesProducerFactory() {
+        return instrumented(new DefaultKafkaProducerFactory<>(highThroughputConfig(ByteArraySerializer.class)));
+    }
+
+    // Records consommés en RecordPayload et republiés tels quels ; le producteur n'est créé qu'au premier envoi
+    @Bean
+    public ProducerFactory<String, RecordPayload> payloadProducerFactory() {
+        return instrumented(new DefaultKafkaProducerFactory<>(lowLatencyConfig(RecordPayloadSerializer.class)));
     }
 
     @Bean
+    @Primary
     public KafkaTemplate<String, String> kafkaTemplate() {
         return new KafkaTemplate<>(producerFactory());
     }
-}
\ No newline at end of file
+
+    @Bean
+    public KafkaTemplate<String, String> highThroughputKafkaTemplate() {
+        return new KafkaTemplate<>(highThroughputProducerFactory());
+    }
+
+    @Bean
+    public KafkaTemplate<String, byte[]> bytesKafkaTemplate() {
+        return new KafkaTemplate<>(bytesProducerFactory());
+    }
+
+    @Bean
+    public KafkaTemplate<String, byte[]> highThroughputBytesKafkaTemplate() {
+        return new KafkaTemplate<>(highThroughputBytesProducerFactory());
+    }
+
+    @Bean
+    public KafkaTemplate<String, RecordPayload> payloadKafkaTemplate() {
+        return new KafkaTemplate<>(payloadProducerFactory());
+    }
+
+    private <V> ProducerFactory<String, V> instrumented(DefaultKafkaProducerFactory<String, V> factory) {
+        if (meterRegistry != null) {
+            factory.addListener(new MicrometerProducerListener<>(meterRegistry));
+        }
+        return factory;
+    }
+
+    private Map<String, Object> lowLatencyConfig(Class<?> valueSerializer) {
+        Map<String, Object> configProps = baseConfig(valueSerializer);
+
+        configProps.put(ProducerConfig.LINGER_MS_CONFIG, lowLatencyLingerMs);
+        configProps.put(ProducerConfig.ACKS_CONFIG, lowLatencyAcks);
+        configProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, false);
+        configProps.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, lowLatencyMaxBlockMs);
+        return configProps;
+    }
+
+    private Map<String, Object> highThroughputConfig(Class<?> valueSerializer) {
+        Map<String, Object> configProps = baseConfig(valueSerializer);
+
+        configProps.put(ProducerConfig.BATCH_SIZE_CONFIG, highThroughputBatchSize);
+        configProps.put(ProducerConfig.LINGER_MS_CONFIG, highThroughputLingerMs);
+        configProps.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, highThroughputCompressionType);
+        configProps.put(ProducerConfig.BUFFER_MEMORY_CONFIG, highThroughputBufferMemory);
+        configProps.put(ProducerConfig.ACKS_CONFIG, "all");
+        configProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        configProps.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 5);
+        // Les événements de taux sont clés par devise de base
+        configProps.put(ProducerConfig.PARTITIONER_CLASS_CONFIG, CurrencyPartitioner.class);
+        if (currencyPartitions != null && !currencyPartitions.isBlank()) {
+            configProps.put(CurrencyPartitioner.ASSIGNMENTS_CONFIG, currencyPartitions);
+        }
+        return configProps;
+    }
+
+    private Map<String, Object> baseConfig(Class<?> valueSerializer) {
+        Map<String, Object> configProps = new HashMap<>();
+
+        configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, valueSerializer);
+        // En-têtes de trace (identifiant, dates d'origine et d'envoi) sur tous les records produits
+        configProps.put(ProducerConfig.INTERCEPTOR_CLASSES_CONFIG, TracingProducerInterceptor.class.getName());
+        return configProps;
+    }
+}
@@ -1,17 +1,89 @@
 package com.learn.kafka.producer;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Component;
 
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
 @Component
+@Slf4j
 public class MessageProducer {
 
     @Autowired
-    private KafkaTemplate<String, String> kafkaTemplate;
+    private ProducerProfileRouter producerProfileRouter;
+
+    @Autowired
+    private MeterRegistry meterRegistry = Metrics.globalRegistry;
+
+    // Une paire de meters par profil : le nom du topic, libre côté /produce, n'est pas un tag
+    private volatile Map<ProducerProfile, Timer> ackTimers;
+    private volatile Map<ProducerProfile, Counter> failureCounters;
+
+    public CompletableFuture<SendResult<String, String>> sendMessage(String topic, String message) {
+        long start = System.nanoTime();
+        return observe(topic, start, producerProfileRouter.templateFor(topic).send(topic, message));
+    }
 
-    public void sendMessage(String topic, String message) {
-        kafkaTemplate.send(topic, message);
+    /**
+     * Envoi avec clé : les messages de même clé arrivent dans la même partition.
+     */
+    public CompletableFuture<SendResult<String, String>> sendMessage(String topic, String key, String message) {
+        long start = System.nanoTime();
+        return observe(topic, start, producerProfileRouter.templateFor(topic).send(topic, key, message));
     }
 
-}
\ No newline at end of file
+    // Latence send -> ack du broker (ou échec), mesurée sur le thread d'I/O du producteur
+    private CompletableFuture<SendResult<String, String>> observe(String topic, long start,
+                                                                  CompletableFuture<SendResult<String, String>> future) {
+        ProducerProfile profile = producerProfileRouter.profileFor(topic);
+        future.whenComplete((result, ex) -> {
+            if (ex != null) {
+                failureCounters().get(profile).increment();
+                log.error("Error sending message to topic {}: {}", topic, ex.getMessage());
+            } else {
+                ackTimers().get(profile).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        });
+        return future;
+    }
+
+    private Map<ProducerProfile, Timer> ackTimers() {
+        Map<ProducerProfile, Timer> timers = ackTimers;
+        if (timers == null) {
+            timers = new EnumMap<>(ProducerProfile.class);
+            for (ProducerProfile profile : ProducerProfile.values()) {
+                timers.put(profile, Timer.builder("kafka.producer.send.ack")
+                        .description("Delay between send() and the broker acknowledgment")
+                        .tag("profile", profile.getPropertyName())
+                        .publishPercentileHistogram()
+                        .register(meterRegistry));
+            }
+            ackTimers = timers;
+        }
+        return timers;
+    }
+
+    private Map<ProducerProfile, Counter> failureCounters() {
+        Map<ProducerProfile, Counter> counters = failureCounters;
+        if (counters == null) {
+            counters = new EnumMap<>(ProducerProfile.class);
+            for (ProducerProfile profile : ProducerProfile.values()) {
+                counters.put(profile, Counter.builder("kafka.producer.send.failures")
+                        .description("Messages the broker did not acknowledge")
+                        .tag("profile", profile.getPropertyName())
+                        .register(meterRegistry));
+            }
+            failureCounters = counters;
+        }
+        return counters;
+    }
+}
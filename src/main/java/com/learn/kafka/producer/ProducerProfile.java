@@ -0,0 +1,26 @@
+package com.learn.kafka.producer;
+
+import java.util.Arrays;
+
+public enum ProducerProfile {
+
+    LOW_LATENCY("low-latency"),
+    HIGH_THROUGHPUT("high-throughput");
+
+    private final String propertyName;
+
+    ProducerProfile(String propertyName) {
+        this.propertyName = propertyName;
+    }
+
+    public String getPropertyName() {
+        return propertyName;
+    }
+
+    public static ProducerProfile fromPropertyName(String propertyName) {
+        return Arrays.stream(values())
+                .filter(profile -> profile.propertyName.equalsIgnoreCase(propertyName.trim()))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown producer profile: " + propertyName));
+    }
+}
@@ -0,0 +1,55 @@
+package com.learn.kafka.producer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Choisit le KafkaTemplate du profil configuré pour un topic
+ * (kafka.producer.topic-profiles), low-latency par défaut.
+ */
+@Component
+public class ProducerProfileRouter {
+
+    @Autowired
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    @Autowired
+    @Qualifier("highThroughputKafkaTemplate")
+    private KafkaTemplate<String, String> highThroughputKafkaTemplate;
+
+    @Autowired
+    @Qualifier("bytesKafkaTemplate")
+    private KafkaTemplate<String, byte[]> bytesKafkaTemplate;
+
+    @Autowired
+    @Qualifier("highThroughputBytesKafkaTemplate")
+    private KafkaTemplate<String, byte[]> highThroughputBytesKafkaTemplate;
+
+    @Value("#{${kafka.producer.topic-profiles:{:}}}")
+    private Map<String, String> topicProfiles = Map.of();
+
+    public ProducerProfile profileFor(String topic) {
+        String profile = topicProfiles.get(topic);
+        return profile == null ? ProducerProfile.LOW_LATENCY : ProducerProfile.fromPropertyName(profile);
+    }
+
+    public KafkaTemplate<String, String> templateFor(String topic) {
+        return switch (profileFor(topic)) {
+            case LOW_LATENCY -> kafkaTemplate;
+            case HIGH_THROUGHPUT -> highThroughputKafkaTemplate;
+        };
+    }
+
+    // Variante pour les valeurs déjà sérialisées en JSON
+    public KafkaTemplate<String, byte[]> bytesTemplateFor(String topic) {
+        return switch (profileFor(topic)) {
+            case LOW_LATENCY -> bytesKafkaTemplate;
+            case HIGH_THROUGHPUT -> highThroughputBytesKafkaTemplate;
+        };
+    }
+}
@@ -0,0 +1,92 @@
+package com.learn.kafka.rates;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fournisseur HTTP/JSON dont l'URL contient {@code {base}}. Les requêtes sont conditionnelles
+ * (If-None-Match / If-Modified-Since) avec les validateurs de la dernière réponse traitée pour cette base.
+ */
+@Slf4j
+public class HttpRateProvider implements RateProvider {
+
+    private final String name;
+    private final String urlTemplate;
+    private final List<String> bases;
+    private final int requestsPerMinute;
+    private final RestTemplate restTemplate;
+
+    // Validateurs par devise de base, renvoyés en requête conditionnelle
+    private final Map<String, Validators> validators = new ConcurrentHashMap<>();
+
+    private record Validators(String etag, String lastModified) {
+    }
+
+    public HttpRateProvider(String name, String urlTemplate, List<String> bases, int requestsPerMinute,
+                            RestTemplate restTemplate) {
+        this.name = name;
+        this.urlTemplate = urlTemplate;
+        this.bases = List.copyOf(bases);
+        this.requestsPerMinute = requestsPerMinute;
+        this.restTemplate = restTemplate;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public List<String> bases() {
+        return bases;
+    }
+
+    @Override
+    public int requestsPerMinute() {
+        return requestsPerMinute;
+    }
+
+    @Override
+    public <T> T fetch(String base, boolean conditional, SnapshotReader<T> reader) {
+        return restTemplate.execute(urlTemplate.replace("{base}", base), HttpMethod.GET,
+                request -> {
+                    Validators last = validators.get(base);
+                    if (!conditional || last == null) {
+                        return;
+                    }
+                    if (last.etag() != null) {
+                        request.getHeaders().setIfNoneMatch(last.etag());
+                    }
+                    if (last.lastModified() != null) {
+                        request.getHeaders().set(HttpHeaders.IF_MODIFIED_SINCE, last.lastModified());
+                    }
+                },
+                response -> read(base, response, reader));
+    }
+
+    private <T> T read(String base, ClientHttpResponse response, SnapshotReader<T> reader) throws IOException {
+        if (response.getStatusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED)) {
+            log.info("Exchange rates not modified since last fetch ({} {})", name, base);
+            return null;
+        }
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            return null;
+        }
+
+        T result = reader.read(response.getBody());
+
+        // Mémorisés seulement une fois le corps traité, sinon la prochaine requête reste inconditionnelle
+        validators.put(base, new Validators(response.getHeaders().getETag(),
+                response.getHeaders().getFirst(HttpHeaders.LAST_MODIFIED)));
+        return result;
+    }
+}
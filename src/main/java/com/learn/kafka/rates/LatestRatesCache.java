@@ -0,0 +1,336 @@
+package com.learn.kafka.rates;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Dernier taux connu par paire, en mémoire. Chaque devise reçoit un slot à sa première apparition ;
+ * une devise de base possède une ligne de taux indexée par slot, stockée en bits de double dans un
+ * {@link AtomicLongArray}. Lectures et mises à jour de taux sont sans verrou et sans allocation,
+ * seule l'attribution d'un slot à une nouvelle devise est synchronisée. La lecture d'un snapshot alloue
+ * son parser, mais les tableaux de taux lus sont réutilisés par thread consommateur.
+ */
+@Component
+@Slf4j
+public class LatestRatesCache {
+
+    static final int MAX_CURRENCIES = 512;
+
+    private static final long ABSENT = Double.doubleToRawLongBits(Double.NaN);
+
+    private final JsonFactory jsonFactory = new ObjectMapper().getFactory();
+
+    // Code ISO dense -> slot + 1 (0 = pas encore de slot)
+    private final AtomicIntegerArray slotByCode = new AtomicIntegerArray(RateTable.CAPACITY);
+    private final AtomicInteger nextSlot = new AtomicInteger();
+    private final AtomicIntegerArray codeBySlot = new AtomicIntegerArray(MAX_CURRENCIES);
+
+    // Une ligne par devise de base, créée à son premier snapshot
+    private final AtomicReferenceArray<AtomicLongArray> rows = new AtomicReferenceArray<>(MAX_CURRENCIES);
+    private final AtomicLongArray updatedAt = new AtomicLongArray(MAX_CURRENCIES);
+    // Slots des devises de base, dans l'ordre d'arrivée, parcourus pour les taux croisés
+    private final AtomicIntegerArray baseSlots = new AtomicIntegerArray(MAX_CURRENCIES);
+    private final AtomicInteger baseCount = new AtomicInteger();
+
+    // Un thread par partition appelle apply : les tableaux de lecture sont propres à chaque thread
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    private static final class Scratch {
+        int[] quotes = new int[64];
+        double[] values = new double[64];
+    }
+
+    /**
+     * @param base      la devise demandée
+     * @param quote     la devise cotée
+     * @param rate      unités de quote pour une unité de base
+     * @param via       devise pivot d'un taux croisé, null pour un taux direct ou inverse
+     * @param updatedAt horodatage (epoch ms) du plus ancien snapshot utilisé
+     */
+    public record RateQuote(String base, String quote, double rate, String via, long updatedAt) {
+    }
+
+    /**
+     * Applique un snapshot ou un delta du topic exchange-rates : seuls les taux présents sont mis à jour.
+     *
+     * @return le nombre de taux mis à jour
+     */
+    public int apply(String snapshot) throws IOException {
+        String base = null;
+        long timestamp = 0;
+        Scratch buffers = scratch.get();
+        int[] quotes = buffers.quotes;
+        double[] values = buffers.values;
+        int count = 0;
+
+        try (JsonParser parser = jsonFactory.createParser(snapshot)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return 0;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("base".equals(field) && value == JsonToken.VALUE_STRING) {
+                    base = parser.getText();
+                } else if ("timestamp".equals(field) && value == JsonToken.VALUE_STRING) {
+                    timestamp = Instant.parse(parser.getText()).toEpochMilli();
+                } else if ("rates".equals(field) && value == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        int quote = slot(parser.currentName());
+                        if (!parser.nextToken().isNumeric() || quote < 0) {
+                            parser.skipChildren();
+                            continue;
+                        }
+                        if (count == quotes.length) {
+                            quotes = buffers.quotes = Arrays.copyOf(quotes, count * 2);
+                            values = buffers.values = Arrays.copyOf(values, count * 2);
+                        }
+                        quotes[count] = quote;
+                        values[count++] = parser.getDoubleValue();
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+
+        int baseSlot = slot(base);
+        if (baseSlot < 0) {
+            return 0;
+        }
+        AtomicLongArray row = row(baseSlot);
+        for (int i = 0; i < count; i++) {
+            row.set(quotes[i], Double.doubleToRawLongBits(values[i]));
+        }
+        updatedAt.set(baseSlot, timestamp > 0 ? timestamp : System.currentTimeMillis());
+        return count;
+    }
+
+    public void put(String base, String quote, double rate, long timestamp) {
+        int baseSlot = slot(base);
+        int quoteSlot = slot(quote);
+        if (baseSlot < 0 || quoteSlot < 0) {
+            return;
+        }
+        row(baseSlot).set(quoteSlot, Double.doubleToRawLongBits(rate));
+        updatedAt.set(baseSlot, timestamp);
+    }
+
+    /**
+     * Taux direct, inverse ou croisé via une devise de base connue, sans allocation.
+     *
+     * @return le taux, ou {@link Double#NaN} si la paire ne peut pas être calculée
+     */
+    public double rate(String base, String quote) {
+        int baseSlot = existingSlot(base);
+        int quoteSlot = existingSlot(quote);
+        if (baseSlot < 0 || quoteSlot < 0) {
+            return Double.NaN;
+        }
+        if (baseSlot == quoteSlot) {
+            return 1.0;
+        }
+        double direct = direct(baseSlot, quoteSlot);
+        if (!Double.isNaN(direct)) {
+            return direct;
+        }
+        int pivot = pivot(baseSlot, quoteSlot);
+        return pivot < 0 ? Double.NaN : cross(pivot, baseSlot, quoteSlot);
+    }
+
+    public Optional<RateQuote> quote(String base, String quote) {
+        int baseSlot = existingSlot(base);
+        int quoteSlot = existingSlot(quote);
+        if (baseSlot < 0 || quoteSlot < 0) {
+            return Optional.empty();
+        }
+        if (baseSlot == quoteSlot) {
+            return Optional.of(new RateQuote(base, quote, 1.0, null, updatedAt.get(baseSlot)));
+        }
+        double direct = get(baseSlot, quoteSlot);
+        if (!Double.isNaN(direct)) {
+            return Optional.of(new RateQuote(base, quote, direct, null, updatedAt.get(baseSlot)));
+        }
+        double inverse = get(quoteSlot, baseSlot);
+        if (!Double.isNaN(inverse) && inverse != 0) {
+            return Optional.of(new RateQuote(base, quote, 1 / inverse, null, updatedAt.get(quoteSlot)));
+        }
+        int pivot = pivot(baseSlot, quoteSlot);
+        if (pivot < 0) {
+            return Optional.empty();
+        }
+        return Optional.of(new RateQuote(base, quote, cross(pivot, baseSlot, quoteSlot),
+                RateTable.currency(codeBySlot.get(pivot)), updatedAt.get(pivot)));
+    }
+
+    /**
+     * @return le nombre de devises de base pour lesquelles un snapshot a été reçu
+     */
+    public int baseCount() {
+        return baseCount.get();
+    }
+
+    /**
+     * Écrit les taux connus dans {@code out} : nombre de bases, puis par base son code, son horodatage,
+     * le nombre de taux et les couples (code coté, bits du double). Les lectures restent possibles pendant l'écriture.
+     *
+     * @throws java.nio.BufferOverflowException si {@code out} est trop petit
+     */
+    public void writeTo(ByteBuffer out) {
+        int bases = baseCount.get();
+        out.putInt(bases);
+        for (int i = 0; i < bases; i++) {
+            int baseSlot = baseSlots.get(i);
+            AtomicLongArray row = rows.get(baseSlot);
+            out.putInt(codeBySlot.get(baseSlot));
+            out.putLong(updatedAt.get(baseSlot));
+            int countPosition = out.position();
+            out.putInt(0);
+            int count = 0;
+            int slots = nextSlot.get();
+            for (int quoteSlot = 0; quoteSlot < slots; quoteSlot++) {
+                long bits = row.get(quoteSlot);
+                if (bits != ABSENT) {
+                    out.putInt(codeBySlot.get(quoteSlot));
+                    out.putLong(bits);
+                    count++;
+                }
+            }
+            out.putInt(countPosition, count);
+        }
+    }
+
+    /**
+     * Recharge un état écrit par {@link #writeTo(ByteBuffer)} par-dessus les taux déjà connus.
+     *
+     * @return le nombre de taux chargés
+     */
+    public int readFrom(ByteBuffer in) {
+        int loaded = 0;
+        int bases = in.getInt();
+        for (int i = 0; i < bases; i++) {
+            int baseSlot = slot(in.getInt());
+            long timestamp = in.getLong();
+            int count = in.getInt();
+            AtomicLongArray row = baseSlot < 0 ? null : row(baseSlot);
+            for (int j = 0; j < count; j++) {
+                int quoteSlot = slot(in.getInt());
+                long bits = in.getLong();
+                if (row != null && quoteSlot >= 0) {
+                    row.set(quoteSlot, bits);
+                    loaded++;
+                }
+            }
+            if (baseSlot >= 0) {
+                updatedAt.set(baseSlot, timestamp);
+            }
+        }
+        return loaded;
+    }
+
+    private double direct(int baseSlot, int quoteSlot) {
+        double direct = get(baseSlot, quoteSlot);
+        if (!Double.isNaN(direct)) {
+            return direct;
+        }
+        double inverse = get(quoteSlot, baseSlot);
+        return Double.isNaN(inverse) || inverse == 0 ? Double.NaN : 1 / inverse;
+    }
+
+    // Première devise de base qui cote les deux devises
+    private int pivot(int baseSlot, int quoteSlot) {
+        int bases = baseCount.get();
+        for (int i = 0; i < bases; i++) {
+            int pivot = baseSlots.get(i);
+            double toBase = get(pivot, baseSlot);
+            if (!Double.isNaN(toBase) && toBase != 0 && !Double.isNaN(get(pivot, quoteSlot))) {
+                return pivot;
+            }
+        }
+        return -1;
+    }
+
+    private double cross(int pivot, int baseSlot, int quoteSlot) {
+        return get(pivot, quoteSlot) / get(pivot, baseSlot);
+    }
+
+    private double get(int baseSlot, int quoteSlot) {
+        AtomicLongArray row = rows.get(baseSlot);
+        if (row == null) {
+            return Double.NaN;
+        }
+        // Certains fournisseurs ne cotent pas la devise de base elle-même
+        return baseSlot == quoteSlot ? 1.0 : Double.longBitsToDouble(row.get(quoteSlot));
+    }
+
+    private AtomicLongArray row(int baseSlot) {
+        AtomicLongArray row = rows.get(baseSlot);
+        if (row != null) {
+            return row;
+        }
+        // Création rare : une fois par devise de base, publiée avant d'être visible des pivots
+        synchronized (rows) {
+            row = rows.get(baseSlot);
+            if (row == null) {
+                row = new AtomicLongArray(MAX_CURRENCIES);
+                for (int i = 0; i < MAX_CURRENCIES; i++) {
+                    row.set(i, ABSENT);
+                }
+                rows.set(baseSlot, row);
+                int index = baseCount.get();
+                baseSlots.set(index, baseSlot);
+                baseCount.set(index + 1);
+            }
+            return row;
+        }
+    }
+
+    private int existingSlot(String currency) {
+        int code = RateTable.code(currency);
+        return code < 0 ? -1 : slotByCode.get(code) - 1;
+    }
+
+    private int slot(String currency) {
+        return slot(RateTable.code(currency));
+    }
+
+    // Attribue un slot à la première apparition d'une devise ; -1 si code non ISO ou table pleine
+    private int slot(int code) {
+        if (code < 0 || code >= RateTable.CAPACITY) {
+            return -1;
+        }
+        int existing = slotByCode.get(code);
+        if (existing > 0) {
+            return existing - 1;
+        }
+        synchronized (slotByCode) {
+            existing = slotByCode.get(code);
+            if (existing > 0) {
+                return existing - 1;
+            }
+            int slot = nextSlot.get();
+            if (slot >= MAX_CURRENCIES) {
+                log.warn("Latest rates cache is full, ignoring currency {}", RateTable.currency(code));
+                return -1;
+            }
+            codeBySlot.set(slot, code);
+            nextSlot.set(slot + 1);
+            slotByCode.set(code, slot + 1);
+            return slot;
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.learn.kafka.rates;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * Barres open/high/low/close/count par paire sur des fenêtres fixes d'une durée donnée, en temps
+ * d'événement (horodatage du snapshot). Une fenêtre est fermée et émise lorsque le plus grand horodatage
+ * reçu dépasse sa fin plus la période de grâce ; un taux arrivé après la fermeture de sa fenêtre est ignoré.
+ * <p>
+ * L'état tient dans des tableaux primitifs : chaque paire dispose d'un anneau de fenêtres ouvertes
+ * (celle en cours et celles encore dans la période de grâce), indexé par numéro de fenêtre.
+ * Non thread-safe : une instance appartient à un seul thread écrivain.
+ */
+public class OhlcAggregator {
+
+    /**
+     * Reçoit chaque fenêtre fermée, sur le thread qui a appelé {@link #add} ou {@link #advanceTo}.
+     */
+    @FunctionalInterface
+    public interface BarSink {
+        void closed(OhlcBar bar);
+    }
+
+    /**
+     * @param source fournisseur des taux agrégés, null s'il n'est pas connu
+     * @param window durée de la fenêtre au format ISO-8601 (PT1M, PT1H...)
+     * @param start  début inclus de la fenêtre
+     * @param end    fin exclue de la fenêtre
+     */
+    public record OhlcBar(String source, String base, String quote, String window, String start, String end,
+                          double open, double high, double low, double close, int count) {
+
+        // Clé Kafka identique à celle d'exchange-rate-pairs : l'ordre des barres est garanti par paire
+        public String key() {
+            return base + quote;
+        }
+    }
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private final String source;
+    private final long windowMs;
+    private final long graceMs;
+    private final String windowName;
+    private final BarSink sink;
+    // Fenêtres simultanément ouvertes par paire
+    private final int ring;
+
+    // Code ISO de base -> index de base + 1, puis par base : code ISO coté -> paire + 1
+    private final int[] baseByCode = new int[RateTable.CAPACITY];
+    private int[][] pairByQuote = new int[4][];
+    private int bases;
+    private int[] pairBase = new int[64];
+    private int[] pairQuote = new int[64];
+    private int pairs;
+
+    // Une case par (paire, position dans l'anneau)
+    private long[] windowStart = new long[0];
+    private long[] openAt = new long[0];
+    private long[] closeAt = new long[0];
+    private double[] open = new double[0];
+    private double[] high = new double[0];
+    private double[] low = new double[0];
+    private double[] close = new double[0];
+    private int[] count = new int[0];
+
+    // Début de la première fenêtre agrégée : les précédentes ne seraient que partielles après une reconstruction
+    private long firstWindowStart = Long.MIN_VALUE;
+    private long watermark = EMPTY;
+    // Plus petite fin de fenêtre encore ouverte : évite de parcourir l'état à chaque taux
+    private long nextCloseAt = Long.MAX_VALUE;
+    private long lateRates;
+
+    /**
+     * @param source fournisseur dont les taux sont agrégés : deux fournisseurs ne partagent jamais une barre
+     */
+    public OhlcAggregator(String source, Duration window, Duration grace, BarSink sink) {
+        if (window.isZero() || window.isNegative() || grace.isNegative()) {
+            throw new IllegalArgumentException("Invalid OHLC window " + window + " / grace " + grace);
+        }
+        this.source = source;
+        this.windowMs = window.toMillis();
+        this.graceMs = grace.toMillis();
+        this.windowName = window.toString();
+        this.sink = sink;
+        this.ring = (int) (graceMs / windowMs) + 2;
+        resize(pairBase.length * ring);
+    }
+
+    public String window() {
+        return windowName;
+    }
+
+    /**
+     * Ferme les fenêtres dont la période de grâce est écoulée, puis ajoute un taux observé à {@code timestamp} (epoch ms).
+     *
+     * @return false si le taux est arrivé trop tard ou si l'une des devises n'est pas un code ISO
+     */
+    public boolean add(String base, String quote, double rate, long timestamp) {
+        int baseCode = RateTable.code(base);
+        int quoteCode = RateTable.code(quote);
+        if (baseCode < 0 || quoteCode < 0 || Double.isNaN(rate)) {
+            return false;
+        }
+        long start = Math.floorDiv(timestamp, windowMs) * windowMs;
+        if (start < firstWindowStart) {
+            return false;
+        }
+        if (watermark != EMPTY && start + windowMs + graceMs <= watermark) {
+            lateRates++;
+            return false;
+        }
+
+        // Fermer d'abord : la case de l'anneau visée peut encore porter une fenêtre échue
+        advanceTo(timestamp);
+
+        int cell = pair(baseCode, quoteCode) * ring + (int) Math.floorMod(start / windowMs, (long) ring);
+        if (windowStart[cell] != start) {
+            // La case est libre : l'ancienne fenêtre qu'elle portait a forcément été fermée
+            windowStart[cell] = start;
+            openAt[cell] = timestamp;
+            closeAt[cell] = timestamp;
+            open[cell] = rate;
+            high[cell] = rate;
+            low[cell] = rate;
+            close[cell] = rate;
+            count[cell] = 1;
+            nextCloseAt = Math.min(nextCloseAt, start + windowMs + graceMs);
+        } else {
+            // Les retards restent ordonnés : open et close suivent l'horodatage, pas l'ordre d'arrivée
+            if (timestamp < openAt[cell]) {
+                openAt[cell] = timestamp;
+                open[cell] = rate;
+            }
+            if (timestamp >= closeAt[cell]) {
+                closeAt[cell] = timestamp;
+                close[cell] = rate;
+            }
+            high[cell] = Math.max(high[cell], rate);
+            low[cell] = Math.min(low[cell], rate);
+            count[cell]++;
+        }
+        return true;
+    }
+
+    /**
+     * Fait avancer le temps d'événement et émet les fenêtres dont la fin plus la grâce est atteinte.
+     */
+    public void advanceTo(long timestamp) {
+        if (watermark == EMPTY || timestamp > watermark) {
+            watermark = timestamp;
+        }
+        if (watermark < nextCloseAt) {
+            return;
+        }
+        long next = Long.MAX_VALUE;
+        for (int cell = 0; cell < pairs * ring; cell++) {
+            long start = windowStart[cell];
+            if (start == EMPTY) {
+                continue;
+            }
+            long closesAt = start + windowMs + graceMs;
+            if (closesAt <= watermark) {
+                emit(cell);
+                windowStart[cell] = EMPTY;
+            } else {
+                next = Math.min(next, closesAt);
+            }
+        }
+        nextCloseAt = next;
+    }
+
+    /**
+     * Ignore les fenêtres commençant avant {@code timestamp} (epoch ms) : seules les fenêtres entièrement
+     * couvertes par une relecture sont agrégées et émises.
+     */
+    public void skipWindowsBefore(long timestamp) {
+        firstWindowStart = Math.floorDiv(timestamp, windowMs) * windowMs;
+        if (firstWindowStart < timestamp) {
+            firstWindowStart += windowMs;
+        }
+    }
+
+    /**
+     * @return le nombre de taux ignorés car arrivés après la fermeture de leur fenêtre
+     */
+    public long lateRates() {
+        return lateRates;
+    }
+
+    private void emit(int cell) {
+        int pair = cell / ring;
+        long start = windowStart[cell];
+        sink.closed(new OhlcBar(source, RateTable.currency(pairBase[pair]), RateTable.currency(pairQuote[pair]), windowName,
+                Instant.ofEpochMilli(start).toString(), Instant.ofEpochMilli(start + windowMs).toString(),
+                open[cell], high[cell], low[cell], close[cell], count[cell]));
+    }
+
+    private int pair(int baseCode, int quoteCode) {
+        int base = baseByCode[baseCode] - 1;
+        if (base < 0) {
+            if (bases == pairByQuote.length) {
+                pairByQuote = Arrays.copyOf(pairByQuote, bases * 2);
+            }
+            base = bases++;
+            pairByQuote[base] = new int[RateTable.CAPACITY];
+            baseByCode[baseCode] = base + 1;
+        }
+        int pair = pairByQuote[base][quoteCode] - 1;
+        if (pair < 0) {
+            pair = pairs++;
+            if (pair == pairBase.length) {
+                pairBase = Arrays.copyOf(pairBase, pairBase.length * 2);
+                pairQuote = Arrays.copyOf(pairQuote, pairBase.length);
+                resize(pairBase.length * ring);
+            }
+            pairBase[pair] = baseCode;
+            pairQuote[pair] = quoteCode;
+            pairByQuote[base][quoteCode] = pair + 1;
+        }
+        return pair;
+    }
+
+    private void resize(int cells) {
+        int previous = windowStart.length;
+        windowStart = Arrays.copyOf(windowStart, cells);
+        Arrays.fill(windowStart, previous, cells, EMPTY);
+        openAt = Arrays.copyOf(openAt, cells);
+        closeAt = Arrays.copyOf(closeAt, cells);
+        open = Arrays.copyOf(open, cells);
+        high = Arrays.copyOf(high, cells);
+        low = Arrays.copyOf(low, cells);
+        close = Arrays.copyOf(close, cells);
+        count = Arrays.copyOf(count, cells);
+    }
+}
@@ -0,0 +1,38 @@
+package com.learn.kafka.rates;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Source de snapshots de taux pour une ou plusieurs devises de base. Le corps remis au
+ * lecteur a la forme {@code {"base": ..., "rates": {...}}}, les autres champs sont recopiés tels quels.
+ */
+public interface RateProvider {
+
+    /**
+     * Nom du fournisseur, écrit dans le champ {@code source} des snapshots publiés.
+     */
+    String name();
+
+    List<String> bases();
+
+    /**
+     * @return le nombre de requêtes par minute accepté par le fournisseur, 0 pour aucune limite
+     */
+    int requestsPerMinute();
+
+    /**
+     * Interroge le fournisseur pour une devise de base et passe le corps en streaming au lecteur.
+     *
+     * @param conditional false pour exiger un snapshot complet même s'il n'a pas changé
+     * @return le résultat du lecteur, ou null si le fournisseur n'a rien de nouveau
+     */
+    <T> T fetch(String base, boolean conditional, SnapshotReader<T> reader) throws IOException;
+
+    @FunctionalInterface
+    interface SnapshotReader<T> {
+
+        T read(InputStream body) throws IOException;
+    }
+}
@@ -0,0 +1,54 @@
+package com.learn.kafka.rates;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+
+/**
+ * Fournisseurs de taux interrogés par le poller. Tout bean {@link RateProvider} supplémentaire
+ * est pris en compte.
+ */
+@Configuration
+public class RateProviderConfig {
+
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Value("${exchange-rates.providers.exchangerate-api.url:https://api.exchangerate-api.com/v4/latest/{base}}")
+    String exchangeRateApiUrl;
+
+    @Value("${exchange-rates.providers.exchangerate-api.bases:USD}")
+    String[] exchangeRateApiBases;
+
+    @Value("${exchange-rates.providers.exchangerate-api.requests-per-minute:60}")
+    int exchangeRateApiRequestsPerMinute;
+
+    @Value("${exchange-rates.providers.frankfurter.url:https://api.frankfurter.app/latest?base={base}}")
+    String frankfurterUrl;
+
+    @Value("${exchange-rates.providers.frankfurter.bases:EUR}")
+    String[] frankfurterBases;
+
+    @Value("${exchange-rates.providers.frankfurter.requests-per-minute:30}")
+    int frankfurterRequestsPerMinute;
+
+    @Bean
+    @ConditionalOnProperty(name = "exchange-rates.providers.exchangerate-api.enabled", matchIfMissing = true)
+    public RateProvider exchangeRateApiProvider() {
+        return new HttpRateProvider("exchangerate-api", exchangeRateApiUrl, List.of(exchangeRateApiBases),
+                exchangeRateApiRequestsPerMinute, restTemplate);
+    }
+
+    // Même format de réponse ({"base", "date", "rates"}), données BCE
+    @Bean
+    @ConditionalOnProperty(name = "exchange-rates.providers.frankfurter.enabled", havingValue = "true")
+    public RateProvider frankfurterProvider() {
+        return new HttpRateProvider("frankfurter", frankfurterUrl, List.of(frankfurterBases),
+                frankfurterRequestsPerMinute, restTemplate);
+    }
+}
@@ -0,0 +1,26 @@
+package com.learn.kafka.rates;
+
+import java.util.Objects;
+
+/**
+ * Événement de taux tel que transporté en binaire par {@link RateSnapshotCodec} : les taux sont
+ * rangés en tableaux parallèles, sans map ni boxing.
+ *
+ * @param timestampMicros instant de publication, en microsecondes depuis l'epoch
+ * @param type            {@code keyframe}, {@code delta} ou null
+ * @param source          nom du fournisseur, null si inconnu
+ */
+public record RateSnapshot(String base, long timestampMicros, String type, String source,
+                           String[] quotes, double[] rates) {
+
+    public RateSnapshot {
+        Objects.requireNonNull(base, "base");
+        if (quotes.length != rates.length) {
+            throw new IllegalArgumentException("quotes and rates must have the same length");
+        }
+    }
+
+    public int size() {
+        return quotes.length;
+    }
+}
@@ -0,0 +1,223 @@
+package com.learn.kafka.rates;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * Encodage binaire des snapshots de taux, version {@value #VERSION} (big-endian) :
+ * <pre>
+ * u8   type            0 = absent, 1 = keyframe, 2 = delta
+ * u16  base            code dense {@link RateTable#code}, 0xFFFF = chaîne dans la section finale
+ * i64  timestamp       microsecondes depuis l'epoch
+ * u16  n               nombre de taux
+ * u16  quotes[n]       codes denses des devises cotées, 0xFFFF = chaîne dans la section finale
+ * f64  rates[n]        taux, dans l'ordre des codes
+ * u8+  source          longueur puis UTF-8, longueur 0 = absent
+ * u8+  chaînes         base puis devises cotées non ISO, dans l'ordre
+ * </pre>
+ * Les champs à largeur fixe permettent à {@link RateSnapshotView} de lire le i-ème taux directement dans
+ * le buffer du consommateur. La version n'est pas dans le corps mais dans l'en-tête {@value #SCHEMA_HEADER}.
+ * Les champs propres au fournisseur (date, time_next_update_unix...) ne sont pas transportés.
+ * <p>
+ * Pas encore branché : exchange-rates reste en JSON, que les sinks Elasticsearch indexent tel quel.
+ * Le passage au binaire suppose d'abord un transcodage côté sinks et la migration des consommateurs JSON
+ * (cache des derniers taux, paires, OHLC).
+ */
+public final class RateSnapshotCodec {
+
+    public static final String SCHEMA_HEADER = "rates-schema";
+    public static final byte VERSION = 1;
+
+    static final int ESCAPE = 0xFFFF;
+    static final int MAX_RATES = 0xFFFF;
+    static final int MAX_STRING_BYTES = 0xFF;
+
+    static final int TYPE_OFFSET = 0;
+    static final int BASE_OFFSET = 1;
+    static final int TIMESTAMP_OFFSET = 3;
+    static final int COUNT_OFFSET = 11;
+    static final int QUOTES_OFFSET = 13;
+
+    static final String KEYFRAME = "keyframe";
+    static final String DELTA = "delta";
+
+    private RateSnapshotCodec() {
+    }
+
+    public static byte[] encode(RateSnapshot snapshot) {
+        int count = snapshot.size();
+        if (count > MAX_RATES) {
+            throw new IllegalArgumentException("Too many rates in snapshot: " + count);
+        }
+        byte[] source = utf8(snapshot.source());
+        byte[] base = RateTable.code(snapshot.base()) < 0 ? utf8(snapshot.base()) : null;
+        int size = QUOTES_OFFSET + count * (Short.BYTES + Double.BYTES) + 1 + source.length
+                + (base == null ? 0 : 1 + base.length);
+        byte[][] escaped = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            if (RateTable.code(snapshot.quotes()[i]) < 0) {
+                escaped[i] = utf8(snapshot.quotes()[i]);
+                size += 1 + escaped[i].length;
+            }
+        }
+
+        ByteBuffer out = ByteBuffer.allocate(size);
+        out.put(typeCode(snapshot.type()));
+        out.putShort((short) dictionaryCode(snapshot.base()));
+        out.putLong(snapshot.timestampMicros());
+        out.putShort((short) count);
+        for (String quote : snapshot.quotes()) {
+            out.putShort((short) dictionaryCode(quote));
+        }
+        for (double rate : snapshot.rates()) {
+            out.putDouble(rate);
+        }
+        putString(out, source);
+        if (base != null) {
+            putString(out, base);
+        }
+        for (byte[] quote : escaped) {
+            if (quote != null) {
+                putString(out, quote);
+            }
+        }
+        return out.array();
+    }
+
+    /**
+     * Lit un snapshot enrichi publié en JSON ; les taux non numériques sont ignorés.
+     */
+    public static RateSnapshot fromJson(JsonFactory jsonFactory, byte[] json) throws IOException {
+        String base = null;
+        String type = null;
+        String source = null;
+        long timestampMicros = 0;
+        String[] quotes = new String[64];
+        double[] rates = new double[64];
+        int count = 0;
+
+        try (JsonParser parser = jsonFactory.createParser(json)) {
+            parser.enable(JsonParser.Feature.USE_FAST_DOUBLE_PARSER);
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Exchange rate snapshot must be a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("rates".equals(field) && value == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String quote = parser.currentName();
+                        if (!parser.nextToken().isNumeric()) {
+                            parser.skipChildren();
+                            continue;
+                        }
+                        if (count == quotes.length) {
+                            quotes = Arrays.copyOf(quotes, count * 2);
+                            rates = Arrays.copyOf(rates, count * 2);
+                        }
+                        quotes[count] = quote;
+                        rates[count++] = parser.getDoubleValue();
+                    }
+                } else if (value == JsonToken.VALUE_STRING) {
+                    switch (field) {
+                        case "base" -> base = parser.getText();
+                        case "type" -> type = parser.getText();
+                        case "source" -> source = parser.getText();
+                        case "timestamp" -> timestampMicros = micros(Instant.parse(parser.getText()));
+                        default -> {
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        if (base == null) {
+            throw new IOException("Exchange rate snapshot without base");
+        }
+        return new RateSnapshot(base, timestampMicros, type, source,
+                Arrays.copyOf(quotes, count), Arrays.copyOf(rates, count));
+    }
+
+    /**
+     * Forme JSON du snapshot, dans l'ordre des champs du snapshot enrichi (taux avant timestamp).
+     */
+    public static byte[] toJson(JsonFactory jsonFactory, RateSnapshotView snapshot) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(QUOTES_OFFSET + snapshot.size() * 24);
+        try (JsonGenerator generator = jsonFactory.createGenerator(out, JsonEncoding.UTF8)) {
+            generator.writeStartObject();
+            generator.writeStringField("base", snapshot.base());
+            generator.writeObjectFieldStart("rates");
+            for (int i = 0; i < snapshot.size(); i++) {
+                generator.writeNumberField(snapshot.quote(i), snapshot.rate(i));
+            }
+            generator.writeEndObject();
+            if (snapshot.source() != null) {
+                generator.writeStringField("source", snapshot.source());
+            }
+            generator.writeStringField("timestamp", instant(snapshot.timestampMicros()).toString());
+            if (snapshot.type() != null) {
+                generator.writeStringField("type", snapshot.type());
+            }
+            generator.writeEndObject();
+        }
+        return out.toByteArray();
+    }
+
+    static long micros(Instant instant) {
+        return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000L), instant.getNano() / 1_000);
+    }
+
+    static Instant instant(long micros) {
+        return Instant.ofEpochSecond(Math.floorDiv(micros, 1_000_000L), Math.floorMod(micros, 1_000_000L) * 1_000L);
+    }
+
+    static String type(int code) {
+        return switch (code) {
+            case 0 -> null;
+            case 1 -> KEYFRAME;
+            case 2 -> DELTA;
+            default -> throw new IllegalStateException("Unknown snapshot type code " + code);
+        };
+    }
+
+    private static byte typeCode(String type) {
+        if (type == null) {
+            return 0;
+        }
+        return switch (type) {
+            case KEYFRAME -> 1;
+            case DELTA -> 2;
+            default -> throw new IllegalArgumentException("Unknown snapshot type " + type);
+        };
+    }
+
+    private static int dictionaryCode(String currency) {
+        int code = RateTable.code(currency);
+        return code < 0 ? ESCAPE : code;
+    }
+
+    private static byte[] utf8(String value) {
+        byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_STRING_BYTES) {
+            throw new IllegalArgumentException("String too long for rate snapshot: " + value);
+        }
+        return bytes;
+    }
+
+    private static void putString(ByteBuffer out, byte[] value) {
+        out.put((byte) value.length);
+        out.put(value);
+    }
+}
@@ -0,0 +1,50 @@
+package com.learn.kafka.rates;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Désérialiseur Kafka qui renvoie une {@link RateSnapshotView} sur le buffer du record : le client Kafka
+ * appelle la variante {@link ByteBuffer}, aucun octet n'est copié. Un record sans en-tête
+ * {@value RateSnapshotCodec#SCHEMA_HEADER}, ou d'une version inconnue, est refusé.
+ */
+public class RateSnapshotDeserializer implements Deserializer<RateSnapshotView> {
+
+    // Sans en-têtes disponibles, le corps est supposé à la version courante
+    @Override
+    public RateSnapshotView deserialize(String topic, byte[] data) {
+        return data == null ? null : view(topic, ByteBuffer.wrap(data));
+    }
+
+    @Override
+    public RateSnapshotView deserialize(String topic, Headers headers, byte[] data) {
+        return data == null ? null : deserialize(topic, headers, ByteBuffer.wrap(data));
+    }
+
+    @Override
+    public RateSnapshotView deserialize(String topic, Headers headers, ByteBuffer data) {
+        if (data == null) {
+            return null;
+        }
+        Header schema = headers.lastHeader(RateSnapshotCodec.SCHEMA_HEADER);
+        if (schema == null || schema.value() == null || schema.value().length != 1) {
+            throw new SerializationException("Record from " + topic + " has no " + RateSnapshotCodec.SCHEMA_HEADER + " header");
+        }
+        if (schema.value()[0] != RateSnapshotCodec.VERSION) {
+            throw new SerializationException("Unsupported rate snapshot schema version " + schema.value()[0] + " on " + topic);
+        }
+        return view(topic, data);
+    }
+
+    private static RateSnapshotView view(String topic, ByteBuffer data) {
+        try {
+            return RateSnapshotView.wrap(data);
+        } catch (IllegalArgumentException e) {
+            throw new SerializationException("Malformed rate snapshot on " + topic, e);
+        }
+    }
+}
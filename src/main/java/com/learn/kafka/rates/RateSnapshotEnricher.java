@@ -0,0 +1,170 @@
+package com.learn.kafka.rates;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Function;
+
+/**
+ * Enrichit un snapshot de taux en streaming : les tokens sont recopiés du flux de la réponse
+ * vers un buffer réutilisé, sans arbre {@code JsonNode} ni {@code String} intermédiaire,
+ * puis {@code source}, {@code timestamp} et {@code type} sont ajoutés en fin d'objet. Les taux passent
+ * par un {@link RateFilter} qui décide lesquels sont écrits.
+ * <p>
+ * Non thread-safe : le buffer appartient au thread qui publie.
+ */
+public class RateSnapshotEnricher {
+
+    /**
+     * Décide, taux par taux, de ce qui est écrit dans {@code rates}.
+     */
+    public interface RateFilter {
+
+        boolean keep(String currency, double rate);
+
+        /**
+         * @return la valeur du champ {@code type} ajouté au message, ou null pour ne pas l'écrire
+         */
+        String type();
+    }
+
+    public static final RateFilter KEEP_ALL = new RateFilter() {
+        @Override
+        public boolean keep(String currency, double rate) {
+            return true;
+        }
+
+        @Override
+        public String type() {
+            return null;
+        }
+    };
+
+    /**
+     * @param json           le snapshot enrichi, copie exacte du buffer
+     * @param base           la devise de base lue dans le snapshot, null si absente
+     * @param nextUpdateUnix {@code time_next_update_unix} annoncé par le fournisseur, 0 si absent
+     * @param rates          le nombre de taux numériques écrits
+     * @param type           le type écrit par le filtre, null si aucun
+     */
+    public record Enriched(byte[] json, String base, long nextUpdateUnix, int rates, String type) {
+    }
+
+    private static final int INITIAL_BUFFER_SIZE = 16 * 1024;
+
+    private final JsonFactory jsonFactory;
+    private final String source;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+
+    public RateSnapshotEnricher(JsonFactory jsonFactory) {
+        this(jsonFactory, null);
+    }
+
+    /**
+     * @param source nom du fournisseur écrit dans le champ {@code source}, null pour ne pas l'écrire
+     */
+    public RateSnapshotEnricher(JsonFactory jsonFactory, String source) {
+        this.jsonFactory = jsonFactory;
+        this.source = source;
+    }
+
+    /**
+     * @param filterForBase fournit le filtre des taux à partir de la devise de base lue jusque-là
+     *                      (null si {@code base} suit {@code rates} dans le document)
+     */
+    public Enriched enrich(InputStream body, String timestamp, Function<String, RateFilter> filterForBase)
+            throws IOException {
+        buffer.reset();
+        String base = null;
+        long nextUpdateUnix = 0;
+        int written = 0;
+        RateFilter filter = null;
+
+        try (JsonParser parser = jsonFactory.createParser(body);
+             JsonGenerator generator = jsonFactory.createGenerator(buffer, JsonEncoding.UTF8)) {
+            // Parse les taux sans passer par Double.parseDouble et ses buffers temporaires
+            parser.enable(JsonParser.Feature.USE_FAST_DOUBLE_PARSER);
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Exchange rate snapshot must be a JSON object");
+            }
+            generator.writeStartObject();
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    // Remplacé par le nôtre en fin d'objet
+                    case "timestamp" -> parser.skipChildren();
+                    case "rates" -> {
+                        if (value != JsonToken.START_OBJECT) {
+                            generator.writeFieldName(field);
+                            generator.copyCurrentStructure(parser);
+                            break;
+                        }
+                        filter = filterForBase.apply(base);
+                        generator.writeFieldName(field);
+                        written = copyRates(parser, generator, filter);
+                    }
+                    default -> {
+                        if (source != null && "source".equals(field)) {
+                            parser.skipChildren();
+                            break;
+                        }
+                        if ("base".equals(field) && value == JsonToken.VALUE_STRING) {
+                            base = parser.getText();
+                        } else if ("time_next_update_unix".equals(field) && value == JsonToken.VALUE_NUMBER_INT) {
+                            nextUpdateUnix = parser.getLongValue();
+                        }
+                        generator.writeFieldName(field);
+                        generator.copyCurrentStructure(parser);
+                    }
+                }
+            }
+
+            if (filter == null) {
+                filter = filterForBase.apply(base);
+            }
+            if (source != null) {
+                generator.writeStringField("source", source);
+            }
+            generator.writeStringField("timestamp", timestamp);
+            if (filter.type() != null) {
+                generator.writeStringField("type", filter.type());
+            }
+            generator.writeEndObject();
+        }
+
+        // Seule allocation proportionnelle au message : le producteur garde le tableau jusqu'à l'ack
+        return new Enriched(buffer.toByteArray(), base, nextUpdateUnix, written, filter.type());
+    }
+
+    private static int copyRates(JsonParser parser, JsonGenerator generator, RateFilter filter) throws IOException {
+        int written = 0;
+        generator.writeStartObject();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String currency = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (!value.isNumeric()) {
+                // Valeur inattendue : recopiée telle quelle, hors suivi des variations et du décompte
+                generator.writeFieldName(currency);
+                generator.copyCurrentStructure(parser);
+                continue;
+            }
+            if (filter.keep(currency, parser.getDoubleValue())) {
+                generator.writeFieldName(currency);
+                // Texte du nombre recopié à l'identique, sans repasser par un double
+                generator.writeRawValue(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+                written++;
+            }
+        }
+        generator.writeEndObject();
+        return written;
+    }
+}
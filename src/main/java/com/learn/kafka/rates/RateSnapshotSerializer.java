@@ -0,0 +1,28 @@
+package com.learn.kafka.rates;
+
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Serializer;
+
+/**
+ * Sérialiseur Kafka de {@link RateSnapshot} au format binaire de {@link RateSnapshotCodec}, version
+ * posée dans l'en-tête {@value RateSnapshotCodec#SCHEMA_HEADER}.
+ */
+public class RateSnapshotSerializer implements Serializer<RateSnapshot> {
+
+    private static final byte[] VERSION_HEADER = {RateSnapshotCodec.VERSION};
+
+    @Override
+    public byte[] serialize(String topic, RateSnapshot data) {
+        return data == null ? null : RateSnapshotCodec.encode(data);
+    }
+
+    @Override
+    public byte[] serialize(String topic, Headers headers, RateSnapshot data) {
+        if (data == null) {
+            return null;
+        }
+        headers.remove(RateSnapshotCodec.SCHEMA_HEADER);
+        headers.add(RateSnapshotCodec.SCHEMA_HEADER, VERSION_HEADER);
+        return RateSnapshotCodec.encode(data);
+    }
+}
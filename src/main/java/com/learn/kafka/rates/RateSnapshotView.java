@@ -0,0 +1,156 @@
+package com.learn.kafka.rates;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import static com.learn.kafka.rates.RateSnapshotCodec.BASE_OFFSET;
+import static com.learn.kafka.rates.RateSnapshotCodec.COUNT_OFFSET;
+import static com.learn.kafka.rates.RateSnapshotCodec.ESCAPE;
+import static com.learn.kafka.rates.RateSnapshotCodec.QUOTES_OFFSET;
+import static com.learn.kafka.rates.RateSnapshotCodec.TIMESTAMP_OFFSET;
+import static com.learn.kafka.rates.RateSnapshotCodec.TYPE_OFFSET;
+
+/**
+ * Lecture d'un snapshot encodé par {@link RateSnapshotCodec} directement dans le buffer reçu, sans copie :
+ * chaque accesseur lit à une position absolue, la position du buffer n'est jamais modifiée. Seuls
+ * {@link #base()}, {@link #quote(int)} et {@link #source()} créent des chaînes ; {@link #baseCode()} et
+ * {@link #quoteCode(int)} évitent toute allocation pour les codes ISO.
+ * <p>
+ * La vue retient le buffer : elle reste valide tant que le buffer n'est pas réutilisé par son propriétaire.
+ */
+public final class RateSnapshotView {
+
+    private final ByteBuffer buffer;
+    private final int offset;
+    private final int count;
+
+    private RateSnapshotView(ByteBuffer buffer) {
+        this.buffer = buffer.order() == ByteOrder.BIG_ENDIAN ? buffer : buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+        this.offset = buffer.position();
+        if (buffer.remaining() < QUOTES_OFFSET) {
+            throw new IllegalArgumentException("Rate snapshot truncated: " + buffer.remaining() + " bytes");
+        }
+        this.count = Short.toUnsignedInt(this.buffer.getShort(offset + COUNT_OFFSET));
+        if (buffer.remaining() < QUOTES_OFFSET + count * (Short.BYTES + Double.BYTES) + 1) {
+            throw new IllegalArgumentException("Rate snapshot truncated: " + buffer.remaining() + " bytes for "
+                    + count + " rates");
+        }
+    }
+
+    /**
+     * Vue sur les octets restants du buffer, à partir de sa position courante.
+     */
+    public static RateSnapshotView wrap(ByteBuffer buffer) {
+        return new RateSnapshotView(buffer);
+    }
+
+    public static RateSnapshotView wrap(byte[] bytes) {
+        return new RateSnapshotView(ByteBuffer.wrap(bytes));
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public String type() {
+        return RateSnapshotCodec.type(buffer.get(offset + TYPE_OFFSET));
+    }
+
+    public long timestampMicros() {
+        return buffer.getLong(offset + TIMESTAMP_OFFSET);
+    }
+
+    /**
+     * @return le code dense de la devise de base, -1 si ce n'est pas un code ISO
+     */
+    public int baseCode() {
+        return dense(buffer.getShort(offset + BASE_OFFSET));
+    }
+
+    public String base() {
+        int code = baseCode();
+        return code >= 0 ? RateTable.currency(code) : string(1);
+    }
+
+    /**
+     * @return le code dense de la i-ème devise cotée, -1 si ce n'est pas un code ISO
+     */
+    public int quoteCode(int index) {
+        return dense(buffer.getShort(offset + QUOTES_OFFSET + checkIndex(index) * Short.BYTES));
+    }
+
+    public String quote(int index) {
+        int code = quoteCode(index);
+        if (code >= 0) {
+            return RateTable.currency(code);
+        }
+        // Chaînes de la section finale : source, base si non ISO, puis devises non ISO dans l'ordre
+        int position = 1 + (baseCode() < 0 ? 1 : 0);
+        for (int i = 0; i < index; i++) {
+            if (quoteCode(i) < 0) {
+                position++;
+            }
+        }
+        return string(position);
+    }
+
+    public double rate(int index) {
+        return buffer.getDouble(offset + QUOTES_OFFSET + count * Short.BYTES + checkIndex(index) * Double.BYTES);
+    }
+
+    /**
+     * @return le taux de la devise, {@link Double#NaN} si absente
+     */
+    public double rate(String currency) {
+        int code = RateTable.code(currency);
+        for (int i = 0; i < count; i++) {
+            if (code >= 0 ? quoteCode(i) == code : quoteCode(i) < 0 && quote(i).equals(currency)) {
+                return rate(i);
+            }
+        }
+        return Double.NaN;
+    }
+
+    public String source() {
+        String source = string(0);
+        return source.isEmpty() ? null : source;
+    }
+
+    /**
+     * Copie dans des tableaux, pour un consommateur qui garde le snapshot au-delà du buffer.
+     */
+    public RateSnapshot materialize() {
+        String[] quotes = new String[count];
+        double[] rates = new double[count];
+        for (int i = 0; i < count; i++) {
+            quotes[i] = quote(i);
+            rates[i] = rate(i);
+        }
+        return new RateSnapshot(base(), timestampMicros(), type(), source(), quotes, rates);
+    }
+
+    private static int dense(short code) {
+        int unsigned = Short.toUnsignedInt(code);
+        return unsigned == ESCAPE ? -1 : unsigned;
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return index;
+    }
+
+    // n-ième chaîne de la section finale (longueur sur un octet puis UTF-8)
+    private String string(int ordinal) {
+        int position = offset + QUOTES_OFFSET + count * (Short.BYTES + Double.BYTES);
+        for (int i = 0; i < ordinal; i++) {
+            position += 1 + Byte.toUnsignedInt(buffer.get(position));
+        }
+        int length = Byte.toUnsignedInt(buffer.get(position));
+        byte[] bytes = new byte[length];
+        buffer.get(position + 1, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
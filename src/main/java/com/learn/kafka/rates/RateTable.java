@@ -0,0 +1,83 @@
+package com.learn.kafka.rates;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Table devise -> taux sans boxing : un code ISO 4217 (trois lettres A-Z) est encodé
+ * en entier 0..17575 qui indexe directement un {@code double[]}. Les codes non standards
+ * passent par une map de débordement. Une devise absente vaut {@link Double#NaN}.
+ * <p>
+ * Non thread-safe : une instance appartient à un seul thread écrivain.
+ */
+public class RateTable {
+
+    static final int CAPACITY = 26 * 26 * 26;
+
+    private final double[] rates = new double[CAPACITY];
+    private final Map<String, Double> overflow = new HashMap<>();
+    private int size;
+
+    public RateTable() {
+        Arrays.fill(rates, Double.NaN);
+    }
+
+    /**
+     * @return le code dense de la devise, ou -1 si ce n'est pas un code ISO de trois lettres majuscules
+     */
+    public static int code(String currency) {
+        if (currency == null || currency.length() != 3) {
+            return -1;
+        }
+        int code = 0;
+        for (int i = 0; i < 3; i++) {
+            char c = currency.charAt(i);
+            if (c < 'A' || c > 'Z') {
+                return -1;
+            }
+            code = code * 26 + (c - 'A');
+        }
+        return code;
+    }
+
+    public static String currency(int code) {
+        return new String(new char[]{
+                (char) ('A' + code / (26 * 26)),
+                (char) ('A' + code / 26 % 26),
+                (char) ('A' + code % 26)});
+    }
+
+    public double get(String currency) {
+        int code = code(currency);
+        if (code >= 0) {
+            return rates[code];
+        }
+        Double rate = overflow.get(currency);
+        return rate != null ? rate : Double.NaN;
+    }
+
+    public void put(String currency, double rate) {
+        int code = code(currency);
+        if (code < 0) {
+            if (overflow.put(currency, rate) == null) {
+                size++;
+            }
+            return;
+        }
+        if (Double.isNaN(rates[code])) {
+            size++;
+        }
+        rates[code] = rate;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(rates, Double.NaN);
+        overflow.clear();
+        size = 0;
+    }
+}
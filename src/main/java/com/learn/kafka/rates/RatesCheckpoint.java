@@ -0,0 +1,178 @@
+package com.learn.kafka.rates;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32C;
+
+/**
+ * Point de reprise du cache des derniers taux : la table et la position de lecture de chaque partition
+ * d'exchange-rates sont écrites périodiquement dans un fichier mappé en mémoire. Au démarrage, le cache
+ * est rechargé depuis ce fichier et la lecture reprend aux positions enregistrées : le démarrage à froid
+ * dépend de la taille du snapshot et non de la rétention du topic.
+ * <p>
+ * Format : en-tête (magic, version, date d'écriture, longueur et CRC32C du contenu), puis les positions
+ * (nombre, couples partition / prochain offset) et la table ({@link LatestRatesCache#writeTo(ByteBuffer)}).
+ */
+@Component
+@Slf4j
+public class RatesCheckpoint {
+
+    static final int MAGIC = 0x52544350; // "RTCP"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = Integer.BYTES * 2 + Long.BYTES + Integer.BYTES * 2;
+
+    @Autowired
+    private LatestRatesCache latestRatesCache;
+
+    @Value("${rates.cache.checkpoint.enabled:true}")
+    private boolean enabled;
+
+    @Value("${rates.cache.checkpoint.path:${java.io.tmpdir}/kafka/latest-rates.checkpoint}")
+    private Path path;
+
+    // Prochain offset à lire par partition : restauré au démarrage, puis avancé par le listener après chaque record
+    private final Map<Integer, AtomicLong> positions = new ConcurrentHashMap<>();
+    private volatile boolean dirty;
+
+    // Buffer de sérialisation réutilisé, agrandi si la table dépasse sa capacité
+    private ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+
+    /**
+     * Exécuté avant le démarrage des conteneurs Kafka : le cache est rempli avant la première assignation.
+     */
+    @PostConstruct
+    public void restore() {
+        if (!enabled || !Files.exists(path)) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            ByteBuffer content = verify(file);
+            if (content == null) {
+                log.warn("Ignoring invalid rates checkpoint {}", path);
+                return;
+            }
+            Map<Integer, Long> offsets = new TreeMap<>();
+            int partitions = content.getInt();
+            for (int i = 0; i < partitions; i++) {
+                offsets.put(content.getInt(), content.getLong());
+            }
+            int rates = latestRatesCache.readFrom(content);
+            offsets.forEach((partition, offset) -> positions.put(partition, new AtomicLong(offset)));
+            log.info("Latest rates cache restored from {}: {} rates, offsets {}", path, rates, offsets);
+        } catch (IOException | BufferUnderflowException e) {
+            log.warn("Could not restore rates checkpoint {}: {}", path, e.getMessage());
+        }
+    }
+
+    /**
+     * Position à laquelle reprendre la lecture lors d'une assignation : celle du checkpoint au démarrage, puis
+     * celle du dernier record appliqué au cache, pour qu'un rebalance ne relise pas depuis le checkpoint.
+     *
+     * @return le prochain offset à lire pour la partition, ou -1 si elle n'a jamais été lue
+     */
+    public long resumeOffset(int partition) {
+        AtomicLong offset = positions.get(partition);
+        return offset != null ? offset.get() : -1;
+    }
+
+    public void recordConsumed(int partition, long offset) {
+        positions.computeIfAbsent(partition, p -> new AtomicLong(-1)).set(offset + 1);
+        dirty = true;
+    }
+
+    /**
+     * Les positions sont lues avant la table : un record appliqué entre les deux sera relu au redémarrage,
+     * ce qui est sans effet puisqu'il réécrit les mêmes valeurs absolues.
+     */
+    @Scheduled(fixedDelayString = "${rates.cache.checkpoint.interval-ms:30000}",
+            initialDelayString = "${rates.cache.checkpoint.interval-ms:30000}")
+    public synchronized void checkpoint() {
+        if (!enabled || !dirty) {
+            return;
+        }
+        dirty = false;
+        try {
+            ByteBuffer content = serialize();
+            write(content);
+            log.debug("Latest rates checkpoint written to {} ({} bytes)", path, HEADER_BYTES + content.remaining());
+        } catch (IOException e) {
+            dirty = true;
+            log.error("Error writing rates checkpoint {}: {}", path, e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        checkpoint();
+    }
+
+    private ByteBuffer serialize() {
+        while (true) {
+            buffer.clear();
+            try {
+                Map<Integer, AtomicLong> snapshot = new TreeMap<>(positions);
+                buffer.putInt(snapshot.size());
+                snapshot.forEach((partition, offset) -> buffer.putInt(partition).putLong(offset.get()));
+                latestRatesCache.writeTo(buffer);
+                return buffer.flip();
+            } catch (BufferOverflowException e) {
+                buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+            }
+        }
+    }
+
+    // Écrit un fichier temporaire puis le renomme : un arrêt brutal laisse toujours l'ancien checkpoint intact
+    private void write(ByteBuffer content) throws IOException {
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        int length = content.remaining();
+        CRC32C crc = new CRC32C();
+        crc.update(content.duplicate());
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer file = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + length);
+            file.putInt(MAGIC).putInt(VERSION).putLong(System.currentTimeMillis())
+                    .putInt(length).putInt((int) crc.getValue())
+                    .put(content);
+            file.force();
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static ByteBuffer verify(ByteBuffer file) {
+        if (file.remaining() < HEADER_BYTES || file.getInt() != MAGIC || file.getInt() != VERSION) {
+            return null;
+        }
+        file.getLong();
+        int length = file.getInt();
+        int expectedCrc = file.getInt();
+        if (length < 0 || length != file.remaining()) {
+            return null;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(file.duplicate());
+        return (int) crc.getValue() == expectedCrc ? file.slice() : null;
+    }
+}
@@ -0,0 +1,37 @@
+package com.learn.kafka.rates;
+
+/**
+ * Espacement minimal entre deux requêtes vers un même fournisseur, dérivé de son quota par minute.
+ * Non bloquant : une requête refusée est simplement replanifiée à {@link #nextSlotAt()}.
+ */
+public class RequestRateLimiter {
+
+    private final long intervalMs;
+    private long nextSlotAt;
+
+    public RequestRateLimiter(int requestsPerMinute) {
+        this.intervalMs = requestsPerMinute > 0 ? 60_000L / requestsPerMinute : 0;
+    }
+
+    public synchronized boolean tryAcquire(long nowMs) {
+        if (nowMs < nextSlotAt) {
+            return false;
+        }
+        nextSlotAt = nowMs + intervalMs;
+        return true;
+    }
+
+    /**
+     * @return l'espacement minimal (ms) entre deux requêtes, 0 sans quota
+     */
+    public long intervalMs() {
+        return intervalMs;
+    }
+
+    /**
+     * @return l'instant (epoch ms) à partir duquel la prochaine requête est autorisée
+     */
+    public synchronized long nextSlotAt() {
+        return nextSlotAt;
+    }
+}
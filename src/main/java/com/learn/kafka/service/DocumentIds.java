@@ -0,0 +1,95 @@
+package com.learn.kafka.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.learn.kafka.payload.RecordPayload;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Identifiant Elasticsearch déterministe, dérivé du contenu : une relivraison (rebalance, topic de retry,
+ * batch rejoué) réécrit le même document au lieu d'en créer un doublon.
+ * <ul>
+ *     <li>snapshot : {@code source:base:mise à jour}, la mise à jour annoncée par le fournisseur
+ *     ({@code time_last_update_unix} ou {@code time_last_updated}) ou à défaut l'horodatage de publication :
+ *     les republications d'une même mise à jour (keyframes, requêtes inconditionnelles) écrivent un seul document</li>
+ *     <li>paire : {@code source:base:quote:timestamp}</li>
+ *     <li>barre OHLC : {@code source:base:quote:window:start}, une barre recalculée remplace la précédente</li>
+ * </ul>
+ * Sans base ni horodatage, l'identifiant est un UUID de nom calculé sur les octets du document.
+ * Les champs sont lus directement dans les octets du record, sans décoder le document en chaîne.
+ */
+final class DocumentIds {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private DocumentIds() {
+    }
+
+    static String of(String document) {
+        return of(RecordPayload.of(document));
+    }
+
+    static String of(RecordPayload document) {
+        String source = null;
+        String base = null;
+        String quote = null;
+        String window = null;
+        String start = null;
+        String timestamp = null;
+        long updatedUnix = 0;
+
+        // Seuls les champs de premier niveau comptent : rates est sauté sans être lu
+        try (JsonParser parser = document.parser(JSON_FACTORY)) {
+            if (parser.nextToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    JsonToken value = parser.nextToken();
+                    if (value == JsonToken.VALUE_NUMBER_INT
+                            && ("time_last_update_unix".equals(field) || "time_last_updated".equals(field))) {
+                        updatedUnix = parser.getLongValue();
+                        continue;
+                    }
+                    if (value != JsonToken.VALUE_STRING) {
+                        parser.skipChildren();
+                        continue;
+                    }
+                    switch (field) {
+                        case "source" -> source = parser.getText();
+                        case "base" -> base = parser.getText();
+                        case "quote" -> quote = parser.getText();
+                        case "window" -> window = parser.getText();
+                        case "start" -> start = parser.getText();
+                        case "timestamp" -> timestamp = parser.getText();
+                        default -> {
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // Document illisible : Elasticsearch le refusera, l'identifiant reste stable
+        }
+
+        String instant = window != null ? start
+                : quote == null && updatedUnix > 0 ? Instant.ofEpochSecond(updatedUnix).toString()
+                : timestamp;
+        if (base == null || instant == null) {
+            return UUID.nameUUIDFromBytes(document.toByteArray()).toString();
+        }
+        StringBuilder id = new StringBuilder(64);
+        if (source != null) {
+            id.append(source).append(':');
+        }
+        id.append(base);
+        if (quote != null) {
+            id.append(':').append(quote);
+        }
+        if (window != null) {
+            id.append(':').append(window);
+        }
+        return id.append(':').append(instant).toString();
+    }
+}
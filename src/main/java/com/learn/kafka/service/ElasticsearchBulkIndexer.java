@@ -0,0 +1,257 @@
+package com.learn.kafka.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learn.kafka.payload.RecordPayload;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+@Slf4j
+public class ElasticsearchBulkIndexer {
+
+    static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private static final byte[] ACTION_PREFIX = "{\"index\":{\"_id\":\"".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] ACTION_SUFFIX = "\"}}\n".getBytes(StandardCharsets.UTF_8);
+
+    @Value("${elasticsearch.url:http://localhost:9200}")
+    private String elasticsearchUrl;
+
+    @Value("${elasticsearch.bulk.max-retries:3}")
+    private int maxRetries;
+
+    @Value("${elasticsearch.bulk.retry-backoff-ms:200}")
+    private long retryBackoffMs;
+
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private ElasticsearchFlowControl flowControl;
+
+    @Autowired
+    private ElasticsearchSinkMetrics sinkMetrics;
+
+    @Autowired
+    private ElasticsearchIndexManager indexManager;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * @param indexMissing    des documents sont restés en échec faute d'index, même après sa recréation
+     * @param failedDocuments documents toujours en échec (rejetés, ou retryables après épuisement des tentatives)
+     */
+    public record BulkResult(int indexed, int failed, boolean indexMissing, List<RecordPayload> failedDocuments) {
+
+        public BulkResult(int indexed, int failed, boolean indexMissing) {
+            this(indexed, failed, indexMissing, List.of());
+        }
+    }
+
+    private static final class Failures {
+        final List<RecordPayload> retryable = new ArrayList<>();
+        final List<RecordPayload> rejected = new ArrayList<>();
+        final List<RecordPayload> indexMissing = new ArrayList<>();
+    }
+
+    /**
+     * Indexe les documents par requêtes _bulk de la taille courante du contrôle de flux
+     * (une seule si le batch n'est pas plus grand). Les documents sont recopiés octet pour octet dans le corps,
+     * sans décodage.
+     */
+    public BulkResult bulkIndex(String index, List<RecordPayload> documents) {
+        if (documents.isEmpty()) {
+            return new BulkResult(0, 0, false);
+        }
+
+        int indexed = 0;
+        List<RecordPayload> failed = new ArrayList<>();
+        boolean indexMissing = false;
+        for (int from = 0; from < documents.size(); ) {
+            // Relue à chaque requête : la taille suit la réponse précédente
+            int to = Math.min(documents.size(), from + flowControl.bulkSize());
+            BulkResult result = bulkIndexChunk(index, documents.subList(from, to));
+            indexed += result.indexed();
+            failed.addAll(result.failedDocuments());
+            indexMissing |= result.indexMissing();
+            from = to;
+        }
+        return new BulkResult(indexed, failed.size(), indexMissing, failed);
+    }
+
+    /**
+     * Envoie une requête _bulk puis ne renvoie que les éléments en échec "retryable" (429 / 5xx),
+     * avec un backoff exponentiel. Les éléments refusés faute d'index sont renvoyés une fois l'index recréé,
+     * comme le fait le sink unitaire via ses topics de retry.
+     */
+    private BulkResult bulkIndexChunk(String index, List<RecordPayload> documents) {
+        List<RecordPayload> pending = documents;
+        int indexed = 0;
+        List<RecordPayload> rejected = new ArrayList<>();
+        int attempt = 0;
+
+        while (true) {
+            Failures failures = sendBulk(index, pending);
+            List<RecordPayload> retryable = new ArrayList<>(failures.retryable);
+            retryable.addAll(failures.indexMissing);
+            indexed += pending.size() - retryable.size() - failures.rejected.size();
+            rejected.addAll(failures.rejected);
+
+            if (retryable.isEmpty() || attempt >= maxRetries) {
+                List<RecordPayload> failed = rejected;
+                failed.addAll(retryable);
+                boolean indexMissing = !failures.indexMissing.isEmpty();
+                if (!failed.isEmpty()) {
+                    log.error("Bulk indexing into {} finished with {} failed documents", index, failed.size());
+                }
+                return new BulkResult(indexed, failed.size(), indexMissing, failed);
+            }
+
+            // Disjoncteur ouvert : le batch entier sera relivré plutôt que de partir au DLT
+            if (flowControl.isOpen()) {
+                throw new IllegalStateException("Elasticsearch circuit breaker open, " + retryable.size()
+                        + " bulk items not retried");
+            }
+            if (!failures.indexMissing.isEmpty()) {
+                // Index supprimé en cours de route : recréé avec son template avant de renvoyer ses documents
+                indexManager.invalidate(index);
+                indexManager.ensureIndex(index);
+            }
+            log.warn("Retrying {} failed bulk items for index {} (attempt {})", retryable.size(), index, attempt + 1);
+            sleep(retryBackoffMs << attempt);
+            pending = retryable;
+            attempt++;
+        }
+    }
+
+    private Failures sendBulk(String index, List<RecordPayload> documents) {
+        String url = elasticsearchUrl + "/" + index + "/_bulk";
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(NDJSON);
+
+        HttpEntity<byte[]> request = new HttpEntity<>(buildBulkBody(documents), headers);
+        long start = System.nanoTime();
+        ResponseEntity<String> response;
+        try {
+            response = restTemplate.exchange(url, HttpMethod.POST, request, String.class);
+        } catch (RestClientException e) {
+            sinkMetrics.requestFailed(index, System.nanoTime() - start);
+            if (ElasticsearchFlowControl.signalsOverload(e)) {
+                flowControl.onFailure();
+            }
+            throw e;
+        }
+        long latency = System.nanoTime() - start;
+
+        Failures failures = collectFailures(response.getBody(), documents);
+        sinkMetrics.sent(index, documents.size(), latency);
+        sinkMetrics.itemsFailed(index, failures.retryable.size() + failures.indexMissing.size(),
+                failures.rejected.size());
+        flowControl.onResponse(latency, documents.size(), failures.retryable.size());
+        return failures;
+    }
+
+    byte[] buildBulkBody(List<RecordPayload> documents) {
+        // Première passe : identifiants et documents à recompacter, pour allouer le corps à sa taille exacte
+        byte[][] ids = new byte[documents.size()][];
+        byte[][] compacted = new byte[documents.size()][];
+        int size = 0;
+        for (int i = 0; i < documents.size(); i++) {
+            RecordPayload document = documents.get(i);
+            // Identifiant déterministe : rejouer un batch écrase les mêmes documents
+            ids[i] = JsonStringEncoder.getInstance().quoteAsUTF8(DocumentIds.of(document));
+            if (document.indexOf((byte) '\n') >= 0) {
+                compacted[i] = toSingleLine(document);
+            }
+            size += ACTION_PREFIX.length + ids[i].length + ACTION_SUFFIX.length
+                    + (compacted[i] != null ? compacted[i].length : document.length()) + 1;
+        }
+
+        ByteBuffer body = ByteBuffer.allocate(size);
+        for (int i = 0; i < documents.size(); i++) {
+            body.put(ACTION_PREFIX).put(ids[i]).put(ACTION_SUFFIX);
+            if (compacted[i] != null) {
+                body.put(compacted[i]);
+            } else {
+                documents.get(i).writeTo(body);
+            }
+            body.put((byte) '\n');
+        }
+        return body.array();
+    }
+
+    private Failures collectFailures(String responseBody, List<RecordPayload> documents) {
+        Failures failures = new Failures();
+        if (responseBody == null) {
+            return failures;
+        }
+        try {
+            JsonNode response = objectMapper.readTree(responseBody);
+            if (!response.path("errors").asBoolean(false)) {
+                return failures;
+            }
+
+            JsonNode items = response.path("items");
+            for (int i = 0; i < items.size() && i < documents.size(); i++) {
+                JsonNode result = items.get(i).path("index");
+                int status = result.path("status").asInt(200);
+                if (status < 300) {
+                    continue;
+                }
+                if (status == 429 || status >= 500) {
+                    failures.retryable.add(documents.get(i));
+                } else if ("index_not_found_exception".equals(result.path("error").path("type").asText())) {
+                    failures.indexMissing.add(documents.get(i));
+                } else {
+                    failures.rejected.add(documents.get(i));
+                    log.error("Document rejected by Elasticsearch (status {}): {}", status, result.path("error"));
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Could not parse Elasticsearch bulk response: {}", e.getMessage());
+        }
+        return failures;
+    }
+
+    // Le format NDJSON impose un document par ligne ; en UTF-8, l'octet '\n' n'apparaît dans aucun caractère multi-octets
+    private byte[] toSingleLine(RecordPayload document) {
+        try (JsonParser parser = document.parser(objectMapper.getFactory())) {
+            return objectMapper.writeValueAsBytes(objectMapper.readTree(parser));
+        } catch (IOException e) {
+            byte[] bytes = document.toByteArray();
+            for (int i = 0; i < bytes.length; i++) {
+                if (bytes[i] == '\n' || bytes[i] == '\r') {
+                    bytes[i] = ' ';
+                }
+            }
+            return bytes;
+        }
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
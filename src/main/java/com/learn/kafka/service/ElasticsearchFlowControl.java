@@ -0,0 +1,220 @@
+package com.learn.kafka.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contrôle de flux entre les listeners Kafka et Elasticsearch, nourri par chaque requête d'indexation.
+ * <ul>
+ *     <li>taille de bulk adaptative (AIMD) : augmentée d'un pas après une requête rapide et sans 429/5xx,
+ *     divisée par deux sinon</li>
+ *     <li>disjoncteur : après failure-threshold échecs consécutifs, les conteneurs des sinks sont mis en pause
+ *     (plus de fetch, le consumer reste dans son groupe) ; après open-ms ils reprennent en semi-ouvert et la
+ *     première requête décide : fermeture, ou nouvelle ouverture pour une durée doublée</li>
+ * </ul>
+ * L'état, la taille courante et chaque transition sont publiés dans Micrometer.
+ */
+@Component
+@Slf4j
+public class ElasticsearchFlowControl {
+
+    public enum State {
+        CLOSED, HALF_OPEN, OPEN
+    }
+
+    // Conteneurs des sinks Elasticsearch, topics de retry et DLT compris
+    static final String SINK_LISTENER_PREFIX = "elasticsearch-";
+
+    @Autowired
+    private KafkaListenerEndpointRegistry listenerRegistry;
+
+    @Autowired
+    private MeterRegistry meterRegistry = Metrics.globalRegistry;
+
+    // Latence au-delà de laquelle Elasticsearch est considéré saturé
+    @Value("${elasticsearch.flow.latency-target-ms:1000}")
+    private long latencyTargetMs = 1000;
+
+    @Value("${elasticsearch.flow.min-actions:50}")
+    private int minActions = 50;
+
+    @Value("${elasticsearch.flow.max-actions:${elasticsearch.bulk.max-actions:500}}")
+    private int maxActions = 500;
+
+    @Value("${elasticsearch.flow.increase-step:50}")
+    private int increaseStep = 50;
+
+    // Part de documents en 429/5xx à partir de laquelle une requête _bulk compte comme un échec
+    @Value("${elasticsearch.flow.retryable-ratio:0.5}")
+    private double retryableRatio = 0.5;
+
+    @Value("${elasticsearch.flow.failure-threshold:5}")
+    private int failureThreshold = 5;
+
+    @Value("${elasticsearch.flow.open-ms:10000}")
+    private long openMs = 10000;
+
+    @Value("${elasticsearch.flow.max-open-ms:300000}")
+    private long maxOpenMs = 300000;
+
+    private volatile State state = State.CLOSED;
+    // 0 tant qu'aucune requête n'a été observée : max-actions
+    private volatile int bulkSize;
+    private int consecutiveFailures;
+    private long openedAt;
+    private long openDurationMs;
+    private final List<String> pausedListeners = new ArrayList<>();
+
+    @PostConstruct
+    public void registerMeters() {
+        Gauge.builder("elasticsearch.sink.circuit.state", this, flowControl -> flowControl.state.ordinal())
+                .description("Elasticsearch sink circuit breaker state (0 closed, 1 half-open, 2 open)")
+                .register(meterRegistry);
+        Gauge.builder("elasticsearch.sink.bulk.limit", this, ElasticsearchFlowControl::bulkSize)
+                .description("Current adaptive bulk size")
+                .baseUnit("documents")
+                .register(meterRegistry);
+    }
+
+    public State state() {
+        return state;
+    }
+
+    public boolean isOpen() {
+        return state == State.OPEN;
+    }
+
+    public int bulkSize() {
+        int size = bulkSize;
+        return size > 0 ? size : maxActions;
+    }
+
+    /**
+     * Requête aboutie, éventuellement avec des documents en 429/5xx.
+     */
+    public synchronized void onResponse(long latencyNanos, int documents, int retryable) {
+        int size = bulkSize();
+        if (retryable > 0 || latencyNanos > TimeUnit.MILLISECONDS.toNanos(latencyTargetMs)) {
+            bulkSize = Math.max(minActions, size / 2);
+        } else {
+            bulkSize = Math.min(maxActions, size + increaseStep);
+        }
+
+        if (documents > 0 && retryable >= documents * retryableRatio) {
+            failed();
+        } else {
+            consecutiveFailures = 0;
+            if (state == State.HALF_OPEN) {
+                openDurationMs = 0;
+                transition(State.CLOSED);
+            }
+        }
+    }
+
+    /**
+     * Requête entière en échec pour cause de surcharge ou d'indisponibilité ({@link #signalsOverload}).
+     */
+    public synchronized void onFailure() {
+        bulkSize = minActions;
+        failed();
+    }
+
+    /**
+     * Batch reçu avant la pause des conteneurs et relivré sans solliciter Elasticsearch.
+     */
+    public void deferred(int records) {
+        meterRegistry.counter("elasticsearch.sink.deferred.records").increment(records);
+    }
+
+    /**
+     * Passe en semi-ouvert une fois la durée d'ouverture écoulée et relance les conteneurs.
+     */
+    @Scheduled(fixedDelayString = "${elasticsearch.flow.check-interval-ms:1000}")
+    public synchronized void checkRecovery() {
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openDurationMs) {
+            transition(State.HALF_OPEN);
+            resumeSinks();
+        }
+    }
+
+    // Les 4xx hors 429 concernent le document, pas la santé du cluster
+    public static boolean signalsOverload(Exception e) {
+        return e instanceof HttpServerErrorException
+                || e instanceof HttpClientErrorException.TooManyRequests
+                || e instanceof ResourceAccessException;
+    }
+
+    private void failed() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN) {
+            open(Math.min(openDurationMs * 2, maxOpenMs));
+        } else if (state == State.CLOSED && consecutiveFailures >= failureThreshold) {
+            open(openMs);
+        }
+    }
+
+    private void open(long durationMs) {
+        openedAt = System.currentTimeMillis();
+        openDurationMs = durationMs;
+        bulkSize = minActions;
+        transition(State.OPEN);
+        pauseSinks();
+    }
+
+    private void transition(State next) {
+        State previous = state;
+        state = next;
+        meterRegistry.counter("elasticsearch.sink.circuit.transitions", "from", previous.name(), "to", next.name())
+                .increment();
+        if (next == State.OPEN) {
+            log.warn("Elasticsearch circuit breaker {} -> {} after {} consecutive failures, sinks paused for {} ms",
+                    previous, next, consecutiveFailures, openDurationMs);
+        } else {
+            log.info("Elasticsearch circuit breaker {} -> {}", previous, next);
+        }
+    }
+
+    // pause() est pris en compte au prochain poll : le batch en cours se termine, les suivants attendent
+    private void pauseSinks() {
+        if (listenerRegistry == null) {
+            return;
+        }
+        for (MessageListenerContainer container : listenerRegistry.getListenerContainers()) {
+            String id = container.getListenerId();
+            if (id != null && id.startsWith(SINK_LISTENER_PREFIX) && container.isRunning()
+                    && !container.isPauseRequested()) {
+                container.pause();
+                pausedListeners.add(id);
+            }
+        }
+    }
+
+    private void resumeSinks() {
+        if (listenerRegistry == null) {
+            return;
+        }
+        for (String id : pausedListeners) {
+            MessageListenerContainer container = listenerRegistry.getListenerContainer(id);
+            if (container != null) {
+                container.resume();
+            }
+        }
+        pausedListeners.clear();
+    }
+}
@@ -0,0 +1,187 @@
+package com.learn.kafka.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cycle de vie des index exchange-rates, exchange-rate-pairs et exchange-rate-ohlc : pour chaque index, le template
+ * versionné ({@code elasticsearch/<index>-template.json}) et l'index sont vérifiés une seule fois,
+ * puis l'état est mis en cache jusqu'à invalidation. Un template ne s'applique qu'aux index créés après lui :
+ * lors d'une montée de version, ses mappings sont aussi appliqués à l'index existant (ajout de champs).
+ */
+@Component
+@Slf4j
+public class ElasticsearchIndexManager {
+
+    static final String INDEX_NAME = "exchange-rates";
+    static final String PAIRS_INDEX_NAME = "exchange-rate-pairs";
+    static final String OHLC_INDEX_NAME = "exchange-rate-ohlc";
+    private static final List<String> MANAGED_INDICES = List.of(INDEX_NAME, PAIRS_INDEX_NAME, OHLC_INDEX_NAME);
+
+    @Value("${elasticsearch.url:http://localhost:9200}")
+    private String elasticsearchUrl;
+
+    @Autowired
+    private RestTemplate restTemplate;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Map<String, IndexState> indices = new ConcurrentHashMap<>();
+
+    private static final class IndexState {
+        volatile boolean ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        MANAGED_INDICES.forEach(this::ensureIndex);
+    }
+
+    public void ensureIndex() {
+        ensureIndex(INDEX_NAME);
+    }
+
+    /**
+     * Chemin rapide sans appel HTTP une fois l'index vérifié. Les threads consommateurs
+     * qui démarrent ensemble se sérialisent sur la création.
+     */
+    public void ensureIndex(String index) {
+        IndexState state = state(index);
+        if (state.ready) {
+            return;
+        }
+        synchronized (state) {
+            if (state.ready) {
+                return;
+            }
+            try {
+                installTemplate(index);
+                createIndex(index);
+                state.ready = true;
+            } catch (Exception e) {
+                log.warn("Could not create/check Elasticsearch index {}: {}", index, e.getMessage());
+            }
+        }
+    }
+
+    public void invalidate() {
+        invalidate(INDEX_NAME);
+    }
+
+    /**
+     * Appelé par le sink lorsqu'Elasticsearch répond index_not_found.
+     */
+    public void invalidate(String index) {
+        state(index).ready = false;
+        log.warn("Elasticsearch index {} reported missing, it will be checked again", index);
+    }
+
+    public boolean isIndexReady() {
+        return isIndexReady(INDEX_NAME);
+    }
+
+    public boolean isIndexReady(String index) {
+        return state(index).ready;
+    }
+
+    private IndexState state(String index) {
+        return indices.computeIfAbsent(index, name -> new IndexState());
+    }
+
+    // Le template porte le nom de l'index qu'il décrit
+    private void installTemplate(String index) throws IOException {
+        JsonNode template = loadTemplate(index);
+        int version = template.path("version").asInt();
+        int installedVersion = installedTemplateVersion(index);
+
+        if (installedVersion >= version) {
+            return;
+        }
+
+        // Avant le template : si la mise à jour échoue, la version installée reste ancienne et elle sera retentée
+        updateExistingMapping(index, template.path("template").path("mappings"));
+
+        String url = elasticsearchUrl + "/_index_template/" + index;
+        restTemplate.exchange(url, HttpMethod.PUT, jsonEntity(objectMapper.writeValueAsString(template)), String.class);
+        log.info("Installed Elasticsearch index template {} version {}", index, version);
+    }
+
+    private int installedTemplateVersion(String index) throws IOException {
+        try {
+            ResponseEntity<String> response =
+                    restTemplate.getForEntity(elasticsearchUrl + "/_index_template/" + index, String.class);
+            if (response.getBody() == null) {
+                return -1;
+            }
+            return objectMapper.readTree(response.getBody())
+                    .path("index_templates").path(0).path("index_template").path("version").asInt(-1);
+        } catch (HttpClientErrorException.NotFound e) {
+            return -1;
+        }
+    }
+
+    private void updateExistingMapping(String index, JsonNode mappings) throws IOException {
+        String indexUrl = elasticsearchUrl + "/" + index;
+        try {
+            restTemplate.headForHeaders(indexUrl);
+        } catch (HttpClientErrorException.NotFound e) {
+            // L'index sera créé à partir du nouveau template
+            return;
+        }
+        restTemplate.exchange(indexUrl + "/_mapping", HttpMethod.PUT,
+                jsonEntity(objectMapper.writeValueAsString(mappings)), String.class);
+        log.info("Updated mapping of existing Elasticsearch index {}", index);
+    }
+
+    private void createIndex(String index) {
+        String indexUrl = elasticsearchUrl + "/" + index;
+        try {
+            restTemplate.headForHeaders(indexUrl);
+            return;
+        } catch (HttpClientErrorException.NotFound e) {
+            // L'index n'existe pas, le créer à partir du template
+        }
+
+        try {
+            restTemplate.exchange(indexUrl, HttpMethod.PUT, jsonEntity("{}"), String.class);
+            log.info("Created Elasticsearch index: {}", index);
+        } catch (HttpClientErrorException.BadRequest e) {
+            // Une autre instance a créé l'index entre-temps
+            if (!e.getResponseBodyAsString().contains("resource_already_exists_exception")) {
+                throw e;
+            }
+        }
+    }
+
+    private JsonNode loadTemplate(String index) throws IOException {
+        try (InputStream in = new ClassPathResource("elasticsearch/" + index + "-template.json").getInputStream()) {
+            return objectMapper.readTree(in);
+        }
+    }
+
+    private HttpEntity<String> jsonEntity(String body) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        return new HttpEntity<>(body, headers);
+    }
+}
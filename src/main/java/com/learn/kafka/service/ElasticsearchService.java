@@ -1,90 +1,296 @@
 package com.learn.kafka.service;
 
+import com.learn.kafka.payload.RecordPayload;
+import com.learn.kafka.payload.RecordPayloadDeserializer;
+import com.learn.kafka.producer.ProducerProfileRouter;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
+import org.springframework.kafka.annotation.DltHandler;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.RetryableTopic;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.retry.annotation.Backoff;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
-import java.util.UUID;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 @Service
 @Slf4j
 public class ElasticsearchService {
 
+    // Topic de parking commun aux deux modes : fin de la chaîne de retry du sink unitaire, échecs définitifs du sink bulk
+    static final String DEAD_LETTER_TOPIC = "exchange-rates-es-dlt";
+    // Échecs définitifs des sinks paires et OHLC, rejouables une fois la cause corrigée
+    static final String PAIRS_DEAD_LETTER_TOPIC = "exchange-rate-pairs-es-dlt";
+    static final String OHLC_DEAD_LETTER_TOPIC = "exchange-rate-ohlc-es-dlt";
+    private static final String INDEX_NAME = "exchange-rates";
+
     @Value("${elasticsearch.url:http://localhost:9200}")
     private String elasticsearchUrl;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    @Autowired
+    private ElasticsearchBulkIndexer bulkIndexer;
 
-    @KafkaListener(topics = "exchange-rates", groupId = "elasticsearch-consumer")
-    public void consumeAndStoreInElasticsearch(String exchangeRateData) {
-        try {
-            log.info("Consuming exchange rate data for Elasticsearch...");
+    @Autowired
+    private ElasticsearchIndexManager indexManager;
+
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private ProducerProfileRouter producerProfileRouter;
+
+    @Autowired
+    private ElasticsearchFlowControl flowControl;
+
+    @Autowired
+    private ElasticsearchSinkMetrics sinkMetrics;
 
-            // Créer l'index s'il n'existe pas
-            createIndexIfNotExists();
+    // Pause avant relivraison d'un batch dont la requête _bulk a échoué en entier
+    @Value("${elasticsearch.bulk.redelivery-backoff-ms:5000}")
+    private long redeliveryBackoffMs;
 
-            // Stocker les données
-            String documentId = UUID.randomUUID().toString();
-            String url = elasticsearchUrl + "/exchange-rates/_doc/" + documentId;
+    // Attente maximale des envois au DLT avant acquittement ; au-delà, le batch est relivré
+    @Value("${elasticsearch.bulk.dead-letter-timeout-ms:10000}")
+    private long deadLetterTimeoutMs = 10_000;
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
+    /**
+     * Une écriture en échec n'est plus avalée : le record part sur exchange-rates-es-retry-N, consommé avec
+     * un délai exponentiel par des conteneurs dédiés, puis sur {@value #DEAD_LETTER_TOPIC}. La partition
+     * principale continue d'avancer pendant ce temps. Un document refusé (400) va directement au DLT.
+     * Le document reste en octets de bout en bout : reçu en {@link RecordPayload}, envoyé tel quel dans le PUT
+     * et republié à l'identique sur les topics de retry.
+     */
+    // Un consommateur par partition : les records sont clés par devise, l'ordre tient par devise
+    @RetryableTopic(
+            attempts = "${elasticsearch.retry.attempts:4}",
+            backoff = @Backoff(
+                    delayExpression = "${elasticsearch.retry.initial-interval-ms:1000}",
+                    multiplierExpression = "${elasticsearch.retry.multiplier:2.0}",
+                    maxDelayExpression = "${elasticsearch.retry.max-interval-ms:60000}"),
+            retryTopicSuffix = "-es-retry",
+            dltTopicSuffix = "-es-dlt",
+            numPartitions = "${kafka.topic.partitions:3}",
+            replicationFactor = "${kafka.topic.replicas:1}",
+            listenerContainerFactory = "kafkaListenerContainerFactory",
+            kafkaTemplate = "payloadKafkaTemplate",
+            exclude = HttpClientErrorException.BadRequest.class,
+            // Le sink bulk dépose aussi ses échecs au DLT : son handler tourne quel que soit le mode
+            autoStartDltHandler = "true")
+    @KafkaListener(id = "elasticsearch-sink", topics = "exchange-rates", groupId = "elasticsearch-consumer",
+            concurrency = "${kafka.topic.partitions:3}",
+            autoStartup = "#{!${elasticsearch.bulk.enabled:false}}",
+            properties = RecordPayloadDeserializer.VALUE_DESERIALIZER_PROPERTY)
+    public void consumeAndStoreInElasticsearch(RecordPayload exchangeRateData,
+                                               @Header(KafkaHeaders.RECEIVED_TIMESTAMP) long publishedAt) {
+        log.info("Consuming exchange rate data for Elasticsearch...");
 
-            HttpEntity<String> request = new HttpEntity<>(exchangeRateData, headers);
+        // Vérifié une seule fois puis mis en cache
+        indexManager.ensureIndex();
 
+        // Identifiant dérivé du contenu : une relivraison réécrit le même document
+        String documentId = DocumentIds.of(exchangeRateData);
+        String url = elasticsearchUrl + "/" + INDEX_NAME + "/_doc/" + documentId;
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+
+        HttpEntity<byte[]> request = new HttpEntity<>(exchangeRateData.toByteArray(), headers);
+
+        long start = System.nanoTime();
+        try {
             restTemplate.exchange(url, HttpMethod.PUT, request, String.class);
+        } catch (RestClientException e) {
+            sinkMetrics.requestFailed(INDEX_NAME, System.nanoTime() - start);
+            // La tentative suivante, sur le topic de retry, recréera l'index
+            if (e instanceof HttpClientErrorException.NotFound notFound
+                    && notFound.getResponseBodyAsString().contains("index_not_found_exception")) {
+                indexManager.invalidate();
+            }
+            if (ElasticsearchFlowControl.signalsOverload(e)) {
+                flowControl.onFailure();
+            }
+            throw e;
+        }
+        long latency = System.nanoTime() - start;
+        sinkMetrics.sent(INDEX_NAME, 1, latency);
+        sinkMetrics.indexed(INDEX_NAME, publishedAt);
+        flowControl.onResponse(latency, 1, 0);
+
+        log.info("Exchange rate data stored in Elasticsearch with ID: {}", documentId);
+    }
+
+    @DltHandler
+    public void handleDeadLetter(RecordPayload exchangeRateData,
+                                 @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
+                                 @Header(name = KafkaHeaders.DLT_EXCEPTION_MESSAGE, required = false) String error) {
+        // Le record reste dans le topic pour être rejoué une fois la cause corrigée
+        log.error("Exchange rate document parked in {} ({} bytes): {}", topic, exchangeRateData.length(), error);
+    }
+
+    /**
+     * Le broker retient le fetch jusqu'à max-actions/min-bytes ou linger-ms : un poll = une requête _bulk.
+     * Les offsets ne sont committés qu'après la réponse _bulk ; si la requête échoue en entier, le batch est
+     * relivré tel quel, ce qui est sans risque puisque les identifiants de documents sont déterministes.
+     * La taille des requêtes _bulk et la pause des conteneurs relèvent de {@link ElasticsearchFlowControl}.
+     */
+    @KafkaListener(id = "elasticsearch-bulk-sink", topics = "exchange-rates", groupId = "elasticsearch-consumer",
+            containerFactory = "manualAckBatchKafkaListenerContainerFactory",
+            concurrency = "${kafka.topic.partitions:3}",
+            autoStartup = "${elasticsearch.bulk.enabled:false}",
+            properties = {
+                    "max.poll.records=${elasticsearch.bulk.max-actions:500}",
+                    "fetch.min.bytes=${elasticsearch.bulk.min-bytes:65536}",
+                    "fetch.max.wait.ms=${elasticsearch.bulk.linger-ms:500}",
+                    RecordPayloadDeserializer.VALUE_DESERIALIZER_PROPERTY
+            })
+    public void consumeBatchAndStoreInElasticsearch(List<RecordPayload> exchangeRateData,
+                                                    @Header(KafkaHeaders.RECEIVED_TIMESTAMP) List<Long> publishedAt,
+                                                    Acknowledgment acknowledgment) {
+        if (deferred(exchangeRateData.size(), acknowledgment)) {
+            return;
+        }
+        try {
+            log.info("Consuming {} exchange rate records for Elasticsearch bulk indexing...", exchangeRateData.size());
+
+            indexManager.ensureIndex();
+
+            ElasticsearchBulkIndexer.BulkResult result = bulkIndexer.bulkIndex(INDEX_NAME, exchangeRateData);
+            if (result.indexMissing()) {
+                indexManager.invalidate();
+            }
+            deadLetter(DEAD_LETTER_TOPIC, result.failedDocuments(), "Bulk indexing failed");
+            acknowledgment.acknowledge();
+            sinkMetrics.indexed(INDEX_NAME, publishedAt);
+
+            log.info("Bulk indexed {} exchange rate documents ({} failed)", result.indexed(), result.failed());
+
+        } catch (Exception e) {
+            log.error("Error bulk storing data in Elasticsearch, batch redelivered in {} ms: {}",
+                    redeliveryBackoffMs, e.getMessage(), e);
+            acknowledgment.nack(0, Duration.ofMillis(redeliveryBackoffMs));
+        }
+    }
+
+    // Disjoncteur ouvert : un batch reçu avant la pause des conteneurs est relivré sans solliciter Elasticsearch
+    private boolean deferred(int records, Acknowledgment acknowledgment) {
+        if (!flowControl.isOpen()) {
+            return false;
+        }
+        flowControl.deferred(records);
+        acknowledgment.nack(0, Duration.ofMillis(redeliveryBackoffMs));
+        return true;
+    }
+
+    /**
+     * Les listeners batch ne peuvent pas utiliser les topics de retry : les documents que le bulk n'a pas
+     * pu indexer après ses propres tentatives sont déposés au DLT plutôt que de bloquer le batch.
+     * Les envois sont attendus avant l'acquittement : un envoi en échec ou trop lent fait relivrer le batch,
+     * sans perte puisque les identifiants de documents sont déterministes.
+     */
+    private void deadLetter(String topic, List<RecordPayload> documents, String error) throws Exception {
+        if (documents.isEmpty()) {
+            return;
+        }
+        KafkaTemplate<String, byte[]> template = producerProfileRouter.bytesTemplateFor(topic);
+        CompletableFuture<?>[] sends = new CompletableFuture<?>[documents.size()];
+        for (int i = 0; i < sends.length; i++) {
+            ProducerRecord<String, byte[]> record = new ProducerRecord<>(topic, documents.get(i).toByteArray());
+            record.headers().add(KafkaHeaders.DLT_EXCEPTION_MESSAGE,
+                    String.valueOf(error).getBytes(StandardCharsets.UTF_8));
+            sends[i] = template.send(record);
+        }
+        CompletableFuture.allOf(sends).get(deadLetterTimeoutMs, TimeUnit.MILLISECONDS);
+        log.warn("{} documents sent to {}", documents.size(), topic);
+    }
+
+    // Toujours en _bulk : un snapshot produit plus de 150 paires
+    @KafkaListener(id = "elasticsearch-pairs-sink", topics = "exchange-rate-pairs", groupId = "elasticsearch-pairs-consumer",
+            containerFactory = "manualAckBatchKafkaListenerContainerFactory",
+            concurrency = "${kafka.topic.partitions:3}",
+            properties = {
+                    "max.poll.records=${elasticsearch.bulk.max-actions:500}",
+                    "fetch.min.bytes=${elasticsearch.bulk.min-bytes:65536}",
+                    "fetch.max.wait.ms=${elasticsearch.bulk.linger-ms:500}",
+                    RecordPayloadDeserializer.VALUE_DESERIALIZER_PROPERTY
+            })
+    public void consumePairsAndStoreInElasticsearch(List<RecordPayload> exchangeRatePairs,
+                                                    @Header(KafkaHeaders.RECEIVED_TIMESTAMP) List<Long> publishedAt,
+                                                    Acknowledgment acknowledgment) {
+        if (deferred(exchangeRatePairs.size(), acknowledgment)) {
+            return;
+        }
+        try {
+            indexManager.ensureIndex(ElasticsearchIndexManager.PAIRS_INDEX_NAME);
 
-            log.info("Exchange rate data stored in Elasticsearch with ID: {}", documentId);
+            ElasticsearchBulkIndexer.BulkResult result =
+                    bulkIndexer.bulkIndex(ElasticsearchIndexManager.PAIRS_INDEX_NAME, exchangeRatePairs);
+            if (result.indexMissing()) {
+                indexManager.invalidate(ElasticsearchIndexManager.PAIRS_INDEX_NAME);
+            }
+            deadLetter(PAIRS_DEAD_LETTER_TOPIC, result.failedDocuments(), "Bulk indexing failed");
+            acknowledgment.acknowledge();
+            sinkMetrics.indexed(ElasticsearchIndexManager.PAIRS_INDEX_NAME, publishedAt);
+
+            log.info("Bulk indexed {} exchange rate pairs ({} failed)", result.indexed(), result.failed());
 
         } catch (Exception e) {
-            log.error("Error storing data in Elasticsearch: {}", e.getMessage(), e);
+            log.error("Error bulk storing exchange rate pairs in Elasticsearch, batch redelivered in {} ms: {}",
+                    redeliveryBackoffMs, e.getMessage(), e);
+            acknowledgment.nack(0, Duration.ofMillis(redeliveryBackoffMs));
         }
     }
 
-    private void createIndexIfNotExists() {
+    // Une barre par paire et par fenêtre fermée : faible volume, même chemin _bulk que les paires
+    @KafkaListener(id = "elasticsearch-ohlc-sink", topics = "exchange-rate-ohlc", groupId = "elasticsearch-ohlc-consumer",
+            containerFactory = "manualAckBatchKafkaListenerContainerFactory",
+            concurrency = "${kafka.topic.partitions:3}",
+            autoStartup = "${rates.ohlc.enabled:true}",
+            properties = {
+                    "max.poll.records=${elasticsearch.bulk.max-actions:500}",
+                    "fetch.max.wait.ms=${elasticsearch.bulk.linger-ms:500}",
+                    RecordPayloadDeserializer.VALUE_DESERIALIZER_PROPERTY
+            })
+    public void consumeOhlcAndStoreInElasticsearch(List<RecordPayload> ohlcBars,
+                                                   @Header(KafkaHeaders.RECEIVED_TIMESTAMP) List<Long> publishedAt,
+                                                   Acknowledgment acknowledgment) {
+        if (deferred(ohlcBars.size(), acknowledgment)) {
+            return;
+        }
         try {
-            String indexUrl = elasticsearchUrl + "/exchange-rates";
-
-            // Vérifier si l'index existe
-            try {
-                restTemplate.getForEntity(indexUrl, String.class);
-            } catch (Exception e) {
-                // L'index n'existe pas, le créer
-                HttpHeaders headers = new HttpHeaders();
-                headers.setContentType(MediaType.APPLICATION_JSON);
-
-                String mapping = """
-                {
-                  "settings": {
-                    "number_of_shards": 1,
-                    "number_of_replicas": 0
-                  },
-                  "mappings": {
-                    "properties": {
-                      "timestamp": {
-                        "type": "date",
-                        "format": "yyyy-MM-dd'T'HH:mm:ss.SSS||yyyy-MM-dd'T'HH:mm:ss||strict_date_optional_time"
-                      },
-                      "base": { "type": "keyword" },
-                      "date": { "type": "date" },
-                      "rates": { "type": "object" }
-                    }
-                  }
-                }
-                """;
-
-                HttpEntity<String> request = new HttpEntity<>(mapping, headers);
-                restTemplate.exchange(indexUrl, HttpMethod.PUT, request, String.class);
-                log.info("Created Elasticsearch index: exchange-rates");
+            indexManager.ensureIndex(ElasticsearchIndexManager.OHLC_INDEX_NAME);
+
+            ElasticsearchBulkIndexer.BulkResult result =
+                    bulkIndexer.bulkIndex(ElasticsearchIndexManager.OHLC_INDEX_NAME, ohlcBars);
+            if (result.indexMissing()) {
+                indexManager.invalidate(ElasticsearchIndexManager.OHLC_INDEX_NAME);
             }
+            deadLetter(OHLC_DEAD_LETTER_TOPIC, result.failedDocuments(), "Bulk indexing failed");
+            acknowledgment.acknowledge();
+            sinkMetrics.indexed(ElasticsearchIndexManager.OHLC_INDEX_NAME, publishedAt);
+
+            log.info("Bulk indexed {} OHLC bars ({} failed)", result.indexed(), result.failed());
+
         } catch (Exception e) {
-            log.warn("Could not create/check Elasticsearch index: {}", e.getMessage());
+            log.error("Error bulk storing OHLC bars in Elasticsearch, batch redelivered in {} ms: {}",
+                    redeliveryBackoffMs, e.getMessage(), e);
+            acknowledgment.nack(0, Duration.ofMillis(redeliveryBackoffMs));
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,114 @@
+package com.learn.kafka.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mesures des écritures Elasticsearch, étiquetées par index (trois index gérés) : taille et latence
+ * de chaque requête, documents en échec par cause et délai entre la publication Kafka et l'indexation.
+ * Les meters sont créés au premier usage d'un index puis réutilisés : l'enregistrement n'alloue rien.
+ */
+@Component
+public class ElasticsearchSinkMetrics {
+
+    // Remplacé par le registre Spring ; le registre global, sans backend, suffit hors contexte
+    @Autowired
+    private MeterRegistry meterRegistry = Metrics.globalRegistry;
+
+    private final Map<String, IndexMeters> meters = new ConcurrentHashMap<>();
+
+    private record IndexMeters(DistributionSummary batchSize, Timer latency, Timer failedLatency,
+                               Counter retryable, Counter rejected, Counter errors, Timer endToEnd) {
+    }
+
+    /**
+     * Requête d'indexation aboutie (_bulk ou document unitaire), éléments en échec compris.
+     */
+    public void sent(String index, int documents, long latencyNanos) {
+        IndexMeters indexMeters = meters(index);
+        indexMeters.batchSize().record(documents);
+        indexMeters.latency().record(latencyNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void itemsFailed(String index, int retryable, int rejected) {
+        IndexMeters indexMeters = meters(index);
+        if (retryable > 0) {
+            indexMeters.retryable().increment(retryable);
+        }
+        if (rejected > 0) {
+            indexMeters.rejected().increment(rejected);
+        }
+    }
+
+    // Requête entière en échec : connexion refusée, timeout, 429 ou 5xx global
+    public void requestFailed(String index, long latencyNanos) {
+        IndexMeters indexMeters = meters(index);
+        indexMeters.errors().increment();
+        indexMeters.failedLatency().record(latencyNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param publishedAt horodatage Kafka des records (CreateTime, posé par le producteur), en epoch ms
+     */
+    public void indexed(String index, List<Long> publishedAt) {
+        Timer endToEnd = meters(index).endToEnd();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < publishedAt.size(); i++) {
+            endToEnd.record(Math.max(0, now - publishedAt.get(i)), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public void indexed(String index, long publishedAt) {
+        meters(index).endToEnd().record(Math.max(0, System.currentTimeMillis() - publishedAt), TimeUnit.MILLISECONDS);
+    }
+
+    private IndexMeters meters(String index) {
+        IndexMeters indexMeters = meters.get(index);
+        return indexMeters != null ? indexMeters : meters.computeIfAbsent(index, this::register);
+    }
+
+    private IndexMeters register(String index) {
+        return new IndexMeters(
+                DistributionSummary.builder("elasticsearch.index.batch.size")
+                        .description("Documents per indexing request")
+                        .baseUnit("documents")
+                        .tag("index", index)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry),
+                latencyTimer(index, "success"),
+                latencyTimer(index, "error"),
+                failureCounter(index, "retryable"),
+                failureCounter(index, "rejected"),
+                failureCounter(index, "error"),
+                Timer.builder("elasticsearch.index.end.to.end")
+                        .description("Delay between the Kafka publish timestamp and the indexing acknowledgment")
+                        .tag("index", index)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry));
+    }
+
+    private Timer latencyTimer(String index, String outcome) {
+        return Timer.builder("elasticsearch.index.latency")
+                .description("Elasticsearch indexing request latency")
+                .tags("index", index, "outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private Counter failureCounter(String index, String reason) {
+        return Counter.builder("elasticsearch.index.failures")
+                .description("Documents or requests that Elasticsearch did not index")
+                .tags("index", index, "reason", reason)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,13 @@
+package com.learn.kafka.service;
+
+/**
+ * Un taux de change unitaire extrait d'un snapshot, publié sur le topic exchange-rate-pairs.
+ * La source est celle du snapshot : deux fournisseurs publient la même paire au même instant.
+ */
+public record ExchangeRatePair(String source, String base, String quote, double rate, String timestamp) {
+
+    // Clé Kafka au format marché (ex. USDEUR) : l'ordre est garanti par paire
+    public String key() {
+        return base + quote;
+    }
+}
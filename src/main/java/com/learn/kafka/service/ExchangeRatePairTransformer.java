@@ -0,0 +1,90 @@
+package com.learn.kafka.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learn.kafka.producer.ProducerProfileRouter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Éclate chaque snapshot du topic exchange-rates (un document avec tous les taux)
+ * en un record compact par paire de devises sur le topic exchange-rate-pairs.
+ */
+@Service
+@Slf4j
+public class ExchangeRatePairTransformer {
+
+    static final String PAIRS_TOPIC = "exchange-rate-pairs";
+
+    @Autowired
+    private ProducerProfileRouter producerProfileRouter;
+
+    // Attente maximale des envois des paires d'un snapshot avant de rendre la main au conteneur
+    @Value("${rates.pairs.send-timeout-ms:10000}")
+    private long sendTimeoutMs = 10_000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * L'offset du snapshot n'est committé qu'une fois toutes ses paires écrites : un envoi en échec ou trop lent
+     * remonte au gestionnaire d'erreurs du conteneur, qui relivre le snapshot. Les paires republiées portent
+     * le même identifiant de document.
+     */
+    @KafkaListener(id = "exchange-rate-pair-transformer", topics = "exchange-rates",
+            groupId = "exchange-rate-pair-transformer")
+    public void explodeSnapshot(String exchangeRateData) throws Exception {
+        List<ExchangeRatePair> pairs;
+        try {
+            pairs = toPairs(objectMapper.readTree(exchangeRateData));
+        } catch (JsonProcessingException e) {
+            // Illisible : une relivraison n'y changerait rien
+            log.error("Error exploding exchange rate snapshot: {}", e.getMessage(), e);
+            return;
+        }
+
+        KafkaTemplate<String, String> kafkaTemplate = producerProfileRouter.templateFor(PAIRS_TOPIC);
+        CompletableFuture<?>[] sends = new CompletableFuture<?>[pairs.size()];
+        for (int i = 0; i < sends.length; i++) {
+            ExchangeRatePair pair = pairs.get(i);
+            sends[i] = kafkaTemplate.send(PAIRS_TOPIC, pair.key(), objectMapper.writeValueAsString(pair));
+        }
+        CompletableFuture.allOf(sends).get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+
+        log.info("Published {} exchange rate pairs to Kafka topic: {}", pairs.size(), PAIRS_TOPIC);
+    }
+
+    List<ExchangeRatePair> toPairs(JsonNode snapshot) {
+        String base = snapshot.path("base").asText(null);
+        JsonNode rates = snapshot.path("rates");
+        if (base == null || !rates.isObject()) {
+            log.warn("Ignoring exchange rate snapshot without base or rates");
+            return List.of();
+        }
+
+        String source = snapshot.path("source").asText(null);
+        String timestamp = snapshot.path("timestamp").asText(null);
+        List<ExchangeRatePair> pairs = new ArrayList<>(rates.size());
+        Iterator<Map.Entry<String, JsonNode>> fields = rates.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> rate = fields.next();
+            // Le taux de la devise de base vers elle-même (1.0) n'apporte rien
+            if (rate.getKey().equals(base) || !rate.getValue().isNumber()) {
+                continue;
+            }
+            pairs.add(new ExchangeRatePair(source, base, rate.getKey(), rate.getValue().doubleValue(), timestamp));
+        }
+        return pairs;
+    }
+}
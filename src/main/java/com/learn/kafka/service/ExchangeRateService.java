@@ -1,53 +1,315 @@
 package com.learn.kafka.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learn.kafka.producer.ProducerProfileRouter;
+import com.learn.kafka.rates.RateProvider;
+import com.learn.kafka.rates.RateSnapshotEnricher;
+import com.learn.kafka.rates.RateTable;
+import com.learn.kafka.rates.RequestRateLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.ResponseEntity;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Interroge chaque couple (fournisseur, devise de base) sur son propre déclencheur et fusionne
+ * les snapshots dans le topic exchange-rates, clés par devise de base et marqués de leur source.
+ */
 @Service
 @Slf4j
-public class ExchangeRateService {
+public class ExchangeRateService implements SchedulingConfigurer {
 
     @Autowired
-    private KafkaTemplate<String, String> kafkaTemplate;
+    private ProducerProfileRouter producerProfileRouter;
 
-    private final RestTemplate restTemplate = new RestTemplate();
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    @Autowired(required = false)
+    private List<RateProvider> providers = List.of();
+
+    @Autowired
+    private MeterRegistry meterRegistry = Metrics.globalRegistry;
+
+    private final JsonFactory jsonFactory = new ObjectMapper().getFactory();
 
-    private static final String API_URL = "https://api.exchangerate-api.com/v4/latest/USD";
     private static final String KAFKA_TOPIC = "exchange-rates";
+    private static final String KEYFRAME = "keyframe";
+    private static final String DELTA = "delta";
+
+    // Intervalle de base, et minimum même si le fournisseur annonce une mise à jour plus proche
+    @Value("${exchange-rates.poll.interval-ms:30000}")
+    private long pollIntervalMs;
+
+    // Plafond lorsque la prochaine mise à jour annoncée est lointaine
+    @Value("${exchange-rates.poll.max-interval-ms:600000}")
+    private long maxPollIntervalMs;
+
+    // Requêtes simultanées tous fournisseurs confondus, quel que soit l'ordonnanceur (threads virtuels compris)
+    @Value("${exchange-rates.fetch.max-concurrency:4}")
+    private int maxConcurrency = 4;
+
+    @Value("${exchange-rates.delta.enabled:true}")
+    private boolean deltaEnabled;
+
+    // Variation relative en dessous de laquelle un taux est considéré inchangé
+    @Value("${exchange-rates.delta.epsilon:0.000001}")
+    private double epsilon;
+
+    // Un snapshot complet est republié périodiquement pour que les consommateurs puissent reconstruire l'état
+    @Value("${exchange-rates.delta.keyframe-interval-ms:600000}")
+    private long keyframeIntervalMs;
+
+    // Même interrupteur que l'ordonnanceur @Scheduled, appliqué ici car les flux ont leur propre ordonnanceur
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private List<RateFeed> feeds;
+    private Semaphore fetchPermits;
+
+    private final ScheduledTaskRegistrar fetchRegistrar = new ScheduledTaskRegistrar();
+    private ThreadPoolTaskScheduler fetchScheduler;
+
+    /**
+     * Les flux ne passent pas par l'ordonnanceur partagé : un fetch bloqué sur le réseau ou sur max-concurrency
+     * y retiendrait un thread au détriment des jobs @Scheduled (checkpoint du cache, contrôle de flux).
+     */
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        fetchScheduler = new ThreadPoolTaskScheduler();
+        fetchScheduler.setPoolSize(Math.max(1, maxConcurrency));
+        fetchScheduler.setThreadNamePrefix("rates-fetch-");
+        fetchScheduler.setVirtualThreads(virtualThreads);
+        fetchScheduler.initialize();
+        fetchRegistrar.setTaskScheduler(fetchScheduler);
+        scheduleFeeds(fetchRegistrar);
+        fetchRegistrar.afterPropertiesSet();
+    }
 
-    @Scheduled(fixedRate = 30000) // Toutes les 30 secondes
+    /**
+     * Un déclencheur par flux : un fournisseur lent ou limité ne retarde pas les autres.
+     * Le parallélisme effectif est borné par le pool de l'ordonnanceur et par max-concurrency.
+     */
+    void scheduleFeeds(ScheduledTaskRegistrar taskRegistrar) {
+        for (RateFeed feed : feeds()) {
+            taskRegistrar.addTriggerTask(feed::poll, triggerContext -> feed.nextPollTime(triggerContext.lastCompletion()));
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        fetchRegistrar.destroy();
+        if (fetchScheduler != null) {
+            fetchScheduler.shutdown();
+        }
+    }
+
+    /**
+     * Interroge immédiatement tous les flux, l'un après l'autre.
+     */
     public void fetchAndPublishExchangeRates() {
-        try {
-            log.info("Fetching exchange rates from API...");
+        feeds().forEach(RateFeed::poll);
+    }
+
+    synchronized List<RateFeed> feeds() {
+        if (feeds == null) {
+            fetchPermits = new Semaphore(Math.max(1, maxConcurrency));
+            List<RateFeed> created = new ArrayList<>();
+            for (RateProvider provider : providers) {
+                // Quota partagé par toutes les devises de base d'un même fournisseur
+                RequestRateLimiter limiter = new RequestRateLimiter(provider.requestsPerMinute());
+                long initialDelayMs = 0;
+                for (String base : provider.bases()) {
+                    // Premiers déclenchements étalés sur les créneaux du quota plutôt que tous refusés sauf un
+                    created.add(new RateFeed(provider, base, limiter, initialDelayMs));
+                    initialDelayMs += limiter.intervalMs();
+                }
+            }
+            feeds = List.copyOf(created);
+        }
+        return feeds;
+    }
+
+    /**
+     * Flux d'une devise de base chez un fournisseur. Ses exécutions ne se chevauchent jamais :
+     * l'état de publication et le buffer d'enrichissement lui appartiennent.
+     */
+    class RateFeed {
+
+        private final RateProvider provider;
+        private final String base;
+        private final RequestRateLimiter limiter;
+        private final long initialDelayMs;
+        private final RateSnapshotEnricher enricher;
+        // Fournisseurs et devises viennent de la configuration : cardinalité bornée
+        private final Timer fetchSuccess;
+        // 304 : requête conditionnelle sans publication, bien plus courte qu'un succès
+        private final Timer fetchNotModified;
+        private final Timer fetchError;
+
+        // Dernier état publié pour ce flux
+        private final RateTable publishedRates = new RateTable();
+        private String publishedBase;
+        // Remis à zéro après un échec d'envoi pour republier un snapshot complet
+        private volatile long lastKeyframeAt;
+        private volatile Instant nextUpdateHint;
+        // Dernière exécution refusée par le quota : relancée au prochain créneau, pas après un intervalle complet
+        private volatile boolean throttled;
 
-            ResponseEntity<String> response = restTemplate.getForEntity(API_URL, String.class);
+        RateFeed(RateProvider provider, String base, RequestRateLimiter limiter, long initialDelayMs) {
+            this.provider = provider;
+            this.base = base;
+            this.limiter = limiter;
+            this.initialDelayMs = initialDelayMs;
+            this.enricher = new RateSnapshotEnricher(jsonFactory, provider.name());
+            this.fetchSuccess = fetchTimer("success");
+            this.fetchNotModified = fetchTimer("not_modified");
+            this.fetchError = fetchTimer("error");
+        }
+
+        private Timer fetchTimer(String outcome) {
+            return Timer.builder("exchange.rates.fetch")
+                    .description("Rate provider fetch and publication duration")
+                    .tags("provider", provider.name(), "base", base, "outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+        }
+
+        Instant nextPollTime(Instant lastCompletion) {
+            if (lastCompletion == null) {
+                return Instant.now().plusMillis(initialDelayMs);
+            }
+            if (throttled) {
+                return Instant.ofEpochMilli(limiter.nextSlotAt());
+            }
+            Instant earliest = lastCompletion.plusMillis(pollIntervalMs);
+            Instant hint = nextUpdateHint;
+            if (hint != null && hint.isAfter(earliest)) {
+                Instant latest = lastCompletion.plusMillis(Math.max(pollIntervalMs, maxPollIntervalMs));
+                earliest = hint.isBefore(latest) ? hint : latest;
+            }
+            // Jamais avant le prochain créneau autorisé par le quota du fournisseur
+            Instant slot = Instant.ofEpochMilli(limiter.nextSlotAt());
+            return slot.isAfter(earliest) ? slot : earliest;
+        }
+
+        void poll() {
+            throttled = !limiter.tryAcquire(System.currentTimeMillis());
+            if (throttled) {
+                log.debug("Rate limit of {} reached, {} fetch postponed", provider.name(), base);
+                return;
+            }
+            try {
+                fetchPermits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            long start = System.nanoTime();
+            try {
+                log.info("Fetching exchange rates from API {} for {}...", provider.name(), base);
+
+                // Keyframe due : requête inconditionnelle pour recevoir un snapshot complet même s'il n'a pas changé
+                boolean conditional = !(deltaEnabled && keyframeDue());
+                RateSnapshotEnricher.Enriched snapshot = provider.fetch(base, conditional, this::publish);
+                Timer timer = snapshot != null ? fetchSuccess : fetchNotModified;
+                timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            } catch (Exception e) {
+                fetchError.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                lastKeyframeAt = 0;
+                log.error("Error fetching/publishing exchange rates: {}", e.getMessage(), e);
+            } finally {
+                fetchPermits.release();
+            }
+        }
 
-            if (response.getStatusCode().is2xxSuccessful()) {
-                String rateData = response.getBody();
+        private RateSnapshotEnricher.Enriched publish(InputStream body) throws IOException {
+            // Ajouter timestamp pour Elasticsearch avec timezone
+            String timestamp = LocalDateTime.now().atZone(java.time.ZoneId.systemDefault()).toInstant().toString();
+            RateSnapshotEnricher.Enriched snapshot = enricher.enrich(body, timestamp, this::ratesFilter);
+            nextUpdateHint = snapshot.nextUpdateUnix() > 0 ? Instant.ofEpochSecond(snapshot.nextUpdateUnix()) : null;
 
-                // Ajouter timestamp pour Elasticsearch avec timezone
-                JsonNode jsonNode = objectMapper.readTree(rateData);
-                String timestamp = LocalDateTime.now().atZone(java.time.ZoneId.systemDefault()).toInstant().toString();
-                ((com.fasterxml.jackson.databind.node.ObjectNode) jsonNode).put("timestamp", timestamp);
+            if (DELTA.equals(snapshot.type()) && snapshot.rates() == 0) {
+                log.info("Exchange rates unchanged since last publication, nothing published");
+                return snapshot;
+            }
+
+            // Clé = devise de base : l'ordre des snapshots est garanti par devise
+            producerProfileRouter.bytesTemplateFor(KAFKA_TOPIC).send(KAFKA_TOPIC, snapshot.base(), snapshot.json())
+                    .whenComplete((result, ex) -> {
+                        if (ex != null) {
+                            lastKeyframeAt = 0;
+                        }
+                    });
+            log.info("Exchange rates published to Kafka topic: {}", KAFKA_TOPIC);
+            return snapshot;
+        }
 
-                String enrichedData = objectMapper.writeValueAsString(jsonNode);
+        private boolean keyframeDue() {
+            return System.currentTimeMillis() - lastKeyframeAt >= keyframeIntervalMs;
+        }
 
-                // Publier sur Kafka
-                kafkaTemplate.send(KAFKA_TOPIC, enrichedData);
-                log.info("Exchange rates published to Kafka topic: {}", KAFKA_TOPIC);
+        /**
+         * Compare le snapshot à la dernière publication. Hors keyframe, seuls les taux nouveaux ou ayant
+         * varié de plus d'epsilon sont écrits dans {@code rates} et le message est marqué {@code "type":"delta"}.
+         */
+        private RateSnapshotEnricher.RateFilter ratesFilter(String snapshotBase) {
+            if (!deltaEnabled) {
+                return RateSnapshotEnricher.KEEP_ALL;
             }
-        } catch (Exception e) {
-            log.error("Error fetching/publishing exchange rates: {}", e.getMessage(), e);
+
+            if (!Objects.equals(snapshotBase, publishedBase) || keyframeDue()) {
+                publishedRates.clear();
+                publishedBase = snapshotBase;
+                lastKeyframeAt = System.currentTimeMillis();
+                return keyframeFilter;
+            }
+            return deltaFilter;
         }
+
+        private final RateSnapshotEnricher.RateFilter keyframeFilter = new RateSnapshotEnricher.RateFilter() {
+            @Override
+            public boolean keep(String currency, double rate) {
+                publishedRates.put(currency, rate);
+                return true;
+            }
+
+            @Override
+            public String type() {
+                return KEYFRAME;
+            }
+        };
+
+        private final RateSnapshotEnricher.RateFilter deltaFilter = new RateSnapshotEnricher.RateFilter() {
+            @Override
+            public boolean keep(String currency, double rate) {
+                double previous = publishedRates.get(currency);
+                if (Double.isNaN(previous) || Math.abs(rate - previous) > epsilon * Math.abs(previous)) {
+                    publishedRates.put(currency, rate);
+                    return true;
+                }
+                return false;
+            }
+
+            @Override
+            public String type() {
+                return DELTA;
+            }
+        };
     }
 }
\ No newline at end of file
@@ -0,0 +1,71 @@
+package com.learn.kafka.service;
+
+import com.learn.kafka.rates.LatestRatesCache;
+import com.learn.kafka.rates.RatesCheckpoint;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Alimente {@link LatestRatesCache} depuis exchange-rates. Chaque instance a son propre groupe, lit
+ * toutes les partitions et ne committe aucun offset : à chaque assignation, la lecture reprend à la position
+ * tenue par le {@link RatesCheckpoint} (restaurée au démarrage puis avancée à chaque record), ou à défaut relit
+ * la fin du topic sur une fenêtre qui contient au moins une keyframe par flux. Une position sortie de la
+ * rétention est ramenée sur la même fenêtre par le conteneur de relecture.
+ */
+@Service
+@Slf4j
+public class LatestRatesListener implements ConsumerSeekAware {
+
+    @Autowired
+    private LatestRatesCache latestRatesCache;
+
+    @Autowired
+    private RatesCheckpoint ratesCheckpoint;
+
+    // Doit dépasser exchange-rates.delta.keyframe-interval-ms pour relire une keyframe de chaque flux
+    @Value("${rates.cache.rebuild-window-ms:1200000}")
+    private long rebuildWindowMs;
+
+    @KafkaListener(id = "latest-rates-cache", topics = "exchange-rates",
+            groupId = "latest-rates-cache-${random.uuid}", containerFactory = "replayKafkaListenerContainerFactory",
+            autoStartup = "${rates.cache.enabled:true}")
+    public void updateLatestRates(String exchangeRateData,
+                                  @Header(KafkaHeaders.RECEIVED_PARTITION) int partition,
+                                  @Header(KafkaHeaders.OFFSET) long offset) {
+        try {
+            latestRatesCache.apply(exchangeRateData);
+        } catch (Exception e) {
+            log.error("Error updating latest rates cache: {}", e.getMessage(), e);
+        }
+        // Un record illisible ne le deviendra pas à la relecture : la position avance dans tous les cas
+        ratesCheckpoint.recordConsumed(partition, offset);
+    }
+
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        List<TopicPartition> rebuild = new ArrayList<>();
+        for (TopicPartition partition : assignments.keySet()) {
+            long position = ratesCheckpoint.resumeOffset(partition.partition());
+            if (position >= 0) {
+                callback.seek(partition.topic(), partition.partition(), position);
+            } else {
+                rebuild.add(partition);
+            }
+        }
+        if (!rebuild.isEmpty()) {
+            callback.seekToTimestamp(rebuild, System.currentTimeMillis() - rebuildWindowMs);
+            log.info("Rebuilding latest rates cache from {} partitions, last {} ms", rebuild.size(), rebuildWindowMs);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.learn.kafka.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learn.kafka.producer.ProducerProfileRouter;
+import com.learn.kafka.rates.OhlcAggregator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Agrège les taux du topic exchange-rates en barres OHLC par fournisseur et par paire sur plusieurs fenêtres
+ * fixes (1 min, 5 min, 1 h par défaut) et publie chaque fenêtre fermée sur exchange-rate-ohlc.
+ * <p>
+ * Les fenêtres ouvertes ne vivent qu'en mémoire : à chaque assignation (démarrage, rebalance), l'état est
+ * vidé et la lecture recule de la plus longue fenêtre plus la grâce. Seules les fenêtres entièrement relues
+ * sont émises ; une barre réémise est identique à la précédente et réécrit le même document.
+ * Un seul consommateur par instance, avec une assignation non coopérative : toutes les partitions dont
+ * l'état est vidé sont aussi celles qui sont relues.
+ */
+@Service
+@Slf4j
+public class OhlcAggregationService implements ConsumerSeekAware {
+
+    static final String OHLC_TOPIC = "exchange-rate-ohlc";
+
+    @Autowired
+    private ProducerProfileRouter producerProfileRouter;
+
+    @Autowired
+    private MeterRegistry meterRegistry = Metrics.globalRegistry;
+
+    @Value("${rates.ohlc.windows:1m,5m,1h}")
+    private Duration[] windows;
+
+    // Retard accepté après la fin d'une fenêtre avant de la fermer
+    @Value("${rates.ohlc.grace:30s}")
+    private Duration grace;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final JsonFactory jsonFactory = objectMapper.getFactory();
+
+    // Fournisseur -> une instance par fenêtre
+    private final Map<String, List<OhlcAggregator>> aggregators = new HashMap<>();
+    // Début de la dernière relecture (epoch ms), 0 avant la première assignation
+    private long rebuildFrom;
+
+    /**
+     * Un seul consommateur pour toutes les partitions : l'état des fenêtres est partagé, le temps d'événement
+     * d'un fournisseur avance pour toutes ses devises de base ensemble.
+     */
+    @KafkaListener(id = "ohlc-aggregator", topics = "exchange-rates", groupId = "ohlc-aggregator",
+            concurrency = "1", autoStartup = "${rates.ohlc.enabled:true}")
+    public synchronized void aggregate(String exchangeRateData) {
+        try {
+            int rates = add(exchangeRateData);
+            log.debug("Aggregated {} exchange rates into OHLC windows", rates);
+        } catch (Exception e) {
+            log.error("Error aggregating exchange rates into OHLC windows: {}", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public synchronized void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        long longestWindowMs = Arrays.stream(windows).mapToLong(Duration::toMillis).max().orElse(0);
+        rebuildFrom = System.currentTimeMillis() - longestWindowMs - grace.toMillis();
+        aggregators.clear();
+        callback.seekToTimestamp(assignments.keySet(), rebuildFrom);
+        log.info("Rebuilding OHLC windows from {} partitions since {}", assignments.size(), Instant.ofEpochMilli(rebuildFrom));
+    }
+
+    /**
+     * @return le nombre de taux pris en compte, retards exclus
+     */
+    int add(String snapshot) throws IOException {
+        String source = null;
+        String base = null;
+        String timestamp = null;
+        String[] quotes = new String[64];
+        double[] values = new double[64];
+        int count = 0;
+
+        // Le timestamp suit les taux dans le snapshot enrichi : les taux sont lus avant d'être agrégés
+        try (JsonParser parser = jsonFactory.createParser(snapshot)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return 0;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("base".equals(field) && value == JsonToken.VALUE_STRING) {
+                    base = parser.getText();
+                } else if ("source".equals(field) && value == JsonToken.VALUE_STRING) {
+                    source = parser.getText();
+                } else if ("timestamp".equals(field) && value == JsonToken.VALUE_STRING) {
+                    timestamp = parser.getText();
+                } else if ("rates".equals(field) && value == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String quote = parser.currentName();
+                        if (!parser.nextToken().isNumeric()) {
+                            parser.skipChildren();
+                            continue;
+                        }
+                        if (count == quotes.length) {
+                            quotes = Arrays.copyOf(quotes, count * 2);
+                            values = Arrays.copyOf(values, count * 2);
+                        }
+                        quotes[count] = quote;
+                        values[count++] = parser.getDoubleValue();
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+
+        if (base == null || timestamp == null) {
+            log.warn("Ignoring exchange rate snapshot without base or timestamp");
+            return 0;
+        }
+        long eventTime = Instant.parse(timestamp).toEpochMilli();
+        int added = 0;
+        for (OhlcAggregator aggregator : aggregators(source)) {
+            added = 0;
+            for (int i = 0; i < count; i++) {
+                // Le taux de la devise de base vers elle-même (1.0) n'apporte rien
+                if (!quotes[i].equals(base) && aggregator.add(base, quotes[i], values[i], eventTime)) {
+                    added++;
+                }
+            }
+        }
+        return added;
+    }
+
+    synchronized List<OhlcAggregator> aggregators(String source) {
+        // Clé vide pour les snapshots sans source : ils restent séparés de ceux des fournisseurs connus
+        return aggregators.computeIfAbsent(source == null ? "" : source, key -> {
+            List<OhlcAggregator> created = new ArrayList<>();
+            for (Duration window : windows) {
+                OhlcAggregator aggregator = new OhlcAggregator(source, window, grace, this::publish);
+                aggregator.skipWindowsBefore(rebuildFrom);
+                created.add(aggregator);
+            }
+            return List.copyOf(created);
+        });
+    }
+
+    private void publish(OhlcAggregator.OhlcBar bar) {
+        try {
+            producerProfileRouter.templateFor(OHLC_TOPIC).send(OHLC_TOPIC, bar.key(), objectMapper.writeValueAsString(bar))
+                    .whenComplete((result, ex) -> {
+                        if (ex != null) {
+                            publishFailed(bar, ex);
+                        }
+                    });
+        } catch (Exception e) {
+            publishFailed(bar, e);
+        }
+    }
+
+    // Une barre perdue n'est pas réémise : l'échec est compté pour être alerté
+    private void publishFailed(OhlcAggregator.OhlcBar bar, Throwable e) {
+        meterRegistry.counter("rates.ohlc.publish.failures", "window", bar.window()).increment();
+        log.error("Error publishing OHLC bar {} {}: {}", bar.key(), bar.window(), e.getMessage(), e);
+    }
+}
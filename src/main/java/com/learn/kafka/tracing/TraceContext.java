@@ -0,0 +1,41 @@
+package com.learn.kafka.tracing;
+
+/**
+ * Trace du record en cours de traitement sur le thread du listener. Un record produit pendant ce traitement
+ * (paire dérivée d'un snapshot, renvoi sur un topic de retry) hérite de l'identifiant et de l'origine.
+ * Une instance par thread, réutilisée d'un record à l'autre.
+ */
+public final class TraceContext {
+
+    private static final ThreadLocal<TraceContext> CURRENT = ThreadLocal.withInitial(TraceContext::new);
+
+    long traceId;
+    long originAt;
+    // Réception par le listener, en µs epoch
+    long receivedAt;
+
+    private TraceContext() {
+    }
+
+    static TraceContext current() {
+        return CURRENT.get();
+    }
+
+    public long traceId() {
+        return traceId;
+    }
+
+    public long originAt() {
+        return originAt;
+    }
+
+    void set(long traceId, long originAt, long receivedAt) {
+        this.traceId = traceId;
+        this.originAt = originAt;
+        this.receivedAt = receivedAt;
+    }
+
+    void clear() {
+        set(TraceHeaders.NONE, TraceHeaders.NONE, TraceHeaders.NONE);
+    }
+}
@@ -0,0 +1,64 @@
+package com.learn.kafka.tracing;
+
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+
+/**
+ * En-têtes de traçage posés sur chaque record produit, lus sans toucher au contenu du message.
+ * Valeurs binaires sur 8 octets (big-endian) :
+ * <ul>
+ *     <li>{@value #TRACE_ID} : identifiant conservé d'un saut à l'autre (topic de retry, paires dérivées d'un snapshot)</li>
+ *     <li>{@value #ORIGIN_AT} : date de la première publication de la trace, en µs epoch</li>
+ *     <li>{@value #SENT_AT} : date d'envoi sur le saut courant, en µs epoch</li>
+ * </ul>
+ */
+public final class TraceHeaders {
+
+    public static final String TRACE_ID = "trace-id";
+    public static final String ORIGIN_AT = "trace-origin-us";
+    public static final String SENT_AT = "trace-sent-us";
+
+    // Valeur renvoyée pour un en-tête absent ou mal formé
+    public static final long NONE = 0;
+
+    // Ancrage unique : horloge murale au démarrage, puis nanoTime, qui ne recule jamais
+    private static final long ORIGIN_MICROS = System.currentTimeMillis() * 1000;
+    private static final long ORIGIN_NANOS = System.nanoTime();
+
+    private TraceHeaders() {
+    }
+
+    /**
+     * Microsecondes epoch, monotones dans le processus : un réglage NTP ne produit pas de latence négative.
+     * D'un processus à l'autre, l'écart reste celui des horloges murales ; les latences sont bornées à 0.
+     */
+    public static long nowMicros() {
+        return ORIGIN_MICROS + (System.nanoTime() - ORIGIN_NANOS) / 1000;
+    }
+
+    public static long get(Headers headers, String name) {
+        Header header = headers.lastHeader(name);
+        if (header == null) {
+            return NONE;
+        }
+        byte[] value = header.value();
+        if (value == null || value.length != Long.BYTES) {
+            return NONE;
+        }
+        long result = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            result = (result << 8) | (value[i] & 0xFF);
+        }
+        return result;
+    }
+
+    public static void set(Headers headers, String name, long value) {
+        byte[] bytes = new byte[Long.BYTES];
+        for (int i = Long.BYTES - 1; i >= 0; i--) {
+            bytes[i] = (byte) value;
+            value >>>= 8;
+        }
+        headers.remove(name);
+        headers.add(name, bytes);
+    }
+}
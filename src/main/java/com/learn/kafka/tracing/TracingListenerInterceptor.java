@@ -0,0 +1,138 @@
+package com.learn.kafka.tracing;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.header.Headers;
+import org.springframework.kafka.listener.BatchInterceptor;
+import org.springframework.kafka.listener.RecordInterceptor;
+import org.springframework.kafka.support.KafkaUtils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Mesure chaque étape d'un record à partir des en-têtes {@link TraceHeaders}, par groupe et par topic :
+ * <ul>
+ *     <li>{@code hop} : envoi par le producteur -> réception par le listener (attente broker + lag)</li>
+ *     <li>{@code processing} : réception -> retour du listener (indexation Elasticsearch, agrégation...)</li>
+ *     <li>{@code end-to-end} : première publication de la trace -> retour du listener, sauts intermédiaires compris</li>
+ * </ul>
+ * Les listeners batch sont mesurés par batch pour {@code processing} et par record pour les deux autres étapes.
+ * Le suffixe UUID des groupes propres à chaque instance ({@code latest-rates-cache-${random.uuid}}) est retiré
+ * du tag : un redémarrage ne crée pas de nouvelle série.
+ */
+public class TracingListenerInterceptor<K, V> implements RecordInterceptor<K, V>, BatchInterceptor<K, V> {
+
+    private static final String NO_GROUP = "none";
+    private static final Pattern UUID_SUFFIX =
+            Pattern.compile("-[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}$");
+
+    private final MeterRegistry meterRegistry;
+
+    // Groupe -> topic -> timers : deux lectures de map, sans clé composée à allouer
+    private final Map<String, Map<String, StageTimers>> timers = new ConcurrentHashMap<>();
+
+    private record StageTimers(Timer hop, Timer processing, Timer endToEnd) {
+    }
+
+    public TracingListenerInterceptor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public ConsumerRecord<K, V> intercept(ConsumerRecord<K, V> record, Consumer<K, V> consumer) {
+        long now = TraceHeaders.nowMicros();
+        Headers headers = record.headers();
+        recordHop(timers(record.topic()), headers, now);
+        TraceContext.current().set(TraceHeaders.get(headers, TraceHeaders.TRACE_ID),
+                TraceHeaders.get(headers, TraceHeaders.ORIGIN_AT), now);
+        return record;
+    }
+
+    @Override
+    public void success(ConsumerRecord<K, V> record, Consumer<K, V> consumer) {
+        long now = TraceHeaders.nowMicros();
+        StageTimers stageTimers = timers(record.topic());
+        TraceContext context = TraceContext.current();
+        record(stageTimers.processing(), context.receivedAt, now);
+        record(stageTimers.endToEnd(), context.originAt(), now);
+    }
+
+    @Override
+    public void afterRecord(ConsumerRecord<K, V> record, Consumer<K, V> consumer) {
+        TraceContext.current().clear();
+    }
+
+    @Override
+    public ConsumerRecords<K, V> intercept(ConsumerRecords<K, V> records, Consumer<K, V> consumer) {
+        long now = TraceHeaders.nowMicros();
+        for (ConsumerRecord<K, V> record : records) {
+            recordHop(timers(record.topic()), record.headers(), now);
+        }
+        // Pas d'héritage de trace pour un batch : seul l'instant de réception est conservé
+        TraceContext.current().set(TraceHeaders.NONE, TraceHeaders.NONE, now);
+        return records;
+    }
+
+    @Override
+    public void success(ConsumerRecords<K, V> records, Consumer<K, V> consumer) {
+        long now = TraceHeaders.nowMicros();
+        long receivedAt = TraceContext.current().receivedAt;
+        String processedTopic = null;
+        for (ConsumerRecord<K, V> record : records) {
+            StageTimers stageTimers = timers(record.topic());
+            if (!record.topic().equals(processedTopic)) {
+                record(stageTimers.processing(), receivedAt, now);
+                processedTopic = record.topic();
+            }
+            record(stageTimers.endToEnd(), TraceHeaders.get(record.headers(), TraceHeaders.ORIGIN_AT), now);
+        }
+        TraceContext.current().clear();
+    }
+
+    @Override
+    public void failure(ConsumerRecords<K, V> records, Exception exception, Consumer<K, V> consumer) {
+        TraceContext.current().clear();
+    }
+
+    private static void recordHop(StageTimers stageTimers, Headers headers, long now) {
+        record(stageTimers.hop(), TraceHeaders.get(headers, TraceHeaders.SENT_AT), now);
+    }
+
+    private static void record(Timer timer, long fromMicros, long nowMicros) {
+        if (fromMicros != TraceHeaders.NONE) {
+            timer.record(Math.max(0, nowMicros - fromMicros), TimeUnit.MICROSECONDS);
+        }
+    }
+
+    private StageTimers timers(String topic) {
+        String group = KafkaUtils.getConsumerGroupId();
+        if (group == null) {
+            group = NO_GROUP;
+        }
+        Map<String, StageTimers> byTopic = timers.get(group);
+        if (byTopic == null) {
+            byTopic = timers.computeIfAbsent(group, g -> new ConcurrentHashMap<>());
+        }
+        StageTimers stageTimers = byTopic.get(topic);
+        if (stageTimers == null) {
+            String consumerGroup = UUID_SUFFIX.matcher(group).replaceFirst("");
+            stageTimers = byTopic.computeIfAbsent(topic, t -> new StageTimers(
+                    timer("hop", consumerGroup, t), timer("processing", consumerGroup, t), timer("end-to-end", consumerGroup, t)));
+        }
+        return stageTimers;
+    }
+
+    private Timer timer(String stage, String group, String topic) {
+        return Timer.builder("kafka.trace.latency")
+                .description("Per-stage latency of traced Kafka records")
+                .tags("stage", stage, "group", group, "topic", topic)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
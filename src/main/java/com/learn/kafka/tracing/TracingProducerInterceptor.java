@@ -0,0 +1,53 @@
+package com.learn.kafka.tracing;
+
+import org.apache.kafka.clients.producer.ProducerInterceptor;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.header.Headers;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Pose les en-têtes {@link TraceHeaders} sur chaque record, quel que soit le template ou le sérialiseur.
+ * Déclaré dans interceptor.classes : instancié par le client Kafka et appelé sur le thread qui envoie.
+ * <p>
+ * Un record déjà tracé (renvoi vers un topic de retry ou le DLT) garde son identifiant et son origine ;
+ * envoyé depuis un listener record, il hérite de ceux du record consommé. Sinon une trace commence.
+ */
+public class TracingProducerInterceptor implements ProducerInterceptor<Object, Object> {
+
+    @Override
+    public ProducerRecord<Object, Object> onSend(ProducerRecord<Object, Object> record) {
+        Headers headers = record.headers();
+        long now = TraceHeaders.nowMicros();
+        if (TraceHeaders.get(headers, TraceHeaders.TRACE_ID) == TraceHeaders.NONE) {
+            TraceContext context = TraceContext.current();
+            boolean inherited = context.traceId() != TraceHeaders.NONE;
+            TraceHeaders.set(headers, TraceHeaders.TRACE_ID, inherited ? context.traceId() : newTraceId());
+            TraceHeaders.set(headers, TraceHeaders.ORIGIN_AT, inherited ? context.originAt() : now);
+        }
+        TraceHeaders.set(headers, TraceHeaders.SENT_AT, now);
+        return record;
+    }
+
+    @Override
+    public void onAcknowledgement(RecordMetadata metadata, Exception exception) {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs) {
+    }
+
+    private static long newTraceId() {
+        long id;
+        do {
+            id = ThreadLocalRandom.current().nextLong();
+        } while (id == TraceHeaders.NONE);
+        return id;
+    }
+}
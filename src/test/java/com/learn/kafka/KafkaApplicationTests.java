@@ -3,7 +3,7 @@ package com.learn.kafka;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = "spring.kafka.admin.auto-create=false")
 class KafkaApplicationTests {
 
 	@Test
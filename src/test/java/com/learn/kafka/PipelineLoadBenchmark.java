@@ -0,0 +1,193 @@
+package com.learn.kafka;
+
+import com.learn.kafka.producer.MessageProducer;
+import com.learn.kafka.support.ConsumerLag;
+import com.learn.kafka.support.LoadGenerator;
+import com.learn.kafka.support.StubElasticsearchServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Charge de bout en bout sur l'application complète : broker embarqué, Elasticsearch simulé, débit imposé
+ * par un {@link LoadGenerator} en boucle ouverte. Donne le débit soutenu, les percentiles corrigés de la
+ * coordinated omission et le lag du consommateur de l'étape mesurée.
+ * <p>
+ * Exécuté uniquement avec {@code mvn -Pbenchmark test -Dtest=PipelineLoadBenchmark}, réglages par
+ * -Dbenchmark.rate, -Dbenchmark.message-size, -Dbenchmark.partitions, -Dbenchmark.warmup-s, -Dbenchmark.duration-s.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "logging.level.com.learn.kafka=WARN",
+        "exchange-rates.providers.exchangerate-api.enabled=false",
+        "rates.cache.checkpoint.enabled=false"
+})
+@EmbeddedKafka(bootstrapServersProperty = "spring.kafka.bootstrap-servers")
+class PipelineLoadBenchmark {
+
+    private static final String TOPIC = "mon-tunnel-topic";
+    private static final String RATES_TOPIC = "exchange-rates";
+    private static final String[] BASES = {"USD", "EUR", "GBP", "JPY", "CHF", "CAD", "AUD", "SEK", "NOK", "DKK", "PLN", "CZK"};
+
+    private static StubElasticsearchServer stubServer;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private EmbeddedKafkaBroker broker;
+
+    @Autowired
+    private MessageProducer messageProducer;
+
+    @Value("${spring.kafka.consumer.group-id}")
+    private String consumerGroupId;
+
+    private final HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    @DynamicPropertySource
+    static void pipelineProperties(DynamicPropertyRegistry registry) throws IOException {
+        stubServer = new StubElasticsearchServer();
+        registry.add("elasticsearch.url", stubServer::url);
+        // Partitions des topics applicatifs et concurrence des conteneurs qui en dépendent
+        registry.add("kafka.topic.partitions", () -> Integer.getInteger("benchmark.partitions", 3));
+    }
+
+    @AfterAll
+    static void stopServer() {
+        stubServer.close();
+    }
+
+    /**
+     * POST /produce?async=true : réponse HTTP après l'acquittement du broker.
+     */
+    @Test
+    void produceEndpoint() throws Exception {
+        LoadGenerator.Profile profile = LoadGenerator.Profile.fromSystemProperties("produce-endpoint", 1_000);
+        String body = "content=" + "x".repeat(profile.messageSize());
+        URI uri = URI.create("http://localhost:" + port + "/produce?async=true");
+
+        try (ConsumerLag lag = new ConsumerLag(broker.getBrokersAsString(), consumerGroupId, TOPIC)) {
+            LoadGenerator.Report report = new LoadGenerator(profile, lag::current).run(sequence -> {
+                HttpRequest request = HttpRequest.newBuilder(uri)
+                        .header("Content-Type", "application/x-www-form-urlencoded")
+                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                        .build();
+                return httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding()).thenApply(response -> {
+                    if (response.statusCode() != 200) {
+                        throw new IllegalStateException("HTTP " + response.statusCode());
+                    }
+                    return response;
+                });
+            });
+            report.print();
+            assertThat(report.completed()).isPositive();
+            assertThat(report.lost()).as("requests without response").isZero();
+        }
+    }
+
+    /**
+     * MessageProducer.sendMessage : délai jusqu'à l'acquittement du broker, sans la couche HTTP.
+     */
+    @Test
+    void messageProducer() throws Exception {
+        LoadGenerator.Profile profile = LoadGenerator.Profile.fromSystemProperties("message-producer", 5_000);
+        String message = "x".repeat(profile.messageSize());
+
+        try (ConsumerLag lag = new ConsumerLag(broker.getBrokersAsString(), consumerGroupId, TOPIC)) {
+            LoadGenerator.Report report = new LoadGenerator(profile, lag::current)
+                    .run(sequence -> messageProducer.sendMessage(TOPIC, message));
+            report.print();
+            assertThat(report.completed()).isPositive();
+            assertThat(report.lost()).as("sends without acknowledgment").isZero();
+        }
+    }
+
+    /**
+     * Snapshot publié sur exchange-rates jusqu'à sa réception par Elasticsearch via le sink (bulk par défaut).
+     * Le transformateur de paires et l'agrégateur OHLC consomment le même topic et chargent le broker en parallèle.
+     */
+    @Test
+    void exchangeRatesPipeline() throws Exception {
+        LoadGenerator.Profile profile = LoadGenerator.Profile.fromSystemProperties("exchange-rates-pipeline", 200);
+        Map<Long, CompletableFuture<Void>> pending = new ConcurrentHashMap<>();
+        stubServer.setDocumentListener((index, document) -> {
+            if (RATES_TOPIC.equals(index)) {
+                // Une relivraison trouve le futur déjà retiré
+                CompletableFuture<Void> indexed = pending.remove(sequenceOf(document));
+                if (indexed != null) {
+                    indexed.complete(null);
+                }
+            }
+        });
+
+        try (ConsumerLag lag = new ConsumerLag(broker.getBrokersAsString(), "elasticsearch-consumer", RATES_TOPIC)) {
+            LoadGenerator.Report report = new LoadGenerator(profile, lag::current).run(sequence -> {
+                CompletableFuture<Void> indexed = new CompletableFuture<>();
+                pending.put(sequence, indexed);
+                String base = BASES[(int) (sequence % BASES.length)];
+                messageProducer.sendMessage(RATES_TOPIC, base, snapshot(sequence, base, profile.messageSize()))
+                        .exceptionally(ex -> {
+                            pending.remove(sequence);
+                            indexed.completeExceptionally(ex);
+                            return null;
+                        });
+                return indexed;
+            });
+            report.print();
+            assertThat(report.completed()).isPositive();
+            assertThat(report.lost()).as("snapshots never indexed").isZero();
+        } finally {
+            stubServer.setDocumentListener(null);
+        }
+    }
+
+    // Snapshot enrichi tel que publié par ExchangeRateService, complété de taux jusqu'à la taille demandée
+    private static String snapshot(long sequence, String base, int size) {
+        StringBuilder json = new StringBuilder(size + 128)
+                .append("{\"base\":\"").append(base)
+                .append("\",\"date\":\"").append(LocalDate.now(ZoneOffset.UTC))
+                .append("\",\"rates\":{");
+        for (int i = 0; i == 0 || json.length() < size - 120; i++) {
+            json.append(i > 0 ? "," : "")
+                    .append("\"Q").append((char) ('A' + i / 26 % 26)).append((char) ('A' + i % 26)).append("\":")
+                    .append(1 + i * 0.013);
+        }
+        return json.append("},\"timestamp\":\"").append(Instant.now())
+                .append("\",\"source\":\"load\",\"type\":\"keyframe\",\"loadSeq\":").append(sequence)
+                .append('}').toString();
+    }
+
+    private static long sequenceOf(String document) {
+        int start = document.lastIndexOf("\"loadSeq\":");
+        if (start < 0) {
+            return -1;
+        }
+        start += "\"loadSeq\":".length();
+        int end = start;
+        while (end < document.length() && Character.isDigit(document.charAt(end))) {
+            end++;
+        }
+        return end == start ? -1 : Long.parseLong(document, start, end, 10);
+    }
+}
@@ -1,18 +1,39 @@
 package com.learn.kafka;
 
+import com.learn.kafka.producer.BatchProducer;
+import com.learn.kafka.producer.BatchSummary;
 import com.learn.kafka.producer.MessageProducer;
+import org.apache.kafka.clients.producer.BufferExhaustedException;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.TimeoutException;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.MediaType;
+import org.springframework.kafka.core.KafkaProducerException;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(ProducerController.class)
+@TestPropertySource(properties = "producer.async.max-in-flight=1")
 class ProducerControllerTest {
 
     @Autowired
@@ -21,10 +42,15 @@ class ProducerControllerTest {
     @MockitoBean
     private MessageProducer messageProducer;
 
+    @MockitoBean
+    private BatchProducer batchProducer;
+
     @Test
     void shouldSendMessageAndReturnOk() throws Exception {
         // Given
         String content = "test message";
+        when(messageProducer.sendMessage("mon-tunnel-topic", content))
+                .thenReturn(CompletableFuture.completedFuture(null));
 
         // When & Then
         mockMvc.perform(post("/produce")
@@ -34,4 +60,154 @@ class ProducerControllerTest {
 
         verify(messageProducer, times(1)).sendMessage("mon-tunnel-topic", content);
     }
+
+    @Test
+    void shouldReturnDeliveryReceiptInAsyncMode() throws Exception {
+        // Given
+        String content = "test message";
+        ProducerRecord<String, String> record = new ProducerRecord<>("mon-tunnel-topic", content);
+        RecordMetadata metadata = new RecordMetadata(new TopicPartition("mon-tunnel-topic", 2), 42L, 0, 0L, 0, 0);
+        when(messageProducer.sendMessage("mon-tunnel-topic", content))
+                .thenReturn(CompletableFuture.completedFuture(new SendResult<>(record, metadata)));
+
+        // When
+        MvcResult result = mockMvc.perform(post("/produce")
+                        .param("content", content)
+                        .param("async", "true"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.topic").value("mon-tunnel-topic"))
+                .andExpect(jsonPath("$.partition").value(2))
+                .andExpect(jsonPath("$.offset").value(42));
+    }
+
+    @Test
+    void shouldReturnTooManyRequestsWhenProducerBufferIsFull() throws Exception {
+        // Given
+        String content = "test message";
+        ProducerRecord<String, String> record = new ProducerRecord<>("mon-tunnel-topic", content);
+        when(messageProducer.sendMessage("mon-tunnel-topic", content))
+                .thenReturn(CompletableFuture.failedFuture(
+                        new KafkaProducerException(record, "Send failed", new BufferExhaustedException("Buffer full"))));
+
+        // When
+        MvcResult result = mockMvc.perform(post("/produce")
+                        .param("content", content)
+                        .param("async", "true"))
+                .andReturn();
+
+        // Then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "1"));
+    }
+
+    @Test
+    void shouldWaitForAcknowledgmentInSyncMode() throws Exception {
+        // Given
+        ProducerRecord<String, String> record = new ProducerRecord<>("mon-tunnel-topic", "test message");
+        when(messageProducer.sendMessage("mon-tunnel-topic", "test message"))
+                .thenReturn(CompletableFuture.failedFuture(
+                        new KafkaProducerException(record, "Send failed", new IllegalStateException("Broker unavailable"))));
+
+        // When & Then : l'échec d'envoi n'est plus masqué par un 200
+        mockMvc.perform(post("/produce")
+                        .param("content", "test message"))
+                .andExpect(status().isBadGateway());
+    }
+
+    @Test
+    void shouldReturnGatewayTimeoutWhenDeliveryTimesOut() throws Exception {
+        // Given : lot expiré après delivery.timeout.ms, ce n'est pas à l'appelant de ralentir
+        ProducerRecord<String, String> record = new ProducerRecord<>("mon-tunnel-topic", "test message");
+        when(messageProducer.sendMessage("mon-tunnel-topic", "test message"))
+                .thenReturn(CompletableFuture.failedFuture(new KafkaProducerException(record, "Send failed",
+                        new TimeoutException("Expiring 1 record(s) for mon-tunnel-topic-0: 120000 ms has passed"))));
+
+        // When
+        MvcResult result = mockMvc.perform(post("/produce")
+                        .param("content", "test message")
+                        .param("async", "true"))
+                .andReturn();
+
+        // Then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isGatewayTimeout())
+                .andExpect(header().doesNotExist("Retry-After"));
+    }
+
+    @Test
+    void shouldReturnBadGatewayWhenDeliveryFails() throws Exception {
+        // Given
+        when(messageProducer.sendMessage("mon-tunnel-topic", "test message"))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("Broker unavailable")));
+
+        // When
+        MvcResult result = mockMvc.perform(post("/produce")
+                        .param("content", "test message")
+                        .param("async", "true"))
+                .andReturn();
+
+        // Then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isBadGateway());
+    }
+
+    @Test
+    void shouldRejectWhenTooManyMessagesAreInFlight() throws Exception {
+        // Given : un premier envoi jamais acquitté occupe l'unique slot
+        CompletableFuture<SendResult<String, String>> pending = new CompletableFuture<>();
+        when(messageProducer.sendMessage("mon-tunnel-topic", "first")).thenReturn(pending);
+        mockMvc.perform(post("/produce").param("content", "first").param("async", "true"))
+                .andExpect(request().asyncStarted());
+
+        // When
+        MvcResult result = mockMvc.perform(post("/produce")
+                        .param("content", "second")
+                        .param("async", "true"))
+                .andReturn();
+
+        // Then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isTooManyRequests());
+        verify(messageProducer, times(0)).sendMessage("mon-tunnel-topic", "second");
+
+        // Libérer le slot pour les autres tests
+        pending.completeExceptionally(new IllegalStateException("cancelled"));
+    }
+
+    @Test
+    void shouldReturnBatchSummary() throws Exception {
+        // Given
+        when(batchProducer.produce(eq("mon-tunnel-topic"), any(InputStream.class)))
+                .thenReturn(new BatchSummary(2, 1, true, List.of("broker down")));
+
+        // When & Then
+        mockMvc.perform(post("/produce/batch")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("\"a\"\n\"b\"\n\"c\"\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accepted").value(2))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.errors[0]").value("broker down"));
+    }
+
+    @Test
+    void shouldReturnBadRequestWhenBatchBodyIsUnreadable() throws Exception {
+        // Given
+        when(batchProducer.produce(eq("mon-tunnel-topic"), any(InputStream.class)))
+                .thenReturn(new BatchSummary(1, 1, false, List.of("Unreadable body after record 1")));
+
+        // When & Then
+        mockMvc.perform(post("/produce/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[\"a\", oops"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.accepted").value(1))
+                .andExpect(jsonPath("$.complete").value(false));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,49 @@
+package com.learn.kafka;
+
+import com.learn.kafka.rates.LatestRatesCache;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Optional;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(RatesController.class)
+class RatesControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private LatestRatesCache latestRatesCache;
+
+    @Test
+    void shouldReturnCachedRate() throws Exception {
+        // Given
+        when(latestRatesCache.quote("EUR", "JPY"))
+                .thenReturn(Optional.of(new LatestRatesCache.RateQuote("EUR", "JPY", 150.0, "USD", 1704067200000L)));
+
+        // When & Then
+        mockMvc.perform(get("/rates/eur/jpy"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.base").value("EUR"))
+                .andExpect(jsonPath("$.quote").value("JPY"))
+                .andExpect(jsonPath("$.rate").value(150.0))
+                .andExpect(jsonPath("$.via").value("USD"));
+    }
+
+    @Test
+    void shouldReturnNotFoundForUnknownPair() throws Exception {
+        // Given
+        when(latestRatesCache.quote("USD", "XXX")).thenReturn(Optional.empty());
+
+        // When & Then
+        mockMvc.perform(get("/rates/USD/XXX"))
+                .andExpect(status().isNotFound());
+    }
+}
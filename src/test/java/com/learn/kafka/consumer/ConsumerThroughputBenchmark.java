@@ -0,0 +1,122 @@
+package com.learn.kafka.consumer;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.learn.kafka.payload.RecordPayload;
+import com.learn.kafka.payload.RecordPayloadDeserializer;
+import com.learn.kafka.producer.KafkaProducerConfig;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.BatchMessageListener;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.MessageListener;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Débit (messages/s) du listener record par record et du listener batch sur un broker embarqué.
+ * Exécuté uniquement avec {@code mvn -Pbenchmark test}.
+ */
+@EmbeddedKafka(partitions = 3, topics = ConsumerThroughputBenchmark.TOPIC)
+class ConsumerThroughputBenchmark {
+
+    static final String TOPIC = "consumer-benchmark";
+
+    private static final int MESSAGES = Integer.getInteger("benchmark.messages", 200_000);
+    private static final long TIMEOUT_NANOS = TimeUnit.MINUTES.toNanos(2);
+
+    private final MessageConsumer messageConsumer = new MessageConsumer();
+
+    @Test
+    void compareRecordAndBatchListenerThroughput(EmbeddedKafkaBroker broker) throws Exception {
+        produce(broker);
+        ((Logger) LoggerFactory.getLogger(MessageConsumer.class)).setLevel(Level.WARN);
+
+        KafkaConsumerConfig config = newConsumerConfig(broker);
+
+        AtomicLong recordCount = new AtomicLong();
+        AtomicLong recordStart = new AtomicLong();
+        MessageListener<String, RecordPayload> recordListener = record -> {
+            recordStart.compareAndSet(0, System.nanoTime());
+            messageConsumer.listen(record.value(), record.timestamp());
+            recordCount.incrementAndGet();
+        };
+        double recordRate = run(config.kafkaListenerContainerFactory(), "record-mode", recordListener, recordCount, recordStart);
+
+        AtomicLong batchCount = new AtomicLong();
+        AtomicLong batchStart = new AtomicLong();
+        BatchMessageListener<String, RecordPayload> batchListener = (List<ConsumerRecord<String, RecordPayload>> records) -> {
+            batchStart.compareAndSet(0, System.nanoTime());
+            messageConsumer.listenBatch(records);
+            batchCount.addAndGet(records.size());
+        };
+        double batchRate = run(config.batchKafkaListenerContainerFactory(), "batch-mode", batchListener, batchCount, batchStart);
+
+        System.out.printf("record listener : %,.0f msg/s%n", recordRate);
+        System.out.printf("batch listener  : %,.0f msg/s%n", batchRate);
+
+        assertThat(recordCount.get()).isGreaterThanOrEqualTo(MESSAGES);
+        assertThat(batchCount.get()).isGreaterThanOrEqualTo(MESSAGES);
+    }
+
+    private double run(ConcurrentKafkaListenerContainerFactory<String, String> factory, String groupId,
+                       Object listener, AtomicLong received, AtomicLong firstReceived) throws InterruptedException {
+        ConcurrentMessageListenerContainer<String, String> container = factory.createContainer(TOPIC);
+        container.getContainerProperties().setGroupId(groupId);
+        Properties consumerProperties = new Properties();
+        consumerProperties.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        // Comme les @KafkaListener de MessageConsumer
+        consumerProperties.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, RecordPayloadDeserializer.class.getName());
+        container.getContainerProperties().setKafkaConsumerProperties(consumerProperties);
+        container.setupMessageListener(listener);
+
+        long deadline = System.nanoTime() + TIMEOUT_NANOS;
+        container.start();
+        try {
+            while (received.get() < MESSAGES && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            // Le chronomètre démarre au premier record pour exclure le rebalance initial
+            return received.get() / ((System.nanoTime() - firstReceived.get()) / 1e9);
+        } finally {
+            container.stop();
+        }
+    }
+
+    private void produce(EmbeddedKafkaBroker broker) {
+        KafkaProducerConfig producerConfig = new KafkaProducerConfig();
+        ReflectionTestUtils.setField(producerConfig, "bootstrapServers", broker.getBrokersAsString());
+        ReflectionTestUtils.setField(producerConfig, "lowLatencyAcks", "1");
+        ReflectionTestUtils.setField(producerConfig, "lowLatencyMaxBlockMs", 60_000L);
+        KafkaTemplate<String, String> kafkaTemplate = producerConfig.kafkaTemplate();
+
+        String payload = "x".repeat(100);
+        for (int i = 0; i < MESSAGES; i++) {
+            kafkaTemplate.send(TOPIC, payload);
+        }
+        kafkaTemplate.flush();
+    }
+
+    private static KafkaConsumerConfig newConsumerConfig(EmbeddedKafkaBroker broker) {
+        KafkaConsumerConfig config = new KafkaConsumerConfig();
+        ReflectionTestUtils.setField(config, "bootstrapServers", broker.getBrokersAsString());
+        ReflectionTestUtils.setField(config, "consumerGroupId", "benchmark");
+        ReflectionTestUtils.setField(config, "maxPollRecords", Integer.getInteger("benchmark.max-poll-records", 500));
+        ReflectionTestUtils.setField(config, "fetchMinBytes", Integer.getInteger("benchmark.fetch-min-bytes", 1));
+        ReflectionTestUtils.setField(config, "fetchMaxWaitMs", Integer.getInteger("benchmark.fetch-max-wait-ms", 500));
+        ReflectionTestUtils.setField(config, "concurrency", 3);
+        return config;
+    }
+}
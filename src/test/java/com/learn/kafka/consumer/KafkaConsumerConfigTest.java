@@ -1,20 +1,26 @@
 package com.learn.kafka.consumer;
 
+import com.learn.kafka.tracing.TracingListenerInterceptor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 @ExtendWith(MockitoExtension.class)
 class KafkaConsumerConfigTest {
@@ -26,6 +32,10 @@ class KafkaConsumerConfigTest {
         kafkaConsumerConfig = new KafkaConsumerConfig();
         ReflectionTestUtils.setField(kafkaConsumerConfig, "bootstrapServers", "localhost:9092");
         ReflectionTestUtils.setField(kafkaConsumerConfig, "consumerGroupId", "test-group");
+        ReflectionTestUtils.setField(kafkaConsumerConfig, "maxPollRecords", 1000);
+        ReflectionTestUtils.setField(kafkaConsumerConfig, "fetchMinBytes", 65536);
+        ReflectionTestUtils.setField(kafkaConsumerConfig, "fetchMaxWaitMs", 200);
+        ReflectionTestUtils.setField(kafkaConsumerConfig, "concurrency", 3);
     }
 
     @Test
@@ -47,6 +57,9 @@ class KafkaConsumerConfigTest {
         assertThat(configProps.get(ConsumerConfig.GROUP_ID_CONFIG)).isEqualTo("test-group");
         assertThat(configProps.get(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG)).isEqualTo(StringDeserializer.class);
         assertThat(configProps.get(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG)).isEqualTo(StringDeserializer.class);
+        assertThat(configProps.get(ConsumerConfig.MAX_POLL_RECORDS_CONFIG)).isEqualTo(1000);
+        assertThat(configProps.get(ConsumerConfig.FETCH_MIN_BYTES_CONFIG)).isEqualTo(65536);
+        assertThat(configProps.get(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG)).isEqualTo(200);
     }
 
     @Test
@@ -93,4 +106,113 @@ class KafkaConsumerConfigTest {
 
         assertThat(configProps.get(ConsumerConfig.GROUP_ID_CONFIG)).isEqualTo(customGroupId);
     }
+
+    @Test
+    void shouldCreateBatchKafkaListenerContainerFactory() {
+        // When
+        ConcurrentKafkaListenerContainerFactory<String, String> factory =
+                kafkaConsumerConfig.batchKafkaListenerContainerFactory();
+
+        // Then
+        assertNotNull(factory.getConsumerFactory());
+        assertThat(factory.isBatchListener()).isTrue();
+        assertThat(factory.createContainer("test-topic").getConcurrency()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldTraceRecordAndBatchListenersWhenMetricsAreAvailable() {
+        // Given
+        ReflectionTestUtils.setField(kafkaConsumerConfig, "meterRegistry", new SimpleMeterRegistry());
+
+        // When
+        ConcurrentKafkaListenerContainerFactory<String, String> record = kafkaConsumerConfig.kafkaListenerContainerFactory();
+        ConcurrentKafkaListenerContainerFactory<String, String> batch =
+                kafkaConsumerConfig.manualAckBatchKafkaListenerContainerFactory();
+
+        // Then
+        assertThat(ReflectionTestUtils.getField(record, "recordInterceptor")).isInstanceOf(TracingListenerInterceptor.class);
+        assertThat(ReflectionTestUtils.getField(batch, "batchInterceptor")).isInstanceOf(TracingListenerInterceptor.class);
+        assertThat(ReflectionTestUtils.getField(batch, "recordInterceptor")).isNull();
+    }
+
+    @Test
+    void shouldCreateManualAckBatchFactoryWithoutChangingSharedBatchFactory() {
+        // When
+        ConcurrentKafkaListenerContainerFactory<String, String> manual =
+                kafkaConsumerConfig.manualAckBatchKafkaListenerContainerFactory();
+        ConcurrentKafkaListenerContainerFactory<String, String> batch =
+                kafkaConsumerConfig.batchKafkaListenerContainerFactory();
+
+        // Then
+        assertThat(manual.isBatchListener()).isTrue();
+        assertThat(manual.getContainerProperties().getAckMode()).isEqualTo(ContainerProperties.AckMode.MANUAL);
+        assertThat(batch.getContainerProperties().getAckMode()).isEqualTo(ContainerProperties.AckMode.BATCH);
+    }
+
+    @Test
+    void shouldCreateReplayFactoryThatNeverCommitsOffsets() {
+        // When
+        ConcurrentKafkaListenerContainerFactory<String, String> factory =
+                kafkaConsumerConfig.replayKafkaListenerContainerFactory();
+
+        // Then
+        assertNotNull(factory.getConsumerFactory());
+        assertThat(factory.getContainerProperties().getAckMode()).isEqualTo(ContainerProperties.AckMode.MANUAL);
+        assertThat(factory.getContainerProperties().getKafkaConsumerProperties())
+                .containsEntry(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "none");
+        assertThat(ReflectionTestUtils.getField(factory, "commonErrorHandler")).isInstanceOf(ReplayErrorHandler.class);
+    }
+
+    @Test
+    void shouldRunListenersOnPlatformThreadsByDefault() {
+        // When
+        ConcurrentKafkaListenerContainerFactory<String, String> factory =
+                kafkaConsumerConfig.kafkaListenerContainerFactory();
+
+        // Then
+        assertThat(factory.getContainerProperties().getListenerTaskExecutor()).isNull();
+    }
+
+    @Test
+    void shouldRunListenersOnVirtualThreadsWhenEnabled() throws Exception {
+        // Given
+        assumeTrue(Runtime.version().feature() >= 24, "synchronized pins carrier threads before Java 24");
+        ReflectionTestUtils.setField(kafkaConsumerConfig, "virtualThreads", true);
+
+        // When
+        ConcurrentKafkaListenerContainerFactory<String, String> recordFactory =
+                kafkaConsumerConfig.kafkaListenerContainerFactory();
+        ConcurrentKafkaListenerContainerFactory<String, String> batchFactory =
+                kafkaConsumerConfig.batchKafkaListenerContainerFactory();
+
+        // Then
+        assertThat(runsOnVirtualThread(recordFactory.getContainerProperties().getListenerTaskExecutor())).isTrue();
+        assertThat(runsOnVirtualThread(batchFactory.getContainerProperties().getListenerTaskExecutor())).isTrue();
+    }
+
+    @Test
+    void shouldKeepPlatformListenerThreadsBeforeJava24() {
+        // Given
+        assumeTrue(Runtime.version().feature() < 24);
+        ReflectionTestUtils.setField(kafkaConsumerConfig, "virtualThreads", true);
+
+        // When
+        ConcurrentKafkaListenerContainerFactory<String, String> factory =
+                kafkaConsumerConfig.kafkaListenerContainerFactory();
+
+        // Then
+        assertThat(factory.getContainerProperties().getListenerTaskExecutor()).isNull();
+    }
+
+    @Test
+    void shouldCreateVirtualThreadListenerExecutor() throws Exception {
+        // When & Then
+        assertThat(runsOnVirtualThread(KafkaConsumerConfig.virtualThreadListenerExecutor())).isTrue();
+    }
+
+    private static boolean runsOnVirtualThread(AsyncTaskExecutor executor) throws Exception {
+        CompletableFuture<Boolean> virtual = new CompletableFuture<>();
+        executor.execute(() -> virtual.complete(Thread.currentThread().isVirtual()));
+        return virtual.get();
+    }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package com.learn.kafka.consumer;
 
+import com.learn.kafka.payload.RecordPayload;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
@@ -8,8 +9,11 @@ import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.core.read.ListAppender;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 @ExtendWith(MockitoExtension.class)
@@ -30,7 +34,7 @@ class MessageConsumerTest {
         logger.addAppender(listAppender);
 
         // When
-        messageConsumer.listen(testMessage);
+        messageConsumer.listen(RecordPayload.of(testMessage), System.currentTimeMillis());
 
         // Then
         assertThat(listAppender.list).hasSize(1);
@@ -51,7 +55,7 @@ class MessageConsumerTest {
         logger.addAppender(listAppender);
 
         // When
-        messageConsumer.listen(null);
+        messageConsumer.listen(null, System.currentTimeMillis());
 
         // Then
         assertThat(listAppender.list).hasSize(1);
@@ -73,7 +77,7 @@ class MessageConsumerTest {
         logger.addAppender(listAppender);
 
         // When
-        messageConsumer.listen(emptyMessage);
+        messageConsumer.listen(RecordPayload.of(emptyMessage), System.currentTimeMillis());
 
         // Then
         assertThat(listAppender.list).hasSize(1);
@@ -95,7 +99,7 @@ class MessageConsumerTest {
         logger.addAppender(listAppender);
 
         // When
-        messageConsumer.listen(longMessage);
+        messageConsumer.listen(RecordPayload.of(longMessage), System.currentTimeMillis());
 
         // Then
         assertThat(listAppender.list).hasSize(1);
@@ -117,7 +121,7 @@ class MessageConsumerTest {
         logger.addAppender(listAppender);
 
         // When
-        messageConsumer.listen(jsonMessage);
+        messageConsumer.listen(RecordPayload.of(jsonMessage), System.currentTimeMillis());
 
         // Then
         assertThat(listAppender.list).hasSize(1);
@@ -128,4 +132,28 @@ class MessageConsumerTest {
         // Nettoyer
         logger.detachAppender(listAppender);
     }
+
+    @Test
+    void shouldLogReceivedBatch() {
+        // Given
+        List<ConsumerRecord<String, RecordPayload>> records = List.of(
+                new ConsumerRecord<>("mon-tunnel-topic", 0, 0L, null, RecordPayload.of("first")),
+                new ConsumerRecord<>("mon-tunnel-topic", 1, 0L, null, RecordPayload.of("second")));
+        Logger logger = (Logger) LoggerFactory.getLogger(MessageConsumer.class);
+        ListAppender<ILoggingEvent> listAppender = new ListAppender<>();
+        listAppender.start();
+        logger.addAppender(listAppender);
+
+        // When
+        messageConsumer.listenBatch(records);
+
+        // Then
+        assertThat(listAppender.list).hasSize(1);
+        ILoggingEvent logEvent = listAppender.list.getFirst();
+        assertThat(logEvent.getLevel()).isEqualTo(Level.INFO);
+        assertThat(logEvent.getFormattedMessage()).contains("Batch receive : 2 messages");
+
+        // Nettoyer
+        logger.detachAppender(listAppender);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,72 @@
+package com.learn.kafka.consumer;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.OffsetAndTimestamp;
+import org.apache.kafka.clients.consumer.OffsetOutOfRangeException;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.listener.MessageListenerContainer;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ReplayErrorHandlerTest {
+
+    private static final TopicPartition PARTITION_0 = new TopicPartition("exchange-rates", 0);
+    private static final TopicPartition PARTITION_1 = new TopicPartition("exchange-rates", 1);
+
+    @Mock
+    private Consumer<String, String> consumer;
+
+    @Mock
+    private MessageListenerContainer container;
+
+    @Captor
+    private ArgumentCaptor<Map<TopicPartition, Long>> query;
+
+    private final ReplayErrorHandler handler = new ReplayErrorHandler(1_200_000L);
+
+    @Test
+    void shouldReplayWindowWhenCheckpointIsOlderThanRetention() {
+        // Given : offset 42 supprimé par la rétention sur la partition 0, aucun record récent sur la partition 1
+        OffsetOutOfRangeException outOfRange = new OffsetOutOfRangeException("out of range",
+                Map.of(PARTITION_0, 42L, PARTITION_1, 7L));
+        Map<TopicPartition, OffsetAndTimestamp> offsets = new HashMap<>();
+        offsets.put(PARTITION_0, new OffsetAndTimestamp(1_000L, 0L));
+        offsets.put(PARTITION_1, null);
+        when(consumer.offsetsForTimes(query.capture())).thenReturn(offsets);
+
+        // When
+        long before = System.currentTimeMillis();
+        handler.handleOtherException(outOfRange, consumer, container, false);
+
+        // Then : relecture de la fenêtre plutôt que saut en fin de topic par la politique de reset
+        assertThat(query.getValue()).containsOnlyKeys(PARTITION_0, PARTITION_1);
+        assertThat((double) query.getValue().get(PARTITION_0)).isCloseTo(before - 1_200_000L, within(5_000.0));
+        verify(consumer).seek(PARTITION_0, 1_000L);
+        verify(consumer).seekToEnd(List.of(PARTITION_1));
+    }
+
+    @Test
+    void shouldLeaveOtherConsumerErrorsToDefaultHandling() {
+        // When / Then : remontée au conteneur, qui la journalise
+        assertThatThrownBy(() -> handler.handleOtherException(new IllegalStateException("boom"), consumer,
+                container, false)).hasRootCauseMessage("boom");
+        verify(consumer, never()).offsetsForTimes(any());
+    }
+}
@@ -0,0 +1,182 @@
+package com.learn.kafka.consumer;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.learn.kafka.http.HttpClientConfig;
+import com.learn.kafka.payload.RecordPayload;
+import com.learn.kafka.payload.RecordPayloadDeserializer;
+import com.learn.kafka.producer.KafkaProducerConfig;
+import com.learn.kafka.service.ElasticsearchFlowControl;
+import com.learn.kafka.service.ElasticsearchIndexManager;
+import com.learn.kafka.service.ElasticsearchService;
+import com.learn.kafka.service.ElasticsearchSinkMetrics;
+import com.learn.kafka.support.StubElasticsearchServer;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.MessageListener;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test de charge du chemin d'indexation record par record (un PUT bloquant par message)
+ * avec les listeners sur threads plateforme puis sur threads virtuels, contre un
+ * Elasticsearch simulé lent. Exécuté uniquement avec {@code mvn -Pbenchmark test}.
+ */
+@EmbeddedKafka(partitions = VirtualThreadListenerBenchmark.PARTITIONS, topics = VirtualThreadListenerBenchmark.TOPIC)
+class VirtualThreadListenerBenchmark {
+
+    static final String TOPIC = "virtual-thread-benchmark";
+    // Une écriture bloquante en vol par partition
+    static final int PARTITIONS = 64;
+
+    private static final int MESSAGES = Integer.getInteger("benchmark.messages", 10_000);
+    private static final long ES_LATENCY_MS = Long.getLong("benchmark.es-latency-ms", 20);
+    private static final long TIMEOUT_NANOS = TimeUnit.MINUTES.toNanos(2);
+    private static final String DOCUMENT = "{\"base\":\"USD\",\"rates\":{\"EUR\":0.85,\"GBP\":0.75}}";
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+    @Test
+    void comparePlatformAndVirtualListenerThreads(EmbeddedKafkaBroker broker) throws Exception {
+        produce(broker);
+        ((Logger) LoggerFactory.getLogger(ElasticsearchService.class)).setLevel(Level.WARN);
+        // Avant Java 24, un consumer qui logue depuis le synchronized d'AppInfoParser à sa fermeture
+        // épingle son porteur en attendant le verrou de logback (voir KafkaConsumerConfig)
+        ((Logger) LoggerFactory.getLogger("org.apache.kafka")).setLevel(Level.WARN);
+
+        try (StubElasticsearchServer stubServer = new StubElasticsearchServer();
+             CloseableHttpClient httpClient = newHttpClient()) {
+            stubServer.setLatencyMillis(ES_LATENCY_MS);
+            ElasticsearchService service = newService(stubServer, httpClient);
+
+            Result platform = run(broker, service, false);
+            stubServer.reset();
+            Result virtual = run(broker, service, true);
+
+            System.out.printf("ES latency %d ms, %d partitions, %,d messages%n", ES_LATENCY_MS, PARTITIONS, MESSAGES);
+            platform.print("platform threads");
+            virtual.print("virtual threads ");
+
+            assertThat(platform.received()).isGreaterThanOrEqualTo(MESSAGES);
+            assertThat(virtual.received()).isGreaterThanOrEqualTo(MESSAGES);
+        }
+    }
+
+    private record Result(long received, double rate, int extraPlatformThreads, long peakHeapBytes) {
+
+        void print(String label) {
+            System.out.printf("%s: %,.0f msg/s, +%d platform threads, peak heap %,d MB%n",
+                    label, rate, extraPlatformThreads, peakHeapBytes / (1024 * 1024));
+        }
+    }
+
+    private Result run(EmbeddedKafkaBroker broker, ElasticsearchService service, boolean virtualThreads)
+            throws InterruptedException {
+        KafkaConsumerConfig config = newConsumerConfig(broker);
+        ConcurrentMessageListenerContainer<String, String> container =
+                config.kafkaListenerContainerFactory().createContainer(TOPIC);
+        if (virtualThreads) {
+            // Forcé ici : la configuration n'active les threads virtuels qu'à partir de Java 24
+            container.getContainerProperties().setListenerTaskExecutor(KafkaConsumerConfig.virtualThreadListenerExecutor());
+        }
+        container.getContainerProperties().setGroupId(virtualThreads ? "virtual" : "platform");
+        Properties consumerProperties = new Properties();
+        consumerProperties.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        consumerProperties.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, RecordPayloadDeserializer.class.getName());
+        container.getContainerProperties().setKafkaConsumerProperties(consumerProperties);
+
+        AtomicLong received = new AtomicLong();
+        AtomicLong firstReceived = new AtomicLong();
+        container.setupMessageListener((MessageListener<String, RecordPayload>) record -> {
+            firstReceived.compareAndSet(0, System.nanoTime());
+            service.consumeAndStoreInElasticsearch(record.value(), record.timestamp());
+            received.incrementAndGet();
+        });
+
+        System.gc();
+        threads.resetPeakThreadCount();
+        int baselineThreads = threads.getThreadCount();
+        long peakHeap = 0;
+        long deadline = System.nanoTime() + TIMEOUT_NANOS;
+        container.start();
+        try {
+            while (received.get() < MESSAGES && System.nanoTime() < deadline) {
+                peakHeap = Math.max(peakHeap, memory.getHeapMemoryUsage().getUsed());
+                Thread.sleep(5);
+            }
+            double rate = received.get() / ((System.nanoTime() - firstReceived.get()) / 1e9);
+            return new Result(received.get(), rate, threads.getPeakThreadCount() - baselineThreads, peakHeap);
+        } finally {
+            container.stop();
+        }
+    }
+
+    private void produce(EmbeddedKafkaBroker broker) {
+        KafkaProducerConfig producerConfig = new KafkaProducerConfig();
+        ReflectionTestUtils.setField(producerConfig, "bootstrapServers", broker.getBrokersAsString());
+        ReflectionTestUtils.setField(producerConfig, "lowLatencyAcks", "1");
+        ReflectionTestUtils.setField(producerConfig, "lowLatencyMaxBlockMs", 60_000L);
+        KafkaTemplate<String, String> kafkaTemplate = producerConfig.kafkaTemplate();
+        for (int i = 0; i < MESSAGES; i++) {
+            kafkaTemplate.send(TOPIC, DOCUMENT);
+        }
+        kafkaTemplate.flush();
+    }
+
+    // Pool HTTP assez large pour ne pas brider le nombre d'écritures en vol
+    private static CloseableHttpClient newHttpClient() {
+        HttpClientConfig httpClientConfig = new HttpClientConfig();
+        ReflectionTestUtils.setField(httpClientConfig, "maxConnections", PARTITIONS * 2);
+        ReflectionTestUtils.setField(httpClientConfig, "maxConnectionsPerRoute", PARTITIONS * 2);
+        ReflectionTestUtils.setField(httpClientConfig, "connectTimeoutMs", 2000L);
+        ReflectionTestUtils.setField(httpClientConfig, "readTimeoutMs", 10000L);
+        ReflectionTestUtils.setField(httpClientConfig, "poolAcquireTimeoutMs", 2000L);
+        ReflectionTestUtils.setField(httpClientConfig, "keepAliveMs", 30000L);
+        ReflectionTestUtils.setField(httpClientConfig, "connectionTtlMs", 300000L);
+        return httpClientConfig.httpClient(httpClientConfig.httpConnectionManager());
+    }
+
+    private static ElasticsearchService newService(StubElasticsearchServer stubServer, CloseableHttpClient httpClient) {
+        RestTemplate restTemplate = new HttpClientConfig().restTemplate(new RestTemplateBuilder(), httpClient);
+
+        ElasticsearchIndexManager indexManager = new ElasticsearchIndexManager();
+        ReflectionTestUtils.setField(indexManager, "elasticsearchUrl", stubServer.url());
+        ReflectionTestUtils.setField(indexManager, "restTemplate", restTemplate);
+
+        ElasticsearchService service = new ElasticsearchService();
+        ReflectionTestUtils.setField(service, "elasticsearchUrl", stubServer.url());
+        ReflectionTestUtils.setField(service, "restTemplate", restTemplate);
+        ReflectionTestUtils.setField(service, "indexManager", indexManager);
+        ReflectionTestUtils.setField(service, "flowControl", new ElasticsearchFlowControl());
+        ReflectionTestUtils.setField(service, "sinkMetrics", new ElasticsearchSinkMetrics());
+        return service;
+    }
+
+    private static KafkaConsumerConfig newConsumerConfig(EmbeddedKafkaBroker broker) {
+        KafkaConsumerConfig config = new KafkaConsumerConfig();
+        ReflectionTestUtils.setField(config, "bootstrapServers", broker.getBrokersAsString());
+        ReflectionTestUtils.setField(config, "consumerGroupId", "benchmark");
+        ReflectionTestUtils.setField(config, "maxPollRecords", 500);
+        ReflectionTestUtils.setField(config, "fetchMinBytes", 1);
+        ReflectionTestUtils.setField(config, "fetchMaxWaitMs", 500);
+        ReflectionTestUtils.setField(config, "concurrency", PARTITIONS);
+        return config;
+    }
+}
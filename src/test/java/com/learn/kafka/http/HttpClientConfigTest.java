@@ -0,0 +1,70 @@
+package com.learn.kafka.http;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HttpClientConfigTest {
+
+    private HttpClientConfig httpClientConfig;
+
+    @BeforeEach
+    void setUp() {
+        httpClientConfig = new HttpClientConfig();
+        ReflectionTestUtils.setField(httpClientConfig, "maxConnections", 40);
+        ReflectionTestUtils.setField(httpClientConfig, "maxConnectionsPerRoute", 10);
+        ReflectionTestUtils.setField(httpClientConfig, "connectTimeoutMs", 1000L);
+        ReflectionTestUtils.setField(httpClientConfig, "readTimeoutMs", 5000L);
+        ReflectionTestUtils.setField(httpClientConfig, "poolAcquireTimeoutMs", 1000L);
+        ReflectionTestUtils.setField(httpClientConfig, "keepAliveMs", 30000L);
+        ReflectionTestUtils.setField(httpClientConfig, "connectionTtlMs", 300000L);
+    }
+
+    @Test
+    void shouldCreatePoolWithConfiguredLimits() {
+        // When
+        PoolingHttpClientConnectionManager connectionManager = httpClientConfig.httpConnectionManager();
+
+        // Then
+        assertThat(connectionManager.getMaxTotal()).isEqualTo(40);
+        assertThat(connectionManager.getDefaultMaxPerRoute()).isEqualTo(10);
+    }
+
+    @Test
+    void shouldBuildRestTemplateOnPooledClient() throws Exception {
+        // Given
+        PoolingHttpClientConnectionManager connectionManager = httpClientConfig.httpConnectionManager();
+
+        try (CloseableHttpClient httpClient = httpClientConfig.httpClient(connectionManager)) {
+            // When
+            RestTemplate restTemplate = httpClientConfig.restTemplate(new RestTemplateBuilder(), httpClient);
+
+            // Then
+            assertThat(restTemplate.getRequestFactory()).isInstanceOf(HttpComponentsClientHttpRequestFactory.class);
+            assertThat(((HttpComponentsClientHttpRequestFactory) restTemplate.getRequestFactory()).getHttpClient())
+                    .isSameAs(httpClient);
+        }
+    }
+
+    @Test
+    void shouldPublishPoolMetrics() {
+        // Given
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+        // When
+        httpClientConfig.httpConnectionPoolMetrics(httpClientConfig.httpConnectionManager()).bindTo(registry);
+
+        // Then
+        assertThat(registry.find("httpcomponents.httpclient.pool.total.max").gauge()).isNotNull();
+        assertThat(registry.find("httpcomponents.httpclient.pool.total.max").gauge().value()).isEqualTo(40);
+        assertThat(registry.find("httpcomponents.httpclient.pool.total.connections").gauges()).isNotEmpty();
+    }
+}
@@ -0,0 +1,103 @@
+package com.learn.kafka.payload;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RecordPayloadTest {
+
+    private static final String DOCUMENT = "{\"base\":\"USD\",\"source\":\"Banque de France – taux\"}";
+
+    private final RecordPayloadDeserializer deserializer = new RecordPayloadDeserializer();
+
+    @Test
+    void shouldViewRecordInsideFetchBufferWithoutCopy() {
+        // Given : le record au milieu d'un buffer de fetch, position non nulle
+        byte[] document = DOCUMENT.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer fetch = ByteBuffer.allocate(document.length + 20);
+        fetch.position(7);
+        fetch.put(document);
+        fetch.position(7).limit(7 + document.length);
+
+        // When
+        RecordPayload payload = deserializer.deserialize("exchange-rates", new RecordHeaders(), fetch);
+        fetch.put(7 + 9, (byte) 'E');
+
+        // Then : la vue lit le buffer partagé, la position du buffer n'a pas bougé
+        ByteBuffer out = ByteBuffer.allocate(document.length + 1);
+        out.put((byte) '>');
+        payload.writeTo(out);
+        assertThat(out.hasRemaining()).isFalse();
+        assertThat(new String(out.array(), StandardCharsets.UTF_8)).startsWith(">{\"base\":\"ESD\"");
+        assertThat(fetch.position()).isEqualTo(7);
+    }
+
+    @Test
+    void shouldDecodeOnlyOnToString() {
+        // Given
+        RecordPayload payload = RecordPayload.wrap(DOCUMENT.getBytes(StandardCharsets.UTF_8));
+
+        // When
+        String first = payload.toString();
+
+        // Then : décodé une fois puis mis en cache
+        assertThat(first).isEqualTo(DOCUMENT);
+        assertThat(payload.toString()).isSameAs(first);
+    }
+
+    @Test
+    void shouldParseFieldsFromBytes() throws Exception {
+        // Given
+        RecordPayload payload = RecordPayload.wrap(ByteBuffer.wrap(("xx" + DOCUMENT).getBytes(StandardCharsets.UTF_8), 2,
+                DOCUMENT.getBytes(StandardCharsets.UTF_8).length));
+
+        // When
+        String source = null;
+        try (JsonParser parser = payload.parser(new JsonFactory())) {
+            while (parser.nextToken() != null) {
+                if (parser.currentToken() == JsonToken.VALUE_STRING && "source".equals(parser.currentName())) {
+                    source = parser.getText();
+                }
+            }
+        }
+
+        // Then
+        assertThat(source).isEqualTo("Banque de France – taux");
+    }
+
+    @Test
+    void shouldFindBytesAndCompareByContent() {
+        // Given
+        RecordPayload single = RecordPayload.of(DOCUMENT);
+        RecordPayload multiLine = RecordPayload.of("{\n  \"base\": \"USD\"\n}");
+
+        // Then
+        assertThat(single.indexOf((byte) '\n')).isEqualTo(-1);
+        assertThat(multiLine.indexOf((byte) '\n')).isEqualTo(1);
+        assertThat(single).isEqualTo(RecordPayload.wrap(DOCUMENT.getBytes(StandardCharsets.UTF_8)));
+        assertThat(single).hasSameHashCodeAs(RecordPayload.wrap(DOCUMENT.getBytes(StandardCharsets.UTF_8)));
+        assertThat(RecordPayload.of("").isEmpty()).isTrue();
+    }
+
+    @Test
+    void shouldRoundTripThroughSerializer() {
+        // Given
+        RecordPayload payload = RecordPayload.of(DOCUMENT);
+
+        // When
+        byte[] bytes = new RecordPayloadSerializer().serialize("exchange-rates-es-retry-0", payload);
+
+        // Then
+        assertThat(deserializer.deserialize("exchange-rates-es-retry-0", bytes)).isEqualTo(payload);
+        assertThat(deserializer.deserialize("exchange-rates", null)).isNull();
+        assertThat(RecordPayloadDeserializer.VALUE_DESERIALIZER_PROPERTY)
+                .endsWith("=" + RecordPayloadDeserializer.class.getName());
+    }
+}
@@ -0,0 +1,122 @@
+package com.learn.kafka.producer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BatchProducerTest {
+
+    private static final String TOPIC = "test-topic";
+
+    @Mock
+    private MessageProducer messageProducer;
+
+    @InjectMocks
+    private BatchProducer batchProducer;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(batchProducer, "maxPending", 2);
+    }
+
+    @Test
+    void shouldSendEachNdjsonLineWithOptionalKey() {
+        // Given
+        acknowledgeAll();
+        String body = """
+                "plain message"
+                {"key":"USD","value":"rate update"}
+                {"base":"EUR","rates":{"USD":1.1}}
+                """;
+
+        // When
+        BatchSummary summary = batchProducer.produce(TOPIC, stream(body));
+
+        // Then
+        verify(messageProducer).sendMessage(eq(TOPIC), isNull(), eq("plain message"));
+        verify(messageProducer).sendMessage(TOPIC, "USD", "rate update");
+        verify(messageProducer).sendMessage(eq(TOPIC), isNull(), eq("{\"base\":\"EUR\",\"rates\":{\"USD\":1.1}}"));
+        assertThat(summary).isEqualTo(new BatchSummary(3, 0, true, List.of()));
+    }
+
+    @Test
+    void shouldSendEachElementOfJsonArray() {
+        // Given
+        acknowledgeAll();
+        String body = "[\"a\", {\"value\":{\"nested\":true}}, {\"key\":42,\"value\":\"b\"}]";
+
+        // When
+        BatchSummary summary = batchProducer.produce(TOPIC, stream(body));
+
+        // Then
+        verify(messageProducer).sendMessage(eq(TOPIC), isNull(), eq("a"));
+        verify(messageProducer).sendMessage(eq(TOPIC), isNull(), eq("{\"nested\":true}"));
+        verify(messageProducer).sendMessage(TOPIC, "42", "b");
+        assertThat(summary.accepted()).isEqualTo(3);
+        assertThat(summary.complete()).isTrue();
+    }
+
+    @Test
+    void shouldCountFailedDeliveriesAndNullValues() {
+        // Given
+        acknowledgeAll();
+        when(messageProducer.sendMessage(TOPIC, null, "bad"))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+        String body = "\"ok\"\n\"bad\"\n{\"value\":null}\n";
+
+        // When
+        BatchSummary summary = batchProducer.produce(TOPIC, stream(body));
+
+        // Then
+        assertThat(summary.accepted()).isEqualTo(1);
+        assertThat(summary.failed()).isEqualTo(2);
+        assertThat(summary.errors()).containsExactly("broker down", "Record 3: null value");
+    }
+
+    @Test
+    void shouldStopAtMalformedRecordAndKeepWhatWasSent() {
+        // Given
+        acknowledgeAll();
+        String body = "\"first\"\n{oops}\n\"never\"\n";
+
+        // When
+        BatchSummary summary = batchProducer.produce(TOPIC, stream(body));
+
+        // Then
+        verify(messageProducer).sendMessage(eq(TOPIC), isNull(), eq("first"));
+        verify(messageProducer, never()).sendMessage(eq(TOPIC), any(), eq("never"));
+        assertThat(summary.accepted()).isEqualTo(1);
+        assertThat(summary.failed()).isEqualTo(1);
+        assertThat(summary.complete()).isFalse();
+        assertThat(summary.errors()).singleElement().asString().startsWith("Unreadable body after record 1");
+    }
+
+    private void acknowledgeAll() {
+        when(messageProducer.sendMessage(eq(TOPIC), any(), anyString()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+    }
+
+    private static InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,100 @@
+package com.learn.kafka.producer;
+
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CurrencyPartitionerTest {
+
+    private static final String TOPIC = "exchange-rates";
+    private static final Node NODE = new Node(0, "localhost", 9092);
+
+    private CurrencyPartitioner partitioner;
+    private Cluster cluster;
+
+    @BeforeEach
+    void setUp() {
+        partitioner = new CurrencyPartitioner();
+        List<PartitionInfo> partitions = IntStream.range(0, 6)
+                .mapToObj(partition -> new PartitionInfo(TOPIC, partition, NODE, new Node[]{NODE}, new Node[]{NODE}))
+                .toList();
+        cluster = new Cluster("test", List.of(NODE), partitions, Set.of(), Set.of());
+    }
+
+    @Test
+    void shouldSendSameCurrencyToSamePartition() {
+        // Given
+        partitioner.configure(Map.of());
+
+        // When
+        int first = partition("EUR");
+        int second = partition("EUR");
+
+        // Then
+        assertThat(first).isEqualTo(second).isBetween(0, 5);
+    }
+
+    @Test
+    void shouldReserveAssignedPartitionsForTheirCurrency() {
+        // Given
+        partitioner.configure(Map.of(CurrencyPartitioner.ASSIGNMENTS_CONFIG, "USD:0, EUR:1"));
+
+        // When
+        Set<Integer> otherPartitions = new HashSet<>();
+        for (String currency : List.of("GBP", "JPY", "CAD", "CHF", "AUD", "NZD", "SEK", "NOK", "MXN", "BRL")) {
+            otherPartitions.add(partition(currency));
+        }
+
+        // Then
+        assertThat(partition("USD")).isZero();
+        assertThat(partition("EUR")).isEqualTo(1);
+        assertThat(otherPartitions).doesNotContain(0, 1);
+    }
+
+    @Test
+    void shouldIgnoreAssignmentBeyondPartitionCount() {
+        // Given
+        partitioner.configure(Map.of(CurrencyPartitioner.ASSIGNMENTS_CONFIG, "USD:12"));
+
+        // When & Then
+        assertThat(partition("USD")).isBetween(0, 5);
+    }
+
+    @Test
+    void shouldSpreadUnkeyedRecordsAcrossPartitions() {
+        // Given
+        partitioner.configure(Map.of());
+
+        // When
+        Set<Integer> used = new HashSet<>();
+        for (int i = 0; i < 6; i++) {
+            used.add(partitioner.partition(TOPIC, null, null, "value", null, cluster));
+        }
+
+        // Then
+        assertThat(used).hasSize(6);
+    }
+
+    @Test
+    void shouldRejectMalformedAssignments() {
+        assertThatThrownBy(() -> partitioner.configure(Map.of(CurrencyPartitioner.ASSIGNMENTS_CONFIG, "USD")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("USD");
+    }
+
+    private int partition(String currency) {
+        return partitioner.partition(TOPIC, currency, currency.getBytes(StandardCharsets.UTF_8), "value", null, cluster);
+    }
+}
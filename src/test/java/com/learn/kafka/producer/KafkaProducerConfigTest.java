@@ -1,6 +1,10 @@
 package com.learn.kafka.producer;
 
+import com.learn.kafka.payload.RecordPayload;
+import com.learn.kafka.payload.RecordPayloadSerializer;
+import com.learn.kafka.tracing.TracingProducerInterceptor;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -25,6 +29,13 @@ class KafkaProducerConfigTest {
     void setUp() {
         kafkaProducerConfig = new KafkaProducerConfig();
         ReflectionTestUtils.setField(kafkaProducerConfig, "bootstrapServers", "localhost:9092");
+        ReflectionTestUtils.setField(kafkaProducerConfig, "lowLatencyLingerMs", 0);
+        ReflectionTestUtils.setField(kafkaProducerConfig, "lowLatencyAcks", "1");
+        ReflectionTestUtils.setField(kafkaProducerConfig, "lowLatencyMaxBlockMs", 500L);
+        ReflectionTestUtils.setField(kafkaProducerConfig, "highThroughputBatchSize", 131072);
+        ReflectionTestUtils.setField(kafkaProducerConfig, "highThroughputLingerMs", 20);
+        ReflectionTestUtils.setField(kafkaProducerConfig, "highThroughputCompressionType", "zstd");
+        ReflectionTestUtils.setField(kafkaProducerConfig, "highThroughputBufferMemory", 67108864L);
     }
 
     @Test
@@ -93,4 +104,103 @@ class KafkaProducerConfigTest {
         assertThat(templateFactory.getConfigurationProperties())
                 .containsAllEntriesOf(expectedFactory.getConfigurationProperties());
     }
+
+    @Test
+    void shouldConfigureLowLatencyProfileAsDefault() {
+        // When
+        Map<String, Object> configProps =
+                ((DefaultKafkaProducerFactory<String, String>) kafkaProducerConfig.producerFactory()).getConfigurationProperties();
+
+        // Then
+        assertThat(configProps.get(ProducerConfig.LINGER_MS_CONFIG)).isEqualTo(0);
+        assertThat(configProps.get(ProducerConfig.ACKS_CONFIG)).isEqualTo("1");
+        assertThat(configProps.get(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG)).isEqualTo(false);
+        assertThat(configProps.get(ProducerConfig.MAX_BLOCK_MS_CONFIG)).isEqualTo(500L);
+    }
+
+    @Test
+    void shouldConfigureHighThroughputProfile() {
+        // When
+        Map<String, Object> configProps =
+                ((DefaultKafkaProducerFactory<String, String>) kafkaProducerConfig.highThroughputProducerFactory())
+                        .getConfigurationProperties();
+
+        // Then
+        assertThat(configProps.get(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG)).isEqualTo("localhost:9092");
+        assertThat(configProps.get(ProducerConfig.BATCH_SIZE_CONFIG)).isEqualTo(131072);
+        assertThat(configProps.get(ProducerConfig.LINGER_MS_CONFIG)).isEqualTo(20);
+        assertThat(configProps.get(ProducerConfig.COMPRESSION_TYPE_CONFIG)).isEqualTo("zstd");
+        assertThat(configProps.get(ProducerConfig.BUFFER_MEMORY_CONFIG)).isEqualTo(67108864L);
+        assertThat(configProps.get(ProducerConfig.ACKS_CONFIG)).isEqualTo("all");
+        assertThat(configProps.get(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG)).isEqualTo(true);
+        assertThat(configProps.get(ProducerConfig.PARTITIONER_CLASS_CONFIG)).isEqualTo(CurrencyPartitioner.class);
+        assertThat(configProps).doesNotContainKey(CurrencyPartitioner.ASSIGNMENTS_CONFIG);
+    }
+
+    @Test
+    void shouldPassCurrencyAssignmentsToPartitioner() {
+        // Given
+        ReflectionTestUtils.setField(kafkaProducerConfig, "currencyPartitions", "USD:0");
+
+        // When
+        Map<String, Object> configProps =
+                ((DefaultKafkaProducerFactory<String, String>) kafkaProducerConfig.highThroughputProducerFactory())
+                        .getConfigurationProperties();
+
+        // Then
+        assertThat(configProps.get(CurrencyPartitioner.ASSIGNMENTS_CONFIG)).isEqualTo("USD:0");
+    }
+
+    @Test
+    void shouldCreateHighThroughputKafkaTemplate() {
+        // When
+        KafkaTemplate<String, String> kafkaTemplate = kafkaProducerConfig.highThroughputKafkaTemplate();
+
+        // Then
+        DefaultKafkaProducerFactory<String, String> templateFactory =
+                (DefaultKafkaProducerFactory<String, String>) kafkaTemplate.getProducerFactory();
+        assertThat(templateFactory.getConfigurationProperties().get(ProducerConfig.COMPRESSION_TYPE_CONFIG)).isEqualTo("zstd");
+    }
+
+    @Test
+    void shouldCreateBytesTemplatesWithSameProfiles() {
+        // When
+        Map<String, Object> lowLatencyProps = ((DefaultKafkaProducerFactory<String, byte[]>)
+                kafkaProducerConfig.bytesKafkaTemplate().getProducerFactory()).getConfigurationProperties();
+        Map<String, Object> highThroughputProps = ((DefaultKafkaProducerFactory<String, byte[]>)
+                kafkaProducerConfig.highThroughputBytesKafkaTemplate().getProducerFactory()).getConfigurationProperties();
+
+        // Then
+        assertThat(lowLatencyProps.get(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG)).isEqualTo(ByteArraySerializer.class);
+        assertThat(lowLatencyProps.get(ProducerConfig.ACKS_CONFIG)).isEqualTo("1");
+        assertThat(highThroughputProps.get(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG)).isEqualTo(ByteArraySerializer.class);
+        assertThat(highThroughputProps.get(ProducerConfig.PARTITIONER_CLASS_CONFIG)).isEqualTo(CurrencyPartitioner.class);
+        assertThat(highThroughputProps.get(ProducerConfig.COMPRESSION_TYPE_CONFIG)).isEqualTo("zstd");
+    }
+
+    @Test
+    void shouldCreatePayloadTemplateWithLowLatencyProfile() {
+        // When
+        Map<String, Object> props = ((DefaultKafkaProducerFactory<String, RecordPayload>)
+                kafkaProducerConfig.payloadKafkaTemplate().getProducerFactory()).getConfigurationProperties();
+
+        // Then
+        assertThat(props.get(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG)).isEqualTo(RecordPayloadSerializer.class);
+        assertThat(props.get(ProducerConfig.ACKS_CONFIG)).isEqualTo("1");
+    }
+
+    @Test
+    void shouldStampTraceHeadersOnEveryProfile() {
+        // When
+        Map<String, Object> lowLatencyProps = ((DefaultKafkaProducerFactory<String, String>)
+                kafkaProducerConfig.producerFactory()).getConfigurationProperties();
+        Map<String, Object> highThroughputProps = ((DefaultKafkaProducerFactory<String, byte[]>)
+                kafkaProducerConfig.highThroughputBytesProducerFactory()).getConfigurationProperties();
+
+        // Then
+        assertThat(lowLatencyProps.get(ProducerConfig.INTERCEPTOR_CLASSES_CONFIG))
+                .isEqualTo(TracingProducerInterceptor.class.getName());
+        assertThat(highThroughputProps.get(ProducerConfig.INTERCEPTOR_CLASSES_CONFIG))
+                .isEqualTo(TracingProducerInterceptor.class.getName());
+    }
 }
\ No newline at end of file
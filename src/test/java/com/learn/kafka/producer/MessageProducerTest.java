@@ -1,15 +1,26 @@
 package com.learn.kafka.producer;
 
-import org.junit.jupiter.api.BeforeEach;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.slf4j.LoggerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 class MessageProducerTest {
@@ -17,6 +28,9 @@ class MessageProducerTest {
     @Mock
     private KafkaTemplate<String, String> kafkaTemplate;
 
+    @Mock
+    private ProducerProfileRouter producerProfileRouter;
+
     @InjectMocks
     private MessageProducer messageProducer;
 
@@ -25,11 +39,81 @@ class MessageProducerTest {
         // Given
         String topic = "test-topic";
         String message = "test message";
+        CompletableFuture<SendResult<String, String>> sendFuture = new CompletableFuture<>();
+        when(producerProfileRouter.templateFor(topic)).thenReturn(kafkaTemplate);
+        when(kafkaTemplate.send(topic, message)).thenReturn(sendFuture);
 
         // When
-        messageProducer.sendMessage(topic, message);
+        CompletableFuture<SendResult<String, String>> result = messageProducer.sendMessage(topic, message);
 
         // Then
         verify(kafkaTemplate, times(1)).send(topic, message);
+        assertThat(result).isSameAs(sendFuture);
+    }
+
+    @Test
+    void shouldSendKeyedMessageToKafka() {
+        // Given
+        String topic = "test-topic";
+        CompletableFuture<SendResult<String, String>> sendFuture = new CompletableFuture<>();
+        when(producerProfileRouter.templateFor(topic)).thenReturn(kafkaTemplate);
+        when(kafkaTemplate.send(topic, "USD", "test message")).thenReturn(sendFuture);
+
+        // When
+        CompletableFuture<SendResult<String, String>> result = messageProducer.sendMessage(topic, "USD", "test message");
+
+        // Then
+        verify(kafkaTemplate, times(1)).send(topic, "USD", "test message");
+        assertThat(result).isSameAs(sendFuture);
+    }
+
+    @Test
+    void shouldLogSendFailure() {
+        // Given
+        String topic = "test-topic";
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ReflectionTestUtils.setField(messageProducer, "meterRegistry", meterRegistry);
+        when(producerProfileRouter.templateFor(topic)).thenReturn(kafkaTemplate);
+        when(producerProfileRouter.profileFor(topic)).thenReturn(ProducerProfile.LOW_LATENCY);
+        when(kafkaTemplate.send(topic, "message"))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+
+        Logger logger = (Logger) LoggerFactory.getLogger(MessageProducer.class);
+        ListAppender<ILoggingEvent> listAppender = new ListAppender<>();
+        listAppender.start();
+        logger.addAppender(listAppender);
+
+        // When
+        CompletableFuture<SendResult<String, String>> result = messageProducer.sendMessage(topic, "message");
+
+        // Then
+        assertThat(result).isCompletedExceptionally();
+        assertThat(listAppender.list).anyMatch(event -> event.getLevel() == Level.ERROR
+                && event.getFormattedMessage().contains("broker down"));
+        assertThat(meterRegistry.get("kafka.producer.send.failures").tag("profile", "low-latency").counter().count())
+                .isEqualTo(1);
+
+        // Nettoyer
+        logger.detachAppender(listAppender);
+    }
+
+    @Test
+    void shouldRecordAckLatencyPerProfile() {
+        // Given
+        String topic = "exchange-rates";
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ReflectionTestUtils.setField(messageProducer, "meterRegistry", meterRegistry);
+        CompletableFuture<SendResult<String, String>> sendFuture = new CompletableFuture<>();
+        when(producerProfileRouter.templateFor(topic)).thenReturn(kafkaTemplate);
+        when(producerProfileRouter.profileFor(topic)).thenReturn(ProducerProfile.HIGH_THROUGHPUT);
+        when(kafkaTemplate.send(topic, "message")).thenReturn(sendFuture);
+
+        // When
+        messageProducer.sendMessage(topic, "message");
+        sendFuture.complete(null);
+
+        // Then
+        assertThat(meterRegistry.get("kafka.producer.send.ack").tag("profile", "high-throughput").timer().count())
+                .isEqualTo(1);
     }
 }
\ No newline at end of file
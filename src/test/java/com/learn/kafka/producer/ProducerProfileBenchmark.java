@@ -0,0 +1,86 @@
+package com.learn.kafka.producer;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Débit (octets/s) et latence d'envoi p99 (send -> ack) de chaque profil producteur
+ * sur un broker embarqué. Exécuté uniquement avec {@code mvn -Pbenchmark test}.
+ */
+@EmbeddedKafka(partitions = 3, topics = ProducerProfileBenchmark.TOPIC)
+class ProducerProfileBenchmark {
+
+    static final String TOPIC = "producer-benchmark";
+
+    private static final int MESSAGES = Integer.getInteger("benchmark.messages", 100_000);
+    private static final int MESSAGE_SIZE = Integer.getInteger("benchmark.message-size", 2_048);
+
+    @Test
+    void compareProducerProfiles(EmbeddedKafkaBroker broker) throws Exception {
+        KafkaProducerConfig config = newProducerConfig(broker);
+        // Payload JSON-like répétitif, représentatif des snapshots de taux
+        String chunk = "{\"base\":\"USD\",\"rates\":{\"EUR\":0.85}}";
+        String payload = chunk.repeat(MESSAGE_SIZE / chunk.length() + 1).substring(0, MESSAGE_SIZE);
+
+        for (ProducerProfile profile : ProducerProfile.values()) {
+            KafkaTemplate<String, String> template = switch (profile) {
+                case LOW_LATENCY -> config.kafkaTemplate();
+                case HIGH_THROUGHPUT -> config.highThroughputKafkaTemplate();
+            };
+            // Préchauffage
+            run(template, payload, MESSAGES / 10);
+            Result result = run(template, payload, MESSAGES);
+            template.getProducerFactory().reset();
+
+            long[] latencies = result.latencies();
+            Arrays.sort(latencies);
+            System.out.printf("%-16s: %,.1f MB/s, p50 %.2f ms, p99 %.2f ms%n",
+                    profile.getPropertyName(),
+                    (double) MESSAGES * MESSAGE_SIZE / (result.elapsedNanos() / 1e9) / (1024 * 1024),
+                    latencies[latencies.length / 2] / 1e6,
+                    latencies[(int) (latencies.length * 0.99)] / 1e6);
+        }
+    }
+
+    private record Result(long[] latencies, long elapsedNanos) {
+    }
+
+    private Result run(KafkaTemplate<String, String> template, String payload, int messages) throws InterruptedException {
+        long[] latencies = new long[messages];
+        CountDownLatch acked = new CountDownLatch(messages);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < messages; i++) {
+            int index = i;
+            long sentAt = System.nanoTime();
+            template.send(TOPIC, payload).whenComplete((sendResult, ex) -> {
+                latencies[index] = System.nanoTime() - sentAt;
+                acked.countDown();
+            });
+        }
+        assertThat(acked.await(2, TimeUnit.MINUTES)).isTrue();
+        return new Result(latencies, System.nanoTime() - start);
+    }
+
+    private static KafkaProducerConfig newProducerConfig(EmbeddedKafkaBroker broker) {
+        KafkaProducerConfig config = new KafkaProducerConfig();
+        ReflectionTestUtils.setField(config, "bootstrapServers", broker.getBrokersAsString());
+        ReflectionTestUtils.setField(config, "lowLatencyLingerMs", 0);
+        ReflectionTestUtils.setField(config, "lowLatencyAcks", "1");
+        ReflectionTestUtils.setField(config, "lowLatencyMaxBlockMs", 60_000L);
+        ReflectionTestUtils.setField(config, "highThroughputBatchSize", 131072);
+        ReflectionTestUtils.setField(config, "highThroughputLingerMs", 20);
+        ReflectionTestUtils.setField(config, "highThroughputCompressionType", System.getProperty("benchmark.compression", "lz4"));
+        ReflectionTestUtils.setField(config, "highThroughputBufferMemory", 67108864L);
+        return config;
+    }
+}
@@ -0,0 +1,74 @@
+package com.learn.kafka.producer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@ExtendWith(MockitoExtension.class)
+class ProducerProfileRouterTest {
+
+    @Mock
+    private KafkaTemplate<String, String> lowLatencyTemplate;
+
+    @Mock
+    private KafkaTemplate<String, String> highThroughputTemplate;
+
+    @Mock
+    private KafkaTemplate<String, byte[]> lowLatencyBytesTemplate;
+
+    @Mock
+    private KafkaTemplate<String, byte[]> highThroughputBytesTemplate;
+
+    private ProducerProfileRouter router;
+
+    @BeforeEach
+    void setUp() {
+        router = new ProducerProfileRouter();
+        ReflectionTestUtils.setField(router, "kafkaTemplate", lowLatencyTemplate);
+        ReflectionTestUtils.setField(router, "highThroughputKafkaTemplate", highThroughputTemplate);
+        ReflectionTestUtils.setField(router, "bytesKafkaTemplate", lowLatencyBytesTemplate);
+        ReflectionTestUtils.setField(router, "highThroughputBytesKafkaTemplate", highThroughputBytesTemplate);
+        ReflectionTestUtils.setField(router, "topicProfiles",
+                Map.of("exchange-rates", "high-throughput", "mon-tunnel-topic", "low-latency"));
+    }
+
+    @Test
+    void shouldRouteTopicToConfiguredProfile() {
+        assertThat(router.profileFor("exchange-rates")).isEqualTo(ProducerProfile.HIGH_THROUGHPUT);
+        assertThat(router.templateFor("exchange-rates")).isSameAs(highThroughputTemplate);
+        assertThat(router.templateFor("mon-tunnel-topic")).isSameAs(lowLatencyTemplate);
+    }
+
+    @Test
+    void shouldRouteBytesTemplateWithSameProfile() {
+        assertThat(router.bytesTemplateFor("exchange-rates")).isSameAs(highThroughputBytesTemplate);
+        assertThat(router.bytesTemplateFor("mon-tunnel-topic")).isSameAs(lowLatencyBytesTemplate);
+        assertThat(router.bytesTemplateFor("unknown-topic")).isSameAs(lowLatencyBytesTemplate);
+    }
+
+    @Test
+    void shouldDefaultToLowLatencyProfile() {
+        assertThat(router.profileFor("unknown-topic")).isEqualTo(ProducerProfile.LOW_LATENCY);
+        assertThat(router.templateFor("unknown-topic")).isSameAs(lowLatencyTemplate);
+    }
+
+    @Test
+    void shouldRejectUnknownProfile() {
+        // Given
+        ReflectionTestUtils.setField(router, "topicProfiles", Map.of("exchange-rates", "turbo"));
+
+        // When & Then
+        assertThatThrownBy(() -> router.templateFor("exchange-rates"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("turbo");
+    }
+}
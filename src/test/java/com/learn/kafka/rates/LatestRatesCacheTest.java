@@ -0,0 +1,153 @@
+package com.learn.kafka.rates;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class LatestRatesCacheTest {
+
+    private final LatestRatesCache cache = new LatestRatesCache();
+
+    @Test
+    void shouldApplySnapshotAndServeDirectRate() throws Exception {
+        // When
+        int updated = cache.apply("{\"base\":\"USD\",\"rates\":{\"USD\":1,\"EUR\":0.85,\"GBP\":0.75},"
+                + "\"timestamp\":\"2024-01-01T00:00:00Z\",\"type\":\"keyframe\"}");
+
+        // Then
+        assertThat(updated).isEqualTo(3);
+        assertThat(cache.rate("USD", "EUR")).isEqualTo(0.85);
+        assertThat(cache.quote("USD", "EUR")).hasValueSatisfying(quote -> {
+            assertThat(quote.via()).isNull();
+            assertThat(quote.updatedAt()).isEqualTo(Instant.parse("2024-01-01T00:00:00Z").toEpochMilli());
+        });
+    }
+
+    @Test
+    void shouldUpdateOnlyRatesPresentInDelta() throws Exception {
+        // Given
+        cache.apply("{\"base\":\"USD\",\"rates\":{\"EUR\":0.85,\"GBP\":0.75}}");
+
+        // When
+        cache.apply("{\"base\":\"USD\",\"rates\":{\"GBP\":0.76},\"type\":\"delta\"}");
+
+        // Then
+        assertThat(cache.rate("USD", "EUR")).isEqualTo(0.85);
+        assertThat(cache.rate("USD", "GBP")).isEqualTo(0.76);
+    }
+
+    @Test
+    void shouldReuseReadBuffersAcrossSnapshotsOfAnySize() throws Exception {
+        // Given : plus de taux que la capacité initiale des tableaux de lecture
+        StringBuilder large = new StringBuilder("{\"base\":\"USD\",\"rates\":{");
+        for (int i = 0; i < 100; i++) {
+            large.append(i == 0 ? "" : ",").append("\"A").append((char) ('A' + i / 26)).append((char) ('A' + i % 26))
+                    .append("\":").append(i + 1);
+        }
+        cache.apply(large.append("}}").toString());
+
+        // When
+        int updated = cache.apply("{\"base\":\"USD\",\"rates\":{\"EUR\":0.85},\"type\":\"delta\"}");
+
+        // Then
+        assertThat(updated).isEqualTo(1);
+        assertThat(cache.rate("USD", "ADV")).isEqualTo(100.0);
+        assertThat(cache.rate("USD", "EUR")).isEqualTo(0.85);
+    }
+
+    @Test
+    void shouldInvertRateWhenOnlyReverseBaseIsKnown() throws Exception {
+        // Given
+        cache.apply("{\"base\":\"USD\",\"rates\":{\"EUR\":0.8}}");
+
+        // When & Then
+        assertThat(cache.rate("EUR", "USD")).isCloseTo(1.25, within(1e-12));
+    }
+
+    @Test
+    void shouldComputeCrossRateThroughKnownBase() throws Exception {
+        // Given
+        cache.apply("{\"base\":\"USD\",\"rates\":{\"EUR\":0.8,\"JPY\":120}}");
+
+        // When & Then
+        assertThat(cache.rate("EUR", "JPY")).isCloseTo(150.0, within(1e-9));
+        assertThat(cache.quote("EUR", "JPY")).hasValueSatisfying(quote -> assertThat(quote.via()).isEqualTo("USD"));
+    }
+
+    @Test
+    void shouldReportUnknownPairs() throws Exception {
+        // Given
+        cache.apply("{\"base\":\"USD\",\"rates\":{\"EUR\":0.8}}");
+        cache.apply("{\"base\":\"CHF\",\"rates\":{\"JPY\":170}}");
+
+        // When & Then
+        assertThat(cache.rate("EUR", "JPY")).isNaN();
+        assertThat(cache.rate("USD", "XXX")).isNaN();
+        assertThat(cache.quote("eur", "USD")).isEmpty();
+        assertThat(cache.rate("EUR", "EUR")).isEqualTo(1.0);
+    }
+
+    @Test
+    void shouldIgnoreNonIsoCodesAndNonNumericRates() throws Exception {
+        // When
+        int updated = cache.apply("{\"base\":\"USD\",\"rates\":{\"bitcoin\":0.00002,\"EUR\":\"n/a\",\"GBP\":0.75}}");
+
+        // Then
+        assertThat(updated).isEqualTo(1);
+        assertThat(cache.rate("USD", "EUR")).isNaN();
+    }
+
+    @Test
+    void shouldReloadStateWrittenToBuffer() throws Exception {
+        // Given
+        cache.apply("{\"base\":\"USD\",\"rates\":{\"EUR\":0.8,\"JPY\":120},\"timestamp\":\"2024-01-01T00:00:00Z\"}");
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+
+        // When
+        cache.writeTo(buffer);
+        LatestRatesCache reloaded = new LatestRatesCache();
+        int loaded = reloaded.readFrom(buffer.flip());
+
+        // Then
+        assertThat(loaded).isEqualTo(2);
+        assertThat(buffer.hasRemaining()).isFalse();
+        assertThat(reloaded.rate("EUR", "JPY")).isCloseTo(150.0, within(1e-9));
+        assertThat(reloaded.quote("USD", "EUR")).hasValueSatisfying(
+                quote -> assertThat(quote.updatedAt()).isEqualTo(1704067200000L));
+    }
+
+    @Test
+    void shouldServeConsistentRatesDuringConcurrentUpdates() throws Exception {
+        // Given
+        cache.put("USD", "EUR", 1.0, 0);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        // When : le rédacteur n'écrit que des valeurs entières, un lecteur ne doit jamais voir de valeur déchirée
+        Future<?> writer = executor.submit(() -> {
+            for (int i = 0; i < 200_000; i++) {
+                cache.put("USD", "EUR", i % 1000, i);
+            }
+        });
+        Future<Boolean> reader = executor.submit(() -> {
+            boolean consistent = true;
+            while (!writer.isDone()) {
+                double rate = cache.rate("USD", "EUR");
+                consistent &= rate == Math.rint(rate) && rate >= 0 && rate < 1000;
+            }
+            return consistent;
+        });
+
+        // Then
+        writer.get(10, TimeUnit.SECONDS);
+        assertThat(reader.get(10, TimeUnit.SECONDS)).isTrue();
+        executor.shutdown();
+    }
+}
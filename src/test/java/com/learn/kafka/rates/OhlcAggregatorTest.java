@@ -0,0 +1,149 @@
+package com.learn.kafka.rates;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OhlcAggregatorTest {
+
+    private static final long T0 = 1_704_067_200_000L; // 2024-01-01T00:00:00Z
+
+    private final List<OhlcAggregator.OhlcBar> bars = new ArrayList<>();
+    private final OhlcAggregator aggregator = new OhlcAggregator("exchangerate-api", Duration.ofMinutes(1), Duration.ofSeconds(10), bars::add);
+
+    @Test
+    void shouldEmitBarOnceGracePeriodHasElapsed() {
+        // Given
+        aggregator.add("USD", "EUR", 0.85, T0 + 1_000);
+        aggregator.add("USD", "EUR", 0.87, T0 + 20_000);
+        aggregator.add("USD", "EUR", 0.84, T0 + 40_000);
+        aggregator.add("USD", "EUR", 0.86, T0 + 59_000);
+
+        // When : fenêtre suivante, mais encore dans la grâce
+        aggregator.add("USD", "EUR", 0.90, T0 + 65_000);
+
+        // Then
+        assertThat(bars).isEmpty();
+
+        // When
+        aggregator.add("USD", "EUR", 0.91, T0 + 70_000);
+
+        // Then
+        assertThat(bars).containsExactly(new OhlcAggregator.OhlcBar("exchangerate-api", "USD", "EUR", "PT1M",
+                "2024-01-01T00:00:00Z", "2024-01-01T00:01:00Z", 0.85, 0.87, 0.84, 0.86, 4));
+    }
+
+    @Test
+    void shouldOrderLateRatesByEventTimeWithinGrace() {
+        // Given
+        aggregator.add("USD", "EUR", 0.86, T0 + 50_000);
+        aggregator.add("USD", "EUR", 0.90, T0 + 65_000);
+
+        // When : arrivé après un taux de la fenêtre suivante, mais avant la fin de la grâce
+        boolean accepted = aggregator.add("USD", "EUR", 0.80, T0 + 5_000);
+        aggregator.advanceTo(T0 + 130_000);
+
+        // Then
+        assertThat(accepted).isTrue();
+        assertThat(bars).hasSize(2);
+        assertThat(bars.get(0).open()).isEqualTo(0.80);
+        assertThat(bars.get(0).close()).isEqualTo(0.86);
+        assertThat(bars.get(0).low()).isEqualTo(0.80);
+        assertThat(bars.get(0).count()).isEqualTo(2);
+        assertThat(bars.get(1).open()).isEqualTo(0.90);
+    }
+
+    @Test
+    void shouldOnlyEmitWindowsFullyCoveredByReplay() {
+        // Given : relecture commencée en cours de fenêtre
+        aggregator.skipWindowsBefore(T0 + 30_000);
+
+        // When
+        boolean partial = aggregator.add("USD", "EUR", 0.85, T0 + 40_000);
+        aggregator.add("USD", "EUR", 0.86, T0 + 61_000);
+        aggregator.add("USD", "EUR", 0.87, T0 + 135_000);
+
+        // Then
+        assertThat(partial).isFalse();
+        assertThat(aggregator.lateRates()).isZero();
+        assertThat(bars).singleElement().satisfies(bar -> {
+            assertThat(bar.start()).isEqualTo("2024-01-01T00:01:00Z");
+            assertThat(bar.count()).isEqualTo(1);
+        });
+    }
+
+    @Test
+    void shouldDropRatesArrivingAfterWindowClosed() {
+        // Given
+        aggregator.add("USD", "EUR", 0.86, T0 + 50_000);
+        aggregator.add("USD", "EUR", 0.90, T0 + 75_000);
+
+        // When
+        boolean accepted = aggregator.add("USD", "EUR", 0.80, T0 + 5_000);
+
+        // Then
+        assertThat(accepted).isFalse();
+        assertThat(aggregator.lateRates()).isEqualTo(1);
+        assertThat(bars).singleElement().satisfies(bar -> assertThat(bar.count()).isEqualTo(1));
+    }
+
+    @Test
+    void shouldKeepPairsAndBasesApart() {
+        // Given
+        aggregator.add("USD", "EUR", 0.85, T0);
+        aggregator.add("USD", "GBP", 0.75, T0);
+        aggregator.add("EUR", "USD", 1.17, T0);
+
+        // When
+        aggregator.advanceTo(T0 + 70_000);
+
+        // Then
+        assertThat(bars).extracting(OhlcAggregator.OhlcBar::key).containsExactlyInAnyOrder("USDEUR", "USDGBP", "EURUSD");
+    }
+
+    @Test
+    void shouldCloseSkippedWindowsWhenEventTimeJumps() {
+        // Given : grâce plus longue que la fenêtre, plusieurs fenêtres ouvertes par paire
+        OhlcAggregator longGrace = new OhlcAggregator("exchangerate-api", Duration.ofMinutes(1), Duration.ofMinutes(2), bars::add);
+        for (int minute = 0; minute < 4; minute++) {
+            longGrace.add("USD", "EUR", minute, T0 + minute * 60_000L);
+        }
+
+        // When
+        longGrace.add("USD", "EUR", 10, T0 + 60 * 60_000L);
+
+        // Then
+        assertThat(bars).extracting(OhlcAggregator.OhlcBar::open).containsExactlyInAnyOrder(0.0, 1.0, 2.0, 3.0);
+    }
+
+    @Test
+    void shouldGrowStateBeyondInitialPairs() {
+        // Given
+        for (int i = 0; i < 300; i++) {
+            aggregator.add("USD", RateTable.currency(i), i, T0);
+        }
+
+        // When
+        aggregator.advanceTo(T0 + 70_000);
+
+        // Then
+        assertThat(bars).hasSize(300);
+        assertThat(bars).allSatisfy(bar -> assertThat(bar.open()).isEqualTo(RateTable.code(bar.quote())));
+    }
+
+    @Test
+    void shouldIgnoreNonIsoCurrencies() {
+        assertThat(aggregator.add("USD", "bitcoin", 0.00002, T0)).isFalse();
+    }
+
+    @Test
+    void shouldRejectEmptyWindow() {
+        assertThatThrownBy(() -> new OhlcAggregator("exchangerate-api", Duration.ZERO, Duration.ZERO, bars::add))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,171 @@
+package com.learn.kafka.rates;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RateSnapshotCodecTest {
+
+    private static final String ENRICHED = "{\"provider\":\"x\",\"base\":\"USD\",\"date\":\"2024-01-01\","
+            + "\"rates\":{\"USD\":1,\"EUR\":0.85,\"GBP\":0.75,\"JPY\":110.25},"
+            + "\"source\":\"exchangerate-api\",\"timestamp\":\"2024-01-01T12:00:00.123456Z\",\"type\":\"keyframe\"}";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final RateSnapshotSerializer serializer = new RateSnapshotSerializer();
+    private final RateSnapshotDeserializer deserializer = new RateSnapshotDeserializer();
+
+    @Test
+    void shouldReadEncodedSnapshotThroughView() throws Exception {
+        // Given
+        RateSnapshot snapshot = RateSnapshotCodec.fromJson(objectMapper.getFactory(), ENRICHED.getBytes(StandardCharsets.UTF_8));
+
+        // When
+        RateSnapshotView view = RateSnapshotView.wrap(RateSnapshotCodec.encode(snapshot));
+
+        // Then
+        assertThat(view.base()).isEqualTo("USD");
+        assertThat(view.baseCode()).isEqualTo(RateTable.code("USD"));
+        assertThat(view.type()).isEqualTo("keyframe");
+        assertThat(view.source()).isEqualTo("exchangerate-api");
+        assertThat(RateSnapshotCodec.instant(view.timestampMicros())).isEqualTo(Instant.parse("2024-01-01T12:00:00.123456Z"));
+        assertThat(view.size()).isEqualTo(4);
+        assertThat(view.quote(1)).isEqualTo("EUR");
+        assertThat(view.quoteCode(3)).isEqualTo(RateTable.code("JPY"));
+        assertThat(view.rate(3)).isEqualTo(110.25);
+        assertThat(view.rate("GBP")).isEqualTo(0.75);
+        assertThat(view.rate("CHF")).isNaN();
+    }
+
+    @Test
+    void shouldCarryNonIsoCurrenciesAsStrings() {
+        // Given
+        RateSnapshot snapshot = new RateSnapshot("usdt", 1L, "delta", null,
+                new String[]{"EUR", "BTC-X", "GBP", "xau"}, new double[]{0.85, 0.00001, 0.75, 0.0005});
+
+        // When
+        RateSnapshotView view = RateSnapshotView.wrap(RateSnapshotCodec.encode(snapshot));
+
+        // Then
+        assertThat(view.baseCode()).isEqualTo(-1);
+        assertThat(view.base()).isEqualTo("usdt");
+        assertThat(view.source()).isNull();
+        assertThat(view.quoteCode(1)).isEqualTo(-1);
+        assertThat(view.quote(1)).isEqualTo("BTC-X");
+        assertThat(view.quote(3)).isEqualTo("xau");
+        assertThat(view.rate("xau")).isEqualTo(0.0005);
+        assertThat(view.materialize().quotes()).containsExactly("EUR", "BTC-X", "GBP", "xau");
+    }
+
+    @Test
+    void shouldReadInPlaceFromConsumerBufferSlice() {
+        // Given : le record au milieu d'un buffer de fetch, position non nulle
+        byte[] encoded = RateSnapshotCodec.encode(new RateSnapshot("EUR", 42L, null, "frankfurter",
+                new String[]{"USD", "CHF"}, new double[]{1.1, 0.95}));
+        ByteBuffer fetch = ByteBuffer.allocate(encoded.length + 20);
+        fetch.position(7);
+        fetch.put(encoded);
+        fetch.position(7).limit(7 + encoded.length);
+        RecordHeaders headers = new RecordHeaders();
+        headers.add(RateSnapshotCodec.SCHEMA_HEADER, new byte[]{RateSnapshotCodec.VERSION});
+
+        // When
+        RateSnapshotView view = deserializer.deserialize("exchange-rates", headers, fetch);
+        fetch.put(7 + RateSnapshotCodec.QUOTES_OFFSET + 2 * Short.BYTES + Double.BYTES, new byte[Double.BYTES]);
+
+        // Then : la vue lit le buffer partagé, sans copie
+        assertThat(view.base()).isEqualTo("EUR");
+        assertThat(view.rate(0)).isEqualTo(1.1);
+        assertThat(view.rate(1)).isZero();
+        assertThat(fetch.position()).isEqualTo(7);
+    }
+
+    @Test
+    void shouldTagSchemaVersionInHeader() {
+        // Given
+        RecordHeaders headers = new RecordHeaders();
+
+        // When
+        byte[] bytes = serializer.serialize("exchange-rates", headers, new RateSnapshot("USD", 0L, null, null,
+                new String[]{"EUR"}, new double[]{0.85}));
+
+        // Then
+        assertThat(headers.lastHeader(RateSnapshotCodec.SCHEMA_HEADER).value()).containsExactly(RateSnapshotCodec.VERSION);
+        assertThat(deserializer.deserialize("exchange-rates", headers, bytes).rate("EUR")).isEqualTo(0.85);
+    }
+
+    @Test
+    void shouldRejectMissingOrUnknownSchemaVersion() {
+        // Given
+        byte[] bytes = serializer.serialize("exchange-rates", new RateSnapshot("USD", 0L, null, null,
+                new String[0], new double[0]));
+        RecordHeaders future = new RecordHeaders();
+        future.add(RateSnapshotCodec.SCHEMA_HEADER, new byte[]{2});
+
+        // When / Then
+        assertThatThrownBy(() -> deserializer.deserialize("exchange-rates", new RecordHeaders(), bytes))
+                .isInstanceOf(SerializationException.class);
+        assertThatThrownBy(() -> deserializer.deserialize("exchange-rates", future, bytes))
+                .isInstanceOf(SerializationException.class)
+                .hasMessageContaining("version 2");
+    }
+
+    @Test
+    void shouldRejectTruncatedPayload() {
+        // Given
+        byte[] bytes = RateSnapshotCodec.encode(new RateSnapshot("USD", 0L, null, null,
+                new String[]{"EUR", "GBP"}, new double[]{0.85, 0.75}));
+        RecordHeaders headers = new RecordHeaders();
+        headers.add(RateSnapshotCodec.SCHEMA_HEADER, new byte[]{RateSnapshotCodec.VERSION});
+
+        // When / Then
+        assertThatThrownBy(() -> deserializer.deserialize("exchange-rates", headers, ByteBuffer.wrap(bytes, 0, 20)))
+                .isInstanceOf(SerializationException.class);
+    }
+
+    @Test
+    void shouldRenderSameSnapshotAsJson() throws Exception {
+        // Given
+        RateSnapshotView view = RateSnapshotView.wrap(RateSnapshotCodec.encode(
+                RateSnapshotCodec.fromJson(objectMapper.getFactory(), ENRICHED.getBytes(StandardCharsets.UTF_8))));
+
+        // When
+        JsonNode json = objectMapper.readTree(RateSnapshotCodec.toJson(objectMapper.getFactory(), view));
+
+        // Then
+        JsonNode original = objectMapper.readTree(ENRICHED);
+        assertThat(json.path("base")).isEqualTo(original.path("base"));
+        assertThat(json.path("rates").path("EUR").asDouble()).isEqualTo(0.85);
+        assertThat(json.path("rates").size()).isEqualTo(4);
+        assertThat(json.path("timestamp")).isEqualTo(original.path("timestamp"));
+        assertThat(json.path("type")).isEqualTo(original.path("type"));
+        assertThat(json.path("source")).isEqualTo(original.path("source"));
+    }
+
+    @Test
+    void shouldBeSmallerThanJsonOnWire() throws Exception {
+        // Given : ~160 taux, comme une réponse complète du fournisseur
+        StringBuilder json = new StringBuilder("{\"base\":\"USD\",\"rates\":{");
+        for (int i = 0; i < 160; i++) {
+            json.append(i > 0 ? "," : "").append('"').append(RateTable.currency(i * 97)).append("\":")
+                    .append(0.5 + i * 1.37123);
+        }
+        byte[] jsonBytes = json.append("},\"source\":\"exchangerate-api\",\"timestamp\":\"2024-01-01T12:00:00Z\"}")
+                .toString().getBytes(StandardCharsets.UTF_8);
+
+        // When
+        byte[] binary = RateSnapshotCodec.encode(RateSnapshotCodec.fromJson(objectMapper.getFactory(), jsonBytes));
+
+        // Then
+        assertThat(binary.length).isEqualTo(RateSnapshotCodec.QUOTES_OFFSET + 160 * 10 + 1 + "exchangerate-api".length());
+        assertThat(binary.length).isLessThan(jsonBytes.length);
+    }
+}
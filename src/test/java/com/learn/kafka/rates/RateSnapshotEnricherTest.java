@@ -0,0 +1,142 @@
+package com.learn.kafka.rates;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RateSnapshotEnricherTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final RateSnapshotEnricher enricher = new RateSnapshotEnricher(objectMapper.getFactory());
+
+    @Test
+    void shouldCopySnapshotAndAppendTimestamp() throws Exception {
+        // Given
+        String body = "{\"provider\":\"x\",\"base\":\"USD\",\"time_next_update_unix\":1704153600,"
+                + "\"rates\":{\"USD\":1,\"EUR\":0.85},\"meta\":{\"tags\":[1,2]}}";
+
+        // When
+        RateSnapshotEnricher.Enriched enriched = enrich(body, RateSnapshotEnricher.KEEP_ALL);
+
+        // Then
+        assertThat(new String(enriched.json(), StandardCharsets.UTF_8)).isEqualTo(
+                "{\"provider\":\"x\",\"base\":\"USD\",\"time_next_update_unix\":1704153600,"
+                        + "\"rates\":{\"USD\":1,\"EUR\":0.85},\"meta\":{\"tags\":[1,2]},"
+                        + "\"timestamp\":\"2024-01-01T00:00:00Z\"}");
+        assertThat(enriched.base()).isEqualTo("USD");
+        assertThat(enriched.nextUpdateUnix()).isEqualTo(1704153600L);
+        assertThat(enriched.rates()).isEqualTo(2);
+        assertThat(enriched.type()).isNull();
+    }
+
+    @Test
+    void shouldWriteOnlyRatesKeptByFilterAndItsType() throws Exception {
+        // Given
+        List<String> seen = new ArrayList<>();
+        RateSnapshotEnricher.RateFilter onlyEur = new RateSnapshotEnricher.RateFilter() {
+            @Override
+            public boolean keep(String currency, double rate) {
+                seen.add(currency + "=" + rate);
+                return currency.equals("EUR");
+            }
+
+            @Override
+            public String type() {
+                return "delta";
+            }
+        };
+
+        // When
+        RateSnapshotEnricher.Enriched enriched =
+                enrich("{\"base\":\"USD\",\"rates\":{\"EUR\":0.85,\"GBP\":0.75}}", onlyEur);
+
+        // Then
+        JsonNode json = objectMapper.readTree(enriched.json());
+        assertThat(json.path("rates").toString()).isEqualTo("{\"EUR\":0.85}");
+        assertThat(json.path("type").asText()).isEqualTo("delta");
+        assertThat(enriched.rates()).isEqualTo(1);
+        assertThat(seen).containsExactly("EUR=0.85", "GBP=0.75");
+    }
+
+    @Test
+    void shouldReplaceExistingTimestamp() throws Exception {
+        // When
+        RateSnapshotEnricher.Enriched enriched =
+                enrich("{\"timestamp\":{\"old\":true},\"base\":\"USD\"}", RateSnapshotEnricher.KEEP_ALL);
+
+        // Then
+        assertThat(new String(enriched.json(), StandardCharsets.UTF_8))
+                .isEqualTo("{\"base\":\"USD\",\"timestamp\":\"2024-01-01T00:00:00Z\"}");
+    }
+
+    @Test
+    void shouldWriteProviderAsSource() throws Exception {
+        // Given
+        RateSnapshotEnricher sourced = new RateSnapshotEnricher(objectMapper.getFactory(), "frankfurter");
+
+        // When
+        RateSnapshotEnricher.Enriched enriched = sourced.enrich(stream("{\"source\":\"ecb\",\"base\":\"EUR\"}"),
+                "2024-01-01T00:00:00Z", base -> RateSnapshotEnricher.KEEP_ALL);
+
+        // Then
+        assertThat(new String(enriched.json(), StandardCharsets.UTF_8))
+                .isEqualTo("{\"base\":\"EUR\",\"source\":\"frankfurter\",\"timestamp\":\"2024-01-01T00:00:00Z\"}");
+    }
+
+    @Test
+    void shouldPassBaseSeenBeforeRatesToFilterFactory() throws Exception {
+        // Given
+        List<String> bases = new ArrayList<>();
+
+        // When
+        enricher.enrich(stream("{\"base\":\"EUR\",\"rates\":{}}"), "t", base -> {
+            bases.add(base);
+            return RateSnapshotEnricher.KEEP_ALL;
+        });
+        enricher.enrich(stream("{\"rates\":{},\"base\":\"EUR\"}"), "t", base -> {
+            bases.add(base);
+            return RateSnapshotEnricher.KEEP_ALL;
+        });
+
+        // Then
+        assertThat(bases).containsExactly("EUR", null);
+    }
+
+    @Test
+    void shouldReuseBufferAcrossSnapshots() throws Exception {
+        // When
+        byte[] first = enrich("{\"base\":\"USD\",\"rates\":{\"EUR\":0.85,\"GBP\":0.75}}", RateSnapshotEnricher.KEEP_ALL).json();
+        byte[] second = enrich("{\"base\":\"EUR\"}", RateSnapshotEnricher.KEEP_ALL).json();
+
+        // Then
+        assertThat(objectMapper.readTree(first).path("rates").size()).isEqualTo(2);
+        assertThat(new String(second, StandardCharsets.UTF_8))
+                .isEqualTo("{\"base\":\"EUR\",\"timestamp\":\"2024-01-01T00:00:00Z\"}");
+    }
+
+    @Test
+    void shouldRejectNonObjectSnapshot() {
+        assertThatThrownBy(() -> enrich("[1,2]", RateSnapshotEnricher.KEEP_ALL))
+                .isInstanceOf(JsonParseException.class);
+        assertThatThrownBy(() -> enrich("{\"base\":\"USD\",\"rates\":{\"EUR\":", RateSnapshotEnricher.KEEP_ALL))
+                .isInstanceOf(IOException.class);
+    }
+
+    private RateSnapshotEnricher.Enriched enrich(String body, RateSnapshotEnricher.RateFilter filter) throws IOException {
+        return enricher.enrich(stream(body), "2024-01-01T00:00:00Z", base -> filter);
+    }
+
+    private static ByteArrayInputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
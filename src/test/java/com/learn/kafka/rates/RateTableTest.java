@@ -0,0 +1,68 @@
+package com.learn.kafka.rates;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateTableTest {
+
+    @Test
+    void shouldEncodeIsoCodesToDenseIndex() {
+        assertThat(RateTable.code("AAA")).isZero();
+        assertThat(RateTable.code("ZZZ")).isEqualTo(RateTable.CAPACITY - 1);
+        assertThat(RateTable.currency(RateTable.code("EUR"))).isEqualTo("EUR");
+    }
+
+    @Test
+    void shouldRejectNonIsoCodes() {
+        assertThat(RateTable.code("eur")).isEqualTo(-1);
+        assertThat(RateTable.code("EURO")).isEqualTo(-1);
+        assertThat(RateTable.code(null)).isEqualTo(-1);
+    }
+
+    @Test
+    void shouldStoreAndOverwriteRates() {
+        // Given
+        RateTable table = new RateTable();
+
+        // When
+        table.put("EUR", 0.85);
+        table.put("EUR", 0.86);
+        table.put("GBP", 0.75);
+
+        // Then
+        assertThat(table.get("EUR")).isEqualTo(0.86);
+        assertThat(table.get("GBP")).isEqualTo(0.75);
+        assertThat(table.get("JPY")).isNaN();
+        assertThat(table.size()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldKeepNonIsoCodesInOverflow() {
+        // Given
+        RateTable table = new RateTable();
+
+        // When
+        table.put("BTC-OLD", 0.00002);
+
+        // Then
+        assertThat(table.get("BTC-OLD")).isEqualTo(0.00002);
+        assertThat(table.size()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldForgetEverythingOnClear() {
+        // Given
+        RateTable table = new RateTable();
+        table.put("EUR", 0.85);
+        table.put("bitcoin", 0.00002);
+
+        // When
+        table.clear();
+
+        // Then
+        assertThat(table.get("EUR")).isNaN();
+        assertThat(table.get("bitcoin")).isNaN();
+        assertThat(table.size()).isZero();
+    }
+}
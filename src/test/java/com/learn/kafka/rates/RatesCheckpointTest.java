@@ -0,0 +1,147 @@
+package com.learn.kafka.rates;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RatesCheckpointTest {
+
+    @TempDir
+    Path directory;
+
+    private Path path;
+
+    @BeforeEach
+    void setUp() {
+        path = directory.resolve("state/latest-rates.checkpoint");
+    }
+
+    @Test
+    void shouldRestoreRatesAndOffsetsWrittenByPreviousInstance() throws Exception {
+        // Given
+        LatestRatesCache cache = new LatestRatesCache();
+        cache.apply("{\"base\":\"USD\",\"rates\":{\"EUR\":0.85,\"JPY\":150},\"timestamp\":\"2024-01-01T00:00:00Z\"}");
+        cache.apply("{\"base\":\"EUR\",\"rates\":{\"GBP\":0.86}}");
+        RatesCheckpoint checkpoint = checkpoint(cache);
+        checkpoint.recordConsumed(0, 41);
+        checkpoint.recordConsumed(2, 9);
+
+        // When
+        checkpoint.checkpoint();
+        LatestRatesCache restoredCache = new LatestRatesCache();
+        RatesCheckpoint restored = checkpoint(restoredCache);
+        restored.restore();
+
+        // Then
+        assertThat(restored.resumeOffset(0)).isEqualTo(42);
+        assertThat(restored.resumeOffset(2)).isEqualTo(10);
+        assertThat(restored.resumeOffset(1)).isEqualTo(-1);
+        assertThat(restoredCache.rate("USD", "JPY")).isEqualTo(150.0);
+        assertThat(restoredCache.rate("EUR", "GBP")).isEqualTo(0.86);
+        assertThat(restoredCache.quote("USD", "EUR")).hasValueSatisfying(
+                quote -> assertThat(quote.updatedAt()).isEqualTo(1704067200000L));
+        assertThat(Files.exists(path.resolveSibling("latest-rates.checkpoint.tmp"))).isFalse();
+    }
+
+    @Test
+    void shouldWriteOnlyWhenRecordsWereConsumed() {
+        // Given
+        RatesCheckpoint checkpoint = checkpoint(new LatestRatesCache());
+
+        // When
+        checkpoint.checkpoint();
+
+        // Then
+        assertThat(Files.exists(path)).isFalse();
+    }
+
+    @Test
+    void shouldGrowBufferForLargeTables() {
+        // Given
+        LatestRatesCache cache = new LatestRatesCache();
+        for (int base = 0; base < 20; base++) {
+            for (int quote = 0; quote < 400; quote++) {
+                cache.put(RateTable.currency(base), RateTable.currency(1000 + quote), quote, 0);
+            }
+        }
+        RatesCheckpoint checkpoint = checkpoint(cache);
+        checkpoint.recordConsumed(0, 0);
+
+        // When
+        checkpoint.checkpoint();
+        LatestRatesCache restoredCache = new LatestRatesCache();
+        checkpoint(restoredCache).restore();
+
+        // Then
+        assertThat(restoredCache.baseCount()).isEqualTo(20);
+        assertThat(restoredCache.rate(RateTable.currency(19), RateTable.currency(1399))).isEqualTo(399.0);
+    }
+
+    @Test
+    void shouldIgnoreCorruptedCheckpoint() throws Exception {
+        // Given
+        LatestRatesCache cache = new LatestRatesCache();
+        cache.put("USD", "EUR", 0.85, 0);
+        RatesCheckpoint checkpoint = checkpoint(cache);
+        checkpoint.recordConsumed(0, 41);
+        checkpoint.checkpoint();
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[bytes.length - 1] ^= 0x7f;
+        Files.write(path, bytes);
+
+        // When
+        LatestRatesCache restoredCache = new LatestRatesCache();
+        RatesCheckpoint restored = checkpoint(restoredCache);
+        restored.restore();
+
+        // Then : redémarrage comme sans checkpoint
+        assertThat(restored.resumeOffset(0)).isEqualTo(-1);
+        assertThat(restoredCache.baseCount()).isZero();
+    }
+
+    @Test
+    void shouldDoNothingWhenDisabled() {
+        // Given
+        RatesCheckpoint checkpoint = checkpoint(new LatestRatesCache());
+        ReflectionTestUtils.setField(checkpoint, "enabled", false);
+        checkpoint.recordConsumed(0, 1);
+
+        // When
+        checkpoint.checkpoint();
+        checkpoint.restore();
+
+        // Then
+        assertThat(Files.exists(path)).isFalse();
+        assertThat(checkpoint.resumeOffset(0)).isEqualTo(2);
+    }
+
+    @Test
+    void shouldResumeFromLastConsumedOffsetRatherThanRestoredOne() {
+        // Given
+        RatesCheckpoint checkpoint = checkpoint(new LatestRatesCache());
+        checkpoint.recordConsumed(0, 41);
+        checkpoint.checkpoint();
+        RatesCheckpoint restored = checkpoint(new LatestRatesCache());
+        restored.restore();
+
+        // When : records lus après le démarrage, puis rebalance
+        restored.recordConsumed(0, 57);
+
+        // Then
+        assertThat(restored.resumeOffset(0)).isEqualTo(58);
+    }
+
+    private RatesCheckpoint checkpoint(LatestRatesCache cache) {
+        RatesCheckpoint checkpoint = new RatesCheckpoint();
+        ReflectionTestUtils.setField(checkpoint, "latestRatesCache", cache);
+        ReflectionTestUtils.setField(checkpoint, "enabled", true);
+        ReflectionTestUtils.setField(checkpoint, "path", path);
+        return checkpoint;
+    }
+}
@@ -0,0 +1,31 @@
+package com.learn.kafka.rates;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestRateLimiterTest {
+
+    @Test
+    void shouldSpaceRequestsAccordingToQuota() {
+        // Given : 30 requêtes par minute = une toutes les 2 s
+        RequestRateLimiter limiter = new RequestRateLimiter(30);
+
+        // When & Then
+        assertThat(limiter.tryAcquire(10_000)).isTrue();
+        assertThat(limiter.nextSlotAt()).isEqualTo(12_000);
+        assertThat(limiter.tryAcquire(11_999)).isFalse();
+        assertThat(limiter.tryAcquire(12_000)).isTrue();
+        assertThat(limiter.nextSlotAt()).isEqualTo(14_000);
+    }
+
+    @Test
+    void shouldNotLimitWithoutQuota() {
+        // Given
+        RequestRateLimiter limiter = new RequestRateLimiter(0);
+
+        // When & Then
+        assertThat(limiter.tryAcquire(1_000)).isTrue();
+        assertThat(limiter.tryAcquire(1_000)).isTrue();
+    }
+}
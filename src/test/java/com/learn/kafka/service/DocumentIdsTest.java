@@ -0,0 +1,53 @@
+package com.learn.kafka.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DocumentIdsTest {
+
+    @Test
+    void shouldIdentifySnapshotBySourceBaseAndPublicationTime() {
+        // Given
+        String snapshot = "{\"base\":\"USD\",\"rates\":{\"EUR\":0.85,\"base\":\"x\"},\"source\":\"frankfurter\","
+                + "\"timestamp\":\"2024-01-01T12:00:00Z\",\"type\":\"delta\"}";
+
+        // When & Then
+        assertThat(DocumentIds.of(snapshot)).isEqualTo("frankfurter:USD:2024-01-01T12:00:00Z");
+    }
+
+    @Test
+    void shouldIdentifySnapshotByProviderUpdateTimeWhenAnnounced() {
+        // Given : deux publications de la même mise à jour du fournisseur
+        String first = "{\"base\":\"USD\",\"time_last_update_unix\":1704067201,\"rates\":{\"EUR\":0.85},"
+                + "\"source\":\"exchangerate-api\",\"timestamp\":\"2024-01-01T12:00:00Z\"}";
+        String second = "{\"base\":\"USD\",\"time_last_update_unix\":1704067201,\"rates\":{\"EUR\":0.85},"
+                + "\"source\":\"exchangerate-api\",\"timestamp\":\"2024-01-01T12:10:00Z\"}";
+
+        // When & Then
+        assertThat(DocumentIds.of(first)).isEqualTo("exchangerate-api:USD:2024-01-01T00:00:01Z")
+                .isEqualTo(DocumentIds.of(second));
+    }
+
+    @Test
+    void shouldIdentifyPairAndOhlcBar() {
+        assertThat(DocumentIds.of("{\"source\":\"frankfurter\",\"base\":\"USD\",\"quote\":\"EUR\",\"rate\":0.85,"
+                + "\"timestamp\":\"2024-01-01T12:00:00Z\"}"))
+                .isEqualTo("frankfurter:USD:EUR:2024-01-01T12:00:00Z");
+        assertThat(DocumentIds.of("{\"source\":\"frankfurter\",\"base\":\"USD\",\"quote\":\"EUR\",\"window\":\"PT1M\","
+                + "\"start\":\"2024-01-01T12:00:00Z\",\"end\":\"2024-01-01T12:01:00Z\",\"open\":0.85}"))
+                .isEqualTo("frankfurter:USD:EUR:PT1M:2024-01-01T12:00:00Z");
+    }
+
+    @Test
+    void shouldFallBackToContentHash() {
+        // When
+        String first = DocumentIds.of("{\"base\":\"USD\"}");
+        String second = DocumentIds.of("{\"base\":\"USD\"}");
+        String other = DocumentIds.of("{ invalid json }");
+
+        // Then
+        assertThat(first).isEqualTo(second).hasSize(36);
+        assertThat(other).isNotEqualTo(first);
+    }
+}
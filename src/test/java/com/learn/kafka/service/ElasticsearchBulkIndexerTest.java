@@ -0,0 +1,315 @@
+package com.learn.kafka.service;
+
+import com.learn.kafka.payload.RecordPayload;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ElasticsearchBulkIndexerTest {
+
+    @Mock
+    private RestTemplate restTemplate;
+
+    @Mock
+    private ElasticsearchSinkMetrics sinkMetrics;
+
+    @Mock
+    private ElasticsearchIndexManager indexManager;
+
+    @Captor
+    private ArgumentCaptor<HttpEntity<byte[]>> captor;
+
+    @InjectMocks
+    private ElasticsearchBulkIndexer bulkIndexer;
+
+    private final ElasticsearchFlowControl flowControl = new ElasticsearchFlowControl();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(bulkIndexer, "elasticsearchUrl", "http://localhost:9200");
+        ReflectionTestUtils.setField(bulkIndexer, "restTemplate", restTemplate);
+        ReflectionTestUtils.setField(bulkIndexer, "maxRetries", 3);
+        ReflectionTestUtils.setField(bulkIndexer, "retryBackoffMs", 0L);
+        ReflectionTestUtils.setField(bulkIndexer, "flowControl", flowControl);
+    }
+
+    @Test
+    void shouldSendAllDocumentsInOneBulkRequest() {
+        // Given
+        when(restTemplate.exchange(anyString(), eq(HttpMethod.POST), any(HttpEntity.class), eq(String.class)))
+                .thenReturn(new ResponseEntity<>("{\"errors\":false,\"items\":[]}", HttpStatus.OK));
+
+        // When
+        ElasticsearchBulkIndexer.BulkResult result =
+                bulkIndexer.bulkIndex("exchange-rates", documents("{\"base\":\"USD\"}", "{\"base\":\"EUR\"}"));
+
+        // Then
+        assertThat(result.indexed()).isEqualTo(2);
+        assertThat(result.failed()).isZero();
+
+        verify(restTemplate, times(1)).exchange(
+                eq("http://localhost:9200/exchange-rates/_bulk"), eq(HttpMethod.POST), captor.capture(), eq(String.class));
+        assertThat(new String(captor.getValue().getBody(), StandardCharsets.UTF_8))
+                .isEqualTo("{\"index\":{\"_id\":\"" + DocumentIds.of("{\"base\":\"USD\"}") + "\"}}\n{\"base\":\"USD\"}\n"
+                        + "{\"index\":{\"_id\":\"" + DocumentIds.of("{\"base\":\"EUR\"}") + "\"}}\n{\"base\":\"EUR\"}\n");
+        assertThat(captor.getValue().getHeaders().getContentType()).isEqualTo(ElasticsearchBulkIndexer.NDJSON);
+    }
+
+    @Test
+    void shouldRetryOnlyFailedItems() {
+        // Given
+        String partialFailure = """
+                {"errors":true,"items":[
+                  {"index":{"status":201}},
+                  {"index":{"status":429,"error":{"type":"es_rejected_execution_exception"}}},
+                  {"index":{"status":201}}
+                ]}
+                """;
+        when(restTemplate.exchange(anyString(), eq(HttpMethod.POST), any(HttpEntity.class), eq(String.class)))
+                .thenReturn(new ResponseEntity<>(partialFailure, HttpStatus.OK))
+                .thenReturn(new ResponseEntity<>("{\"errors\":false,\"items\":[]}", HttpStatus.OK));
+
+        // When
+        ElasticsearchBulkIndexer.BulkResult result =
+                bulkIndexer.bulkIndex("exchange-rates", documents("{\"n\":1}", "{\"n\":2}", "{\"n\":3}"));
+
+        // Then
+        assertThat(result.indexed()).isEqualTo(3);
+        assertThat(result.failed()).isZero();
+
+        verify(restTemplate, times(2)).exchange(anyString(), eq(HttpMethod.POST), captor.capture(), eq(String.class));
+        assertThat(new String(captor.getAllValues().get(1).getBody(), StandardCharsets.UTF_8))
+                .isEqualTo("{\"index\":{\"_id\":\"" + DocumentIds.of("{\"n\":2}") + "\"}}\n{\"n\":2}\n");
+    }
+
+    @Test
+    void shouldNotRetryRejectedDocuments() {
+        // Given
+        String mappingError = """
+                {"errors":true,"items":[
+                  {"index":{"status":400,"error":{"type":"mapper_parsing_exception"}}},
+                  {"index":{"status":201}}
+                ]}
+                """;
+        when(restTemplate.exchange(anyString(), eq(HttpMethod.POST), any(HttpEntity.class), eq(String.class)))
+                .thenReturn(new ResponseEntity<>(mappingError, HttpStatus.OK));
+
+        // When
+        ElasticsearchBulkIndexer.BulkResult result =
+                bulkIndexer.bulkIndex("exchange-rates", documents("{\"n\":1}", "{\"n\":2}"));
+
+        // Then
+        assertThat(result.indexed()).isEqualTo(1);
+        assertThat(result.failed()).isEqualTo(1);
+        assertThat(result.failedDocuments()).containsExactly(RecordPayload.of("{\"n\":1}"));
+        verify(restTemplate, times(1)).exchange(anyString(), eq(HttpMethod.POST), any(HttpEntity.class), eq(String.class));
+    }
+
+    @Test
+    void shouldGiveUpAfterMaxRetries() {
+        // Given
+        ReflectionTestUtils.setField(bulkIndexer, "maxRetries", 2);
+        String unavailable = "{\"errors\":true,\"items\":[{\"index\":{\"status\":503}}]}";
+        when(restTemplate.exchange(anyString(), eq(HttpMethod.POST), any(HttpEntity.class), eq(String.class)))
+                .thenReturn(new ResponseEntity<>(unavailable, HttpStatus.OK));
+
+        // When
+        ElasticsearchBulkIndexer.BulkResult result = bulkIndexer.bulkIndex("exchange-rates", documents("{}"));
+
+        // Then
+        assertThat(result.indexed()).isZero();
+        assertThat(result.failed()).isEqualTo(1);
+        assertThat(result.failedDocuments()).containsExactly(RecordPayload.of("{}"));
+        verify(restTemplate, times(3)).exchange(anyString(), eq(HttpMethod.POST), any(HttpEntity.class), eq(String.class));
+    }
+
+    @Test
+    void shouldSkipRequestForEmptyBatch() {
+        // When
+        ElasticsearchBulkIndexer.BulkResult result = bulkIndexer.bulkIndex("exchange-rates", List.of());
+
+        // Then
+        assertThat(result.indexed()).isZero();
+        verifyNoInteractions(restTemplate);
+    }
+
+    @Test
+    void shouldCompactMultiLineDocuments() {
+        // Given
+        String prettyDocument = """
+                {
+                    "base": "USD"
+                }
+                """;
+
+        // When
+        String body = new String(bulkIndexer.buildBulkBody(documents(prettyDocument)), StandardCharsets.UTF_8);
+
+        // Then
+        assertThat(body).endsWith("}}\n{\"base\":\"USD\"}\n");
+    }
+
+    @Test
+    void shouldIndexWithDeterministicIds() {
+        // When
+        String body = new String(bulkIndexer.buildBulkBody(documents(
+                "{\"base\":\"USD\",\"quote\":\"EUR\",\"rate\":0.85,\"timestamp\":\"2024-01-01T12:00:00Z\"}")), StandardCharsets.UTF_8);
+
+        // Then
+        assertThat(body).startsWith("{\"index\":{\"_id\":\"USD:EUR:2024-01-01T12:00:00Z\"}}\n");
+    }
+
+    @Test
+    void shouldCopyRecordBytesIntoBodyWithoutDecoding() {
+        // Given : document non ASCII, au milieu du buffer de fetch
+        byte[] document = "{\"base\":\"USD\",\"source\":\"Banque de France – taux\"}".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer fetch = ByteBuffer.allocate(document.length + 16);
+        fetch.position(8);
+        fetch.put(document);
+        fetch.position(8).limit(8 + document.length);
+
+        // When
+        byte[] body = bulkIndexer.buildBulkBody(List.of(RecordPayload.wrap(fetch)));
+
+        // Then
+        assertThat(Arrays.copyOfRange(body, body.length - document.length - 1, body.length - 1)).isEqualTo(document);
+        assertThat(body[body.length - 1]).isEqualTo((byte) '\n');
+    }
+
+    @Test
+    void shouldRecreateMissingIndexAndRetryItsDocuments() {
+        // Given
+        String indexMissing = """
+                {"errors":true,"items":[
+                  {"index":{"status":201}},
+                  {"index":{"status":404,"error":{"type":"index_not_found_exception"}}}
+                ]}
+                """;
+        when(restTemplate.exchange(anyString(), eq(HttpMethod.POST), any(HttpEntity.class), eq(String.class)))
+                .thenReturn(new ResponseEntity<>(indexMissing, HttpStatus.OK))
+                .thenReturn(new ResponseEntity<>("{\"errors\":false,\"items\":[]}", HttpStatus.OK));
+
+        // When
+        ElasticsearchBulkIndexer.BulkResult result =
+                bulkIndexer.bulkIndex("exchange-rates", documents("{\"n\":1}", "{\"n\":2}"));
+
+        // Then : l'index est recréé avant le renvoi, rien ne part au DLT
+        assertThat(result.indexed()).isEqualTo(2);
+        assertThat(result.failedDocuments()).isEmpty();
+        assertThat(result.indexMissing()).isFalse();
+        InOrder inOrder = inOrder(indexManager, restTemplate);
+        inOrder.verify(indexManager).invalidate("exchange-rates");
+        inOrder.verify(indexManager).ensureIndex("exchange-rates");
+        inOrder.verify(restTemplate).exchange(anyString(), eq(HttpMethod.POST), captor.capture(), eq(String.class));
+        assertThat(new String(captor.getValue().getBody(), StandardCharsets.UTF_8))
+                .isEqualTo("{\"index\":{\"_id\":\"" + DocumentIds.of("{\"n\":2}") + "\"}}\n{\"n\":2}\n");
+    }
+
+    @Test
+    void shouldReportMissingIndexWhenRecreationDoesNotHelp() {
+        // Given
+        String indexMissing = "{\"errors\":true,\"items\":[{\"index\":{\"status\":404,"
+                + "\"error\":{\"type\":\"index_not_found_exception\"}}}]}";
+        when(restTemplate.exchange(anyString(), eq(HttpMethod.POST), any(HttpEntity.class), eq(String.class)))
+                .thenReturn(new ResponseEntity<>(indexMissing, HttpStatus.OK));
+
+        // When
+        ElasticsearchBulkIndexer.BulkResult result = bulkIndexer.bulkIndex("exchange-rates", documents("{}"));
+
+        // Then
+        assertThat(result.indexMissing()).isTrue();
+        assertThat(result.failed()).isEqualTo(1);
+        verify(indexManager, times(3)).ensureIndex("exchange-rates");
+        verify(restTemplate, times(4)).exchange(anyString(), eq(HttpMethod.POST), any(HttpEntity.class), eq(String.class));
+    }
+
+    @Test
+    void shouldSplitBatchIntoRequestsOfAdaptiveBulkSize() {
+        // Given
+        ReflectionTestUtils.setField(flowControl, "maxActions", 2);
+        when(restTemplate.exchange(anyString(), eq(HttpMethod.POST), any(HttpEntity.class), eq(String.class)))
+                .thenReturn(new ResponseEntity<>("{\"errors\":false,\"items\":[]}", HttpStatus.OK));
+
+        // When
+        ElasticsearchBulkIndexer.BulkResult result =
+                bulkIndexer.bulkIndex("exchange-rates", documents("{\"n\":1}", "{\"n\":2}", "{\"n\":3}"));
+
+        // Then
+        assertThat(result.indexed()).isEqualTo(3);
+        verify(restTemplate, times(2)).exchange(anyString(), eq(HttpMethod.POST), any(HttpEntity.class), eq(String.class));
+        verify(sinkMetrics).sent(eq("exchange-rates"), eq(2), anyLong());
+        verify(sinkMetrics).sent(eq("exchange-rates"), eq(1), anyLong());
+    }
+
+    @Test
+    void shouldShrinkBulkSizeWhenItemsAreThrottled() {
+        // Given
+        String throttled = "{\"errors\":true,\"items\":[{\"index\":{\"status\":201}},{\"index\":{\"status\":429}}]}";
+        when(restTemplate.exchange(anyString(), eq(HttpMethod.POST), any(HttpEntity.class), eq(String.class)))
+                .thenReturn(new ResponseEntity<>(throttled, HttpStatus.OK))
+                .thenReturn(new ResponseEntity<>("{\"errors\":false,\"items\":[]}", HttpStatus.OK));
+
+        // When
+        bulkIndexer.bulkIndex("exchange-rates", documents("{\"n\":1}", "{\"n\":2}"));
+
+        // Then : 500 / 2 après le 429, puis +50 après la nouvelle tentative réussie
+        assertThat(flowControl.bulkSize()).isEqualTo(300);
+        verify(sinkMetrics).itemsFailed("exchange-rates", 1, 0);
+    }
+
+    @Test
+    void shouldReportFailedRequestAndRethrow() {
+        // Given
+        when(restTemplate.exchange(anyString(), eq(HttpMethod.POST), any(HttpEntity.class), eq(String.class)))
+                .thenThrow(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+
+        // When & Then
+        assertThatThrownBy(() -> bulkIndexer.bulkIndex("exchange-rates", documents("{}")))
+                .isInstanceOf(HttpServerErrorException.class);
+        verify(sinkMetrics).requestFailed(eq("exchange-rates"), anyLong());
+        assertThat(flowControl.bulkSize()).isEqualTo(50);
+    }
+
+    @Test
+    void shouldStopRetryingOnceCircuitIsOpen() {
+        // Given
+        ReflectionTestUtils.setField(flowControl, "failureThreshold", 1);
+        String unavailable = "{\"errors\":true,\"items\":[{\"index\":{\"status\":503}}]}";
+        when(restTemplate.exchange(anyString(), eq(HttpMethod.POST), any(HttpEntity.class), eq(String.class)))
+                .thenReturn(new ResponseEntity<>(unavailable, HttpStatus.OK));
+
+        // When & Then : le batch est relivré au lieu de partir au DLT
+        assertThatThrownBy(() -> bulkIndexer.bulkIndex("exchange-rates", documents("{}")))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(flowControl.isOpen()).isTrue();
+        verify(restTemplate, times(1)).exchange(anyString(), eq(HttpMethod.POST), any(HttpEntity.class), eq(String.class));
+    }
+
+    private static List<RecordPayload> documents(String... documents) {
+        return Arrays.stream(documents).map(RecordPayload::of).toList();
+    }
+}
@@ -0,0 +1,194 @@
+package com.learn.kafka.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ElasticsearchFlowControlTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.SECONDS.toNanos(5);
+
+    @Mock
+    private KafkaListenerEndpointRegistry listenerRegistry;
+
+    @Mock
+    private MessageListenerContainer bulkSink;
+
+    @Mock
+    private MessageListenerContainer otherListener;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private ElasticsearchFlowControl flowControl;
+
+    @BeforeEach
+    void setUp() {
+        flowControl = new ElasticsearchFlowControl();
+        ReflectionTestUtils.setField(flowControl, "listenerRegistry", listenerRegistry);
+        ReflectionTestUtils.setField(flowControl, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(flowControl, "failureThreshold", 3);
+        ReflectionTestUtils.setField(flowControl, "openMs", 0L);
+        flowControl.registerMeters();
+    }
+
+    @Test
+    void shouldGrowBulkSizeAdditivelyAndShrinkItMultiplicatively() {
+        // Given
+        ReflectionTestUtils.setField(flowControl, "maxActions", 1000);
+        ReflectionTestUtils.setField(flowControl, "bulkSize", 400);
+
+        // When & Then
+        flowControl.onResponse(FAST, 400, 0);
+        assertThat(flowControl.bulkSize()).isEqualTo(450);
+
+        flowControl.onResponse(SLOW, 450, 0);
+        assertThat(flowControl.bulkSize()).isEqualTo(225);
+
+        flowControl.onResponse(FAST, 225, 1);
+        assertThat(flowControl.bulkSize()).isEqualTo(112);
+        assertThat(meterRegistry.get("elasticsearch.sink.bulk.limit").gauge().value()).isEqualTo(112);
+    }
+
+    @Test
+    void shouldKeepBulkSizeWithinBounds() {
+        // When
+        for (int i = 0; i < 20; i++) {
+            flowControl.onResponse(SLOW, 10, 0);
+        }
+
+        // Then
+        assertThat(flowControl.bulkSize()).isEqualTo(50);
+
+        for (int i = 0; i < 20; i++) {
+            flowControl.onResponse(FAST, 10, 0);
+        }
+        assertThat(flowControl.bulkSize()).isEqualTo(500);
+    }
+
+    @Test
+    void shouldOpenCircuitAndPauseSinkContainersAfterConsecutiveFailures() {
+        // Given
+        when(listenerRegistry.getListenerContainers()).thenReturn(List.of(bulkSink, otherListener));
+        when(bulkSink.getListenerId()).thenReturn("elasticsearch-bulk-sink");
+        when(bulkSink.isRunning()).thenReturn(true);
+        when(otherListener.getListenerId()).thenReturn("latest-rates-cache");
+
+        // When
+        flowControl.onFailure();
+        flowControl.onFailure();
+        assertThat(flowControl.state()).isEqualTo(ElasticsearchFlowControl.State.CLOSED);
+        flowControl.onFailure();
+
+        // Then
+        assertThat(flowControl.isOpen()).isTrue();
+        assertThat(flowControl.bulkSize()).isEqualTo(50);
+        verify(bulkSink).pause();
+        verify(otherListener, never()).pause();
+        assertThat(meterRegistry.get("elasticsearch.sink.circuit.state").gauge().value()).isEqualTo(2);
+        assertThat(meterRegistry.get("elasticsearch.sink.circuit.transitions")
+                .tags("from", "CLOSED", "to", "OPEN").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldResetFailureCountAfterSuccess() {
+        // When
+        flowControl.onFailure();
+        flowControl.onFailure();
+        flowControl.onResponse(FAST, 10, 0);
+        flowControl.onFailure();
+        flowControl.onFailure();
+
+        // Then
+        assertThat(flowControl.state()).isEqualTo(ElasticsearchFlowControl.State.CLOSED);
+        verifyNoInteractions(listenerRegistry);
+    }
+
+    @Test
+    void shouldResumeInHalfOpenThenCloseOnSuccessfulProbe() {
+        // Given
+        openCircuitWithBulkSinkPaused();
+        when(listenerRegistry.getListenerContainer("elasticsearch-bulk-sink")).thenReturn(bulkSink);
+
+        // When
+        flowControl.checkRecovery();
+
+        // Then
+        assertThat(flowControl.state()).isEqualTo(ElasticsearchFlowControl.State.HALF_OPEN);
+        verify(bulkSink).resume();
+
+        flowControl.onResponse(FAST, 50, 0);
+        assertThat(flowControl.state()).isEqualTo(ElasticsearchFlowControl.State.CLOSED);
+        assertThat(meterRegistry.get("elasticsearch.sink.circuit.transitions")
+                .tags("from", "HALF_OPEN", "to", "CLOSED").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldReopenForLongerWhenProbeFails() {
+        // Given
+        ReflectionTestUtils.setField(flowControl, "openMs", 60_000L);
+        openCircuitWithBulkSinkPaused();
+        ReflectionTestUtils.setField(flowControl, "openedAt", 0L);
+        when(listenerRegistry.getListenerContainer("elasticsearch-bulk-sink")).thenReturn(bulkSink);
+        flowControl.checkRecovery();
+
+        // When : la moitié des documents encore en 503
+        flowControl.onResponse(FAST, 2, 1);
+
+        // Then
+        assertThat(flowControl.isOpen()).isTrue();
+        assertThat(ReflectionTestUtils.getField(flowControl, "openDurationMs")).isEqualTo(120_000L);
+        verify(bulkSink, times(2)).pause();
+    }
+
+    @Test
+    void shouldStayOpenUntilOpenDurationElapses() {
+        // Given
+        ReflectionTestUtils.setField(flowControl, "openMs", 60_000L);
+        openCircuitWithBulkSinkPaused();
+
+        // When
+        flowControl.checkRecovery();
+
+        // Then
+        assertThat(flowControl.isOpen()).isTrue();
+        verify(bulkSink, never()).resume();
+    }
+
+    @Test
+    void shouldTreatOnlyUnavailabilityAsOverload() {
+        assertThat(ElasticsearchFlowControl.signalsOverload(new HttpServerErrorException(HttpStatus.BAD_GATEWAY))).isTrue();
+        assertThat(ElasticsearchFlowControl.signalsOverload(
+                HttpClientErrorException.create(HttpStatus.TOO_MANY_REQUESTS, "", null, null, null))).isTrue();
+        assertThat(ElasticsearchFlowControl.signalsOverload(new ResourceAccessException("timeout"))).isTrue();
+        assertThat(ElasticsearchFlowControl.signalsOverload(
+                HttpClientErrorException.create(HttpStatus.BAD_REQUEST, "", null, null, null))).isFalse();
+    }
+
+    private void openCircuitWithBulkSinkPaused() {
+        when(listenerRegistry.getListenerContainers()).thenReturn(List.of(bulkSink));
+        when(bulkSink.getListenerId()).thenReturn("elasticsearch-bulk-sink");
+        when(bulkSink.isRunning()).thenReturn(true);
+        for (int i = 0; i < 3; i++) {
+            flowControl.onFailure();
+        }
+        assertThat(flowControl.isOpen()).isTrue();
+    }
+}
@@ -0,0 +1,280 @@
+package com.learn.kafka.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ElasticsearchIndexManagerTest {
+
+    private static final String TEMPLATE_URL = "http://localhost:9200/_index_template/exchange-rates";
+    private static final String INDEX_URL = "http://localhost:9200/exchange-rates";
+
+    @Mock
+    private RestTemplate restTemplate;
+
+    @InjectMocks
+    private ElasticsearchIndexManager indexManager;
+
+    private ListAppender<ILoggingEvent> listAppender;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(indexManager, "elasticsearchUrl", "http://localhost:9200");
+        ReflectionTestUtils.setField(indexManager, "restTemplate", restTemplate);
+
+        Logger logger = (Logger) LoggerFactory.getLogger(ElasticsearchIndexManager.class);
+        listAppender = new ListAppender<>();
+        listAppender.start();
+        logger.addAppender(listAppender);
+    }
+
+    @Test
+    void shouldInstallTemplateAndCreateIndexWhenMissing() {
+        // Given
+        when(restTemplate.getForEntity(TEMPLATE_URL, String.class)).thenThrow(notFound());
+        when(restTemplate.headForHeaders(INDEX_URL)).thenThrow(notFound());
+        when(restTemplate.exchange(anyString(), eq(HttpMethod.PUT), any(HttpEntity.class), eq(String.class)))
+                .thenReturn(new ResponseEntity<>(HttpStatus.OK));
+
+        // When
+        indexManager.ensureIndex();
+
+        // Then
+        verify(restTemplate).exchange(
+                eq(TEMPLATE_URL),
+                eq(HttpMethod.PUT),
+                argThat(entity -> ((String) entity.getBody()).contains("\"version\":3")),
+                eq(String.class));
+        verify(restTemplate).exchange(eq(INDEX_URL), eq(HttpMethod.PUT), any(HttpEntity.class), eq(String.class));
+        assertThat(indexManager.isIndexReady()).isTrue();
+        assertThat(listAppender.list.stream()
+                .anyMatch(event -> event.getFormattedMessage().contains("Created Elasticsearch index")))
+                .isTrue();
+    }
+
+    @Test
+    void shouldSkipTemplateWhenInstalledVersionIsCurrent() {
+        // Given
+        String installed = "{\"index_templates\":[{\"name\":\"exchange-rates\",\"index_template\":{\"version\":3}}]}";
+        when(restTemplate.getForEntity(TEMPLATE_URL, String.class)).thenReturn(new ResponseEntity<>(installed, HttpStatus.OK));
+        when(restTemplate.headForHeaders(INDEX_URL)).thenReturn(new HttpHeaders());
+
+        // When
+        indexManager.ensureIndex();
+
+        // Then
+        verify(restTemplate, never()).exchange(anyString(), any(HttpMethod.class), any(HttpEntity.class), eq(String.class));
+        assertThat(indexManager.isIndexReady()).isTrue();
+    }
+
+    @Test
+    void shouldUpgradeOlderInstalledTemplate() {
+        // Given
+        String installed = "{\"index_templates\":[{\"index_template\":{\"version\":1}}]}";
+        when(restTemplate.getForEntity(TEMPLATE_URL, String.class)).thenReturn(new ResponseEntity<>(installed, HttpStatus.OK));
+        when(restTemplate.headForHeaders(INDEX_URL)).thenReturn(new HttpHeaders());
+        when(restTemplate.exchange(anyString(), eq(HttpMethod.PUT), any(HttpEntity.class), eq(String.class)))
+                .thenReturn(new ResponseEntity<>(HttpStatus.OK));
+
+        // When
+        indexManager.ensureIndex();
+
+        // Then
+        verify(restTemplate).exchange(
+                eq(TEMPLATE_URL),
+                eq(HttpMethod.PUT),
+                argThat(entity -> ((String) entity.getBody()).contains("\"version\":3")),
+                eq(String.class));
+    }
+
+    @Test
+    void shouldApplyNewMappingsToExistingIndexBeforeUpgradingTemplate() {
+        // Given : index créé avec une version précédente du template
+        String installed = "{\"index_templates\":[{\"index_template\":{\"version\":1}}]}";
+        when(restTemplate.getForEntity(TEMPLATE_URL, String.class)).thenReturn(new ResponseEntity<>(installed, HttpStatus.OK));
+        when(restTemplate.headForHeaders(INDEX_URL)).thenReturn(new HttpHeaders());
+
+        // When
+        indexManager.ensureIndex();
+
+        // Then
+        InOrder inOrder = inOrder(restTemplate);
+        inOrder.verify(restTemplate).exchange(
+                eq(INDEX_URL + "/_mapping"),
+                eq(HttpMethod.PUT),
+                argThat(entity -> ((String) entity.getBody()).startsWith("{\"properties\":{")
+                        && ((String) entity.getBody()).contains("\"source\":{\"type\":\"keyword\"}")),
+                eq(String.class));
+        inOrder.verify(restTemplate).exchange(eq(TEMPLATE_URL), eq(HttpMethod.PUT), any(HttpEntity.class), eq(String.class));
+        assertThat(indexManager.isIndexReady()).isTrue();
+    }
+
+    @Test
+    void shouldRetryTemplateUpgradeWhenExistingMappingCannotBeUpdated() {
+        // Given
+        String installed = "{\"index_templates\":[{\"index_template\":{\"version\":1}}]}";
+        when(restTemplate.getForEntity(TEMPLATE_URL, String.class)).thenReturn(new ResponseEntity<>(installed, HttpStatus.OK));
+        when(restTemplate.headForHeaders(INDEX_URL)).thenReturn(new HttpHeaders());
+        when(restTemplate.exchange(eq(INDEX_URL + "/_mapping"), eq(HttpMethod.PUT), any(HttpEntity.class), eq(String.class)))
+                .thenThrow(new HttpClientErrorException(HttpStatus.BAD_REQUEST, "illegal_argument_exception"));
+
+        // When
+        indexManager.ensureIndex();
+
+        // Then : le template n'est pas monté de version, la mise à jour sera retentée
+        verify(restTemplate, never()).exchange(eq(TEMPLATE_URL), eq(HttpMethod.PUT), any(HttpEntity.class), eq(String.class));
+        assertThat(indexManager.isIndexReady()).isFalse();
+    }
+
+    @Test
+    void shouldCheckIndexOnlyOnce() {
+        // Given
+        String installed = "{\"index_templates\":[{\"index_template\":{\"version\":3}}]}";
+        when(restTemplate.getForEntity(TEMPLATE_URL, String.class)).thenReturn(new ResponseEntity<>(installed, HttpStatus.OK));
+        when(restTemplate.headForHeaders(INDEX_URL)).thenReturn(new HttpHeaders());
+
+        // When
+        indexManager.ensureIndex();
+        indexManager.ensureIndex();
+        indexManager.ensureIndex();
+
+        // Then
+        verify(restTemplate, times(1)).getForEntity(TEMPLATE_URL, String.class);
+        verify(restTemplate, times(1)).headForHeaders(INDEX_URL);
+    }
+
+    @Test
+    void shouldCheckIndexAgainAfterInvalidation() {
+        // Given
+        String installed = "{\"index_templates\":[{\"index_template\":{\"version\":3}}]}";
+        when(restTemplate.getForEntity(TEMPLATE_URL, String.class)).thenReturn(new ResponseEntity<>(installed, HttpStatus.OK));
+        when(restTemplate.headForHeaders(INDEX_URL)).thenReturn(new HttpHeaders());
+        indexManager.ensureIndex();
+
+        // When
+        indexManager.invalidate();
+        indexManager.ensureIndex();
+
+        // Then
+        verify(restTemplate, times(2)).headForHeaders(INDEX_URL);
+        assertThat(indexManager.isIndexReady()).isTrue();
+    }
+
+    @Test
+    void shouldTolerateIndexCreatedConcurrently() {
+        // Given
+        when(restTemplate.getForEntity(TEMPLATE_URL, String.class)).thenThrow(notFound());
+        when(restTemplate.headForHeaders(INDEX_URL)).thenThrow(notFound());
+        when(restTemplate.exchange(eq(TEMPLATE_URL), eq(HttpMethod.PUT), any(HttpEntity.class), eq(String.class)))
+                .thenReturn(new ResponseEntity<>(HttpStatus.OK));
+        when(restTemplate.exchange(eq(INDEX_URL), eq(HttpMethod.PUT), any(HttpEntity.class), eq(String.class)))
+                .thenThrow(HttpClientErrorException.create(HttpStatus.BAD_REQUEST, "Bad Request", null,
+                        "{\"error\":{\"type\":\"resource_already_exists_exception\"}}".getBytes(), null));
+
+        // When
+        indexManager.ensureIndex();
+
+        // Then
+        assertThat(indexManager.isIndexReady()).isTrue();
+    }
+
+    @Test
+    void shouldStayNotReadyWhenElasticsearchIsUnavailable() {
+        // Given
+        when(restTemplate.getForEntity(TEMPLATE_URL, String.class)).thenThrow(new RestClientException("Connection refused"));
+
+        // When
+        indexManager.ensureIndex();
+
+        // Then
+        assertThat(indexManager.isIndexReady()).isFalse();
+        assertThat(listAppender.list.stream()
+                .anyMatch(event -> event.getLevel() == Level.WARN &&
+                        event.getFormattedMessage().contains("Could not create/check Elasticsearch index")))
+                .isTrue();
+    }
+
+    @Test
+    void shouldCreateIndexOnceWhenThreadsStartTogether() throws Exception {
+        // Given
+        String installed = "{\"index_templates\":[{\"index_template\":{\"version\":3}}]}";
+        when(restTemplate.getForEntity(TEMPLATE_URL, String.class)).thenReturn(new ResponseEntity<>(installed, HttpStatus.OK));
+        when(restTemplate.headForHeaders(INDEX_URL)).thenReturn(new HttpHeaders());
+
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        // When
+        for (int i = 0; i < threads; i++) {
+            executor.submit(() -> {
+                start.await();
+                indexManager.ensureIndex();
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+
+        // Then
+        verify(restTemplate, times(1)).headForHeaders(INDEX_URL);
+    }
+
+    @Test
+    void shouldManagePairsIndexWithItsOwnTemplateAndState() {
+        // Given
+        String pairsTemplateUrl = "http://localhost:9200/_index_template/exchange-rate-pairs";
+        String pairsIndexUrl = "http://localhost:9200/exchange-rate-pairs";
+        when(restTemplate.getForEntity(pairsTemplateUrl, String.class)).thenThrow(notFound());
+        when(restTemplate.headForHeaders(pairsIndexUrl)).thenThrow(notFound());
+        when(restTemplate.exchange(anyString(), eq(HttpMethod.PUT), any(HttpEntity.class), eq(String.class)))
+                .thenReturn(new ResponseEntity<>(HttpStatus.OK));
+
+        // When
+        indexManager.ensureIndex("exchange-rate-pairs");
+
+        // Then
+        verify(restTemplate).exchange(
+                eq(pairsTemplateUrl),
+                eq(HttpMethod.PUT),
+                argThat(entity -> ((String) entity.getBody()).contains("\"sort.field\"")),
+                eq(String.class));
+        verify(restTemplate).exchange(eq(pairsIndexUrl), eq(HttpMethod.PUT), any(HttpEntity.class), eq(String.class));
+        assertThat(indexManager.isIndexReady("exchange-rate-pairs")).isTrue();
+        assertThat(indexManager.isIndexReady()).isFalse();
+    }
+
+    private static HttpClientErrorException notFound() {
+        return HttpClientErrorException.create(HttpStatus.NOT_FOUND, "Not Found", null, null, null);
+    }
+}
@@ -0,0 +1,112 @@
+package com.learn.kafka.service;
+
+import com.learn.kafka.payload.RecordPayload;
+import com.learn.kafka.support.StubElasticsearchServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compare le débit (docs/s) du chemin un-PUT-par-record et du chemin _bulk
+ * contre un serveur Elasticsearch simulé. Exécuté uniquement avec {@code mvn -Pbenchmark test}.
+ */
+class ElasticsearchIndexingBenchmark {
+
+    private static final int DOCUMENTS = Integer.getInteger("benchmark.documents", 5_000);
+    private static final int BATCH_SIZE = Integer.getInteger("benchmark.batch-size", 500);
+    private static final RecordPayload DOCUMENT = RecordPayload.of(
+            "{\"base\":\"USD\",\"date\":\"2024-01-01\",\"timestamp\":\"2024-01-01T12:00:00Z\","
+                    + "\"rates\":{\"EUR\":0.85,\"GBP\":0.75,\"JPY\":110.0,\"CAD\":1.25}}");
+
+    private static StubElasticsearchServer stubServer;
+
+    private ElasticsearchService elasticsearchService;
+
+    @BeforeAll
+    static void startServer() throws Exception {
+        stubServer = new StubElasticsearchServer();
+    }
+
+    @AfterAll
+    static void stopServer() {
+        stubServer.close();
+    }
+
+    @Test
+    void compareRecordAndBulkIndexingThroughput() {
+        elasticsearchService = newService();
+
+        // Préchauffage
+        runRecordPath(BATCH_SIZE);
+        runBulkPath(BATCH_SIZE);
+
+        stubServer.reset();
+        double recordRate = runRecordPath(DOCUMENTS);
+        long recordRequests = stubServer.requests();
+
+        stubServer.reset();
+        double bulkRate = runBulkPath(DOCUMENTS);
+        long bulkRequests = stubServer.requests();
+
+        System.out.printf("record path : %,.0f docs/s (%d HTTP requests)%n", recordRate, recordRequests);
+        System.out.printf("bulk path   : %,.0f docs/s (%d HTTP requests, batch=%d)%n", bulkRate, bulkRequests, BATCH_SIZE);
+
+        assertThat(stubServer.indexedDocuments()).isEqualTo(DOCUMENTS);
+    }
+
+    private double runRecordPath(int documents) {
+        long start = System.nanoTime();
+        for (int i = 0; i < documents; i++) {
+            elasticsearchService.consumeAndStoreInElasticsearch(DOCUMENT, System.currentTimeMillis());
+        }
+        return documents / ((System.nanoTime() - start) / 1e9);
+    }
+
+    private double runBulkPath(int documents) {
+        List<RecordPayload> batch = new ArrayList<>(BATCH_SIZE);
+        long start = System.nanoTime();
+        for (int i = 0; i < documents; i++) {
+            batch.add(DOCUMENT);
+            if (batch.size() == BATCH_SIZE || i == documents - 1) {
+                elasticsearchService.consumeBatchAndStoreInElasticsearch(batch, List.of(), () -> {
+                });
+                batch = new ArrayList<>(BATCH_SIZE);
+            }
+        }
+        return documents / ((System.nanoTime() - start) / 1e9);
+    }
+
+    private static ElasticsearchService newService() {
+        RestTemplate restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory());
+        ElasticsearchFlowControl flowControl = new ElasticsearchFlowControl();
+        ElasticsearchSinkMetrics sinkMetrics = new ElasticsearchSinkMetrics();
+
+        ElasticsearchBulkIndexer bulkIndexer = new ElasticsearchBulkIndexer();
+        ReflectionTestUtils.setField(bulkIndexer, "elasticsearchUrl", stubServer.url());
+        ReflectionTestUtils.setField(bulkIndexer, "restTemplate", restTemplate);
+        ReflectionTestUtils.setField(bulkIndexer, "maxRetries", 3);
+        ReflectionTestUtils.setField(bulkIndexer, "flowControl", flowControl);
+        ReflectionTestUtils.setField(bulkIndexer, "sinkMetrics", sinkMetrics);
+
+        ElasticsearchIndexManager indexManager = new ElasticsearchIndexManager();
+        ReflectionTestUtils.setField(indexManager, "elasticsearchUrl", stubServer.url());
+        ReflectionTestUtils.setField(indexManager, "restTemplate", restTemplate);
+
+        ElasticsearchService service = new ElasticsearchService();
+        ReflectionTestUtils.setField(service, "elasticsearchUrl", stubServer.url());
+        ReflectionTestUtils.setField(service, "restTemplate", restTemplate);
+        ReflectionTestUtils.setField(service, "bulkIndexer", bulkIndexer);
+        ReflectionTestUtils.setField(service, "indexManager", indexManager);
+        ReflectionTestUtils.setField(service, "flowControl", flowControl);
+        ReflectionTestUtils.setField(service, "sinkMetrics", sinkMetrics);
+        return service;
+    }
+}
@@ -0,0 +1,180 @@
+package com.learn.kafka.service;
+
+import com.learn.kafka.KafkaTopicConfig;
+import com.learn.kafka.consumer.KafkaConsumerConfig;
+import com.learn.kafka.producer.KafkaProducerConfig;
+import com.learn.kafka.producer.ProducerProfileRouter;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.kafka.annotation.EnableKafka;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.retrytopic.RetryTopicHeaders;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.ContainerTestUtils;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Chaîne de retry du sink unitaire sur un broker embarqué : un échec d'écriture passe par chaque topic de
+ * retry avant {@value ElasticsearchService#DEAD_LETTER_TOPIC}, un document refusé (400) y va directement.
+ */
+@SpringBootTest(classes = {ElasticsearchRetryTopicEmbeddedKafkaTest.KafkaTestConfig.class, KafkaTopicConfig.class,
+        KafkaConsumerConfig.class, KafkaProducerConfig.class, ElasticsearchService.class}, properties = {
+        "kafka.topic.partitions=1",
+        "elasticsearch.retry.initial-interval-ms=100",
+        "elasticsearch.retry.max-interval-ms=400",
+        "elasticsearch.bulk.enabled=false",
+        "rates.ohlc.enabled=false"
+})
+@EmbeddedKafka(partitions = 1, bootstrapServersProperty = "spring.kafka.bootstrap-servers")
+class ElasticsearchRetryTopicEmbeddedKafkaTest {
+
+    private static final String FAILING = "{\"base\":\"USD\",\"timestamp\":\"2024-01-01T00:00:00Z\"}";
+    private static final String REJECTED = "{\"base\":\"EUR\",\"timestamp\":\"2024-01-01T00:00:00Z\"}";
+
+    @Configuration
+    @EnableKafka
+    static class KafkaTestConfig {
+
+        @Bean
+        KafkaAdmin kafkaAdmin(@Value("${spring.kafka.bootstrap-servers}") String bootstrapServers) {
+            return new KafkaAdmin(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers));
+        }
+    }
+
+    @Autowired
+    private EmbeddedKafkaBroker broker;
+
+    @Autowired
+    private KafkaListenerEndpointRegistry registry;
+
+    @MockitoBean
+    private RestTemplate restTemplate;
+
+    @MockitoBean
+    private ElasticsearchBulkIndexer bulkIndexer;
+
+    @MockitoBean
+    private ElasticsearchIndexManager indexManager;
+
+    @MockitoBean
+    private ProducerProfileRouter producerProfileRouter;
+
+    @MockitoBean
+    private ElasticsearchFlowControl flowControl;
+
+    @MockitoBean
+    private ElasticsearchSinkMetrics sinkMetrics;
+
+    @Test
+    void shouldRouteFailuresThroughRetryTopicsToDeadLetterTopic() throws Exception {
+        // Given
+        when(restTemplate.exchange(contains("USD"), eq(HttpMethod.PUT), any(HttpEntity.class), eq(String.class)))
+                .thenThrow(new RestClientException("Storage error"));
+        when(restTemplate.exchange(contains("EUR"), eq(HttpMethod.PUT), any(HttpEntity.class), eq(String.class)))
+                .thenThrow(HttpClientErrorException.create(HttpStatus.BAD_REQUEST, "Bad Request", null, null, null));
+        // Aucun offset committé : les conteneurs partent de la fin, ils doivent être assignés avant l'envoi
+        registry.getListenerContainers().stream()
+                .filter(MessageListenerContainer::isRunning)
+                .forEach(container -> ContainerTestUtils.waitForAssignment(container, 1));
+
+        // When
+        try (Producer<String, String> producer = producer()) {
+            producer.send(new ProducerRecord<>("exchange-rates", "USD", FAILING)).get();
+            producer.send(new ProducerRecord<>("exchange-rates", "EUR", REJECTED)).get();
+        }
+
+        // Then : 4 tentatives (attempts=4) pour l'échec, une seule pour le document refusé
+        verify(restTemplate, timeout(30_000).times(4))
+                .exchange(contains("USD"), eq(HttpMethod.PUT), any(HttpEntity.class), eq(String.class));
+        List<ConsumerRecord<String, String>> deadLetters = read(Pattern.compile(ElasticsearchService.DEAD_LETTER_TOPIC), 2);
+        assertThat(deadLetters).extracting(ConsumerRecord::value).containsExactlyInAnyOrder(FAILING, REJECTED);
+        assertThat(deadLetters).allSatisfy(record ->
+                assertThat(header(record, KafkaHeaders.ORIGINAL_TOPIC)).isEqualTo("exchange-rates"));
+        assertThat(deadLetters).extracting(record -> record.value() + " x" + attempts(record))
+                .containsExactlyInAnyOrder(FAILING + " x4", REJECTED + " x1");
+        verify(restTemplate, timeout(5_000).times(1))
+                .exchange(contains("EUR"), eq(HttpMethod.PUT), any(HttpEntity.class), eq(String.class));
+
+        // Un passage par topic de retry, aucun pour le document refusé
+        List<ConsumerRecord<String, String>> retries = read(Pattern.compile("exchange-rates-es-retry.*"), 3);
+        assertThat(retries).extracting(ConsumerRecord::value).containsOnly(FAILING);
+        assertThat(retries).extracting(ConsumerRecord::topic).doesNotHaveDuplicates().hasSize(3);
+    }
+
+    private List<ConsumerRecord<String, String>> read(Pattern topics, int expected) {
+        Map<String, Object> props = KafkaTestUtils.consumerProps("retry-topic-reader-" + topics, "false", broker);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        List<ConsumerRecord<String, String>> records = new ArrayList<>();
+        try (Consumer<String, String> consumer = new DefaultKafkaConsumerFactory<String, String>(props).createConsumer()) {
+            consumer.subscribe(topics);
+            long deadline = System.currentTimeMillis() + 30_000;
+            while (records.size() < expected && System.currentTimeMillis() < deadline) {
+                consumer.poll(Duration.ofMillis(500)).forEach(records::add);
+            }
+        }
+        return records;
+    }
+
+    private Producer<String, String> producer() {
+        Map<String, Object> props = KafkaTestUtils.producerProps(broker);
+        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        return new KafkaProducer<>(props);
+    }
+
+    // L'en-tête porte le numéro de la tentative suivante, celle que le DLT ne fera pas
+    private static int attempts(ConsumerRecord<?, ?> record) {
+        Header header = record.headers().lastHeader(RetryTopicHeaders.DEFAULT_HEADER_ATTEMPTS);
+        return ByteBuffer.wrap(header.value()).getInt() - 1;
+    }
+
+    private static String header(ConsumerRecord<?, ?> record, String name) {
+        Header header = record.headers().lastHeader(name);
+        return header != null ? new String(header.value(), StandardCharsets.UTF_8) : null;
+    }
+}
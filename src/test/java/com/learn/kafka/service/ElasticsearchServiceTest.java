@@ -1,5 +1,8 @@
 package com.learn.kafka.service;
 
+import com.learn.kafka.payload.RecordPayload;
+import com.learn.kafka.producer.ProducerProfileRouter;
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -10,10 +13,20 @@ import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.KafkaHeaders;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.RestClientException;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.spi.ILoggingEvent;
@@ -21,6 +34,7 @@ import ch.qos.logback.core.read.ListAppender;
 import org.slf4j.LoggerFactory;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
@@ -30,6 +44,27 @@ class ElasticsearchServiceTest {
     @Mock
     private RestTemplate restTemplate;
 
+    @Mock
+    private ElasticsearchBulkIndexer bulkIndexer;
+
+    @Mock
+    private ElasticsearchIndexManager indexManager;
+
+    @Mock
+    private ProducerProfileRouter producerProfileRouter;
+
+    @Mock
+    private KafkaTemplate<String, byte[]> bytesKafkaTemplate;
+
+    @Mock
+    private Acknowledgment acknowledgment;
+
+    @Mock
+    private ElasticsearchFlowControl flowControl;
+
+    @Mock
+    private ElasticsearchSinkMetrics sinkMetrics;
+
     @InjectMocks
     private ElasticsearchService elasticsearchService;
 
@@ -39,6 +74,7 @@ class ElasticsearchServiceTest {
     void setUp() {
         ReflectionTestUtils.setField(elasticsearchService, "elasticsearchUrl", "http://localhost:9200");
         ReflectionTestUtils.setField(elasticsearchService, "restTemplate", restTemplate);
+        ReflectionTestUtils.setField(elasticsearchService, "redeliveryBackoffMs", 5000L);
 
         // Configurer le logger pour capturer les logs
         Logger logger = (Logger) LoggerFactory.getLogger(ElasticsearchService.class);
@@ -50,28 +86,25 @@ class ElasticsearchServiceTest {
     @Test
     void shouldConsumeAndStoreInElasticsearchSuccessfully() {
         // Given
-        String exchangeRateData = """
+        RecordPayload exchangeRateData = RecordPayload.of("""
             {
                 "base": "USD",
                 "rates": {
                     "EUR": 0.85
                 }
             }
-            """;
-
-        // Mock index exists check
-        when(restTemplate.getForEntity(anyString(), eq(String.class)))
-                .thenReturn(new ResponseEntity<>(HttpStatus.OK));
+            """);
 
         // Mock document storage
         when(restTemplate.exchange(anyString(), eq(HttpMethod.PUT), any(HttpEntity.class), eq(String.class)))
                 .thenReturn(new ResponseEntity<>(HttpStatus.CREATED));
 
         // When
-        elasticsearchService.consumeAndStoreInElasticsearch(exchangeRateData);
+        elasticsearchService.consumeAndStoreInElasticsearch(exchangeRateData, System.currentTimeMillis());
 
         // Then
-        verify(restTemplate, times(1)).getForEntity(contains("/exchange-rates"), eq(String.class));
+        verify(indexManager, times(1)).ensureIndex();
+        verify(restTemplate, never()).getForEntity(anyString(), eq(String.class));
         verify(restTemplate, times(1)).exchange(
                 contains("/exchange-rates/_doc/"),
                 eq(HttpMethod.PUT),
@@ -88,84 +121,65 @@ class ElasticsearchServiceTest {
     }
 
     @Test
-    void shouldCreateIndexWhenItDoesNotExist() {
+    void shouldWriteRedeliveredSnapshotToSameDocument() {
         // Given
-        String exchangeRateData = "{}";
-
-        // Mock index doesn't exist
-        when(restTemplate.getForEntity(contains("/exchange-rates"), eq(String.class)))
-                .thenThrow(new RestClientException("Index not found"));
-
-        // Mock index creation and document storage
+        RecordPayload snapshot = RecordPayload.of("{\"base\":\"USD\",\"rates\":{\"EUR\":0.85},\"source\":\"exchangerate-api\","
+                + "\"timestamp\":\"2024-01-01T12:00:00Z\"}");
         when(restTemplate.exchange(anyString(), eq(HttpMethod.PUT), any(HttpEntity.class), eq(String.class)))
                 .thenReturn(new ResponseEntity<>(HttpStatus.OK));
 
-        // When
-        elasticsearchService.consumeAndStoreInElasticsearch(exchangeRateData);
+        // When : même record relivré après un rebalance
+        elasticsearchService.consumeAndStoreInElasticsearch(snapshot, System.currentTimeMillis());
+        elasticsearchService.consumeAndStoreInElasticsearch(snapshot, System.currentTimeMillis());
 
         // Then
         verify(restTemplate, times(2)).exchange(
-                anyString(),
-                eq(HttpMethod.PUT),
-                any(HttpEntity.class),
-                eq(String.class)
-        );
-
-        // Vérifier que l'index a été créé
-        assertThat(listAppender.list.stream()
-                .anyMatch(event -> event.getFormattedMessage().contains("Created Elasticsearch index")))
-                .isTrue();
+                eq("http://localhost:9200/exchange-rates/_doc/exchangerate-api:USD:2024-01-01T12:00:00Z"),
+                eq(HttpMethod.PUT), any(HttpEntity.class), eq(String.class));
     }
 
     @Test
-    void shouldHandleElasticsearchErrorGracefully() {
+    void shouldInvalidateIndexWhenElasticsearchReportsItMissing() {
         // Given
-        String exchangeRateData = "{}";
-
-        when(restTemplate.getForEntity(anyString(), eq(String.class)))
-                .thenThrow(new RestClientException("Elasticsearch error"));
+        RecordPayload exchangeRateData = RecordPayload.of("{}");
 
         when(restTemplate.exchange(anyString(), eq(HttpMethod.PUT), any(HttpEntity.class), eq(String.class)))
-                .thenThrow(new RestClientException("Storage error"));
+                .thenThrow(HttpClientErrorException.create(HttpStatus.NOT_FOUND, "Not Found", null,
+                        "{\"error\":{\"type\":\"index_not_found_exception\"}}".getBytes(), null));
 
-        // When & Then (should not throw exception)
-        elasticsearchService.consumeAndStoreInElasticsearch(exchangeRateData);
+        // When : l'exception remonte au conteneur, la tentative suivante recréera l'index
+        assertThatThrownBy(() -> elasticsearchService.consumeAndStoreInElasticsearch(exchangeRateData, System.currentTimeMillis()))
+                .isInstanceOf(HttpClientErrorException.NotFound.class);
 
-        // Verify error was logged
-        assertThat(listAppender.list.stream()
-                .anyMatch(event -> event.getLevel() == Level.ERROR))
-                .isTrue();
+        // Then
+        verify(indexManager, times(1)).invalidate();
+        verify(sinkMetrics).requestFailed(eq("exchange-rates"), anyLong());
     }
 
     @Test
-    void shouldHandleIndexCreationFailure() {
+    void shouldPropagateStorageErrorToRetryTopics() {
         // Given
-        String exchangeRateData = "{}";
+        RecordPayload exchangeRateData = RecordPayload.of("{}");
 
-        // Index check fails
-        when(restTemplate.getForEntity(contains("/exchange-rates"), eq(String.class)))
-                .thenThrow(new RestClientException("Index not found"));
-
-        // Index creation fails
-        when(restTemplate.exchange(contains("/exchange-rates"), eq(HttpMethod.PUT), any(HttpEntity.class), eq(String.class)))
-                .thenThrow(new RestClientException("Creation failed"));
+        when(restTemplate.exchange(anyString(), eq(HttpMethod.PUT), any(HttpEntity.class), eq(String.class)))
+                .thenThrow(new RestClientException("Storage error"));
 
-        // Document storage should still be attempted and fail
-        when(restTemplate.exchange(contains("/_doc/"), eq(HttpMethod.PUT), any(HttpEntity.class), eq(String.class)))
-                .thenThrow(new RestClientException("Storage failed"));
+        // When & Then : plus d'échec silencieux, le record part sur le topic de retry
+        assertThatThrownBy(() -> elasticsearchService.consumeAndStoreInElasticsearch(exchangeRateData, System.currentTimeMillis()))
+                .isInstanceOf(RestClientException.class)
+                .hasMessage("Storage error");
+    }
 
+    @Test
+    void shouldLogDeadLetters() {
         // When
-        elasticsearchService.consumeAndStoreInElasticsearch(exchangeRateData);
+        elasticsearchService.handleDeadLetter(RecordPayload.of("{\"base\":\"USD\"}"), "exchange-rates-es-dlt", "Storage error");
 
         // Then
-        verify(restTemplate, times(1)).getForEntity(contains("/exchange-rates"), eq(String.class));
-        verify(restTemplate, atLeastOnce()).exchange(anyString(), eq(HttpMethod.PUT), any(HttpEntity.class), eq(String.class));
-
-        // Check warning log for index creation failure
-        assertThat(listAppender.list.stream()
-                .anyMatch(event -> event.getLevel() == Level.WARN &&
-                        event.getFormattedMessage().contains("Could not create/check Elasticsearch index")))
-                .isTrue();
+        assertThat(listAppender.list).anySatisfy(event -> {
+            assertThat(event.getLevel()).isEqualTo(Level.ERROR);
+            assertThat(event.getFormattedMessage()).contains("exchange-rates-es-dlt").contains("Storage error");
+        });
     }
 
     @Test
@@ -174,18 +188,15 @@ class ElasticsearchServiceTest {
         String customUrl = "http://custom-elasticsearch:9200";
         ReflectionTestUtils.setField(elasticsearchService, "elasticsearchUrl", customUrl);
 
-        String exchangeRateData = "{}";
+        RecordPayload exchangeRateData = RecordPayload.of("{}");
 
-        when(restTemplate.getForEntity(anyString(), eq(String.class)))
-                .thenReturn(new ResponseEntity<>(HttpStatus.OK));
         when(restTemplate.exchange(anyString(), eq(HttpMethod.PUT), any(HttpEntity.class), eq(String.class)))
                 .thenReturn(new ResponseEntity<>(HttpStatus.CREATED));
 
         // When
-        elasticsearchService.consumeAndStoreInElasticsearch(exchangeRateData);
+        elasticsearchService.consumeAndStoreInElasticsearch(exchangeRateData, System.currentTimeMillis());
 
         // Then
-        verify(restTemplate).getForEntity(eq(customUrl + "/exchange-rates"), eq(String.class));
         verify(restTemplate).exchange(
                 startsWith(customUrl + "/exchange-rates/_doc/"),
                 eq(HttpMethod.PUT),
@@ -197,7 +208,7 @@ class ElasticsearchServiceTest {
     @Test
     void shouldHandleComplexExchangeRateData() {
         // Given
-        String complexExchangeRateData = """
+        RecordPayload complexExchangeRateData = RecordPayload.of("""
             {
                 "timestamp": "2024-01-01T12:00:00.000Z",
                 "base": "USD",
@@ -209,25 +220,251 @@ class ElasticsearchServiceTest {
                     "CAD": 1.25
                 }
             }
-            """;
+            """);
 
-        when(restTemplate.getForEntity(anyString(), eq(String.class)))
-                .thenReturn(new ResponseEntity<>(HttpStatus.OK));
         when(restTemplate.exchange(anyString(), eq(HttpMethod.PUT), any(HttpEntity.class), eq(String.class)))
                 .thenReturn(new ResponseEntity<>(HttpStatus.CREATED));
 
         // When
-        elasticsearchService.consumeAndStoreInElasticsearch(complexExchangeRateData);
+        elasticsearchService.consumeAndStoreInElasticsearch(complexExchangeRateData, System.currentTimeMillis());
 
         // Then
         verify(restTemplate).exchange(
                 anyString(),
                 eq(HttpMethod.PUT),
                 argThat(httpEntity -> {
-                    String body = (String) httpEntity.getBody();
+                    String body = new String((byte[]) httpEntity.getBody(), StandardCharsets.UTF_8);
                     return body != null && body.contains("EUR") && body.contains("0.85");
                 }),
                 eq(String.class)
         );
     }
+
+    @Test
+    void shouldBulkIndexWholeBatch() {
+        // Given
+        List<RecordPayload> batch = List.of(RecordPayload.of("{\"base\":\"USD\"}"), RecordPayload.of("{\"base\":\"EUR\"}"));
+
+        when(bulkIndexer.bulkIndex("exchange-rates", batch))
+                .thenReturn(new ElasticsearchBulkIndexer.BulkResult(2, 0, false));
+
+        // When
+        elasticsearchService.consumeBatchAndStoreInElasticsearch(batch, List.of(), acknowledgment);
+
+        // Then
+        verify(indexManager, times(1)).ensureIndex();
+        verify(bulkIndexer, times(1)).bulkIndex("exchange-rates", batch);
+        verify(indexManager, never()).invalidate();
+        verify(restTemplate, never()).exchange(contains("/_doc/"), any(HttpMethod.class), any(HttpEntity.class), eq(String.class));
+        verify(acknowledgment).acknowledge();
+        assertThat(listAppender.list.stream()
+                .anyMatch(event -> event.getFormattedMessage().contains("Bulk indexed 2 exchange rate documents")))
+                .isTrue();
+    }
+
+    @Test
+    void shouldRedeliverBatchWithoutCommittingWhenBulkRequestFails() {
+        // Given
+        List<RecordPayload> batch = List.of(RecordPayload.of("{}"));
+
+        when(bulkIndexer.bulkIndex(anyString(), anyList()))
+                .thenThrow(new RestClientException("Bulk error"));
+
+        // When & Then (should not throw exception)
+        elasticsearchService.consumeBatchAndStoreInElasticsearch(batch, List.of(), acknowledgment);
+
+        assertThat(listAppender.list.stream()
+                .anyMatch(event -> event.getLevel() == Level.ERROR))
+                .isTrue();
+        verify(acknowledgment).nack(0, Duration.ofMillis(5000));
+        verify(acknowledgment, never()).acknowledge();
+        verifyNoInteractions(bytesKafkaTemplate);
+    }
+
+    @Test
+    void shouldSendDocumentsStillFailingAfterBulkRetriesToDeadLetterTopic() {
+        // Given
+        List<RecordPayload> batch = List.of(RecordPayload.of("{\"base\":\"USD\"}"), RecordPayload.of("{\"base\":\"EUR\"}"));
+        when(bulkIndexer.bulkIndex("exchange-rates", batch))
+                .thenReturn(new ElasticsearchBulkIndexer.BulkResult(1, 1, false, List.of(RecordPayload.of("{\"base\":\"EUR\"}"))));
+        when(producerProfileRouter.bytesTemplateFor("exchange-rates-es-dlt")).thenReturn(bytesKafkaTemplate);
+        when(bytesKafkaTemplate.send(anyRecord())).thenReturn(CompletableFuture.completedFuture(null));
+
+        // When
+        elasticsearchService.consumeBatchAndStoreInElasticsearch(batch, List.of(), acknowledgment);
+
+        // Then
+        verify(bytesKafkaTemplate, times(1)).send(argThat((ProducerRecord<String, byte[]> record) ->
+                record.topic().equals("exchange-rates-es-dlt")
+                        && new String(record.value(), StandardCharsets.UTF_8).equals("{\"base\":\"EUR\"}")
+                        && new String(record.headers().lastHeader(KafkaHeaders.DLT_EXCEPTION_MESSAGE).value())
+                        .equals("Bulk indexing failed")));
+        verify(acknowledgment).acknowledge();
+    }
+
+    @Test
+    void shouldRedeliverBatchWhenDeadLetterSendFails() {
+        // Given
+        List<RecordPayload> batch = List.of(RecordPayload.of("{\"base\":\"EUR\"}"));
+        when(bulkIndexer.bulkIndex("exchange-rates", batch))
+                .thenReturn(new ElasticsearchBulkIndexer.BulkResult(0, 1, false, batch));
+        when(producerProfileRouter.bytesTemplateFor("exchange-rates-es-dlt")).thenReturn(bytesKafkaTemplate);
+        when(bytesKafkaTemplate.send(anyRecord()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("Broker unavailable")));
+
+        // When
+        elasticsearchService.consumeBatchAndStoreInElasticsearch(batch, List.of(), acknowledgment);
+
+        // Then : rien n'est acquitté tant que les documents ne sont pas au DLT
+        verify(acknowledgment).nack(0, Duration.ofMillis(5000));
+        verify(acknowledgment, never()).acknowledge();
+        verifyNoInteractions(sinkMetrics);
+    }
+
+    @Test
+    void shouldSendFailedPairsAndBarsToTheirOwnDeadLetterTopics() {
+        // Given
+        List<RecordPayload> pairs = List.of(RecordPayload.of("{\"base\":\"USD\",\"quote\":\"EUR\",\"rate\":0.85}"));
+        List<RecordPayload> bars = List.of(RecordPayload.of("{\"base\":\"USD\",\"quote\":\"EUR\",\"window\":\"PT1M\"}"));
+        when(bulkIndexer.bulkIndex("exchange-rate-pairs", pairs))
+                .thenReturn(new ElasticsearchBulkIndexer.BulkResult(0, 1, false, pairs));
+        when(bulkIndexer.bulkIndex("exchange-rate-ohlc", bars))
+                .thenReturn(new ElasticsearchBulkIndexer.BulkResult(0, 1, false, bars));
+        when(producerProfileRouter.bytesTemplateFor(anyString())).thenReturn(bytesKafkaTemplate);
+        when(bytesKafkaTemplate.send(anyRecord())).thenReturn(CompletableFuture.completedFuture(null));
+
+        // When
+        elasticsearchService.consumePairsAndStoreInElasticsearch(pairs, List.of(), acknowledgment);
+        elasticsearchService.consumeOhlcAndStoreInElasticsearch(bars, List.of(), acknowledgment);
+
+        // Then
+        verify(bytesKafkaTemplate).send(argThat((ProducerRecord<String, byte[]> record) ->
+                record.topic().equals("exchange-rate-pairs-es-dlt")));
+        verify(bytesKafkaTemplate).send(argThat((ProducerRecord<String, byte[]> record) ->
+                record.topic().equals("exchange-rate-ohlc-es-dlt")));
+        verify(acknowledgment, times(2)).acknowledge();
+    }
+
+    @Test
+    void shouldInvalidateIndexWhenBulkReportsItMissing() {
+        // Given
+        List<RecordPayload> batch = List.of(RecordPayload.of("{}"));
+        when(bulkIndexer.bulkIndex("exchange-rates", batch))
+                .thenReturn(new ElasticsearchBulkIndexer.BulkResult(0, 1, true));
+
+        // When
+        elasticsearchService.consumeBatchAndStoreInElasticsearch(batch, List.of(), acknowledgment);
+
+        // Then
+        verify(indexManager, times(1)).invalidate();
+    }
+
+    @Test
+    void shouldBulkIndexPairsIntoPairsIndex() {
+        // Given
+        List<RecordPayload> pairs = List.of(RecordPayload.of("{\"base\":\"USD\",\"quote\":\"EUR\",\"rate\":0.85}"));
+        when(bulkIndexer.bulkIndex("exchange-rate-pairs", pairs))
+                .thenReturn(new ElasticsearchBulkIndexer.BulkResult(1, 0, false));
+
+        // When
+        elasticsearchService.consumePairsAndStoreInElasticsearch(pairs, List.of(), acknowledgment);
+
+        // Then
+        verify(indexManager).ensureIndex("exchange-rate-pairs");
+        verify(bulkIndexer).bulkIndex("exchange-rate-pairs", pairs);
+        verify(indexManager, never()).invalidate(anyString());
+    }
+
+    @Test
+    void shouldInvalidatePairsIndexWhenBulkReportsItMissing() {
+        // Given
+        List<RecordPayload> pairs = List.of(RecordPayload.of("{}"));
+        when(bulkIndexer.bulkIndex("exchange-rate-pairs", pairs))
+                .thenReturn(new ElasticsearchBulkIndexer.BulkResult(0, 1, true));
+
+        // When
+        elasticsearchService.consumePairsAndStoreInElasticsearch(pairs, List.of(), acknowledgment);
+
+        // Then
+        verify(indexManager).invalidate("exchange-rate-pairs");
+    }
+
+    @Test
+    void shouldBulkIndexOhlcBarsIntoOhlcIndex() {
+        // Given
+        List<RecordPayload> bars = List.of(RecordPayload.of("{\"base\":\"USD\",\"quote\":\"EUR\",\"window\":\"PT1M\",\"open\":0.85}"));
+        when(bulkIndexer.bulkIndex("exchange-rate-ohlc", bars))
+                .thenReturn(new ElasticsearchBulkIndexer.BulkResult(0, 1, true));
+
+        // When
+        elasticsearchService.consumeOhlcAndStoreInElasticsearch(bars, List.of(), acknowledgment);
+
+        // Then
+        verify(indexManager).ensureIndex("exchange-rate-ohlc");
+        verify(indexManager).invalidate("exchange-rate-ohlc");
+    }
+
+    @Test
+    void shouldReportIndexingLatencyAndEndToEndDelay() {
+        // Given
+        when(restTemplate.exchange(anyString(), eq(HttpMethod.PUT), any(HttpEntity.class), eq(String.class)))
+                .thenReturn(new ResponseEntity<>("{}", HttpStatus.CREATED));
+
+        // When
+        elasticsearchService.consumeAndStoreInElasticsearch(RecordPayload.of("{\"base\":\"USD\"}"), 1_000L);
+
+        // Then
+        verify(sinkMetrics).sent(eq("exchange-rates"), eq(1), anyLong());
+        verify(sinkMetrics).indexed("exchange-rates", 1_000L);
+        verify(flowControl).onResponse(anyLong(), eq(1), eq(0));
+    }
+
+    @Test
+    void shouldReportOverloadToFlowControl() {
+        // Given
+        when(restTemplate.exchange(anyString(), eq(HttpMethod.PUT), any(HttpEntity.class), eq(String.class)))
+                .thenThrow(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+
+        // When & Then
+        assertThatThrownBy(() -> elasticsearchService.consumeAndStoreInElasticsearch(RecordPayload.of("{}"), 1_000L))
+                .isInstanceOf(HttpServerErrorException.class);
+        verify(sinkMetrics).requestFailed(eq("exchange-rates"), anyLong());
+        verify(flowControl).onFailure();
+    }
+
+    @Test
+    void shouldRecordEndToEndDelayOnceBatchIsAcknowledged() {
+        // Given
+        List<RecordPayload> batch = List.of(RecordPayload.of("{\"base\":\"USD\"}"));
+        List<Long> publishedAt = List.of(1_000L);
+        when(bulkIndexer.bulkIndex("exchange-rates", batch))
+                .thenReturn(new ElasticsearchBulkIndexer.BulkResult(1, 0, false));
+
+        // When
+        elasticsearchService.consumeBatchAndStoreInElasticsearch(batch, publishedAt, acknowledgment);
+
+        // Then
+        verify(sinkMetrics).indexed("exchange-rates", publishedAt);
+    }
+
+    @Test
+    void shouldDeferBatchWithoutCallingElasticsearchWhileCircuitIsOpen() {
+        // Given
+        List<RecordPayload> batch = List.of(RecordPayload.of("{}"), RecordPayload.of("{}"));
+        when(flowControl.isOpen()).thenReturn(true);
+
+        // When
+        elasticsearchService.consumeBatchAndStoreInElasticsearch(batch, List.of(), acknowledgment);
+        elasticsearchService.consumePairsAndStoreInElasticsearch(batch, List.of(), acknowledgment);
+
+        // Then
+        verifyNoInteractions(bulkIndexer, indexManager);
+        verify(flowControl, times(2)).deferred(2);
+        verify(acknowledgment, times(2)).nack(0, Duration.ofMillis(5000));
+        verify(acknowledgment, never()).acknowledge();
+    }
+
+    private static ProducerRecord<String, byte[]> anyRecord() {
+        return any();
+    }
 }
\ No newline at end of file
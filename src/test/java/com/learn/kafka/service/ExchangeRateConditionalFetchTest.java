@@ -0,0 +1,79 @@
+package com.learn.kafka.service;
+
+import com.learn.kafka.producer.ProducerProfileRouter;
+import com.learn.kafka.rates.HttpRateProvider;
+import com.learn.kafka.support.StubExchangeRateApiServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Requêtes conditionnelles du poller contre une API simulée locale, avec le vrai client HTTP.
+ */
+@ExtendWith(MockitoExtension.class)
+class ExchangeRateConditionalFetchTest {
+
+    private static final String SNAPSHOT = "{\"base\":\"USD\",\"rates\":{\"EUR\":0.85,\"GBP\":0.75}}";
+
+    @Mock
+    private KafkaTemplate<String, byte[]> kafkaTemplate;
+
+    @Mock
+    private ProducerProfileRouter producerProfileRouter;
+
+    private StubExchangeRateApiServer apiServer;
+    private ExchangeRateService exchangeRateService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        apiServer = new StubExchangeRateApiServer();
+        when(producerProfileRouter.bytesTemplateFor("exchange-rates")).thenReturn(kafkaTemplate);
+        when(kafkaTemplate.send(anyString(), any(), any(byte[].class))).thenReturn(CompletableFuture.completedFuture(null));
+
+        exchangeRateService = new ExchangeRateService();
+        ReflectionTestUtils.setField(exchangeRateService, "providers", List.of(new HttpRateProvider(
+                "stub", apiServer.url(), List.of("USD"), 0, new RestTemplate(new HttpComponentsClientHttpRequestFactory()))));
+        ReflectionTestUtils.setField(exchangeRateService, "producerProfileRouter", producerProfileRouter);
+    }
+
+    @AfterEach
+    void tearDown() {
+        apiServer.close();
+    }
+
+    @Test
+    void shouldPublishOnlyWhenProviderHasNewData() {
+        // Given
+        apiServer.publish(SNAPSHOT, "\"v1\"", "Mon, 01 Jan 2024 00:00:00 GMT");
+
+        // When : deux ticks sans nouvelle donnée, puis une nouvelle version
+        exchangeRateService.fetchAndPublishExchangeRates();
+        exchangeRateService.fetchAndPublishExchangeRates();
+        exchangeRateService.fetchAndPublishExchangeRates();
+        apiServer.publish(SNAPSHOT.replace("0.85", "0.86"), "\"v2\"", "Tue, 02 Jan 2024 00:00:00 GMT");
+        exchangeRateService.fetchAndPublishExchangeRates();
+
+        // Then
+        assertThat(apiServer.ifNoneMatchHeaders()).containsExactly("", "\"v1\"", "\"v1\"", "\"v1\"");
+        assertThat(apiServer.notModifiedResponses()).isEqualTo(2);
+        verify(kafkaTemplate, times(2)).send(eq("exchange-rates"), eq("USD"), any(byte[].class));
+    }
+}
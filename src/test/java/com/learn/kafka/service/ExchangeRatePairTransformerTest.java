@@ -0,0 +1,124 @@
+package com.learn.kafka.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learn.kafka.producer.ProducerProfileRouter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ExchangeRatePairTransformerTest {
+
+    private static final String SNAPSHOT = """
+            {
+                "source": "exchangerate-api",
+                "base": "USD",
+                "date": "2024-01-01",
+                "timestamp": "2024-01-01T12:00:00Z",
+                "rates": {
+                    "USD": 1,
+                    "EUR": 0.85,
+                    "GBP": 0.75
+                }
+            }
+            """;
+
+    @Mock
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    @Mock
+    private ProducerProfileRouter producerProfileRouter;
+
+    @InjectMocks
+    private ExchangeRatePairTransformer transformer;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(producerProfileRouter.templateFor("exchange-rate-pairs")).thenReturn(kafkaTemplate);
+        lenient().when(kafkaTemplate.send(anyString(), anyString(), anyString()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+    }
+
+    @Test
+    void shouldExplodeSnapshotIntoPairs() throws Exception {
+        // When
+        var pairs = transformer.toPairs(objectMapper.readTree(SNAPSHOT));
+
+        // Then
+        assertThat(pairs).containsExactly(
+                new ExchangeRatePair("exchangerate-api", "USD", "EUR", 0.85, "2024-01-01T12:00:00Z"),
+                new ExchangeRatePair("exchangerate-api", "USD", "GBP", 0.75, "2024-01-01T12:00:00Z"));
+    }
+
+    @Test
+    void shouldPublishOneCompactRecordPerPairKeyedByPair() throws Exception {
+        // When
+        transformer.explodeSnapshot(SNAPSHOT);
+
+        // Then
+        verify(kafkaTemplate).send("exchange-rate-pairs", "USDEUR",
+                "{\"source\":\"exchangerate-api\",\"base\":\"USD\",\"quote\":\"EUR\",\"rate\":0.85,\"timestamp\":\"2024-01-01T12:00:00Z\"}");
+        verify(kafkaTemplate).send("exchange-rate-pairs", "USDGBP",
+                "{\"source\":\"exchangerate-api\",\"base\":\"USD\",\"quote\":\"GBP\",\"rate\":0.75,\"timestamp\":\"2024-01-01T12:00:00Z\"}");
+        verify(kafkaTemplate, times(2)).send(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void shouldFailSnapshotWhenAPairCannotBePublished() {
+        // Given
+        when(kafkaTemplate.send("exchange-rate-pairs", "USDGBP",
+                "{\"source\":\"exchangerate-api\",\"base\":\"USD\",\"quote\":\"GBP\",\"rate\":0.75,\"timestamp\":\"2024-01-01T12:00:00Z\"}"))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("Broker unavailable")));
+
+        // When & Then : l'erreur remonte au conteneur, qui relivrera le snapshot
+        assertThatThrownBy(() -> transformer.explodeSnapshot(SNAPSHOT))
+                .isInstanceOf(ExecutionException.class)
+                .hasRootCauseMessage("Broker unavailable");
+    }
+
+    @Test
+    void shouldIgnoreSnapshotWithoutRates() throws Exception {
+        // When
+        transformer.explodeSnapshot("{\"base\":\"USD\"}");
+
+        // Then
+        verify(kafkaTemplate, never()).send(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void shouldSkipNonNumericRates() throws Exception {
+        // When
+        var pairs = transformer.toPairs(objectMapper.readTree(
+                "{\"base\":\"USD\",\"rates\":{\"EUR\":\"n/a\",\"JPY\":110.5}}"));
+
+        // Then
+        assertThat(pairs).extracting(ExchangeRatePair::quote).containsExactly("JPY");
+    }
+
+    @Test
+    void shouldNotThrowOnMalformedSnapshot() throws Exception {
+        // When
+        transformer.explodeSnapshot("{ invalid json }");
+
+        // Then
+        verify(kafkaTemplate, never()).send(anyString(), anyString(), anyString());
+    }
+}
@@ -1,16 +1,30 @@
 package com.learn.kafka.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learn.kafka.producer.ProducerProfileRouter;
+import com.learn.kafka.rates.HttpRateProvider;
+import com.learn.kafka.support.StubRateProvider;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResponseExtractor;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.client.RestClientException;
 
@@ -20,37 +34,57 @@ import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.core.read.ListAppender;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class ExchangeRateServiceTest {
 
     @Mock
-    private KafkaTemplate<String, String> kafkaTemplate;
+    private KafkaTemplate<String, byte[]> kafkaTemplate;
 
     @Mock
     private RestTemplate restTemplate;
 
+    @Mock
+    private ProducerProfileRouter producerProfileRouter;
+
     @InjectMocks
     private ExchangeRateService exchangeRateService;
 
     private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<HttpHeaders> sentRequests = new ArrayList<>();
     private ListAppender<ILoggingEvent> listAppender;
 
     @BeforeEach
     void setUp() {
-        ReflectionTestUtils.setField(exchangeRateService, "restTemplate", restTemplate);
-        ReflectionTestUtils.setField(exchangeRateService, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(exchangeRateService, "providers", List.of(new HttpRateProvider(
+                "exchangerate-api", "https://api.exchangerate-api.com/v4/latest/{base}", List.of("USD"), 0, restTemplate)));
+        lenient().when(producerProfileRouter.bytesTemplateFor("exchange-rates")).thenReturn(kafkaTemplate);
+        lenient().when(kafkaTemplate.send(anyString(), any(), any(byte[].class)))
+                .thenReturn(CompletableFuture.completedFuture(null));
 
         // Configurer le logger pour capturer les logs
-        Logger logger = (Logger) LoggerFactory.getLogger(ExchangeRateService.class);
         listAppender = new ListAppender<>();
         listAppender.start();
-        logger.addAppender(listAppender);
+        ((Logger) LoggerFactory.getLogger(ExchangeRateService.class)).addAppender(listAppender);
+        ((Logger) LoggerFactory.getLogger(HttpRateProvider.class)).addAppender(listAppender);
     }
 
     @Test
@@ -68,14 +102,14 @@ class ExchangeRateServiceTest {
             """;
 
         ResponseEntity<String> responseEntity = new ResponseEntity<>(mockApiResponse, HttpStatus.OK);
-        when(restTemplate.getForEntity(anyString(), eq(String.class))).thenReturn(responseEntity);
+        givenResponses(responseEntity);
 
         // When
         exchangeRateService.fetchAndPublishExchangeRates();
 
         // Then
-        verify(restTemplate, times(1)).getForEntity(anyString(), eq(String.class));
-        verify(kafkaTemplate, times(1)).send(eq("exchange-rates"), any(String.class));
+        verify(restTemplate, times(1)).execute(anyString(), eq(HttpMethod.GET), any(RequestCallback.class), anyExtractor());
+        verify(kafkaTemplate, times(1)).send(eq("exchange-rates"), eq("USD"), any(byte[].class));
 
         // Vérifier les logs
         assertThat(listAppender.list).hasSize(2);
@@ -88,15 +122,15 @@ class ExchangeRateServiceTest {
     @Test
     void shouldHandleApiErrorGracefully() {
         // Given
-        when(restTemplate.getForEntity(anyString(), eq(String.class)))
+        when(restTemplate.execute(anyString(), eq(HttpMethod.GET), any(RequestCallback.class), anyExtractor()))
                 .thenThrow(new RestClientException("API Error"));
 
         // When
         exchangeRateService.fetchAndPublishExchangeRates();
 
         // Then
-        verify(restTemplate, times(1)).getForEntity(anyString(), eq(String.class));
-        verify(kafkaTemplate, never()).send(anyString(), anyString());
+        verify(restTemplate, times(1)).execute(anyString(), eq(HttpMethod.GET), any(RequestCallback.class), anyExtractor());
+        verify(kafkaTemplate, never()).send(anyString(), any(), any(byte[].class));
 
         // Vérifier le log d'erreur
         assertThat(listAppender.list.stream()
@@ -108,14 +142,14 @@ class ExchangeRateServiceTest {
     void shouldNotPublishWhenApiResponseIsNotSuccessful() {
         // Given
         ResponseEntity<String> responseEntity = new ResponseEntity<>("Error", HttpStatus.INTERNAL_SERVER_ERROR);
-        when(restTemplate.getForEntity(anyString(), eq(String.class))).thenReturn(responseEntity);
+        givenResponses(responseEntity);
 
         // When
         exchangeRateService.fetchAndPublishExchangeRates();
 
         // Then
-        verify(restTemplate, times(1)).getForEntity(anyString(), eq(String.class));
-        verify(kafkaTemplate, never()).send(anyString(), anyString());
+        verify(restTemplate, times(1)).execute(anyString(), eq(HttpMethod.GET), any(RequestCallback.class), anyExtractor());
+        verify(kafkaTemplate, never()).send(anyString(), any(), any(byte[].class));
 
         // Vérifier qu'il n'y a que le log de fetch, pas de publication
         assertThat(listAppender.list).hasSize(1);
@@ -137,13 +171,13 @@ class ExchangeRateServiceTest {
             """;
 
         ResponseEntity<String> responseEntity = new ResponseEntity<>(mockApiResponse, HttpStatus.OK);
-        when(restTemplate.getForEntity(anyString(), eq(String.class))).thenReturn(responseEntity);
+        givenResponses(responseEntity);
 
         // When
         exchangeRateService.fetchAndPublishExchangeRates();
 
         // Then
-        verify(kafkaTemplate).send(eq("exchange-rates"), argThat(jsonData -> {
+        verify(kafkaTemplate).send(eq("exchange-rates"), eq("USD"), argThat(jsonData -> {
             try {
                 return objectMapper.readTree(jsonData).has("timestamp");
             } catch (Exception e) {
@@ -157,14 +191,14 @@ class ExchangeRateServiceTest {
         // Given
         String malformedJson = "{ invalid json }";
         ResponseEntity<String> responseEntity = new ResponseEntity<>(malformedJson, HttpStatus.OK);
-        when(restTemplate.getForEntity(anyString(), eq(String.class))).thenReturn(responseEntity);
+        givenResponses(responseEntity);
 
         // When
         exchangeRateService.fetchAndPublishExchangeRates();
 
         // Then
-        verify(restTemplate, times(1)).getForEntity(anyString(), eq(String.class));
-        verify(kafkaTemplate, never()).send(anyString(), anyString());
+        verify(restTemplate, times(1)).execute(anyString(), eq(HttpMethod.GET), any(RequestCallback.class), anyExtractor());
+        verify(kafkaTemplate, never()).send(anyString(), any(), any(byte[].class));
 
         // Vérifier le log d'erreur
         assertThat(listAppender.list.stream()
@@ -176,14 +210,14 @@ class ExchangeRateServiceTest {
     void shouldHandleNullResponseBody() {
         // Given
         ResponseEntity<String> responseEntity = new ResponseEntity<>(null, HttpStatus.OK);
-        when(restTemplate.getForEntity(anyString(), eq(String.class))).thenReturn(responseEntity);
+        givenResponses(responseEntity);
 
         // When
         exchangeRateService.fetchAndPublishExchangeRates();
 
         // Then
-        verify(restTemplate, times(1)).getForEntity(anyString(), eq(String.class));
-        verify(kafkaTemplate, never()).send(anyString(), anyString());
+        verify(restTemplate, times(1)).execute(anyString(), eq(HttpMethod.GET), any(RequestCallback.class), anyExtractor());
+        verify(kafkaTemplate, never()).send(anyString(), any(), any(byte[].class));
 
         // Vérifier le log d'erreur
         assertThat(listAppender.list.stream()
@@ -204,15 +238,15 @@ class ExchangeRateServiceTest {
             """;
 
         ResponseEntity<String> responseEntity = new ResponseEntity<>(mockApiResponse, HttpStatus.OK);
-        when(restTemplate.getForEntity(anyString(), eq(String.class))).thenReturn(responseEntity);
-        doThrow(new RuntimeException("Kafka error")).when(kafkaTemplate).send(anyString(), anyString());
+        givenResponses(responseEntity);
+        doThrow(new RuntimeException("Kafka error")).when(kafkaTemplate).send(anyString(), any(), any(byte[].class));
 
         // When
         exchangeRateService.fetchAndPublishExchangeRates();
 
         // Then
-        verify(restTemplate, times(1)).getForEntity(anyString(), eq(String.class));
-        verify(kafkaTemplate, times(1)).send(eq("exchange-rates"), any(String.class));
+        verify(restTemplate, times(1)).execute(anyString(), eq(HttpMethod.GET), any(RequestCallback.class), anyExtractor());
+        verify(kafkaTemplate, times(1)).send(eq("exchange-rates"), eq("USD"), any(byte[].class));
 
         // Vérifier le log d'erreur
         assertThat(listAppender.list.stream()
@@ -225,15 +259,17 @@ class ExchangeRateServiceTest {
         // Given
         String mockApiResponse = "{}";
         ResponseEntity<String> responseEntity = new ResponseEntity<>(mockApiResponse, HttpStatus.OK);
-        when(restTemplate.getForEntity(anyString(), eq(String.class))).thenReturn(responseEntity);
+        givenResponses(responseEntity);
 
         // When
         exchangeRateService.fetchAndPublishExchangeRates();
 
         // Then
-        verify(restTemplate).getForEntity(
+        verify(restTemplate).execute(
                 eq("https://api.exchangerate-api.com/v4/latest/USD"),
-                eq(String.class)
+                eq(HttpMethod.GET),
+                any(RequestCallback.class),
+                anyExtractor()
         );
     }
 
@@ -250,12 +286,460 @@ class ExchangeRateServiceTest {
             """;
 
         ResponseEntity<String> responseEntity = new ResponseEntity<>(mockApiResponse, HttpStatus.OK);
-        when(restTemplate.getForEntity(anyString(), eq(String.class))).thenReturn(responseEntity);
+        givenResponses(responseEntity);
+
+        // When
+        exchangeRateService.fetchAndPublishExchangeRates();
+
+        // Then
+        verify(kafkaTemplate).send(eq("exchange-rates"), eq("USD"), any(byte[].class));
+    }
+
+    @Test
+    void shouldPublishWithoutKeyWhenBaseIsMissing() {
+        // Given
+        ResponseEntity<String> responseEntity = new ResponseEntity<>("{\"rates\":{}}", HttpStatus.OK);
+        givenResponses(responseEntity);
+
+        // When
+        exchangeRateService.fetchAndPublishExchangeRates();
+
+        // Then
+        verify(kafkaTemplate).send(eq("exchange-rates"), isNull(), any(byte[].class));
+    }
+
+    @Test
+    void shouldPublishKeyframeThenOnlyChangedRates() throws Exception {
+        // Given
+        enableDeltas(600_000);
+        givenResponses(
+                ratesResponse(0.85, 0.75, 110.0),
+                ratesResponse(0.85, 0.76, 110.0));
+
+        // When
+        exchangeRateService.fetchAndPublishExchangeRates();
+        exchangeRateService.fetchAndPublishExchangeRates();
+
+        // Then
+        List<String> published = publishedMessages(2);
+        assertThat(objectMapper.readTree(published.get(0)).path("type").asText()).isEqualTo("keyframe");
+        assertThat(objectMapper.readTree(published.get(0)).path("rates").size()).isEqualTo(3);
+        assertThat(objectMapper.readTree(published.get(1)).path("type").asText()).isEqualTo("delta");
+        assertThat(objectMapper.readTree(published.get(1)).path("rates").toString()).isEqualTo("{\"GBP\":0.76}");
+    }
+
+    @Test
+    void shouldSkipPublishingWhenNoRateMovedBeyondEpsilon() {
+        // Given
+        enableDeltas(600_000);
+        givenResponses(
+                ratesResponse(0.85, 0.75, 110.0),
+                ratesResponse(0.85, 0.75, 110.0000001));
+
+        // When
+        exchangeRateService.fetchAndPublishExchangeRates();
+        exchangeRateService.fetchAndPublishExchangeRates();
+
+        // Then
+        verify(kafkaTemplate, times(1)).send(eq("exchange-rates"), eq("USD"), any(byte[].class));
+        assertThat(listAppender.list.stream()
+                .anyMatch(event -> event.getFormattedMessage().contains("unchanged since last publication")))
+                .isTrue();
+    }
+
+    @Test
+    void shouldPublishKeyframeWhenIntervalElapsed() throws Exception {
+        // Given
+        enableDeltas(0);
+        givenResponses(
+                ratesResponse(0.85, 0.75, 110.0),
+                ratesResponse(0.85, 0.75, 110.0));
 
         // When
         exchangeRateService.fetchAndPublishExchangeRates();
+        exchangeRateService.fetchAndPublishExchangeRates();
+
+        // Then
+        List<String> published = publishedMessages(2);
+        assertThat(objectMapper.readTree(published.get(1)).path("type").asText()).isEqualTo("keyframe");
+        assertThat(objectMapper.readTree(published.get(1)).path("rates").size()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldPublishKeyframeAfterFailedSend() throws Exception {
+        // Given
+        enableDeltas(600_000);
+        givenResponses(
+                ratesResponse(0.85, 0.75, 110.0),
+                ratesResponse(0.85, 0.75, 110.0));
+        when(kafkaTemplate.send(anyString(), any(), any(byte[].class)))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        // When
+        exchangeRateService.fetchAndPublishExchangeRates();
+        exchangeRateService.fetchAndPublishExchangeRates();
+
+        // Then
+        List<String> published = publishedMessages(2);
+        assertThat(objectMapper.readTree(published.get(1)).path("type").asText()).isEqualTo("keyframe");
+    }
+
+    private void enableDeltas(long keyframeIntervalMs) {
+        ReflectionTestUtils.setField(exchangeRateService, "deltaEnabled", true);
+        ReflectionTestUtils.setField(exchangeRateService, "epsilon", 0.000001);
+        ReflectionTestUtils.setField(exchangeRateService, "keyframeIntervalMs", keyframeIntervalMs);
+    }
+
+    private static ResponseEntity<String> ratesResponse(double eur, double gbp, double jpy) {
+        String body = "{\"base\":\"USD\",\"rates\":{\"EUR\":" + eur + ",\"GBP\":" + gbp + ",\"JPY\":" + jpy + "}}";
+        return new ResponseEntity<>(body, HttpStatus.OK);
+    }
+
+    private List<String> publishedMessages(int expected) {
+        ArgumentCaptor<byte[]> messages = ArgumentCaptor.forClass(byte[].class);
+        verify(kafkaTemplate, times(expected)).send(eq("exchange-rates"), eq("USD"), messages.capture());
+        return messages.getAllValues().stream()
+                .map(message -> new String(message, StandardCharsets.UTF_8))
+                .toList();
+    }
+
+    /**
+     * Rejoue les réponses dans l'ordre à travers le callback et l'extracteur du service,
+     * en mémorisant les en-têtes de chaque requête.
+     */
+    @SafeVarargs
+    private void givenResponses(ResponseEntity<String>... responses) {
+        AtomicInteger calls = new AtomicInteger();
+        when(restTemplate.execute(anyString(), eq(HttpMethod.GET), any(RequestCallback.class), anyExtractor()))
+                .thenAnswer(invocation -> {
+                    MockClientHttpRequest request = new MockClientHttpRequest();
+                    invocation.<RequestCallback>getArgument(2).doWithRequest(request);
+                    sentRequests.add(request.getHeaders());
+
+                    ResponseEntity<String> response = responses[Math.min(calls.getAndIncrement(), responses.length - 1)];
+                    byte[] body = response.getBody() == null ? new byte[0] : response.getBody().getBytes(StandardCharsets.UTF_8);
+                    MockClientHttpResponse httpResponse = new MockClientHttpResponse(body, response.getStatusCode());
+                    httpResponse.getHeaders().putAll(response.getHeaders());
+                    return invocation.<ResponseExtractor<?>>getArgument(3).extractData(httpResponse);
+                });
+    }
+
+    @Test
+    void shouldSendValidatorsOfLastResponse() {
+        // Given
+        HttpHeaders validators = new HttpHeaders();
+        validators.setETag("\"v1\"");
+        validators.set(HttpHeaders.LAST_MODIFIED, "Mon, 01 Jan 2024 00:00:00 GMT");
+        givenResponses(
+                new ResponseEntity<>("{\"base\":\"USD\",\"rates\":{\"EUR\":0.85}}", validators, HttpStatus.OK),
+                new ResponseEntity<>(HttpStatus.NOT_MODIFIED));
+
+        // When
+        exchangeRateService.fetchAndPublishExchangeRates();
+        exchangeRateService.fetchAndPublishExchangeRates();
+
+        // Then
+        assertThat(sentRequests).hasSize(2);
+        assertThat(sentRequests.get(0).getIfNoneMatch()).isEmpty();
+        assertThat(sentRequests.get(1).getIfNoneMatch()).containsExactly("\"v1\"");
+        assertThat(sentRequests.get(1).getFirst(HttpHeaders.IF_MODIFIED_SINCE))
+                .isEqualTo("Mon, 01 Jan 2024 00:00:00 GMT");
+    }
+
+    @Test
+    void shouldShortCircuitWhenNotModified() {
+        // Given
+        givenResponses(new ResponseEntity<>(HttpStatus.NOT_MODIFIED));
+
+        // When
+        exchangeRateService.fetchAndPublishExchangeRates();
+
+        // Then
+        verify(kafkaTemplate, never()).send(anyString(), any(), any(byte[].class));
+        assertThat(listAppender.list.stream()
+                .anyMatch(event -> event.getFormattedMessage().contains("not modified since last fetch")))
+                .isTrue();
+    }
+
+    @Test
+    void shouldTagNotModifiedFetchesApartFromSuccesses() {
+        // Given
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ReflectionTestUtils.setField(exchangeRateService, "meterRegistry", registry);
+        givenResponses(
+                new ResponseEntity<>("{\"base\":\"USD\",\"rates\":{\"EUR\":0.85}}", HttpStatus.OK),
+                new ResponseEntity<>(HttpStatus.NOT_MODIFIED));
+
+        // When
+        exchangeRateService.fetchAndPublishExchangeRates();
+        exchangeRateService.fetchAndPublishExchangeRates();
+
+        // Then
+        assertThat(registry.get("exchange.rates.fetch").tag("outcome", "success").timer().count()).isEqualTo(1);
+        assertThat(registry.get("exchange.rates.fetch").tag("outcome", "not_modified").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldFetchUnconditionallyWhenKeyframeDue() throws Exception {
+        // Given
+        enableDeltas(0);
+        HttpHeaders validators = new HttpHeaders();
+        validators.setETag("\"v1\"");
+        givenResponses(
+                new ResponseEntity<>("{\"base\":\"USD\",\"rates\":{\"EUR\":0.85}}", validators, HttpStatus.OK),
+                new ResponseEntity<>("{\"base\":\"USD\",\"rates\":{\"EUR\":0.85}}", validators, HttpStatus.OK));
+
+        // When
+        exchangeRateService.fetchAndPublishExchangeRates();
+        exchangeRateService.fetchAndPublishExchangeRates();
 
         // Then
-        verify(kafkaTemplate).send(eq("exchange-rates"), any(String.class));
+        assertThat(sentRequests.get(1).getIfNoneMatch()).isEmpty();
+        List<String> published = publishedMessages(2);
+        assertThat(objectMapper.readTree(published.get(1)).path("type").asText()).isEqualTo("keyframe");
+    }
+
+    @Test
+    void shouldCopyRateTextVerbatim() throws Exception {
+        // Given
+        givenResponses(new ResponseEntity<>(
+                "{\"base\":\"USD\",\"timestamp\":\"stale\",\"rates\":{\"EUR\":0.850000000000000000001,\"USD\":1}}",
+                HttpStatus.OK));
+
+        // When
+        exchangeRateService.fetchAndPublishExchangeRates();
+
+        // Then
+        String published = publishedMessages(1).getFirst();
+        assertThat(published).contains("\"rates\":{\"EUR\":0.850000000000000000001,\"USD\":1}");
+        assertThat(objectMapper.readTree(published).path("timestamp").asText()).isNotEqualTo("stale");
+    }
+
+    @Test
+    void shouldPollAtBaseIntervalWithoutProviderHint() {
+        // Given
+        setPollIntervals(30_000, 600_000);
+        Instant last = Instant.parse("2024-01-01T00:00:00Z");
+
+        // When & Then
+        assertThat(feed().nextPollTime(last)).isEqualTo(last.plusSeconds(30));
+    }
+
+    @Test
+    void shouldWaitForProviderNextUpdateWithinMaxInterval() {
+        // Given
+        setPollIntervals(30_000, 600_000);
+        Instant last = Instant.parse("2024-01-01T00:00:00Z");
+
+        // When
+        ReflectionTestUtils.setField(feed(), "nextUpdateHint", last.plusSeconds(120));
+        Instant nearHint = feed().nextPollTime(last);
+        ReflectionTestUtils.setField(feed(), "nextUpdateHint", last.plusSeconds(86_400));
+        Instant farHint = feed().nextPollTime(last);
+        ReflectionTestUtils.setField(feed(), "nextUpdateHint", last.minusSeconds(60));
+        Instant pastHint = feed().nextPollTime(last);
+
+        // Then
+        assertThat(nearHint).isEqualTo(last.plusSeconds(120));
+        assertThat(farHint).isEqualTo(last.plusSeconds(600));
+        assertThat(pastHint).isEqualTo(last.plusSeconds(30));
+    }
+
+    @Test
+    void shouldRememberProviderNextUpdateHint() {
+        // Given
+        givenResponses(new ResponseEntity<>(
+                "{\"base\":\"USD\",\"time_next_update_unix\":1704153600,\"rates\":{\"EUR\":0.85}}", HttpStatus.OK));
+
+        // When
+        exchangeRateService.fetchAndPublishExchangeRates();
+
+        // Then
+        assertThat(ReflectionTestUtils.getField(feed(), "nextUpdateHint"))
+                .isEqualTo(Instant.ofEpochSecond(1704153600));
+    }
+
+    @Test
+    void shouldPollEveryProviderAndBaseIntoSingleTopic() throws Exception {
+        // Given
+        StubRateProvider first = new StubRateProvider("first", 0, "USD", "EUR");
+        StubRateProvider second = new StubRateProvider("second", 0, "USD");
+        ReflectionTestUtils.setField(exchangeRateService, "providers", List.of(first, second));
+
+        // When
+        exchangeRateService.fetchAndPublishExchangeRates();
+
+        // Then
+        ArgumentCaptor<byte[]> messages = ArgumentCaptor.forClass(byte[].class);
+        verify(kafkaTemplate, times(3)).send(eq("exchange-rates"), anyString(), messages.capture());
+        List<String> sources = new ArrayList<>();
+        for (byte[] message : messages.getAllValues()) {
+            JsonNode json = objectMapper.readTree(message);
+            sources.add(json.path("source").asText() + ":" + json.path("base").asText());
+        }
+        assertThat(sources).containsExactly("first:USD", "first:EUR", "second:USD");
+    }
+
+    @Test
+    void shouldKeepDeltaStatePerProviderAndBase() throws Exception {
+        // Given
+        enableDeltas(600_000);
+        StubRateProvider first = new StubRateProvider("first", 0, "USD");
+        StubRateProvider second = new StubRateProvider("second", 0, "USD");
+        ReflectionTestUtils.setField(exchangeRateService, "providers", List.of(first, second));
+
+        // When
+        exchangeRateService.fetchAndPublishExchangeRates();
+        second.snapshot("USD", "{\"base\":\"USD\",\"rates\":{\"XAU\":0.0006}}");
+        exchangeRateService.fetchAndPublishExchangeRates();
+
+        // Then : le premier flux est inchangé, le second publie un delta
+        List<String> published = publishedMessages(3);
+        assertThat(objectMapper.readTree(published.get(2)).path("source").asText()).isEqualTo("second");
+        assertThat(objectMapper.readTree(published.get(2)).path("type").asText()).isEqualTo("delta");
+    }
+
+    @Test
+    void shouldPostponeFetchWhenProviderQuotaIsExhausted() {
+        // Given : une requête par minute, partagée par les deux devises
+        StubRateProvider limited = new StubRateProvider("limited", 1, "USD", "EUR");
+        ReflectionTestUtils.setField(exchangeRateService, "providers", List.of(limited));
+        setPollIntervals(30_000, 600_000);
+
+        // When
+        exchangeRateService.fetchAndPublishExchangeRates();
+
+        // Then
+        assertThat(limited.fetchedBases()).containsExactly("USD");
+        Instant now = Instant.now();
+        assertThat(exchangeRateService.feeds().get(1).nextPollTime(now)).isAfter(now.plusSeconds(50));
+    }
+
+    @Test
+    void shouldRetryThrottledFeedAtNextSlotRatherThanAfterPollInterval() {
+        // Given : 600 requêtes par minute, soit un créneau toutes les 100 ms
+        StubRateProvider limited = new StubRateProvider("limited", 600, "USD", "EUR");
+        ReflectionTestUtils.setField(exchangeRateService, "providers", List.of(limited));
+        setPollIntervals(30_000, 600_000);
+
+        // When
+        exchangeRateService.fetchAndPublishExchangeRates();
+
+        // Then
+        Instant now = Instant.now();
+        assertThat(limited.fetchedBases()).containsExactly("USD");
+        assertThat(exchangeRateService.feeds().get(1).nextPollTime(now)).isBefore(now.plusSeconds(1));
+        assertThat(exchangeRateService.feeds().get(0).nextPollTime(now)).isAfter(now.plusSeconds(29));
+    }
+
+    @Test
+    void shouldFetchEveryBaseOfRateLimitedProviderWithinOnePollInterval() throws Exception {
+        // Given : espacement du quota (100 ms) bien plus court que l'intervalle de polling (30 s)
+        StubRateProvider limited = new StubRateProvider("limited", 600, "USD", "EUR", "GBP", "JPY", "CHF");
+        ReflectionTestUtils.setField(exchangeRateService, "providers", List.of(limited));
+        setPollIntervals(30_000, 600_000);
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(4);
+        scheduler.initialize();
+        ScheduledTaskRegistrar registrar = new ScheduledTaskRegistrar();
+        registrar.setTaskScheduler(scheduler);
+
+        // When
+        try {
+            exchangeRateService.scheduleFeeds(registrar);
+            registrar.afterPropertiesSet();
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (limited.fetchedBases().size() < 5 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+        } finally {
+            registrar.destroy();
+            scheduler.shutdown();
+        }
+
+        // Then
+        assertThat(limited.fetchedBases()).containsExactlyInAnyOrder("USD", "EUR", "GBP", "JPY", "CHF");
+    }
+
+    @Test
+    void shouldPollFeedsOnTheirOwnSchedulerRatherThanTheSharedOne() throws Exception {
+        // Given
+        StubRateProvider provider = new StubRateProvider("own", 0, "USD", "EUR");
+        ReflectionTestUtils.setField(exchangeRateService, "providers", List.of(provider));
+        ScheduledTaskRegistrar shared = new ScheduledTaskRegistrar();
+
+        // When
+        try {
+            exchangeRateService.configureTasks(shared);
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (provider.fetchedBases().size() < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+        } finally {
+            exchangeRateService.stop();
+        }
+
+        // Then : les jobs @Scheduled gardent tous les threads de l'ordonnanceur partagé
+        assertThat(shared.getTriggerTaskList()).isEmpty();
+        assertThat(provider.fetchedBases()).contains("USD", "EUR");
+    }
+
+    @Test
+    void shouldBoundConcurrentFetchesAcrossFeeds() throws Exception {
+        // Given
+        CountDownLatch gate = new CountDownLatch(1);
+        StubRateProvider slow = new StubRateProvider("slow", 0, "USD", "EUR", "GBP", "JPY").blockUntil(gate);
+        ReflectionTestUtils.setField(exchangeRateService, "providers", List.of(slow));
+        ReflectionTestUtils.setField(exchangeRateService, "maxConcurrency", 2);
+
+        // When : chaque flux sur son propre thread, comme avec un ordonnanceur à plusieurs threads
+        ExecutorService scheduler = Executors.newFixedThreadPool(4);
+        try {
+            exchangeRateService.feeds().forEach(feed -> scheduler.submit(feed::poll));
+            Thread.sleep(200);
+            int inFlightWhileBlocked = slow.fetchedBases().size();
+            gate.countDown();
+            scheduler.shutdown();
+            assertThat(scheduler.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+            // Then
+            assertThat(inFlightWhileBlocked).isEqualTo(2);
+            assertThat(slow.maxInFlight()).isEqualTo(2);
+            assertThat(slow.fetchedBases()).containsExactlyInAnyOrder("USD", "EUR", "GBP", "JPY");
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldKeepPublishingOtherProvidersWhenOneFails() {
+        // Given
+        StubRateProvider failing = new StubRateProvider("failing", 0, "USD").failWith(new IOException("timeout"));
+        StubRateProvider healthy = new StubRateProvider("healthy", 0, "EUR");
+        ReflectionTestUtils.setField(exchangeRateService, "providers", List.of(failing, healthy));
+
+        // When
+        exchangeRateService.fetchAndPublishExchangeRates();
+
+        // Then
+        verify(kafkaTemplate, times(1)).send(eq("exchange-rates"), eq("EUR"), any(byte[].class));
+        assertThat(listAppender.list.stream()
+                .anyMatch(event -> event.getLevel() == Level.ERROR && event.getFormattedMessage().contains("timeout")))
+                .isTrue();
+    }
+
+    // Matcher typé : any(ResponseExtractor.class) produit une conversion non vérifiée
+    private static ResponseExtractor<Object> anyExtractor() {
+        return any();
+    }
+
+    private ExchangeRateService.RateFeed feed() {
+        return exchangeRateService.feeds().getFirst();
+    }
+
+    private void setPollIntervals(long intervalMs, long maxIntervalMs) {
+        ReflectionTestUtils.setField(exchangeRateService, "pollIntervalMs", intervalMs);
+        ReflectionTestUtils.setField(exchangeRateService, "maxPollIntervalMs", maxIntervalMs);
     }
 }
\ No newline at end of file
@@ -0,0 +1,119 @@
+package com.learn.kafka.service;
+
+import com.learn.kafka.rates.LatestRatesCache;
+import com.learn.kafka.rates.RatesCheckpoint;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class LatestRatesListenerTest {
+
+    @Mock
+    private LatestRatesCache latestRatesCache;
+
+    @Mock
+    private RatesCheckpoint ratesCheckpoint;
+
+    @Mock
+    private ConsumerSeekAware.ConsumerSeekCallback seekCallback;
+
+    @InjectMocks
+    private LatestRatesListener listener;
+
+    @Test
+    void shouldApplyEachRecordToCache() throws Exception {
+        // When
+        listener.updateLatestRates("{\"base\":\"USD\",\"rates\":{\"EUR\":0.85}}", 1, 41);
+
+        // Then
+        verify(latestRatesCache).apply("{\"base\":\"USD\",\"rates\":{\"EUR\":0.85}}");
+        verify(ratesCheckpoint).recordConsumed(1, 41);
+    }
+
+    @Test
+    void shouldSurviveUnreadableRecord() throws Exception {
+        // Given
+        when(latestRatesCache.apply(anyString())).thenThrow(new IOException("Unexpected character"));
+
+        // When : pas d'exception remontée au conteneur
+        listener.updateLatestRates("{ invalid json }", 0, 7);
+
+        // Then
+        verify(ratesCheckpoint).recordConsumed(0, 7);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldSeekAllAssignedPartitionsToRebuildWindow() {
+        // Given
+        when(ratesCheckpoint.resumeOffset(anyInt())).thenReturn(-1L);
+        ReflectionTestUtils.setField(listener, "rebuildWindowMs", 1_200_000L);
+        Map<TopicPartition, Long> assignments = Map.of(
+                new TopicPartition("exchange-rates", 0), 42L,
+                new TopicPartition("exchange-rates", 1), 7L);
+
+        // When
+        long before = System.currentTimeMillis();
+        listener.onPartitionsAssigned(assignments, seekCallback);
+
+        // Then
+        ArgumentCaptor<Collection<TopicPartition>> partitions = ArgumentCaptor.forClass(Collection.class);
+        ArgumentCaptor<Long> timestamp = ArgumentCaptor.forClass(Long.class);
+        verify(seekCallback).seekToTimestamp(partitions.capture(), timestamp.capture());
+        assertThat(partitions.getValue()).containsExactlyInAnyOrderElementsOf(assignments.keySet());
+        assertThat((double) timestamp.getValue()).isCloseTo(before - 1_200_000L, within(5_000.0));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldResumeFromCheckpointedOffsets() {
+        // Given
+        ReflectionTestUtils.setField(listener, "rebuildWindowMs", 1_200_000L);
+        when(ratesCheckpoint.resumeOffset(0)).thenReturn(42L);
+        when(ratesCheckpoint.resumeOffset(1)).thenReturn(-1L);
+        TopicPartition restored = new TopicPartition("exchange-rates", 0);
+        TopicPartition unknown = new TopicPartition("exchange-rates", 1);
+
+        // When
+        listener.onPartitionsAssigned(Map.of(restored, 0L, unknown, 0L), seekCallback);
+
+        // Then : seule la partition absente du checkpoint est relue par horodatage
+        verify(seekCallback).seek("exchange-rates", 0, 42L);
+        ArgumentCaptor<Collection<TopicPartition>> partitions = ArgumentCaptor.forClass(Collection.class);
+        verify(seekCallback).seekToTimestamp(partitions.capture(), anyLong());
+        assertThat(partitions.getValue()).containsExactly(unknown);
+    }
+
+    @Test
+    void shouldNotRebuildWhenAllPartitionsAreCheckpointed() {
+        // Given
+        when(ratesCheckpoint.resumeOffset(0)).thenReturn(42L);
+
+        // When
+        listener.onPartitionsAssigned(Map.of(new TopicPartition("exchange-rates", 0), 0L), seekCallback);
+
+        // Then
+        verify(seekCallback).seek("exchange-rates", 0, 42L);
+        verifyNoMoreInteractions(seekCallback);
+    }
+}
@@ -0,0 +1,125 @@
+package com.learn.kafka.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learn.kafka.consumer.KafkaConsumerConfig;
+import com.learn.kafka.producer.KafkaProducerConfig;
+import com.learn.kafka.producer.ProducerProfileRouter;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.MessageListener;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Étape d'agrégation OHLC de bout en bout sur un broker embarqué : snapshots sur exchange-rates,
+ * barres fermées lues sur exchange-rate-ohlc.
+ */
+@EmbeddedKafka(partitions = 3, topics = {"exchange-rates", "exchange-rate-ohlc"})
+class OhlcAggregationEmbeddedKafkaTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void shouldPublishClosedWindowsToOhlcTopic(EmbeddedKafkaBroker broker) throws Exception {
+        // Given
+        KafkaTemplate<String, String> kafkaTemplate = kafkaTemplate(broker);
+        ProducerProfileRouter producerProfileRouter = mock(ProducerProfileRouter.class);
+        when(producerProfileRouter.templateFor("exchange-rate-ohlc")).thenReturn(kafkaTemplate);
+
+        OhlcAggregationService ohlcAggregationService = new OhlcAggregationService();
+        ReflectionTestUtils.setField(ohlcAggregationService, "producerProfileRouter", producerProfileRouter);
+        ReflectionTestUtils.setField(ohlcAggregationService, "windows", new Duration[]{Duration.ofMinutes(1)});
+        ReflectionTestUtils.setField(ohlcAggregationService, "grace", Duration.ofSeconds(10));
+
+        ConcurrentMessageListenerContainer<String, String> container =
+                consumerConfig(broker).kafkaListenerContainerFactory().createContainer("exchange-rates");
+        container.getContainerProperties().setGroupId("ohlc-aggregator");
+        Properties consumerProperties = new Properties();
+        consumerProperties.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        container.getContainerProperties().setKafkaConsumerProperties(consumerProperties);
+        container.setupMessageListener((MessageListener<String, String>) record -> ohlcAggregationService.aggregate(record.value()));
+
+        // When : un seul producteur par base, l'ordre est garanti par la clé
+        container.start();
+        try {
+            kafkaTemplate.send("exchange-rates", "USD", snapshot("2024-01-01T00:00:05Z", 0.85));
+            kafkaTemplate.send("exchange-rates", "USD", snapshot("2024-01-01T00:00:40Z", 0.88));
+            kafkaTemplate.send("exchange-rates", "USD", snapshot("2024-01-01T00:00:50Z", 0.86));
+            kafkaTemplate.send("exchange-rates", "USD", snapshot("2024-01-01T00:01:30Z", 0.90));
+            kafkaTemplate.flush();
+
+            // Then
+            List<JsonNode> bars = readOhlc(broker, 2);
+            assertThat(bars).extracting(bar -> bar.path("quote").asText()).containsExactlyInAnyOrder("EUR", "GBP");
+            JsonNode eur = bars.stream().filter(bar -> bar.path("quote").asText().equals("EUR")).findFirst().orElseThrow();
+            assertThat(eur.path("open").asDouble()).isEqualTo(0.85);
+            assertThat(eur.path("high").asDouble()).isEqualTo(0.88);
+            assertThat(eur.path("low").asDouble()).isEqualTo(0.85);
+            assertThat(eur.path("close").asDouble()).isEqualTo(0.86);
+            assertThat(eur.path("count").asInt()).isEqualTo(3);
+        } finally {
+            container.stop();
+        }
+    }
+
+    private List<JsonNode> readOhlc(EmbeddedKafkaBroker broker, int expected) throws Exception {
+        Map<String, Object> props = KafkaTestUtils.consumerProps("ohlc-reader", "false", broker);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        List<JsonNode> bars = new ArrayList<>();
+        try (Consumer<String, String> consumer = new DefaultKafkaConsumerFactory<String, String>(props).createConsumer()) {
+            broker.consumeFromAnEmbeddedTopic(consumer, "exchange-rate-ohlc");
+            long deadline = System.currentTimeMillis() + 30_000;
+            while (bars.size() < expected && System.currentTimeMillis() < deadline) {
+                ConsumerRecords<String, String> records = KafkaTestUtils.getRecords(consumer, Duration.ofSeconds(1));
+                for (ConsumerRecord<String, String> record : records) {
+                    bars.add(objectMapper.readTree(record.value()));
+                }
+            }
+        }
+        return bars;
+    }
+
+    private static KafkaTemplate<String, String> kafkaTemplate(EmbeddedKafkaBroker broker) {
+        KafkaProducerConfig producerConfig = new KafkaProducerConfig();
+        ReflectionTestUtils.setField(producerConfig, "bootstrapServers", broker.getBrokersAsString());
+        ReflectionTestUtils.setField(producerConfig, "lowLatencyAcks", "1");
+        ReflectionTestUtils.setField(producerConfig, "lowLatencyMaxBlockMs", 60_000L);
+        return producerConfig.kafkaTemplate();
+    }
+
+    private static KafkaConsumerConfig consumerConfig(EmbeddedKafkaBroker broker) {
+        KafkaConsumerConfig config = new KafkaConsumerConfig();
+        ReflectionTestUtils.setField(config, "bootstrapServers", broker.getBrokersAsString());
+        ReflectionTestUtils.setField(config, "consumerGroupId", "ohlc-aggregator");
+        ReflectionTestUtils.setField(config, "maxPollRecords", 500);
+        ReflectionTestUtils.setField(config, "fetchMinBytes", 1);
+        ReflectionTestUtils.setField(config, "fetchMaxWaitMs", 100);
+        ReflectionTestUtils.setField(config, "concurrency", 1);
+        return config;
+    }
+
+    private static String snapshot(String timestamp, double eur) {
+        return "{\"base\":\"USD\",\"rates\":{\"EUR\":" + eur + ",\"GBP\":0.75},\"timestamp\":\"" + timestamp + "\"}";
+    }
+}
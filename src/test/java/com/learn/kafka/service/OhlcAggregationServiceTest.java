@@ -0,0 +1,170 @@
+package com.learn.kafka.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learn.kafka.producer.ProducerProfileRouter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OhlcAggregationServiceTest {
+
+    @Mock
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    @Mock
+    private ProducerProfileRouter producerProfileRouter;
+
+    @Mock
+    private ConsumerSeekAware.ConsumerSeekCallback seekCallback;
+
+    @InjectMocks
+    private OhlcAggregationService ohlcAggregationService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(ohlcAggregationService, "windows", new Duration[]{Duration.ofMinutes(1), Duration.ofMinutes(5)});
+        ReflectionTestUtils.setField(ohlcAggregationService, "grace", Duration.ofSeconds(10));
+        ReflectionTestUtils.setField(ohlcAggregationService, "meterRegistry", meterRegistry);
+        lenient().when(producerProfileRouter.templateFor("exchange-rate-ohlc")).thenReturn(kafkaTemplate);
+        lenient().when(kafkaTemplate.send(anyString(), anyString(), anyString()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+    }
+
+    @Test
+    void shouldPublishClosedWindowsPerPairAndDuration() throws Exception {
+        // Given
+        ohlcAggregationService.aggregate(snapshot("2024-01-01T00:00:05Z", 0.85, 0.75));
+        ohlcAggregationService.aggregate(snapshot("2024-01-01T00:00:35Z", 0.86, 0.74));
+
+        // When : la fenêtre d'une minute est échue, pas celle de cinq minutes
+        ohlcAggregationService.aggregate(snapshot("2024-01-01T00:01:15Z", 0.87, 0.73));
+
+        // Then
+        ArgumentCaptor<String> bars = ArgumentCaptor.forClass(String.class);
+        verify(kafkaTemplate, times(2)).send(eq("exchange-rate-ohlc"), anyString(), bars.capture());
+        verify(kafkaTemplate).send(eq("exchange-rate-ohlc"), eq("USDEUR"), anyString());
+        JsonNode eur = objectMapper.readTree(bars.getAllValues().stream()
+                .filter(bar -> bar.contains("\"EUR\"")).findFirst().orElseThrow());
+        assertThat(eur.path("window").asText()).isEqualTo("PT1M");
+        assertThat(eur.path("start").asText()).isEqualTo("2024-01-01T00:00:00Z");
+        assertThat(eur.path("open").asDouble()).isEqualTo(0.85);
+        assertThat(eur.path("close").asDouble()).isEqualTo(0.86);
+        assertThat(eur.path("count").asInt()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldRewindOneWindowPlusGraceAndDropOpenWindowsOnAssignment() {
+        // Given : une fenêtre ouverte avant la rebalance
+        Instant now = Instant.now();
+        ohlcAggregationService.aggregate(snapshot(now.minusSeconds(20).toString(), 0.85, 0.75));
+
+        // When
+        ohlcAggregationService.onPartitionsAssigned(Map.of(new TopicPartition("exchange-rates", 0), 42L), seekCallback);
+        ohlcAggregationService.aggregate(snapshot(now.plus(Duration.ofMinutes(10)).toString(), 0.86, 0.74));
+
+        // Then : 5 min de plus longue fenêtre + 10 s de grâce, et aucune barre partielle émise
+        ArgumentCaptor<Long> timestamp = ArgumentCaptor.forClass(Long.class);
+        verify(seekCallback).seekToTimestamp(eq(Set.of(new TopicPartition("exchange-rates", 0))), timestamp.capture());
+        assertThat(timestamp.getValue()).isCloseTo(now.toEpochMilli() - 310_000, within(5_000L));
+        verify(kafkaTemplate, never()).send(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void shouldCountBarsThatFailToPublish() {
+        // Given
+        when(kafkaTemplate.send(anyString(), anyString(), anyString()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("Broker unavailable")));
+        ohlcAggregationService.aggregate(snapshot("2024-01-01T00:00:05Z", 0.85, 0.75));
+
+        // When
+        ohlcAggregationService.aggregate(snapshot("2024-01-01T00:01:15Z", 0.87, 0.73));
+
+        // Then
+        assertThat(meterRegistry.get("rates.ohlc.publish.failures").tag("window", "PT1M").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldKeepBarsOfEachProviderApart() throws Exception {
+        // Given
+        ohlcAggregationService.aggregate(snapshot("2024-01-01T00:00:05Z", 0.85, 0.75));
+        ohlcAggregationService.aggregate(snapshot("2024-01-01T00:00:05Z", 0.95, 0.75).replace("exchangerate-api", "frankfurter"));
+
+        // When
+        ohlcAggregationService.aggregate(snapshot("2024-01-01T00:01:15Z", 0.87, 0.73));
+        ohlcAggregationService.aggregate(snapshot("2024-01-01T00:01:15Z", 0.97, 0.73).replace("exchangerate-api", "frankfurter"));
+
+        // Then
+        ArgumentCaptor<String> bars = ArgumentCaptor.forClass(String.class);
+        verify(kafkaTemplate, times(4)).send(eq("exchange-rate-ohlc"), anyString(), bars.capture());
+        assertThat(bars.getAllValues().stream().map(this::readTree)
+                .filter(bar -> bar.path("quote").asText().equals("EUR"))
+                .map(bar -> bar.path("source").asText() + "=" + bar.path("open").asDouble()))
+                .containsExactlyInAnyOrder("exchangerate-api=0.85", "frankfurter=0.95");
+    }
+
+    @Test
+    void shouldSkipBaseCurrencyAndIgnoreSnapshotWithoutTimestamp() throws Exception {
+        // When
+        int added = ohlcAggregationService.add(
+                "{\"base\":\"USD\",\"rates\":{\"USD\":1,\"EUR\":0.85},\"timestamp\":\"2024-01-01T00:00:05Z\"}");
+        int ignored = ohlcAggregationService.add("{\"base\":\"USD\",\"rates\":{\"EUR\":0.85}}");
+
+        // Then
+        assertThat(added).isEqualTo(1);
+        assertThat(ignored).isZero();
+    }
+
+    @Test
+    void shouldSurviveUnreadableSnapshot() {
+        // When
+        ohlcAggregationService.aggregate("{ invalid json }");
+
+        // Then
+        verify(kafkaTemplate, never()).send(anyString(), anyString(), anyString());
+    }
+
+    private JsonNode readTree(String json) {
+        try {
+            return objectMapper.readTree(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String snapshot(String timestamp, double eur, double gbp) {
+        return "{\"base\":\"USD\",\"rates\":{\"EUR\":" + eur + ",\"GBP\":" + gbp + "},"
+                + "\"source\":\"exchangerate-api\",\"timestamp\":\"" + timestamp + "\",\"type\":\"keyframe\"}";
+    }
+}
@@ -0,0 +1,73 @@
+package com.learn.kafka.support;
+
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.ListOffsetsResult;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Lag d'un groupe de consommateurs sur un topic : somme, par partition, de l'offset de fin moins
+ * l'offset committé (l'offset de fin entier tant que le groupe n'a rien committé).
+ */
+public class ConsumerLag implements AutoCloseable {
+
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private final Admin admin;
+    private final String groupId;
+    private final String topic;
+    private Map<TopicPartition, OffsetSpec> endOffsets;
+
+    public ConsumerLag(String bootstrapServers, String groupId, String topic) {
+        this.admin = Admin.create(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers));
+        this.groupId = groupId;
+        this.topic = topic;
+    }
+
+    /**
+     * @return le lag en nombre de records, -1 si le broker n'a pas répondu
+     */
+    public long current() {
+        try {
+            Map<TopicPartition, OffsetAndMetadata> committed = admin.listConsumerGroupOffsets(groupId)
+                    .partitionsToOffsetAndMetadata().get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            Map<TopicPartition, ListOffsetsResult.ListOffsetsResultInfo> ends = admin.listOffsets(endOffsets())
+                    .all().get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            long lag = 0;
+            for (Map.Entry<TopicPartition, ListOffsetsResult.ListOffsetsResultInfo> end : ends.entrySet()) {
+                OffsetAndMetadata offset = committed.get(end.getKey());
+                lag += end.getValue().offset() - (offset == null ? 0 : offset.offset());
+            }
+            return lag;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        } catch (ExecutionException | TimeoutException e) {
+            return -1;
+        }
+    }
+
+    private Map<TopicPartition, OffsetSpec> endOffsets() throws InterruptedException, ExecutionException, TimeoutException {
+        if (endOffsets == null) {
+            Map<TopicPartition, OffsetSpec> request = new HashMap<>();
+            admin.describeTopics(List.of(topic)).allTopicNames().get(TIMEOUT_SECONDS, TimeUnit.SECONDS).get(topic)
+                    .partitions().forEach(partition -> request.put(new TopicPartition(topic, partition.partition()), OffsetSpec.latest()));
+            endOffsets = request;
+        }
+        return endOffsets;
+    }
+
+    @Override
+    public void close() {
+        admin.close();
+    }
+}
@@ -0,0 +1,202 @@
+package com.learn.kafka.support;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.HdrHistogram.Recorder;
+
+import java.io.FileNotFoundException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+/**
+ * Générateur de charge en boucle ouverte : l'opération n est lancée à {@code début + n / débit}, que les
+ * précédentes aient répondu ou non. La latence corrigée est mesurée depuis cet instant prévu, si bien qu'un
+ * appel bloquant ou un retard du générateur compte pour toutes les requêtes qu'il a décalées (coordinated
+ * omission) ; la latence non corrigée, mesurée depuis l'envoi effectif, est donnée pour comparaison.
+ * <p>
+ * Une ligne par seconde (débit, percentiles de l'intervalle, lag), un bilan hors préchauffage, et les
+ * histogrammes d'intervalle dans {@code target/load/<scénario>.hlog} (HistogramLogAnalyzer, hdr-plot).
+ */
+public class LoadGenerator {
+
+    /**
+     * Envoie le message n ; le futur se termine quand l'étape mesurée est acquittée.
+     */
+    @FunctionalInterface
+    public interface Operation {
+        CompletableFuture<?> fire(long sequence);
+    }
+
+    public record Profile(String scenario, int ratePerSecond, Duration warmup, Duration duration, int messageSize) {
+
+        /**
+         * -Dbenchmark.rate (messages/s), -Dbenchmark.warmup-s, -Dbenchmark.duration-s, -Dbenchmark.message-size (octets)
+         */
+        public static Profile fromSystemProperties(String scenario, int defaultRate) {
+            return new Profile(scenario,
+                    Integer.getInteger("benchmark.rate", defaultRate),
+                    Duration.ofSeconds(Integer.getInteger("benchmark.warmup-s", 5)),
+                    Duration.ofSeconds(Integer.getInteger("benchmark.duration-s", 20)),
+                    Integer.getInteger("benchmark.message-size", 512));
+        }
+    }
+
+    /**
+     * @param completed  opérations terminées pendant la mesure
+     * @param errors     opérations en échec pendant la mesure
+     * @param lost       opérations sans réponse à la fin du délai de vidange, toutes phases confondues
+     * @param throughput débit soutenu (opérations terminées par seconde) sur la phase de mesure
+     * @param maxLag     lag maximal observé, -1 si non mesuré
+     */
+    public record Report(Profile profile, long completed, long errors, long lost, double throughput,
+                         Histogram corrected, Histogram uncorrected, long maxLag) {
+
+        public void print() {
+            System.out.printf(Locale.ROOT, "== %s: target %d msg/s, %d B/message, %ds measured%n",
+                    profile.scenario(), profile.ratePerSecond(), profile.messageSize(), profile.duration().toSeconds());
+            System.out.printf(Locale.ROOT, "sustained  : %,.0f msg/s (%d completed, %d errors, %d lost)%n",
+                    throughput, completed, errors, lost);
+            System.out.println("corrected  : " + percentiles(corrected));
+            System.out.println("uncorrected: " + percentiles(uncorrected));
+            System.out.println("max lag    : " + (maxLag < 0 ? "n/a" : maxLag + " records"));
+        }
+    }
+
+    private static final long DRAIN_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(60);
+    // Latences en microsecondes, 3 chiffres significatifs
+    private static final int PRECISION = 3;
+
+    private final Profile profile;
+    private final LongSupplier lag;
+
+    private final Recorder intervalRecorder = new Recorder(PRECISION);
+    private final Histogram corrected = new ConcurrentHistogram(PRECISION);
+    private final Histogram uncorrected = new ConcurrentHistogram(PRECISION);
+    private final AtomicLong done = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong lastCompletion = new AtomicLong();
+    private final AtomicLong maxLag = new AtomicLong(-1);
+
+    /**
+     * @param lag lag du consommateur de l'étape mesurée, échantillonné chaque seconde ; {@code null} si sans objet
+     */
+    public LoadGenerator(Profile profile, LongSupplier lag) {
+        this.profile = profile;
+        this.lag = lag;
+    }
+
+    public Report run(Operation operation) throws Exception {
+        long interval = TimeUnit.SECONDS.toNanos(1) / profile.ratePerSecond();
+        long warmupOperations = profile.warmup().toSeconds() * profile.ratePerSecond();
+        long operations = warmupOperations + profile.duration().toSeconds() * profile.ratePerSecond();
+
+        Path log = Path.of("target", "load", profile.scenario() + ".hlog");
+        Files.createDirectories(log.getParent());
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        try (Interval intervals = new Interval(log)) {
+            long start = System.nanoTime();
+            reporter.scheduleAtFixedRate(() -> intervals.report(start), 1, 1, TimeUnit.SECONDS);
+
+            for (long sequence = 0; sequence < operations; sequence++) {
+                long intended = start + sequence * interval;
+                long wait;
+                while ((wait = intended - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                fire(operation, sequence, intended, sequence >= warmupOperations);
+            }
+
+            long deadline = System.nanoTime() + DRAIN_TIMEOUT_NANOS;
+            while (done.get() < operations && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            reporter.shutdown();
+            reporter.awaitTermination(5, TimeUnit.SECONDS);
+            intervals.report(start);
+
+            long measureStart = start + warmupOperations * interval;
+            double seconds = Math.max(1, lastCompletion.get() - measureStart) / 1e9;
+            return new Report(profile, completed.get(), errors.get(), operations - done.get(),
+                    completed.get() / seconds, corrected, uncorrected, maxLag.get());
+        } finally {
+            reporter.shutdownNow();
+        }
+    }
+
+    private void fire(Operation operation, long sequence, long intended, boolean measured) {
+        long sent = System.nanoTime();
+        CompletableFuture<?> future;
+        try {
+            future = operation.fire(sequence);
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        future.whenComplete((result, ex) -> {
+            long now = System.nanoTime();
+            long correctedMicros = TimeUnit.NANOSECONDS.toMicros(now - intended);
+            intervalRecorder.recordValue(correctedMicros);
+            if (measured) {
+                corrected.recordValue(correctedMicros);
+                uncorrected.recordValue(TimeUnit.NANOSECONDS.toMicros(now - sent));
+                (ex == null ? completed : errors).incrementAndGet();
+                lastCompletion.accumulateAndGet(now, Math::max);
+            }
+            done.incrementAndGet();
+        });
+    }
+
+    private static String percentiles(Histogram histogram) {
+        return String.format(Locale.ROOT, "p50=%.2f ms p99=%.2f ms p999=%.2f ms max=%.2f ms",
+                histogram.getValueAtPercentile(50) / 1e3, histogram.getValueAtPercentile(99) / 1e3,
+                histogram.getValueAtPercentile(99.9) / 1e3, histogram.getMaxValue() / 1e3);
+    }
+
+    // Histogramme de la dernière seconde, affiché et ajouté au journal .hlog
+    private final class Interval implements AutoCloseable {
+
+        private final HistogramLogWriter writer;
+        private Histogram recycled;
+        private long previousDone;
+
+        Interval(Path log) throws FileNotFoundException {
+            writer = new HistogramLogWriter(log.toFile());
+            long now = System.currentTimeMillis();
+            writer.setBaseTime(now);
+            writer.outputLogFormatVersion();
+            writer.outputStartTime(now);
+            writer.outputLegend();
+        }
+
+        synchronized void report(long start) {
+            Histogram histogram = intervalRecorder.getIntervalHistogram(recycled);
+            recycled = histogram;
+            long doneNow = done.get();
+            long consumerLag = lag == null ? -1 : lag.getAsLong();
+            maxLag.accumulateAndGet(consumerLag, Math::max);
+
+            System.out.printf(Locale.ROOT, "%s t=%3ds done=%,7d/s %s lag=%s%n", profile.scenario(),
+                    TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start), doneNow - previousDone,
+                    percentiles(histogram), consumerLag < 0 ? "n/a" : consumerLag);
+            previousDone = doneNow;
+            if (histogram.getTotalCount() > 0) {
+                writer.outputIntervalHistogram(histogram);
+            }
+        }
+
+        @Override
+        public void close() {
+            writer.close();
+        }
+    }
+}
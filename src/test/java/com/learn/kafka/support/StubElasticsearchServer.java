@@ -0,0 +1,143 @@
+package com.learn.kafka.support;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * Serveur HTTP minimal qui imite les endpoints Elasticsearch utilisés par l'application
+ * (index, _doc, _bulk) pour les benchmarks et tests de charge, sans conteneur.
+ */
+public class StubElasticsearchServer implements AutoCloseable {
+
+    private final HttpServer server;
+    private final AtomicLong indexedDocuments = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+    private volatile long latencyMillis;
+    private volatile BiConsumer<String, String> documentListener;
+
+    public StubElasticsearchServer() throws IOException {
+        // Sans TCP_NODELAY, l'ACK retardé ajoute ~40 ms à chaque petite réponse
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    public String url() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    public long indexedDocuments() {
+        return indexedDocuments.get();
+    }
+
+    public long requests() {
+        return requests.get();
+    }
+
+    public void setLatencyMillis(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    /**
+     * Appelé pour chaque document reçu, avec le nom de l'index, sur le thread de la requête.
+     */
+    public void setDocumentListener(BiConsumer<String, String> documentListener) {
+        this.documentListener = documentListener;
+    }
+
+    public void reset() {
+        indexedDocuments.set(0);
+        requests.set(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        String path = exchange.getRequestURI().getPath();
+        long documents = countDocuments(exchange.getRequestBody(), path);
+
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        indexedDocuments.addAndGet(documents);
+        String body;
+        int status = 200;
+        if (path.endsWith("/_bulk")) {
+            body = "{\"took\":1,\"errors\":false,\"items\":[]}";
+        } else if (path.contains("/_doc/")) {
+            status = 201;
+            body = "{\"result\":\"created\"}";
+        } else {
+            body = "{\"acknowledged\":true}";
+        }
+        respond(exchange, status, body);
+    }
+
+    // Une requête _bulk contient une ligne d'action et une ligne de document par élément
+    private long countDocuments(InputStream requestBody, String path) throws IOException {
+        byte[] payload = requestBody.readAllBytes();
+        BiConsumer<String, String> listener = documentListener;
+        if (path.endsWith("/_bulk")) {
+            long lines = 0;
+            int lineStart = 0;
+            for (int i = 0; i < payload.length; i++) {
+                if (payload[i] == '\n') {
+                    // Les lignes paires sont les documents, les lignes impaires les actions
+                    if (listener != null && lines % 2 == 1) {
+                        listener.accept(index(path), new String(payload, lineStart, i - lineStart, StandardCharsets.UTF_8));
+                    }
+                    lines++;
+                    lineStart = i + 1;
+                }
+            }
+            return lines / 2;
+        }
+        if (!path.contains("/_doc/")) {
+            return 0;
+        }
+        if (listener != null) {
+            listener.accept(index(path), new String(payload, StandardCharsets.UTF_8));
+        }
+        return 1;
+    }
+
+    // /exchange-rates/_bulk ou /exchange-rates/_doc/{id}
+    private static String index(String path) {
+        int end = path.indexOf('/', 1);
+        return end < 0 ? path.substring(1) : path.substring(1, end);
+    }
+
+    private void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+            return;
+        }
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,79 @@
+package com.learn.kafka.support;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * API de taux de change simulée : sert un corps versionné par ETag / Last-Modified
+ * et répond 304 aux requêtes conditionnelles dont le validateur est encore valide.
+ */
+public class StubExchangeRateApiServer implements AutoCloseable {
+
+    private final HttpServer server;
+    private final List<String> ifNoneMatchHeaders = new CopyOnWriteArrayList<>();
+    private volatile String body;
+    private volatile String etag;
+    private volatile String lastModified = "Mon, 01 Jan 2024 00:00:00 GMT";
+    private volatile int notModifiedResponses;
+
+    public StubExchangeRateApiServer() throws IOException {
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    public String url() {
+        return "http://localhost:" + server.getAddress().getPort() + "/v4/latest/USD";
+    }
+
+    public void publish(String body, String etag, String lastModified) {
+        this.body = body;
+        this.etag = etag;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * @return la valeur d'If-None-Match reçue à chaque requête ("" si absente)
+     */
+    public List<String> ifNoneMatchHeaders() {
+        return ifNoneMatchHeaders;
+    }
+
+    public int notModifiedResponses() {
+        return notModifiedResponses;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        ifNoneMatchHeaders.add(ifNoneMatch == null ? "" : ifNoneMatch);
+
+        exchange.getResponseHeaders().add("ETag", etag);
+        exchange.getResponseHeaders().add("Last-Modified", lastModified);
+        if (etag.equals(ifNoneMatch)) {
+            notModifiedResponses++;
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
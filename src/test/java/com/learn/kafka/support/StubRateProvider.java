@@ -0,0 +1,102 @@
+package com.learn.kafka.support;
+
+import com.learn.kafka.rates.RateProvider;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fournisseur de taux en mémoire : un snapshot par devise de base, avec compteur d'appels,
+ * mesure des appels simultanés et possibilité de bloquer ou de faire échouer les requêtes.
+ */
+public class StubRateProvider implements RateProvider {
+
+    private final String name;
+    private final List<String> bases;
+    private final int requestsPerMinute;
+    private final Map<String, String> snapshots = new ConcurrentHashMap<>();
+    private final List<String> fetchedBases = new CopyOnWriteArrayList<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private volatile CountDownLatch gate;
+    private volatile IOException failure;
+
+    public StubRateProvider(String name, int requestsPerMinute, String... bases) {
+        this.name = name;
+        this.requestsPerMinute = requestsPerMinute;
+        this.bases = List.of(bases);
+        for (String base : bases) {
+            snapshots.put(base, "{\"base\":\"" + base + "\",\"rates\":{\"XAU\":0.0005}}");
+        }
+    }
+
+    public StubRateProvider snapshot(String base, String body) {
+        snapshots.put(base, body);
+        return this;
+    }
+
+    /**
+     * Les requêtes attendent l'ouverture du verrou avant de répondre.
+     */
+    public StubRateProvider blockUntil(CountDownLatch gate) {
+        this.gate = gate;
+        return this;
+    }
+
+    public StubRateProvider failWith(IOException failure) {
+        this.failure = failure;
+        return this;
+    }
+
+    public List<String> fetchedBases() {
+        return fetchedBases;
+    }
+
+    public int maxInFlight() {
+        return maxInFlight.get();
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public List<String> bases() {
+        return bases;
+    }
+
+    @Override
+    public int requestsPerMinute() {
+        return requestsPerMinute;
+    }
+
+    @Override
+    public <T> T fetch(String base, boolean conditional, SnapshotReader<T> reader) throws IOException {
+        fetchedBases.add(base);
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try {
+            CountDownLatch currentGate = gate;
+            if (currentGate != null && !currentGate.await(10, TimeUnit.SECONDS)) {
+                throw new IOException("Gate never opened");
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return reader.read(new ByteArrayInputStream(snapshots.get(base).getBytes(StandardCharsets.UTF_8)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+}
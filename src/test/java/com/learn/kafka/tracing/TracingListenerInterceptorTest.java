@@ -0,0 +1,143 @@
+package com.learn.kafka.tracing;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.KafkaUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TracingListenerInterceptorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final TracingListenerInterceptor<String, String> interceptor = new TracingListenerInterceptor<>(meterRegistry);
+
+    @BeforeEach
+    void setUp() {
+        KafkaUtils.setConsumerGroupId("elasticsearch-consumer");
+    }
+
+    @AfterEach
+    void tearDown() {
+        KafkaUtils.clearConsumerGroupId();
+        TraceContext.current().clear();
+    }
+
+    @Test
+    void shouldRecordHopProcessingAndEndToEndLatency() {
+        // Given : publié il y a 5 ms, envoyé sur ce saut il y a 2 ms
+        long now = TraceHeaders.nowMicros();
+        ConsumerRecord<String, String> record = tracedRecord("exchange-rates", 9L, now - 5_000, now - 2_000);
+
+        // When
+        interceptor.intercept(record, null);
+        interceptor.success(record, null);
+        interceptor.afterRecord(record, null);
+
+        // Then
+        assertThat(timer("hop", "exchange-rates").count()).isEqualTo(1);
+        assertThat(timer("hop", "exchange-rates").totalTime(TimeUnit.MICROSECONDS)).isGreaterThanOrEqualTo(2_000);
+        assertThat(timer("processing", "exchange-rates").count()).isEqualTo(1);
+        assertThat(timer("end-to-end", "exchange-rates").totalTime(TimeUnit.MICROSECONDS)).isGreaterThanOrEqualTo(5_000);
+        assertThat(TraceContext.current().traceId()).isEqualTo(TraceHeaders.NONE);
+    }
+
+    @Test
+    void shouldExposeTraceToRecordsProducedByListener() {
+        // Given
+        ConsumerRecord<String, String> record = tracedRecord("exchange-rates", 9L, 1_000L, 1_000L);
+
+        // When
+        interceptor.intercept(record, null);
+
+        // Then
+        assertThat(TraceContext.current().traceId()).isEqualTo(9L);
+        assertThat(TraceContext.current().originAt()).isEqualTo(1_000L);
+    }
+
+    @Test
+    void shouldClampClockSkewToZero() {
+        // Given : horloge du producteur en avance
+        long future = TraceHeaders.nowMicros() + 60_000_000L;
+        ConsumerRecord<String, String> record = tracedRecord("mon-tunnel-topic", 1L, future, future);
+
+        // When
+        interceptor.intercept(record, null);
+
+        // Then
+        assertThat(timer("hop", "mon-tunnel-topic").totalTime(TimeUnit.MICROSECONDS)).isZero();
+    }
+
+    @Test
+    void shouldSkipUntracedRecords() {
+        // Given
+        ConsumerRecord<String, String> record = new ConsumerRecord<>("mon-tunnel-topic", 0, 0L, null, "message");
+
+        // When
+        interceptor.intercept(record, null);
+        interceptor.success(record, null);
+
+        // Then
+        assertThat(timer("hop", "mon-tunnel-topic").count()).isZero();
+        assertThat(timer("end-to-end", "mon-tunnel-topic").count()).isZero();
+        assertThat(timer("processing", "mon-tunnel-topic").count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRecordProcessingOncePerBatchAndEndToEndPerRecord() {
+        // Given
+        long now = TraceHeaders.nowMicros();
+        ConsumerRecords<String, String> records = new ConsumerRecords<>(Map.of(
+                new TopicPartition("exchange-rate-pairs", 0),
+                List.of(tracedRecord("exchange-rate-pairs", 1L, now, now), tracedRecord("exchange-rate-pairs", 2L, now, now))));
+
+        // When
+        interceptor.intercept(records, null);
+        interceptor.success(records, null);
+
+        // Then
+        assertThat(timer("hop", "exchange-rate-pairs").count()).isEqualTo(2);
+        assertThat(timer("processing", "exchange-rate-pairs").count()).isEqualTo(1);
+        assertThat(timer("end-to-end", "exchange-rate-pairs").count()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldTagInstanceGroupsWithoutTheirRandomSuffix() {
+        // Given
+        KafkaUtils.setConsumerGroupId("latest-rates-cache-3f1c2a9e-8b7d-4c1e-9f00-123456789abc");
+        ConsumerRecord<String, String> record = tracedRecord("exchange-rates", 9L, 1_000L, 1_000L);
+
+        // When
+        interceptor.intercept(record, null);
+        interceptor.success(record, null);
+
+        // Then
+        assertThat(meterRegistry.get("kafka.trace.latency")
+                .tags("stage", "hop", "group", "latest-rates-cache", "topic", "exchange-rates")
+                .timer().count()).isEqualTo(1);
+    }
+
+    private Timer timer(String stage, String topic) {
+        return meterRegistry.get("kafka.trace.latency")
+                .tags("stage", stage, "group", "elasticsearch-consumer", "topic", topic)
+                .timer();
+    }
+
+    private static ConsumerRecord<String, String> tracedRecord(String topic, long traceId, long originAt, long sentAt) {
+        ConsumerRecord<String, String> record = new ConsumerRecord<>(topic, 0, 0L, null, "{}");
+        TraceHeaders.set(record.headers(), TraceHeaders.TRACE_ID, traceId);
+        TraceHeaders.set(record.headers(), TraceHeaders.ORIGIN_AT, originAt);
+        TraceHeaders.set(record.headers(), TraceHeaders.SENT_AT, sentAt);
+        return record;
+    }
+}
@@ -0,0 +1,89 @@
+package com.learn.kafka.tracing;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TracingProducerInterceptorTest {
+
+    private final TracingProducerInterceptor interceptor = new TracingProducerInterceptor();
+
+    @AfterEach
+    void tearDown() {
+        TraceContext.current().clear();
+    }
+
+    @Test
+    void shouldStartTraceOnUntracedRecord() {
+        // Given
+        long before = TraceHeaders.nowMicros();
+
+        // When
+        ProducerRecord<Object, Object> record = interceptor.onSend(new ProducerRecord<>("mon-tunnel-topic", "message"));
+
+        // Then
+        long traceId = TraceHeaders.get(record.headers(), TraceHeaders.TRACE_ID);
+        long originAt = TraceHeaders.get(record.headers(), TraceHeaders.ORIGIN_AT);
+        assertThat(traceId).isNotEqualTo(TraceHeaders.NONE);
+        assertThat(originAt).isBetween(before, TraceHeaders.nowMicros());
+        assertThat(TraceHeaders.get(record.headers(), TraceHeaders.SENT_AT)).isEqualTo(originAt);
+    }
+
+    @Test
+    void shouldKeepTraceOfForwardedRecordAndRestampSendTime() {
+        // Given : record renvoyé vers un topic de retry avec les en-têtes d'origine
+        ProducerRecord<Object, Object> record = new ProducerRecord<>("exchange-rates-es-retry-0", "{}");
+        TraceHeaders.set(record.headers(), TraceHeaders.TRACE_ID, 42L);
+        TraceHeaders.set(record.headers(), TraceHeaders.ORIGIN_AT, 1_000L);
+        TraceHeaders.set(record.headers(), TraceHeaders.SENT_AT, 1_000L);
+
+        // When
+        interceptor.onSend(record);
+
+        // Then
+        assertThat(TraceHeaders.get(record.headers(), TraceHeaders.TRACE_ID)).isEqualTo(42L);
+        assertThat(TraceHeaders.get(record.headers(), TraceHeaders.ORIGIN_AT)).isEqualTo(1_000L);
+        assertThat(TraceHeaders.get(record.headers(), TraceHeaders.SENT_AT)).isGreaterThan(1_000L);
+        assertThat(record.headers().headers(TraceHeaders.SENT_AT)).hasSize(1);
+    }
+
+    @Test
+    void shouldInheritTraceOfRecordBeingConsumed() {
+        // Given : paire produite pendant le traitement d'un snapshot
+        TraceContext.current().set(7L, 2_000L, 3_000L);
+
+        // When
+        ProducerRecord<Object, Object> record = interceptor.onSend(new ProducerRecord<>("exchange-rate-pairs", "USDEUR", "{}"));
+
+        // Then
+        assertThat(TraceHeaders.get(record.headers(), TraceHeaders.TRACE_ID)).isEqualTo(7L);
+        assertThat(TraceHeaders.get(record.headers(), TraceHeaders.ORIGIN_AT)).isEqualTo(2_000L);
+    }
+
+    @Test
+    void shouldIgnoreMalformedHeader() {
+        // Given
+        ProducerRecord<Object, Object> record = new ProducerRecord<>("mon-tunnel-topic", "message");
+        record.headers().add(TraceHeaders.TRACE_ID, new byte[]{1, 2});
+
+        // When
+        interceptor.onSend(record);
+
+        // Then
+        assertThat(TraceHeaders.get(record.headers(), TraceHeaders.TRACE_ID)).isNotEqualTo(TraceHeaders.NONE);
+    }
+
+    @Test
+    void shouldRoundTripNegativeValues() {
+        // Given
+        ProducerRecord<Object, Object> record = new ProducerRecord<>("mon-tunnel-topic", "message");
+
+        // When
+        TraceHeaders.set(record.headers(), TraceHeaders.TRACE_ID, -123456789L);
+
+        // Then
+        assertThat(TraceHeaders.get(record.headers(), TraceHeaders.TRACE_ID)).isEqualTo(-123456789L);
+    }
+}